@@ -0,0 +1,44 @@
+package com.mfgeek.gb.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Run the benchmarks of the generator and of the codecs.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The usual JMH command line, with the GC profiler always on: every result comes with the bytes
+ * allocated per operation (<code>gc.alloc.rate.norm</code>) next to its time.
+ *
+ * <h3>USAGE</h3>
+ *
+ * <pre>
+ * mvn -pl pojo2proto-benchmarks -am package
+ * java -jar pojo2proto-benchmarks/target/benchmarks.jar                         # everything
+ * java -jar pojo2proto-benchmarks/target/benchmarks.jar Generator -p classCount=100
+ * java -jar pojo2proto-benchmarks/target/benchmarks.jar -lp                     # benchmarks and parameters
+ * </pre>
+ *
+ */
+public final class Benchmarks {
+
+	private Benchmarks() {
+	}
+
+	/**
+	 * @param args JMH command line
+	 * @throws RunnerException if a benchmark fails
+	 * @throws CommandLineOptionException if the command line is invalid
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+
+}
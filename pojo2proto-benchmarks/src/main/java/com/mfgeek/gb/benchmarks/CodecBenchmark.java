@@ -0,0 +1,146 @@
+package com.mfgeek.gb.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mfgeek.gb.ProtoFile;
+import com.mfgeek.gb.ProtoGenerator;
+import com.mfgeek.gb.ReflectionPojoReader;
+import com.mfgeek.gb.runtime.CodecRegistry;
+import com.mfgeek.gb.runtime.ProtoCodec;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Time to encode and decode a POJO with the generic codec and with the generated one.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The POJO is the second class of a synthetic package: all its fields are set, the ones referring
+ * to the first class hold a nested message.
+ *
+ * <h3>USAGE</h3>
+ * See {@link Benchmarks}.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	@Param({ "8", "64" })
+	public int									fieldCount;
+
+	private SyntheticPackage		pkg;
+	private ProtoCodec<Object>	reflection;
+	private ProtoCodec<Object>	generated;
+	private Object							pojo;
+	private byte[]							bytes;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		this.pkg = new SyntheticPackage(2, this.fieldCount);
+		List<ProtoFile> protos = ProtoGenerator.getInstance().parse(this.pkg.config(new ReflectionPojoReader(this.pkg.getLoader())));
+		Class<?> type = this.pkg.getLoader().loadClass(this.pkg.getClassNames().get(1));
+		this.reflection = (ProtoCodec<Object>) new CodecRegistry(protos).codec(type);
+		this.generated = (ProtoCodec<Object>) new CodecRegistry(protos, true).codec(type);
+		if (this.generated.getClass() == this.reflection.getClass()) {
+			throw new IllegalStateException("No codec could be generated for " + type.getName());
+		}
+		this.pojo = populate(type, 1);
+		this.bytes = this.reflection.encode(this.pojo);
+		if (!Arrays.equals(this.bytes, this.generated.encode(this.pojo))) {
+			throw new IllegalStateException("The codecs disagree on " + type.getName());
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		this.pkg.close();
+	}
+
+	/**
+	 * @param pType a class of the synthetic package
+	 * @param pIndex index of the class
+	 * @return an instance with all its fields set
+	 * @throws Exception if the class does not behave as generated
+	 */
+	private Object populate(Class<?> pType, int pIndex) throws Exception {
+		Object pojo = pType.getConstructor().newInstance();
+		for (int j = 0; j < this.fieldCount; j++) {
+			String type = SyntheticPackage.type(pIndex, j);
+			Object value;
+			if (type.equals("int")) {
+				value = j;
+			} else if (type.equals("long")) {
+				value = j * 1000000007L;
+			} else if (type.equals("double")) {
+				value = j * 0.5;
+			} else if (type.equals("boolean")) {
+				value = j % 2 == 0;
+			} else if (type.equals("String")) {
+				value = "value" + j;
+			} else if (type.startsWith("java.util.List")) {
+				value = new ArrayList<>(Arrays.asList("a", "b", "c"));
+			} else {
+				value = populate(this.pkg.getLoader().loadClass(SyntheticPackage.PACKAGE + "." + type), pIndex - 1);
+			}
+			setter(pType, "setField" + j).invoke(pojo, value);
+		}
+		return pojo;
+	}
+
+	/**
+	 * @param pType a class
+	 * @param pName the name of a setter
+	 * @return the setter
+	 */
+	private static Method setter(Class<?> pType, String pName) {
+		for (Method method : pType.getMethods()) {
+			if (method.getName().equals(pName)) {
+				return method;
+			}
+		}
+		throw new IllegalArgumentException(pName);
+	}
+
+	@Benchmark
+	public byte[] encodeReflection() {
+		return this.reflection.encode(this.pojo);
+	}
+
+	@Benchmark
+	public byte[] encodeGenerated() {
+		return this.generated.encode(this.pojo);
+	}
+
+	@Benchmark
+	public Object decodeReflection() {
+		return this.reflection.decode(this.bytes);
+	}
+
+	@Benchmark
+	public Object decodeGenerated() {
+		return this.generated.decode(this.bytes);
+	}
+
+}
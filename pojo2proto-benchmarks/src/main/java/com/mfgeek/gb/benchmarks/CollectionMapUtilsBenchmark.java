@@ -0,0 +1,110 @@
+package com.mfgeek.gb.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mfgeek.gb.utils.CollectionMapUtils;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Time of the collection helpers on lists and maps of strings.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Half of the elements of the list are duplicates, the second list overlaps the first by half. The
+ * helpers which change their arguments work on copies, the copy is part of the measure.
+ *
+ * <h3>USAGE</h3>
+ * See {@link Benchmarks}.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionMapUtilsBenchmark {
+
+	private static final Comparator<Map.Entry<String, Integer>> BY_VALUE = new Comparator<Map.Entry<String, Integer>>() {
+
+		@Override
+		public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
+			return o1.getValue().compareTo(o2.getValue());
+		}
+	};
+
+	@Param({ "16", "1024" })
+	public int										size;
+
+	private List<String>					list;
+	private List<String>					other;
+	private List<String>					shuffled;
+	private Map<String, Integer>	map;
+
+	@Setup
+	public void setUp() {
+		this.list = new ArrayList<>(this.size);
+		this.other = new ArrayList<>(this.size);
+		this.map = new LinkedHashMap<>();
+		for (int i = 0; i < this.size; i++) {
+			this.list.add("value" + i / 2);
+			this.other.add("value" + (i + this.size / 2));
+			this.map.put("key" + i, (i * 31) % this.size);
+		}
+		this.shuffled = new ArrayList<>(this.list);
+		Collections.shuffle(this.shuffled);
+	}
+
+	@Benchmark
+	public Collection<String> deduplicate() {
+		List<String> copy = new ArrayList<>(this.list);
+		CollectionMapUtils.deduplicate(copy);
+		return copy;
+	}
+
+	@Benchmark
+	public Collection<String> union() {
+		List<String> copy = new ArrayList<>(this.list);
+		CollectionMapUtils.union(copy, new ArrayList<>(this.other));
+		return copy;
+	}
+
+	@Benchmark
+	public Map<String, String> listToMap() {
+		return CollectionMapUtils.listToMap(this.list);
+	}
+
+	@Benchmark
+	public List<String> mapToListOfKeys() {
+		return CollectionMapUtils.mapToListOfKeys(this.map);
+	}
+
+	@Benchmark
+	public Map<String, Integer> sortByValue() {
+		return CollectionMapUtils.sortByValue(this.map, BY_VALUE);
+	}
+
+	@Benchmark
+	public boolean equals() {
+		return CollectionMapUtils.equals(this.list, this.shuffled);
+	}
+
+}
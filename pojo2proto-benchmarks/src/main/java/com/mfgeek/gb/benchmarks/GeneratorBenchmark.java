@@ -0,0 +1,89 @@
+package com.mfgeek.gb.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mfgeek.gb.ClassFilePojoReader;
+import com.mfgeek.gb.GeneratorConfig;
+import com.mfgeek.gb.ProtoFile;
+import com.mfgeek.gb.ProtoGenerator;
+import com.mfgeek.gb.ReflectionPojoReader;
+import com.mfgeek.gb.SourcePojoReader;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Time to scan a package and build the model of its proto files, by way of reading the classes.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The classes are loaded once by the first invocation, so the reflection benchmarks measure a warm
+ * generator: listing the package, reading the cached structures and building the proto files. The
+ * class file and source benchmarks parse every class file, or every <code>.java</code> file, on
+ * each invocation.
+ *
+ * <h3>USAGE</h3>
+ * See {@link Benchmarks}.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int								classCount;
+
+	@Param({ "8", "64" })
+	public int								fieldCount;
+
+	private SyntheticPackage	pkg;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.pkg = new SyntheticPackage(this.classCount, this.fieldCount);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		this.pkg.close();
+	}
+
+	@Benchmark
+	public List<ProtoFile> parseReflection() {
+		return ProtoGenerator.getInstance().parse(this.pkg.config(new ReflectionPojoReader(this.pkg.getLoader())));
+	}
+
+	@Benchmark
+	public List<ProtoFile> parseReflectionParallel() {
+		GeneratorConfig config = this.pkg.config(new ReflectionPojoReader(this.pkg.getLoader()));
+		config.setParallelism(4);
+		return ProtoGenerator.getInstance().parse(config);
+	}
+
+	@Benchmark
+	public List<ProtoFile> parseClassFiles() {
+		return ProtoGenerator.getInstance().parse(this.pkg.config(new ClassFilePojoReader(this.pkg.getClassesRoot())));
+	}
+
+	@Benchmark
+	public List<ProtoFile> parseSources() {
+		return ProtoGenerator.getInstance().parse(this.pkg.config(new SourcePojoReader(this.pkg.getSourceRoot())));
+	}
+
+}
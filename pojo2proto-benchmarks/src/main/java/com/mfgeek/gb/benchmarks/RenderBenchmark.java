@@ -0,0 +1,156 @@
+package com.mfgeek.gb.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.mfgeek.gb.ProtoFile;
+import com.mfgeek.gb.ProtoFile.ProtoField;
+import com.mfgeek.gb.ProtoGenerator;
+import com.mfgeek.gb.ReflectionPojoReader;
+
+import okio.Buffer;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Time to render the proto files of a package, whole or field by field, as strings or straight
+ * into a buffer, against the <code>StringBuffer</code> renderer the sink replaced.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The model is built once per trial, each invocation renders all the proto files of the package.
+ * {@link #stringBufferToBytes} is the baseline: the former renderer, a concatenation per line into
+ * a <code>StringBuffer</code>, then encoded to UTF-8 as the files were written; compare its
+ * <code>gc.alloc.rate.norm</code> with the one of {@link #writeTo}.
+ *
+ * <h3>USAGE</h3>
+ * See {@link Benchmarks}.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+	@Param({ "100" })
+	public int							classCount;
+
+	@Param({ "8", "64" })
+	public int							fieldCount;
+
+	private List<ProtoFile>	protos;
+
+	@Setup
+	public void setUp() throws IOException {
+		try (SyntheticPackage pkg = new SyntheticPackage(this.classCount, this.fieldCount)) {
+			this.protos = ProtoGenerator.getInstance().parse(pkg.config(new ReflectionPojoReader(pkg.getLoader())));
+		}
+	}
+
+	@Benchmark
+	public void protoFileToString(Blackhole bh) {
+		for (ProtoFile pf : this.protos) {
+			bh.consume(pf.toString());
+		}
+	}
+
+	@Benchmark
+	public void protoFieldToString(Blackhole bh) {
+		for (ProtoFile pf : this.protos) {
+			for (ProtoField field : pf.getFields()) {
+				bh.consume(field.toString(pf.getSyntax(), pf.isEnum()));
+			}
+		}
+	}
+
+	@Benchmark
+	public long stringBufferToBytes() {
+		Buffer buffer = new Buffer();
+		for (ProtoFile pf : this.protos) {
+			buffer.write(render(pf).getBytes(StandardCharsets.UTF_8));
+		}
+		long size = buffer.size();
+		buffer.clear();
+		return size;
+	}
+
+	@Benchmark
+	public long writeTo() throws IOException {
+		Buffer buffer = new Buffer();
+		for (ProtoFile pf : this.protos) {
+			pf.writeTo(buffer);
+		}
+		long size = buffer.size();
+		buffer.clear();
+		return size;
+	}
+
+	/**
+	 * The renderer of the proto files before the sink, kept as it was: the options added since, as
+	 * packed or map fields, are not rendered.
+	 */
+	private static String render(ProtoFile pf) {
+		StringBuffer buf = new StringBuffer();
+		if (pf.getSyntax() != null && !pf.getSyntax().isEmpty()) {
+			buf.append("syntax = \"" + pf.getSyntax() + "\";\n");
+			buf.append("\n");
+		}
+		buf.append("package " + pf.getPackageName() + ";\n");
+		if (!pf.isEnum()) {
+			buf.append("\n");
+			for (String i : pf.getImports()) {
+				buf.append("import \"" + i + "\";\n");
+			}
+		}
+		buf.append("\n");
+		if (pf.getJavaPackage() != null && !pf.getJavaPackage().isEmpty()) {
+			buf.append("option java_package = \"" + pf.getJavaPackage() + "\";\n");
+		}
+		if (pf.getJavaOuterClassName() != null && !pf.getJavaOuterClassName().isEmpty()) {
+			buf.append("option java_outer_classname = \"" + pf.getJavaOuterClassName() + "\";\n");
+		}
+		buf.append("\n");
+		buf.append((pf.isEnum() ? "enum " : "message ") + pf.getName() + " {\n");
+		buf.append("\n");
+		for (ProtoField f : pf.getFields()) {
+			if (pf.isEnum() && "value".equals(f.getName())) {
+				continue;
+			}
+			buf.append("\t" + render(f, pf.getSyntax(), pf.isEnum()) + ";\n");
+			buf.append("\n");
+		}
+		buf.append("}\n");
+		return buf.toString();
+	}
+
+	private static String render(ProtoField f, String syntax, boolean isFieldForEnum) {
+		if (isFieldForEnum) {
+			return f.getName() + " = " + (f.getIndex() - 1);
+		}
+		String prefix = "";
+		if (f.isRepeated()) {
+			prefix = "repeated ";
+		} else if (!"proto3".equals(syntax)) {
+			prefix = f.isRequired() ? "required " : "optional ";
+		}
+		return prefix + f.getType() + " " + f.getName() + " = " + f.getIndex() + " "
+				+ (f.getDefaultValue() == null || "proto3".equals(syntax) ? "" : ("[ " + f.getDefaultValue() + " ]"));
+	}
+
+}
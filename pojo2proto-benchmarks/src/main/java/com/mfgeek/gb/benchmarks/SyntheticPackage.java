@@ -0,0 +1,173 @@
+package com.mfgeek.gb.benchmarks;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import com.mfgeek.gb.GeneratorConfig;
+import com.mfgeek.gb.PojoReader;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * A package of generated POJO classes, sources and class files, in a temporary directory.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Class <code>Entity&lt;i&gt;</code> has the given number of fields, cycling through int,
+ * String, long, double, boolean and List&lt;String&gt;; every seventh field of a class refers to the
+ * previous class, so the proto files import each other. Each field has a public getter and setter.
+ * The sources are compiled with the compiler of the running JDK, the classes are loaded from a
+ * class loader of their own.
+ *
+ * <h3>USAGE</h3>
+ * Created in the setup of a benchmark, closed in its tear down.
+ *
+ */
+final class SyntheticPackage implements Closeable {
+
+	static final String						PACKAGE	= "bench.model";
+
+	private static final String[]	TYPES		= { "int", "String", "long", "double", "boolean", "java.util.List<String>" };
+
+	private final Path						root;
+	private final File						source;
+	private final File						classes;
+	private final List<String>		classNames;
+	private final URLClassLoader	loader;
+
+	/**
+	 * @param pClassCount number of classes
+	 * @param pFieldCount number of fields per class
+	 * @throws IOException if the package cannot be written or compiled
+	 */
+	SyntheticPackage(int pClassCount, int pFieldCount) throws IOException {
+		this.root = Files.createTempDirectory("pojo2proto-bench");
+		this.source = new File(this.root.toFile(), "src");
+		this.classes = new File(this.root.toFile(), "classes");
+		File packageDir = new File(this.source, PACKAGE.replace('.', File.separatorChar));
+		if (!packageDir.mkdirs() || !this.classes.mkdirs()) {
+			throw new IOException("Unable to create " + this.root);
+		}
+
+		this.classNames = new ArrayList<>(pClassCount);
+		List<String> files = new ArrayList<>(pClassCount + 4);
+		files.add("-d");
+		files.add(this.classes.getPath());
+		files.add("-nowarn");
+		for (int i = 0; i < pClassCount; i++) {
+			File file = new File(packageDir, "Entity" + i + ".java");
+			try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+				out.write(source(i, pFieldCount));
+			}
+			files.add(file.getPath());
+			this.classNames.add(PACKAGE + ".Entity" + i);
+		}
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null || compiler.run(null, null, null, files.toArray(new String[files.size()])) != 0) {
+			throw new IOException("Unable to compile " + packageDir + ", a JDK is needed");
+		}
+		this.loader = new URLClassLoader(new URL[] { this.classes.toURI().toURL() }, SyntheticPackage.class.getClassLoader());
+	}
+
+	/**
+	 * @param pIndex index of the class
+	 * @param pFieldCount number of fields
+	 * @return the source of the class
+	 */
+	private static String source(int pIndex, int pFieldCount) {
+		StringBuilder buf = new StringBuilder(256 + pFieldCount * 160);
+		buf.append("package ").append(PACKAGE).append(";\n\npublic class Entity").append(pIndex).append(" {\n");
+		for (int j = 0; j < pFieldCount; j++) {
+			buf.append("\tprivate ").append(type(pIndex, j)).append(" field").append(j).append(";\n");
+		}
+		for (int j = 0; j < pFieldCount; j++) {
+			String type = type(pIndex, j);
+			buf.append("\tpublic ").append(type).append(type.equals("boolean") ? " isField" : " getField").append(j).append("() { return field").append(j)
+					.append("; }\n");
+			buf.append("\tpublic void setField").append(j).append('(').append(type).append(" v) { field").append(j).append(" = v; }\n");
+		}
+		return buf.append("}\n").toString();
+	}
+
+	/**
+	 * @param pIndex index of the class
+	 * @param pField index of the field
+	 * @return the java type of the field
+	 */
+	static String type(int pIndex, int pField) {
+		if (pIndex > 0 && pField % 7 == 6) {
+			return "Entity" + (pIndex - 1);
+		}
+		return TYPES[pField % TYPES.length];
+	}
+
+	/**
+	 * @param pReader the way the classes are read
+	 * @return the settings of a run over the package
+	 */
+	GeneratorConfig config(PojoReader pReader) {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource(this.source.getPath());
+		config.setPojoPackage(PACKAGE);
+		config.setProtoPackage("bench");
+		config.setReader(pReader);
+		return config;
+	}
+
+	File getSourceRoot() {
+		return this.source;
+	}
+
+	File getClassesRoot() {
+		return this.classes;
+	}
+
+	ClassLoader getLoader() {
+		return this.loader;
+	}
+
+	List<String> getClassNames() {
+		return this.classNames;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.loader.close();
+		delete(this.root);
+	}
+
+	/**
+	 * @param pDir a directory, deleted with its content
+	 * @throws IOException if a file cannot be deleted
+	 */
+	static void delete(Path pDir) throws IOException {
+		Files.walkFileTree(pDir, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+}
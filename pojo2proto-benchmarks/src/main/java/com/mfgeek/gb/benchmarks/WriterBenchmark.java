@@ -0,0 +1,95 @@
+package com.mfgeek.gb.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mfgeek.gb.ProtoFile;
+import com.mfgeek.gb.ProtoFileWriter;
+import com.mfgeek.gb.ProtoGenerator;
+import com.mfgeek.gb.ReflectionPojoReader;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Time to write the proto files of a package to disk.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * With <code>clean</code> the output directory is emptied before each invocation, so every file is
+ * written; without it every file is already there with the same content, which is the path of a
+ * regeneration where nothing changed.
+ *
+ * <h3>USAGE</h3>
+ * See {@link Benchmarks}.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterBenchmark {
+
+	@Param({ "100", "1000" })
+	public int							classCount;
+
+	@Param({ "1", "4" })
+	public int							threads;
+
+	@Param({ "true", "false" })
+	public boolean					clean;
+
+	private List<ProtoFile>	protos;
+	private Path						dir;
+
+	@Setup
+	public void setUp() throws IOException {
+		try (SyntheticPackage pkg = new SyntheticPackage(this.classCount, 16)) {
+			this.protos = ProtoGenerator.getInstance().parse(pkg.config(new ReflectionPojoReader(pkg.getLoader())));
+		}
+		this.dir = Files.createTempDirectory("pojo2proto-bench-out");
+		write();
+	}
+
+	@Setup(Level.Invocation)
+	public void clean() throws IOException {
+		if (this.clean) {
+			for (File file : this.dir.toFile().listFiles()) {
+				Files.delete(file.toPath());
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		SyntheticPackage.delete(this.dir);
+	}
+
+	@Benchmark
+	public int write() {
+		ProtoFileWriter writer = new ProtoFileWriter(this.dir.toString(), this.threads);
+		for (ProtoFile pf : this.protos) {
+			writer.write(pf);
+		}
+		writer.close();
+		return writer.getFilesWritten();
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.mfgeek.gb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okio.Buffer;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Sink writing the messages and enums of a run into one proto file per bundle, see
+ * {@link ProtoBundling}, rather than one per class.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The definition of each class is rendered as soon as it is received into the buffer of its bundle,
+ * the proto file model is not kept. The imports of a bundle are the union of the imports of its
+ * classes, which already name bundles and never the bundle itself when the same bundling is set in
+ * the {@link GeneratorConfig}. Classes come in package order, so a bundle of one package is
+ * complete, headed and handed to the {@link ProtoFileWriter} as soon as a class of another bundle
+ * comes; groups are only complete once the run is over. A run over several inputs comes input
+ * after input, a package may be split between them, so all its bundles are kept until the run is
+ * over.
+ *
+ * <h3>USAGE</h3>
+ * Give it to {@link ProtoGenerator#generate(GeneratorConfig, ProtoFileSink)}, then close it to write
+ * the remaining bundles and wait for the writes.
+ *
+ */
+public class BundleSink implements ProtoFileSink, Closeable {
+
+	private final ProtoFileWriter			writer;
+	private final ProtoBundling				bundling;
+	private final Map<String, Bundle>	bundles	= new LinkedHashMap<>();
+	/** classes of a bundle may come apart, every bundle is only written on close */
+	private final boolean							split;
+	private Bundle										current;
+	private int												bundlesWritten;
+
+	/**
+	 * @param pWriter the writer of the output directory
+	 * @param pBundling the grouping of the classes, the one of the {@link GeneratorConfig}
+	 */
+	public BundleSink(ProtoFileWriter pWriter, ProtoBundling pBundling) {
+		this(pWriter, pBundling, false);
+	}
+
+	/**
+	 * @param pWriter the writer of the output directory
+	 * @param pBundling the grouping of the classes, the one of the {@link GeneratorConfig}
+	 * @param pSplit <code>true</code> if the classes of a package may not come in one block, such as
+	 *          when the run reads several inputs
+	 */
+	public BundleSink(ProtoFileWriter pWriter, ProtoBundling pBundling, boolean pSplit) {
+		this.writer = pWriter;
+		this.bundling = pBundling;
+		this.split = pSplit;
+	}
+
+	@Override
+	public void accept(ProtoFile pf) {
+		long start = System.nanoTime();
+		String name = this.bundling.bundleOf(pf.getClassName());
+		Bundle bundle = this.bundles.get(name);
+		if (bundle == null) {
+			bundle = new Bundle(name, pf);
+			this.bundles.put(name, bundle);
+		}
+		if (!this.split && this.current != null && this.current != bundle && !this.bundling.isGroup(this.current.header.getName())) {
+			this.bundles.remove(this.current.header.getName());
+			write(this.current);
+		}
+		this.current = bundle;
+		for (String protoImport : pf.getImports()) {
+			bundle.header.appendImport(protoImport);
+		}
+		try {
+			if (bundle.body.size() > 0) {
+				bundle.body.writeByte('\n');
+			}
+			pf.writeBody(bundle.body);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // a Buffer never fails
+		}
+		addRenderTime(start);
+	}
+
+	/**
+	 * Head a complete bundle and hand it to the writer.
+	 *
+	 * @param pBundle the bundle
+	 */
+	private void write(Bundle pBundle) {
+		long start = System.nanoTime();
+		Buffer content = new Buffer();
+		try {
+			pBundle.header.writeHeader(content);
+			content.writeAll(pBundle.body);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // a Buffer never fails
+		}
+		addRenderTime(start);
+		this.writer.write(pBundle.header.getName() + ".proto", content);
+		this.bundlesWritten++;
+	}
+
+	private void addRenderTime(long pStart) {
+		if (this.writer.getStats() != null) {
+			this.writer.getStats().add(RunStats.Phase.RENDER, System.nanoTime() - pStart);
+		}
+	}
+
+	/**
+	 * Write the remaining bundles and wait for the pending writes.
+	 */
+	@Override
+	public void close() {
+		for (Iterator<Bundle> i = this.bundles.values().iterator(); i.hasNext();) {
+			write(i.next());
+			i.remove();
+		}
+		this.current = null;
+		this.writer.close();
+	}
+
+	/**
+	 * @return the number of bundles given to the writer
+	 */
+	public int getBundlesWritten() {
+		return this.bundlesWritten;
+	}
+
+	public ProtoFileWriter getWriter() {
+		return this.writer;
+	}
+
+	/**
+	 * A proto file being filled: its header, taken from its first class, and its rendered definitions.
+	 */
+	private static final class Bundle {
+
+		private final ProtoFile	header	= new ProtoFile();
+		private final Buffer		body		= new Buffer();
+
+		Bundle(String pName, ProtoFile pFirst) {
+			this.header.setName(pName);
+			this.header.setSyntax(pFirst.getSyntax());
+			this.header.setPackageName(pFirst.getPackageName());
+			this.header.setJavaPackage(pFirst.getJavaPackage());
+			this.header.setJavaOuterClassName(ProtoBundling.outerClassNameOf(pName));
+		}
+	}
+
+}
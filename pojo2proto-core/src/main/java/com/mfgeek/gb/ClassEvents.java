@@ -0,0 +1,70 @@
+package com.mfgeek.gb;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Emit the {@link ClassProcessedEvent} flight recorder events when the flight recorder API is
+ * available, do nothing otherwise.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The event class extends <code>jdk.jfr.Event</code>, missing before Java 9: it is only touched
+ * once {@link #AVAILABLE} says it can be loaded, and handed around as an {@link Object}.
+ *
+ * <h3>USAGE</h3>
+ * {@link #begin()} before reading a class, {@link #commit(Object, String, int, int, long)} once its
+ * model is built.
+ *
+ */
+final class ClassEvents {
+
+	private static final boolean AVAILABLE = isAvailable();
+
+	private ClassEvents() {
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, ClassEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the started event, <code>null</code> if no event is recorded
+	 */
+	static Object begin() {
+		if (!AVAILABLE) {
+			return null;
+		}
+		ClassProcessedEvent event = new ClassProcessedEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * @param pEvent the event returned by {@link #begin()}
+	 * @param pClassName binary name of the class
+	 * @param pFields number of fields
+	 * @param pSkippedFields number of fields without proto mapping
+	 * @param pReadNanos time to load and read the class
+	 */
+	static void commit(Object pEvent, String pClassName, int pFields, int pSkippedFields, long pReadNanos) {
+		if (pEvent == null) {
+			return;
+		}
+		ClassProcessedEvent event = (ClassProcessedEvent) pEvent;
+		event.end();
+		if (event.shouldCommit()) {
+			event.className = pClassName;
+			event.fields = pFields;
+			event.skippedFields = pSkippedFields;
+			event.readNanos = pReadNanos;
+			event.commit();
+		}
+	}
+
+}
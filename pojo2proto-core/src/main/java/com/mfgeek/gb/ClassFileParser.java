@@ -0,0 +1,315 @@
+package com.mfgeek.gb;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Minimal reader of the class file format: constant pool, class header and fields with their
+ * <code>Signature</code> attribute. Methods and the other attributes are never read.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * See chapter 4 of the Java Virtual Machine Specification. Nothing is loaded: the only classes
+ * ever resolved are JDK types, without initialization, to know whether a field is a collection.
+ *
+ * <h3>USAGE</h3>
+ * Used by {@link ClassFilePojoReader}.
+ *
+ */
+final class ClassFileParser {
+
+	private static final int					MAGIC								= 0xCAFEBABE;
+
+	private static final int					ACC_ENUM						= 0x4000;
+
+	private static final int					CONSTANT_UTF8				= 1;
+	private static final int					CONSTANT_INTEGER		= 3;
+	private static final int					CONSTANT_FLOAT			= 4;
+	private static final int					CONSTANT_LONG				= 5;
+	private static final int					CONSTANT_DOUBLE			= 6;
+	private static final int					CONSTANT_CLASS			= 7;
+	private static final int					CONSTANT_STRING			= 8;
+	private static final int					CONSTANT_FIELDREF		= 9;
+	private static final int					CONSTANT_METHODREF	= 10;
+	private static final int					CONSTANT_IMETHODREF	= 11;
+	private static final int					CONSTANT_NAMETYPE		= 12;
+	private static final int					CONSTANT_MHANDLE		= 15;
+	private static final int					CONSTANT_MTYPE			= 16;
+	private static final int					CONSTANT_DYNAMIC		= 17;
+	private static final int					CONSTANT_INDY				= 18;
+	private static final int					CONSTANT_MODULE			= 19;
+	private static final int					CONSTANT_PACKAGE		= 20;
+
+	private static final Set<String>	COLLECTIONS					= new HashSet<>(Arrays.asList("java.util.Collection", "java.util.List",
+			"java.util.Set", "java.util.SortedSet", "java.util.NavigableSet", "java.util.Queue", "java.util.Deque", "java.util.ArrayList",
+			"java.util.LinkedList", "java.util.HashSet", "java.util.LinkedHashSet", "java.util.TreeSet", "java.util.ArrayDeque",
+			"java.util.Vector"));
+	private static final Set<String>	MAPS								= new HashSet<>(Arrays.asList("java.util.Map", "java.util.SortedMap",
+			"java.util.NavigableMap", "java.util.HashMap", "java.util.LinkedHashMap", "java.util.TreeMap", "java.util.Hashtable",
+			"java.util.concurrent.ConcurrentMap", "java.util.concurrent.ConcurrentHashMap"));
+
+	/** Constructor. */
+	private ClassFileParser() {
+		super();
+	}
+
+	/**
+	 * @param pBytes the content of a class file
+	 * @return the class structure
+	 * @throws IOException if the content is not a valid class file
+	 */
+	static PojoClass parse(byte[] pBytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(pBytes));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("not a class file");
+		}
+		in.readUnsignedShort(); // minor version
+		in.readUnsignedShort(); // major version
+
+		int count = in.readUnsignedShort();
+		String[] utf8 = new String[count];
+		int[] classNames = new int[count];
+		for (int i = 1; i < count; i++) {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+				case CONSTANT_UTF8:
+					utf8[i] = in.readUTF();
+					break;
+				case CONSTANT_CLASS:
+					classNames[i] = in.readUnsignedShort();
+					break;
+				case CONSTANT_STRING:
+				case CONSTANT_MTYPE:
+				case CONSTANT_MODULE:
+				case CONSTANT_PACKAGE:
+					in.skipBytes(2);
+					break;
+				case CONSTANT_MHANDLE:
+					in.skipBytes(3);
+					break;
+				case CONSTANT_INTEGER:
+				case CONSTANT_FLOAT:
+				case CONSTANT_FIELDREF:
+				case CONSTANT_METHODREF:
+				case CONSTANT_IMETHODREF:
+				case CONSTANT_NAMETYPE:
+				case CONSTANT_DYNAMIC:
+				case CONSTANT_INDY:
+					in.skipBytes(4);
+					break;
+				case CONSTANT_LONG:
+				case CONSTANT_DOUBLE:
+					in.skipBytes(8);
+					i++; // takes two entries
+					break;
+				default:
+					throw new IOException("unknown constant pool tag " + tag + " at index " + i);
+			}
+		}
+
+		int access = in.readUnsignedShort();
+		String name = internalToBinary(utf8[classNames[in.readUnsignedShort()]]);
+		int superIndex = in.readUnsignedShort();
+		String superName = superIndex == 0 ? null : internalToBinary(utf8[classNames[superIndex]]);
+		in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+
+		int fieldCount = in.readUnsignedShort();
+		List<PojoField> fields = new ArrayList<>(fieldCount);
+		for (int i = 0; i < fieldCount; i++) {
+			in.readUnsignedShort(); // access flags
+			String fieldName = utf8[in.readUnsignedShort()];
+			String descriptor = utf8[in.readUnsignedShort()];
+			String signature = null;
+			int attributes = in.readUnsignedShort();
+			for (int a = 0; a < attributes; a++) {
+				String attribute = utf8[in.readUnsignedShort()];
+				int length = in.readInt();
+				if ("Signature".equals(attribute)) {
+					signature = utf8[in.readUnsignedShort()];
+				} else {
+					in.skipBytes(length);
+				}
+			}
+			String typeName = new Cursor(descriptor).typeName();
+			fields.add(new PojoField(fieldName, typeName, PojoField.simpleNameOf(typeName), isCollection(typeName), isMap(typeName),
+					signature == null ? null : new Cursor(signature).typeArguments()));
+		}
+
+		int dot = name.lastIndexOf('.');
+		return new PojoClass(name, PojoField.simpleNameOf(name), dot < 0 ? "" : name.substring(0, dot),
+				(access & ACC_ENUM) != 0 && "java.lang.Enum".equals(superName), superName, fields);
+	}
+
+	/**
+	 * @param pTypeName a binary type name
+	 * @return <code>true</code> if the type is a JDK collection
+	 */
+	static boolean isCollection(String pTypeName) {
+		if (COLLECTIONS.contains(pTypeName)) {
+			return true;
+		}
+		if (pTypeName.startsWith("java.") || pTypeName.startsWith("javax.")) {
+			try {
+				return Collection.class.isAssignableFrom(Class.forName(pTypeName, false, ClassLoader.getSystemClassLoader()));
+			} catch (ClassNotFoundException e) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param pTypeName a binary type name
+	 * @return <code>true</code> if the type is a JDK map
+	 */
+	static boolean isMap(String pTypeName) {
+		if (MAPS.contains(pTypeName)) {
+			return true;
+		}
+		if (pTypeName.startsWith("java.") || pTypeName.startsWith("javax.")) {
+			try {
+				return Map.class.isAssignableFrom(Class.forName(pTypeName, false, ClassLoader.getSystemClassLoader()));
+			} catch (ClassNotFoundException e) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private static String internalToBinary(String pInternalName) {
+		return pInternalName.replace('/', '.');
+	}
+
+	/**
+	 * Walk a field descriptor or a field signature.
+	 */
+	private static final class Cursor {
+
+		private final String	value;
+		private int						pos;
+
+		Cursor(String pValue) {
+			this.value = pValue;
+		}
+
+		/**
+		 * @return the binary name of a descriptor, arrays with a <code>[]</code> suffix per dimension
+		 */
+		String typeName() {
+			char c = this.value.charAt(this.pos++);
+			switch (c) {
+				case 'B':
+					return "byte";
+				case 'C':
+					return "char";
+				case 'D':
+					return "double";
+				case 'F':
+					return "float";
+				case 'I':
+					return "int";
+				case 'J':
+					return "long";
+				case 'S':
+					return "short";
+				case 'Z':
+					return "boolean";
+				case '[':
+					return typeName() + "[]";
+				case 'L':
+					int end = this.value.indexOf(';', this.pos);
+					String name = internalToBinary(this.value.substring(this.pos, end));
+					this.pos = end + 1;
+					return name;
+				default:
+					throw new IllegalArgumentException("invalid descriptor " + this.value);
+			}
+		}
+
+		/**
+		 * @return the type arguments of the outermost class of a field signature, <code>null</code> if
+		 *         it has none
+		 */
+		List<String> typeArguments() {
+			if (this.value.charAt(this.pos) != 'L') {
+				return null;
+			}
+			List<String> arguments = null;
+			this.pos++;
+			while (true) {
+				char c = this.value.charAt(this.pos++);
+				if (c == ';') {
+					return arguments;
+				} else if (c == '<') {
+					arguments = new ArrayList<>();
+					while (this.value.charAt(this.pos) != '>') {
+						arguments.add(typeArgument());
+					}
+					this.pos++;
+				} else if (c == '.') {
+					arguments = null; // inner class of a parameterized type, keep the last arguments only
+				}
+			}
+		}
+
+		/**
+		 * @return the binary name of a type argument, <code>null</code> if it is not a plain class
+		 */
+		private String typeArgument() {
+			char c = this.value.charAt(this.pos);
+			if (c == '*') {
+				this.pos++;
+				return null;
+			}
+			if (c == '+' || c == '-') {
+				this.pos++;
+				skipReferenceType();
+				return null;
+			}
+			int start = this.pos;
+			skipReferenceType();
+			String signature = this.value.substring(start, this.pos);
+			if (signature.indexOf('<') >= 0 || signature.replace("[", "").charAt(0) == 'T') {
+				return null;
+			}
+			return new Cursor(signature).typeName();
+		}
+
+		/**
+		 * Move after a reference type signature.
+		 */
+		private void skipReferenceType() {
+			char c = this.value.charAt(this.pos++);
+			if (c == '[') {
+				if ("BCDFIJSZ".indexOf(this.value.charAt(this.pos)) >= 0) {
+					this.pos++;
+				} else {
+					skipReferenceType();
+				}
+			} else if (c == 'T') {
+				this.pos = this.value.indexOf(';', this.pos) + 1;
+			} else {
+				int depth = 0;
+				while (true) {
+					char n = this.value.charAt(this.pos++);
+					if (n == '<') {
+						depth++;
+					} else if (n == '>') {
+						depth--;
+					} else if (n == ';' && depth == 0) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+}
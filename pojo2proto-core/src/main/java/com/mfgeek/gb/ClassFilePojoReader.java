@@ -0,0 +1,50 @@
+package com.mfgeek.gb;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Read POJO classes straight from their <code>.class</code> files, without loading them.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Static initializers never run and no class of the model ends up in the metaspace of the tool, so
+ * classes whose initialization needs runtime services can be read too. The class files are read
+ * from a directory or straight from a jar, see {@link PojoInput}.
+ *
+ * <h3>USAGE</h3>
+ * Selected with the <code>-c</code> option of {@link PojoToProto}, or for the inputs of
+ * {@link GeneratorConfig#setInputs(java.util.List)} which are not to be loaded.
+ *
+ */
+public class ClassFilePojoReader implements PojoReader {
+
+	private final PojoInput input;
+
+	/**
+	 * @param pClassesRoot root directory of the compiled POJO classes
+	 */
+	public ClassFilePojoReader(File pClassesRoot) {
+		this(new PojoInput(pClassesRoot));
+	}
+
+	/**
+	 * @param pInput a directory of classes or a jar, not closed by the reader
+	 */
+	public ClassFilePojoReader(PojoInput pInput) {
+		this.input = pInput;
+	}
+
+	@Override
+	public PojoClass read(String pClassName) throws ClassNotFoundException {
+		try {
+			return ClassFileParser.parse(this.input.readClass(pClassName));
+		} catch (FileNotFoundException e) {
+			throw new ClassNotFoundException(pClassName, e);
+		} catch (IOException | RuntimeException e) {
+			throw new ClassNotFoundException("Unable to read " + pClassName + " from " + this.input, e);
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.mfgeek.gb;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Flight recorder event of a class turned into a proto file model.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Only loaded when the flight recorder API is there, see {@link ClassEvents}.
+ *
+ * <h3>USAGE</h3>
+ * Recorded under <code>com.mfgeek.gb.ClassProcessed</code>, enabled by default:
+ *
+ * <pre>
+ * java -XX:StartFlightRecording=filename=run.jfr ... com.mfgeek.gb.PojoToProto ...
+ * jfr print --events com.mfgeek.gb.ClassProcessed run.jfr
+ * </pre>
+ *
+ */
+@Name("com.mfgeek.gb.ClassProcessed")
+@Label("Class Processed")
+@Category("pojo2proto")
+@Description("A POJO class read and turned into a proto file model")
+class ClassProcessedEvent extends Event {
+
+	@Label("Class Name")
+	String	className;
+
+	@Label("Fields")
+	int			fields;
+
+	@Label("Skipped Fields")
+	@Description("Fields whose type has no proto mapping")
+	int			skippedFields;
+
+	@Label("Read Time")
+	@Description("Time spent loading and reading the class, in nanoseconds")
+	long		readNanos;
+
+}
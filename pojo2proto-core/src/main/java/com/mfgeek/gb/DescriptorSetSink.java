@@ -0,0 +1,516 @@
+package com.mfgeek.gb;
+
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_LENGTH_DELIMITED;
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_VARINT;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.mfgeek.gb.PojoToProto.ESyntax;
+import com.mfgeek.gb.ProtoFile.ProtoField;
+import com.mfgeek.gb.runtime.ProtoOutput;
+import com.mfgeek.gb.runtime.SizeCache;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Sink encoding the proto files of a run into a binary <code>FileDescriptorSet</code>, the output
+ * of <code>protoc --descriptor_set_out</code>, without writing nor parsing any proto text.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The messages of <code>google/protobuf/descriptor.proto</code> are written field by field with the
+ * {@link ProtoOutput} of the codecs: a size pass records the length of every nested message in a
+ * {@link SizeCache}, then the write pass fills an array of the exact size. A field type is either a
+ * scalar or a message or enum of the run, so the models are kept until the set is encoded, once all
+ * the enums are known. The content matches the proto text of the same models: labels, packed
+ * options, enum values numbered from zero, and one file per class or per bundle. A map field is
+ * written as protoc writes it: a repeated field of a nested <code>&lt;Field&gt;Entry</code> message
+ * holding the key and value fields, flagged as a map entry.
+ *
+ * <h3>USAGE</h3>
+ * Give it to {@link ProtoGenerator#generate(GeneratorConfig, ProtoFileSink)}, then call
+ * {@link #toByteArray()} or {@link #writeTo(File)}. Give it the bundling of the
+ * {@link GeneratorConfig} so that the files match the imports.
+ *
+ */
+public class DescriptorSetSink implements ProtoFileSink {
+
+	// field numbers of descriptor.proto
+	private static final int									SET_FILE									= 1;
+	private static final int									FILE_NAME									= 1;
+	private static final int									FILE_PACKAGE							= 2;
+	private static final int									FILE_DEPENDENCY						= 3;
+	private static final int									FILE_MESSAGE_TYPE					= 4;
+	private static final int									FILE_ENUM_TYPE						= 5;
+	private static final int									FILE_OPTIONS							= 8;
+	private static final int									FILE_SYNTAX								= 12;
+	private static final int									FILE_OPTIONS_JAVA_PACKAGE	= 1;
+	private static final int									FILE_OPTIONS_JAVA_OUTER		= 8;
+	private static final int									MESSAGE_NAME							= 1;
+	private static final int									MESSAGE_FIELD							= 2;
+	private static final int									MESSAGE_NESTED_TYPE				= 3;
+	private static final int									MESSAGE_OPTIONS						= 7;
+	private static final int									MESSAGE_OPTIONS_MAP_ENTRY	= 7;
+	private static final int									FIELD_NAME								= 1;
+	private static final int									FIELD_NUMBER							= 3;
+	private static final int									FIELD_LABEL								= 4;
+	private static final int									FIELD_TYPE								= 5;
+	private static final int									FIELD_TYPE_NAME						= 6;
+	private static final int									FIELD_DEFAULT_VALUE				= 7;
+	private static final int									FIELD_OPTIONS							= 8;
+	private static final int									FIELD_JSON_NAME						= 10;
+	private static final int									FIELD_OPTIONS_PACKED			= 2;
+	private static final int									ENUM_NAME									= 1;
+	private static final int									ENUM_VALUE								= 2;
+	private static final int									ENUM_VALUE_NAME						= 1;
+	private static final int									ENUM_VALUE_NUMBER					= 2;
+
+	// values of the FieldDescriptorProto enums
+	private static final int									LABEL_OPTIONAL						= 1;
+	private static final int									LABEL_REQUIRED						= 2;
+	private static final int									LABEL_REPEATED						= 3;
+	private static final int									TYPE_MESSAGE							= 11;
+	private static final int									TYPE_ENUM									= 14;
+
+	/** FieldDescriptorProto.Type of the proto scalar types */
+	private static final Map<String, Integer>	SCALAR_TYPES;
+
+	static {
+		Map<String, Integer> map = new HashMap<>();
+		map.put("double", 1);
+		map.put("float", 2);
+		map.put("int64", 3);
+		map.put("uint64", 4);
+		map.put("int32", 5);
+		map.put("fixed64", 6);
+		map.put("fixed32", 7);
+		map.put("bool", 8);
+		map.put("string", 9);
+		map.put("bytes", 12);
+		map.put("uint32", 13);
+		map.put("sfixed32", 15);
+		map.put("sfixed64", 16);
+		map.put("sint32", 17);
+		map.put("sint64", 18);
+		SCALAR_TYPES = Collections.unmodifiableMap(map);
+	}
+
+	private final ProtoBundling								bundling;
+	private final Map<String, FileGroup>			files											= new LinkedHashMap<>();
+	/** names of the proto enums of the run */
+	private final Set<String>									enums											= new HashSet<>();
+
+	/**
+	 * @param pBundling the grouping of the classes, the one of the {@link GeneratorConfig},
+	 *          <code>null</code> for one file per class
+	 */
+	public DescriptorSetSink(ProtoBundling pBundling) {
+		this.bundling = pBundling;
+	}
+
+	@Override
+	public void accept(ProtoFile pf) {
+		String name;
+		String outerClassName;
+		if (this.bundling != null) {
+			String bundle = this.bundling.bundleOf(pf.getClassName());
+			name = bundle + ".proto";
+			outerClassName = ProtoBundling.outerClassNameOf(bundle);
+		} else {
+			name = pf.getName() + ".proto";
+			outerClassName = pf.getJavaOuterClassName();
+		}
+		FileGroup file = this.files.get(name);
+		if (file == null) {
+			file = new FileGroup(name, pf, outerClassName);
+			this.files.put(name, file);
+		}
+		file.protos.add(pf);
+		file.dependencies.addAll(pf.getImports());
+		if (pf.isEnum()) {
+			this.enums.add(pf.getName());
+		}
+	}
+
+	/**
+	 * @return the number of files of the set
+	 */
+	public int getFileCount() {
+		return this.files.size();
+	}
+
+	/**
+	 * @return the encoded <code>FileDescriptorSet</code>
+	 */
+	public byte[] toByteArray() {
+		SizeCache cache = new SizeCache();
+		int size = 0;
+		for (FileGroup file : this.files.values()) {
+			size += nestedSize(SET_FILE, cache.reserve(), fileSize(file, cache), cache);
+		}
+		ProtoOutput out = new ProtoOutput(new byte[size]);
+		cache.rewind();
+		for (FileGroup file : this.files.values()) {
+			beginNested(out, SET_FILE, cache);
+			writeFile(out, file, cache);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param pFile the file receiving the encoded <code>FileDescriptorSet</code>, replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeTo(File pFile) throws IOException {
+		File dir = pFile.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Unable to create " + dir);
+		}
+		Files.write(pFile.toPath(), toByteArray());
+	}
+
+	// size pass
+
+	private int fileSize(FileGroup pFile, SizeCache pCache) {
+		int size = stringSize(FILE_NAME, pFile.name);
+		if (isNotEmpty(pFile.packageName)) {
+			size += stringSize(FILE_PACKAGE, pFile.packageName);
+		}
+		for (String dependency : pFile.dependencies) {
+			size += stringSize(FILE_DEPENDENCY, dependency);
+		}
+		for (ProtoFile pf : pFile.protos) {
+			if (pf.isEnum()) {
+				size += nestedSize(FILE_ENUM_TYPE, pCache.reserve(), enumSize(pf, pCache), pCache);
+			} else {
+				size += nestedSize(FILE_MESSAGE_TYPE, pCache.reserve(), messageSize(pf, pCache), pCache);
+			}
+		}
+		if (pFile.hasOptions()) {
+			size += nestedSize(FILE_OPTIONS, pCache.reserve(), fileOptionsSize(pFile), pCache);
+		}
+		if (pFile.syntax == ESyntax.proto3) {
+			size += stringSize(FILE_SYNTAX, pFile.syntax.name());
+		}
+		return size;
+	}
+
+	private static int fileOptionsSize(FileGroup pFile) {
+		int size = 0;
+		if (isNotEmpty(pFile.javaPackage)) {
+			size += stringSize(FILE_OPTIONS_JAVA_PACKAGE, pFile.javaPackage);
+		}
+		if (isNotEmpty(pFile.javaOuterClassName)) {
+			size += stringSize(FILE_OPTIONS_JAVA_OUTER, pFile.javaOuterClassName);
+		}
+		return size;
+	}
+
+	private int messageSize(ProtoFile pf, SizeCache pCache) {
+		int size = stringSize(MESSAGE_NAME, pf.getName());
+		ESyntax syntax = ESyntax.enumOf(pf.getSyntax());
+		for (ProtoField field : pf.getFields()) {
+			size += nestedSize(MESSAGE_FIELD, pCache.reserve(), fieldSize(pf, field, syntax, pCache), pCache);
+		}
+		for (ProtoField field : pf.getFields()) {
+			if (field.getKeyType() != null) {
+				size += nestedSize(MESSAGE_NESTED_TYPE, pCache.reserve(), mapEntrySize(pf, field, syntax, pCache), pCache);
+			}
+		}
+		return size;
+	}
+
+	private int mapEntrySize(ProtoFile pf, ProtoField pField, ESyntax pSyntax, SizeCache pCache) {
+		int size = stringSize(MESSAGE_NAME, mapEntryNameOf(pField));
+		size += nestedSize(MESSAGE_FIELD, pCache.reserve(), fieldSize(pf, mapKeyOf(pField), pSyntax, pCache), pCache);
+		size += nestedSize(MESSAGE_FIELD, pCache.reserve(), fieldSize(pf, mapValueOf(pField), pSyntax, pCache), pCache);
+		return size + nestedSize(MESSAGE_OPTIONS, pCache.reserve(), ProtoOutput.tagSize(MESSAGE_OPTIONS_MAP_ENTRY) + 1, pCache);
+	}
+
+	private int fieldSize(ProtoFile pf, ProtoField pField, ESyntax pSyntax, SizeCache pCache) {
+		int size = stringSize(FIELD_NAME, pField.getName()) + varintSize(FIELD_NUMBER, pField.getIndex()) + varintSize(FIELD_LABEL, labelOf(pField, pSyntax))
+				+ varintSize(FIELD_TYPE, typeOf(pField));
+		if (hasTypeName(pField)) {
+			size += stringSize(FIELD_TYPE_NAME, typeNameOf(pf, pField));
+		}
+		String defaultValue = defaultValueOf(pField, pSyntax);
+		if (defaultValue != null) {
+			size += stringSize(FIELD_DEFAULT_VALUE, defaultValue);
+		}
+		if (isPacked(pField, pSyntax)) {
+			size += nestedSize(FIELD_OPTIONS, pCache.reserve(), ProtoOutput.tagSize(FIELD_OPTIONS_PACKED) + 1, pCache);
+		}
+		return size + stringSize(FIELD_JSON_NAME, jsonNameOf(pField.getName()));
+	}
+
+	private static int enumSize(ProtoFile pf, SizeCache pCache) {
+		int size = stringSize(ENUM_NAME, pf.getName());
+		for (ProtoField field : pf.getFields()) {
+			if (!"value".equals(field.getName())) {
+				size += nestedSize(ENUM_VALUE, pCache.reserve(), stringSize(ENUM_VALUE_NAME, field.getName()) + varintSize(ENUM_VALUE_NUMBER, field.getIndex() - 1), pCache);
+			}
+		}
+		return size;
+	}
+
+	// write pass, same walk as the size pass
+
+	private void writeFile(ProtoOutput out, FileGroup pFile, SizeCache pCache) {
+		writeString(out, FILE_NAME, pFile.name);
+		if (isNotEmpty(pFile.packageName)) {
+			writeString(out, FILE_PACKAGE, pFile.packageName);
+		}
+		for (String dependency : pFile.dependencies) {
+			writeString(out, FILE_DEPENDENCY, dependency);
+		}
+		for (ProtoFile pf : pFile.protos) {
+			if (pf.isEnum()) {
+				beginNested(out, FILE_ENUM_TYPE, pCache);
+				writeEnum(out, pf, pCache);
+			} else {
+				beginNested(out, FILE_MESSAGE_TYPE, pCache);
+				writeMessage(out, pf, pCache);
+			}
+		}
+		if (pFile.hasOptions()) {
+			beginNested(out, FILE_OPTIONS, pCache);
+			if (isNotEmpty(pFile.javaPackage)) {
+				writeString(out, FILE_OPTIONS_JAVA_PACKAGE, pFile.javaPackage);
+			}
+			if (isNotEmpty(pFile.javaOuterClassName)) {
+				writeString(out, FILE_OPTIONS_JAVA_OUTER, pFile.javaOuterClassName);
+			}
+		}
+		if (pFile.syntax == ESyntax.proto3) {
+			writeString(out, FILE_SYNTAX, pFile.syntax.name());
+		}
+	}
+
+	private void writeMessage(ProtoOutput out, ProtoFile pf, SizeCache pCache) {
+		writeString(out, MESSAGE_NAME, pf.getName());
+		ESyntax syntax = ESyntax.enumOf(pf.getSyntax());
+		for (ProtoField field : pf.getFields()) {
+			beginNested(out, MESSAGE_FIELD, pCache);
+			writeField(out, pf, field, syntax, pCache);
+		}
+		for (ProtoField field : pf.getFields()) {
+			if (field.getKeyType() != null) {
+				beginNested(out, MESSAGE_NESTED_TYPE, pCache);
+				writeMapEntry(out, pf, field, syntax, pCache);
+			}
+		}
+	}
+
+	private void writeMapEntry(ProtoOutput out, ProtoFile pf, ProtoField pField, ESyntax pSyntax, SizeCache pCache) {
+		writeString(out, MESSAGE_NAME, mapEntryNameOf(pField));
+		beginNested(out, MESSAGE_FIELD, pCache);
+		writeField(out, pf, mapKeyOf(pField), pSyntax, pCache);
+		beginNested(out, MESSAGE_FIELD, pCache);
+		writeField(out, pf, mapValueOf(pField), pSyntax, pCache);
+		beginNested(out, MESSAGE_OPTIONS, pCache);
+		out.writeTag(MESSAGE_OPTIONS_MAP_ENTRY, WIRETYPE_VARINT);
+		out.writeBool(true);
+	}
+
+	private void writeField(ProtoOutput out, ProtoFile pf, ProtoField pField, ESyntax pSyntax, SizeCache pCache) {
+		writeString(out, FIELD_NAME, pField.getName());
+		writeVarint(out, FIELD_NUMBER, pField.getIndex());
+		writeVarint(out, FIELD_LABEL, labelOf(pField, pSyntax));
+		writeVarint(out, FIELD_TYPE, typeOf(pField));
+		if (hasTypeName(pField)) {
+			writeString(out, FIELD_TYPE_NAME, typeNameOf(pf, pField));
+		}
+		String defaultValue = defaultValueOf(pField, pSyntax);
+		if (defaultValue != null) {
+			writeString(out, FIELD_DEFAULT_VALUE, defaultValue);
+		}
+		if (isPacked(pField, pSyntax)) {
+			beginNested(out, FIELD_OPTIONS, pCache);
+			out.writeTag(FIELD_OPTIONS_PACKED, WIRETYPE_VARINT);
+			out.writeBool(true);
+		}
+		writeString(out, FIELD_JSON_NAME, jsonNameOf(pField.getName()));
+	}
+
+	private static void writeEnum(ProtoOutput out, ProtoFile pf, SizeCache pCache) {
+		writeString(out, ENUM_NAME, pf.getName());
+		for (ProtoField field : pf.getFields()) {
+			if (!"value".equals(field.getName())) {
+				beginNested(out, ENUM_VALUE, pCache);
+				writeString(out, ENUM_VALUE_NAME, field.getName());
+				writeVarint(out, ENUM_VALUE_NUMBER, field.getIndex() - 1);
+			}
+		}
+	}
+
+	// field values, as rendered by ProtoFile
+
+	private static int labelOf(ProtoField pField, ESyntax pSyntax) {
+		if (pField.isRepeated() || pField.getKeyType() != null) {
+			return LABEL_REPEATED;
+		}
+		return pField.isRequired() && pSyntax == ESyntax.proto2 ? LABEL_REQUIRED : LABEL_OPTIONAL;
+	}
+
+	private int typeOf(ProtoField pField) {
+		if (pField.getKeyType() != null) {
+			return TYPE_MESSAGE;
+		}
+		Integer type = SCALAR_TYPES.get(pField.getType());
+		if (type != null) {
+			return type;
+		}
+		return this.enums.contains(pField.getType()) ? TYPE_ENUM : TYPE_MESSAGE;
+	}
+
+	private static boolean hasTypeName(ProtoField pField) {
+		return pField.getKeyType() != null || !SCALAR_TYPES.containsKey(pField.getType());
+	}
+
+	/**
+	 * @return the fully qualified name of a message or enum of the run, all in the proto package of
+	 *         the file referring to it, or of the entry message nested in the message of a map field
+	 */
+	private static String typeNameOf(ProtoFile pf, ProtoField pField) {
+		String name = pField.getKeyType() != null ? pf.getName() + "." + mapEntryNameOf(pField) : pField.getType();
+		return isNotEmpty(pf.getPackageName()) ? "." + pf.getPackageName() + "." + name : "." + name;
+	}
+
+	/**
+	 * @return the name protoc gives to the entry message of a map field: the field name camel cased,
+	 *         capitalized, followed by <code>Entry</code>
+	 */
+	private static String mapEntryNameOf(ProtoField pField) {
+		String name = jsonNameOf(pField.getName());
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Entry";
+	}
+
+	private static ProtoField mapKeyOf(ProtoField pField) {
+		return new ProtoField(false, false, pField.getKeyType(), "key", null, 1);
+	}
+
+	private static ProtoField mapValueOf(ProtoField pField) {
+		return new ProtoField(false, false, pField.getType(), "value", null, 2);
+	}
+
+	private static boolean isPacked(ProtoField pField, ESyntax pSyntax) {
+		return pField.isPacked() && pField.isRepeated() && pSyntax == ESyntax.proto2;
+	}
+
+	/**
+	 * @return the value of a <code>default = value</code> option, <code>null</code> if none or proto3
+	 */
+	private static String defaultValueOf(ProtoField pField, ESyntax pSyntax) {
+		String option = pField.getDefaultValue();
+		if (option == null || pSyntax == ESyntax.proto3) {
+			return null;
+		}
+		int eq = option.indexOf('=');
+		String value = (eq >= 0 && option.substring(0, eq).trim().equals("default") ? option.substring(eq + 1) : option).trim();
+		if (value.length() > 1 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+			value = value.substring(1, value.length() - 1);
+		}
+		return value;
+	}
+
+	/**
+	 * @param pName a field name
+	 * @return the JSON name protoc derives from it: underscores dropped, the letter after each
+	 *         capitalized
+	 */
+	static String jsonNameOf(String pName) {
+		StringBuilder buf = new StringBuilder(pName.length());
+		boolean upper = false;
+		for (int i = 0; i < pName.length(); i++) {
+			char c = pName.charAt(i);
+			if (c == '_') {
+				upper = true;
+			} else if (upper) {
+				buf.append(Character.toUpperCase(c));
+				upper = false;
+			} else {
+				buf.append(c);
+			}
+		}
+		return buf.toString();
+	}
+
+	// wire format
+
+	private static int stringSize(int pNumber, String pValue) {
+		return ProtoOutput.tagSize(pNumber) + ProtoOutput.stringSize(pValue);
+	}
+
+	private static int varintSize(int pNumber, int pValue) {
+		return ProtoOutput.tagSize(pNumber) + ProtoOutput.varint32Size(pValue);
+	}
+
+	/**
+	 * Record the size of a nested message for the write pass. Arguments are evaluated from left to
+	 * right, so the slot is reserved before the children of the message reserve theirs, in the order
+	 * the write pass reads them back.
+	 *
+	 * @param pSlot the slot reserved for the size
+	 * @return the size of the nested message field, tag and length included
+	 */
+	private static int nestedSize(int pNumber, int pSlot, int pSize, SizeCache pCache) {
+		pCache.set(pSlot, pSize);
+		return ProtoOutput.tagSize(pNumber) + ProtoOutput.varint32Size(pSize) + pSize;
+	}
+
+	private static void beginNested(ProtoOutput out, int pNumber, SizeCache pCache) {
+		out.writeTag(pNumber, WIRETYPE_LENGTH_DELIMITED);
+		out.writeVarint32(pCache.next());
+	}
+
+	private static void writeString(ProtoOutput out, int pNumber, String pValue) {
+		out.writeTag(pNumber, WIRETYPE_LENGTH_DELIMITED);
+		out.writeString(pValue);
+	}
+
+	private static void writeVarint(ProtoOutput out, int pNumber, int pValue) {
+		out.writeTag(pNumber, WIRETYPE_VARINT);
+		out.writeVarint32(pValue);
+	}
+
+	private static boolean isNotEmpty(String pValue) {
+		return pValue != null && !pValue.isEmpty();
+	}
+
+	/**
+	 * A file of the set: its header, taken from its first class, and its messages and enums.
+	 */
+	private static final class FileGroup {
+
+		private final String						name;
+		private final String						packageName;
+		private final String						javaPackage;
+		private final String						javaOuterClassName;
+		private final ESyntax						syntax;
+		private final SortedSet<String>	dependencies	= new TreeSet<>();
+		private final List<ProtoFile>		protos				= new ArrayList<>();
+
+		FileGroup(String pName, ProtoFile pFirst, String pJavaOuterClassName) {
+			this.name = pName;
+			this.packageName = pFirst.getPackageName();
+			this.javaPackage = pFirst.getJavaPackage();
+			this.javaOuterClassName = pJavaOuterClassName;
+			this.syntax = ESyntax.enumOf(pFirst.getSyntax());
+		}
+
+		boolean hasOptions() {
+			return isNotEmpty(this.javaPackage) || isNotEmpty(this.javaOuterClassName);
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.mfgeek.gb;
+
+import java.io.File;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Settings of a generation run.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ *
+ * <h3>USAGE</h3>
+ * Given to {@link ProtoGenerator#generate(GeneratorConfig, ProtoFileSink)}, do not change it while
+ * the run is in progress.
+ *
+ */
+@Data
+public class GeneratorConfig {
+
+	/** root directory of the POJO source code */
+	private String				source;
+	/** package of the POJO classes */
+	private String				pojoPackage;
+	/** package of the proto files */
+	private String				protoPackage;
+	/** package of the generated proto classes, POJO package if empty */
+	private String				javaPackage;
+	private String				syntax			= "proto2";
+	/** number of classes processed in parallel, sequential if lower than 2 */
+	private int						parallelism	= 1;
+	/** the way POJO classes are read */
+	private PojoReader		reader			= new ReflectionPojoReader();
+	/** <code>true</code> to process the sub-packages too */
+	private boolean				recursive		= false;
+	/** counters and timers of the run, not collected if <code>null</code> */
+	private RunStats			stats				= null;
+	/** grouping of the classes into proto files, one proto file per class if <code>null</code> */
+	private ProtoBundling	bundling		= null;
+	/**
+	 * directories of classes and jars, listed instead of the source directory and each read by
+	 * reflection from a class loader of its own, <code>null</code> for none
+	 */
+	private List<File>		inputs			= null;
+	/** <code>false</code> to read the class files of the inputs without loading them */
+	private boolean				loadInputs	= true;
+
+}
@@ -0,0 +1,137 @@
+package com.mfgeek.gb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okio.Buffer;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Sink writing the proto files of a run to an output directory, only the ones that changed when a
+ * manifest is given.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * A class whose fingerprint is in the manifest is skipped without rendering its proto file. Other
+ * proto files are rendered into a buffer and hashed, the file is only rewritten when the hash
+ * differs from the manifest entry. The writes themselves are done by a {@link ProtoFileWriter}, the
+ * entry of a rewritten file is only recorded once the writer is closed and the write succeeded.
+ * The proto files of the classes gone since the previous run are deleted on close, unless a class
+ * of the run could not be read: it may be one of them, so they are all kept with their entries.
+ *
+ * <h3>USAGE</h3>
+ * Give it to {@link ProtoGenerator#generate(GeneratorConfig, ProtoFileSink)}, with the statistics
+ * of the writer as the statistics of the run, then close it to wait for the writes, delete the
+ * removed proto files and save the manifest. Shared by {@link PojoToProto} and the maven plugin.
+ *
+ */
+public class IncrementalSink implements ProtoFileSink, Closeable {
+
+	private final ProtoFileWriter	writer;
+	private final SchemaManifest	manifest;
+	/** rewritten files waiting for their write: name, fingerprint and hash */
+	private final List<String[]>	pending	= new ArrayList<>();
+	private int										classesSkipped;
+	private int										protosKept;
+	private int										protosDeleted;
+
+	/**
+	 * @param pWriter the writer of the output directory
+	 * @param pManifest the manifest of the output directory, <code>null</code> to write every proto
+	 *          file
+	 */
+	public IncrementalSink(ProtoFileWriter pWriter, SchemaManifest pManifest) {
+		this.writer = pWriter;
+		this.manifest = pManifest;
+	}
+
+	@Override
+	public void accept(ProtoFile pf) {
+		if (this.manifest == null) {
+			this.writer.write(pf);
+			return;
+		}
+		String name = pf.getName() + ".proto";
+		if (this.manifest.isUpToDate(name, pf.getSourceFingerprint())) {
+			this.classesSkipped++;
+		} else {
+			long start = System.nanoTime();
+			Buffer content = new Buffer();
+			try {
+				pf.writeTo(content);
+			} catch (IOException e) {
+				throw new IllegalStateException(e); // a Buffer never fails
+			}
+			String hash = content.sha1().hex();
+			if (this.writer.getStats() != null) {
+				this.writer.getStats().add(RunStats.Phase.RENDER, System.nanoTime() - start);
+			}
+			if (this.manifest.isUnchanged(name, hash)) {
+				this.protosKept++;
+				this.manifest.record(name, pf.getSourceFingerprint(), hash);
+			} else {
+				this.writer.write(name, content);
+				this.pending.add(new String[] { name, pf.getSourceFingerprint(), hash });
+			}
+		}
+	}
+
+	/**
+	 * Wait for the pending writes, record the written files, delete the removed ones unless a class
+	 * failed, then save the manifest.
+	 *
+	 * @throws IOException if a removed file cannot be deleted or the manifest cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+		this.writer.close();
+		RunStats stats = this.writer.getStats();
+		if (stats != null) {
+			stats.add(RunStats.Counter.CLASSES_UNCHANGED, this.classesSkipped);
+			stats.add(RunStats.Counter.FILES_UNCHANGED, this.protosKept);
+		}
+		if (this.manifest != null) {
+			for (String[] entry : this.pending) {
+				if (this.writer.isFailed(entry[0])) {
+					this.manifest.skip(entry[0]);
+				} else {
+					this.manifest.record(entry[0], entry[1], entry[2]);
+				}
+			}
+			this.pending.clear();
+			if (stats != null && stats.get(RunStats.Counter.CLASSES_FAILED) > 0) {
+				this.manifest.keepRemoved();
+			} else {
+				this.protosDeleted = this.manifest.deleteRemoved();
+			}
+			this.manifest.save();
+		}
+	}
+
+	/**
+	 * @return the number of classes skipped because their fingerprint did not change
+	 */
+	public int getClassesSkipped() {
+		return this.classesSkipped;
+	}
+
+	/**
+	 * @return the number of proto files not rewritten because their content did not change
+	 */
+	public int getProtosKept() {
+		return this.protosKept;
+	}
+
+	/**
+	 * @return the number of proto files deleted because their class is gone
+	 */
+	public int getProtosDeleted() {
+		return this.protosDeleted;
+	}
+
+	public ProtoFileWriter getWriter() {
+		return this.writer;
+	}
+
+}
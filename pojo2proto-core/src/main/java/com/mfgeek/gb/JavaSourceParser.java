@@ -0,0 +1,798 @@
+package com.mfgeek.gb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Extract the structure of a top level class from its java source: declared fields, type
+ * arguments, enum constants and superclass, the way reflection reports them.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * A tokenizer skipping comments and literals feeds a parser which only follows declarations: method,
+ * constructor and initializer bodies, annotations and field initializers are skipped by matching
+ * their brackets. Field types are kept as written until the whole body is read, then resolved to
+ * binary names the way the compiler does: type variables to their erasure, then nested types,
+ * single type imports, the package of the class, <code>java.lang</code> and on demand imports.
+ * Generated members, like the <code>$VALUES</code> array of enums, are not reported.
+ *
+ * <h3>USAGE</h3>
+ * One instance per file, used by {@link SourcePojoReader}.
+ *
+ */
+final class JavaSourceParser {
+
+	private static final int						EOF						= 0;
+	private static final int						IDENT					= 1;
+	private static final int						SYMBOL				= 2;
+	private static final int						LITERAL				= 3;
+
+	private static final Set<String>		MODIFIERS			= new HashSet<>(Arrays.asList("public", "protected", "private", "static", "final", "transient",
+			"volatile", "abstract", "synchronized", "native", "strictfp", "default", "sealed"));
+	private static final Set<String>		PRIMITIVES		= new HashSet<>(Arrays.asList("boolean", "byte", "char", "short", "int", "long", "float",
+			"double", "void"));
+
+	private final SourcePojoReader			reader;
+	private final CharSequence					source;
+	private final int										length;
+	private int													pos;
+
+	// current token
+	private int													type;
+	private String											text;
+	private char												symbol;
+
+	private String											packageName		= "";
+	private String											binaryName;
+	/** simple name to binary name of the single type imports */
+	private final Map<String, String>		imports				= new HashMap<>();
+	private final List<String>					onDemand			= new ArrayList<>();
+	private final Set<String>						nestedTypes		= new HashSet<>();
+	/** type variables of the class to their first bound, <code>null</code> if none */
+	private final Map<String, RawType>	typeVariables	= new HashMap<>();
+
+	/**
+	 * @param pReader the reader, to look classes up
+	 * @param pSource the content of the source file
+	 */
+	JavaSourceParser(SourcePojoReader pReader, CharSequence pSource) {
+		this.reader = pReader;
+		this.source = pSource;
+		this.length = pSource.length();
+	}
+
+	/**
+	 * @param pClassName the binary name of a top level class of the file
+	 * @return the class structure
+	 * @throws ClassNotFoundException if the file does not declare the class
+	 */
+	PojoClass parse(String pClassName) throws ClassNotFoundException {
+		next();
+		skipAnnotations();
+		if (isIdent("package")) {
+			next();
+			this.packageName = qualifiedName();
+			next();
+		}
+		while (isIdent("import")) {
+			next();
+			if (isIdent("static")) {
+				skipPast(';');
+				continue;
+			}
+			String name = qualifiedName();
+			if (isSymbol('*')) {
+				this.onDemand.add(name.substring(0, name.length() - 1));
+				next();
+			} else {
+				this.imports.put(name.substring(name.lastIndexOf('.') + 1), toBinaryName(name));
+			}
+			skipPast(';');
+		}
+		String simpleName = pClassName.substring(pClassName.lastIndexOf('.') + 1);
+		while (this.type != EOF) {
+			skipModifiers();
+			if (isSymbol(';')) {
+				next();
+				continue;
+			}
+			String kind = declarationKind();
+			if (kind == null) {
+				break;
+			}
+			String name = this.text;
+			next();
+			if (name.equals(simpleName)) {
+				this.binaryName = pClassName;
+				return declaration(kind, name);
+			}
+			skipPast('{', true);
+		}
+		throw new ClassNotFoundException(pClassName + " is not declared in its source file");
+	}
+
+	/**
+	 * @param pKind class, interface, enum, record or annotation
+	 * @param pName the simple name
+	 * @return the class structure, current token after the name of the class
+	 */
+	private PojoClass declaration(String pKind, String pName) {
+		List<RawField> fields = new ArrayList<>();
+		if (isSymbol('<')) {
+			typeParameters();
+		}
+		if (pKind.equals("record")) {
+			recordComponents(fields);
+		}
+		RawType superclass = null;
+		while (!isSymbol('{') && this.type != EOF) {
+			if (isIdent("extends") && pKind.equals("class")) {
+				next();
+				superclass = type();
+			} else {
+				next();
+			}
+		}
+		next();
+		if (pKind.equals("enum")) {
+			enumConstants(fields, pName);
+		}
+		body(fields);
+
+		String superclassName;
+		if (superclass != null) {
+			superclassName = resolve(superclass.name);
+		} else if (pKind.equals("class")) {
+			superclassName = "java.lang.Object";
+		} else if (pKind.equals("enum")) {
+			superclassName = "java.lang.Enum";
+		} else if (pKind.equals("record")) {
+			superclassName = "java.lang.Record";
+		} else {
+			superclassName = null;
+		}
+		List<PojoField> pojoFields = new ArrayList<>(fields.size());
+		for (RawField field : fields) {
+			pojoFields.add(toPojoField(field));
+		}
+		return new PojoClass(this.binaryName, pName, this.packageName, pKind.equals("enum"), superclassName, Collections.unmodifiableList(pojoFields));
+	}
+
+	// declarations
+
+	/**
+	 * @return the kind of the type declared by the current token, <code>null</code> if none, current
+	 *         token on the name of the type
+	 */
+	private String declarationKind() {
+		if (isSymbol('@')) {
+			next();
+			next(); // interface
+			return "@interface";
+		}
+		if (isIdent("class") || isIdent("interface") || isIdent("enum") || isRecord()) {
+			String kind = this.text;
+			next();
+			return kind;
+		}
+		return null;
+	}
+
+	/**
+	 * @return <code>true</code> if the current token starts a record declaration, <code>record</code>
+	 *         being a contextual keyword
+	 */
+	private boolean isRecord() {
+		if (!isIdent("record")) {
+			return false;
+		}
+		int mark = this.pos;
+		next();
+		boolean record = this.type == IDENT;
+		if (record) {
+			next();
+			record = isSymbol('(') || isSymbol('<');
+		}
+		reset(mark, "record");
+		return record;
+	}
+
+	private void typeParameters() {
+		next();
+		while (!isSymbol('>') && this.type != EOF) {
+			skipAnnotations();
+			String name = this.text;
+			next();
+			RawType bound = null;
+			if (isIdent("extends")) {
+				next();
+				bound = type();
+				while (isSymbol('&')) {
+					next();
+					type();
+				}
+			}
+			this.typeVariables.put(name, bound);
+			if (isSymbol(',')) {
+				next();
+			}
+		}
+		next();
+	}
+
+	private void recordComponents(List<RawField> pFields) {
+		next();
+		while (!isSymbol(')') && this.type != EOF) {
+			skipModifiers();
+			RawType componentType = type();
+			if (isSymbol('.')) { // varargs
+				next();
+				next();
+				next();
+				componentType.dimensions++;
+			}
+			pFields.add(new RawField(this.text, componentType, 0));
+			next();
+			if (isSymbol(',')) {
+				next();
+			}
+		}
+		next();
+	}
+
+	private void enumConstants(List<RawField> pFields, String pEnumName) {
+		while (this.type != EOF) {
+			skipAnnotations();
+			if (isSymbol(';')) {
+				next();
+				return;
+			}
+			if (isSymbol('}')) {
+				return;
+			}
+			if (this.type == IDENT) {
+				pFields.add(new RawField(this.text, new RawType(pEnumName), 0));
+			}
+			next();
+			if (isSymbol('(')) {
+				skipBalanced('(', ')');
+			}
+			if (isSymbol('{')) {
+				skipBalanced('{', '}');
+			}
+			if (isSymbol(',')) {
+				next();
+			}
+		}
+	}
+
+	/**
+	 * Read the members of a class body, current token after its opening brace, up to its closing
+	 * brace.
+	 */
+	private void body(List<RawField> pFields) {
+		while (!isSymbol('}') && this.type != EOF) {
+			skipModifiers();
+			if (isSymbol(';')) {
+				next();
+				continue;
+			}
+			if (isSymbol('{')) { // initializer
+				skipBalanced('{', '}');
+				continue;
+			}
+			String kind = declarationKind();
+			if (kind != null) {
+				this.nestedTypes.add(this.text);
+				next();
+				skipPast('{', true);
+				continue;
+			}
+			if (isSymbol('<')) { // generic method
+				skipBalanced('<', '>');
+			}
+			RawType memberType = type();
+			if (isSymbol('(')) { // constructor
+				skipMethod();
+				continue;
+			}
+			String name = this.text;
+			next();
+			if (isSymbol('(')) {
+				skipMethod();
+				continue;
+			}
+			while (true) {
+				int dimensions = 0;
+				while (isSymbol('[')) {
+					next();
+					next();
+					dimensions++;
+				}
+				pFields.add(new RawField(name, memberType, dimensions));
+				if (isSymbol('=')) {
+					skipInitializer();
+				}
+				if (!isSymbol(',')) {
+					break;
+				}
+				next();
+				name = this.text;
+				next();
+			}
+			next(); // ;
+		}
+	}
+
+	/**
+	 * @return the type, current token after it
+	 */
+	private RawType type() {
+		skipAnnotations();
+		StringBuilder name = new StringBuilder(this.text);
+		next();
+		RawType result = new RawType(null);
+		while (true) {
+			if (isSymbol('<')) {
+				result.arguments = typeArguments();
+			}
+			if (!isSymbol('.')) {
+				break;
+			}
+			int mark = this.pos;
+			next();
+			if (this.type != IDENT && !isSymbol('@')) { // varargs
+				reset(mark, ".");
+				break;
+			}
+			skipAnnotations();
+			name.append('.').append(this.text);
+			next();
+		}
+		result.name = name.toString();
+		while (isSymbol('[')) {
+			next();
+			next();
+			result.dimensions++;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the type arguments, <code>null</code> for wildcards
+	 */
+	private List<RawType> typeArguments() {
+		List<RawType> arguments = new ArrayList<>();
+		next();
+		while (!isSymbol('>') && this.type != EOF) {
+			skipAnnotations();
+			if (isSymbol('?')) {
+				next();
+				if (isIdent("extends") || isIdent("super")) {
+					next();
+					type();
+				}
+				arguments.add(null);
+			} else {
+				arguments.add(type());
+			}
+			if (isSymbol(',')) {
+				next();
+			}
+		}
+		next();
+		return arguments;
+	}
+
+	// resolution
+
+	private PojoField toPojoField(RawField pField) {
+		RawType t = pField.type;
+		int dimensions = t.dimensions + pField.dimensions;
+		String base = erasure(t);
+		StringBuilder typeName = new StringBuilder(base);
+		for (int i = 0; i < dimensions; i++) {
+			typeName.append("[]");
+		}
+		List<String> typeArguments = null;
+		if (dimensions == 0 && t.arguments != null) {
+			typeArguments = new ArrayList<>(t.arguments.size());
+			for (RawType argument : t.arguments) {
+				boolean plainClass = argument != null && argument.arguments == null && argument.dimensions == 0
+						&& !this.typeVariables.containsKey(argument.name);
+				typeArguments.add(plainClass ? resolve(argument.name) : null);
+			}
+		}
+		return new PojoField(pField.name, typeName.toString(), PojoField.simpleNameOf(typeName.toString()), dimensions == 0 && ClassFileParser.isCollection(base),
+				dimensions == 0 && ClassFileParser.isMap(base), typeArguments);
+	}
+
+	/**
+	 * @return the binary name of the erasure of a type, without its dimensions
+	 */
+	private String erasure(RawType pType) {
+		if (this.typeVariables.containsKey(pType.name)) {
+			RawType bound = this.typeVariables.get(pType.name);
+			return bound != null && !bound.name.equals(pType.name) ? erasure(bound) : "java.lang.Object";
+		}
+		return resolve(pType.name);
+	}
+
+	/**
+	 * @param pName a type name as written, simple or qualified
+	 * @return the binary name
+	 */
+	private String resolve(String pName) {
+		if (PRIMITIVES.contains(pName)) {
+			return pName;
+		}
+		int dot = pName.indexOf('.');
+		String first = dot < 0 ? pName : pName.substring(0, dot);
+		String rest = dot < 0 ? "" : pName.substring(dot + 1);
+		String base;
+		if (first.equals(PojoField.simpleNameOf(this.binaryName))) {
+			base = this.binaryName;
+		} else if (this.nestedTypes.contains(first)) {
+			base = this.binaryName + "$" + first;
+		} else if (this.imports.containsKey(first)) {
+			base = this.imports.get(first);
+		} else if (this.reader.isSourceType(this.packageName, first)) {
+			base = qualify(this.packageName, first);
+		} else if (SourcePojoReader.isJdkType("java.lang." + first)) {
+			base = "java.lang." + first;
+		} else {
+			base = null;
+			for (String p : this.onDemand) {
+				if (this.reader.isSourceType(p, first) || SourcePojoReader.isJdkType(p + "." + first)) {
+					base = p + "." + first;
+					break;
+				}
+			}
+			if (base == null && dot > 0 && Character.isLowerCase(first.charAt(0))) {
+				return toBinaryName(pName);
+			}
+			if (base == null) {
+				base = qualify(this.packageName, first);
+			}
+		}
+		return rest.isEmpty() ? base : base + "$" + rest.replace('.', '$');
+	}
+
+	private static String qualify(String pPackage, String pSimpleName) {
+		return pPackage.isEmpty() ? pSimpleName : pPackage + "." + pSimpleName;
+	}
+
+	/**
+	 * @param pQualifiedName a canonical name, packages in lower case
+	 * @return the binary name, nested classes separated by <code>$</code>
+	 */
+	private static String toBinaryName(String pQualifiedName) {
+		int start = 0;
+		while (start < pQualifiedName.length() && !Character.isUpperCase(pQualifiedName.charAt(start))) {
+			int dot = pQualifiedName.indexOf('.', start);
+			if (dot < 0) {
+				return pQualifiedName;
+			}
+			start = dot + 1;
+		}
+		return pQualifiedName.substring(0, start) + pQualifiedName.substring(start).replace('.', '$');
+	}
+
+	// skipping
+
+	private void skipModifiers() {
+		while (true) {
+			if (this.type == IDENT && (MODIFIERS.contains(this.text) || this.text.equals("non") && nonSealed())) {
+				next();
+			} else if (isSymbol('@') && !isAnnotationDeclaration()) {
+				skipAnnotation();
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if <code>non</code> starts <code>non-sealed</code>, then on
+	 *         <code>sealed</code>
+	 */
+	private boolean nonSealed() {
+		int mark = this.pos;
+		next();
+		if (isSymbol('-')) {
+			next();
+			if (isIdent("sealed")) {
+				return true;
+			}
+		}
+		reset(mark, "non");
+		return false;
+	}
+
+	private boolean isAnnotationDeclaration() {
+		int mark = this.pos;
+		next();
+		boolean declaration = isIdent("interface");
+		reset(mark, "@");
+		return declaration;
+	}
+
+	private void skipAnnotations() {
+		while (isSymbol('@') && !isAnnotationDeclaration()) {
+			skipAnnotation();
+		}
+	}
+
+	private void skipAnnotation() {
+		next();
+		qualifiedName();
+		if (isSymbol('(')) {
+			skipBalanced('(', ')');
+		}
+	}
+
+	/**
+	 * Skip parameters, throws clause and body of a method or constructor, current token on the
+	 * opening parenthesis.
+	 */
+	private void skipMethod() {
+		skipBalanced('(', ')');
+		while (this.type != EOF) {
+			if (isSymbol(';')) {
+				next();
+				return;
+			}
+			if (isSymbol('{')) {
+				skipBalanced('{', '}');
+				return;
+			}
+			next();
+		}
+	}
+
+	/**
+	 * Skip a field initializer, current token on <code>=</code>, up to the comma or semicolon ending
+	 * it.
+	 */
+	private void skipInitializer() {
+		int depth = 0;
+		int angles = 0;
+		next();
+		while (this.type != EOF) {
+			if (this.type == SYMBOL) {
+				char c = this.symbol;
+				// a comma may separate type arguments, a less than operator only spoils the declarators after it
+				if (depth == 0 && (c == ';' || c == ',' && angles == 0)) {
+					return;
+				}
+				if (c == '(' || c == '[' || c == '{') {
+					depth++;
+				} else if (c == ')' || c == ']' || c == '}') {
+					depth--;
+				} else if (c == '<') {
+					angles++;
+				} else if (c == '>' && angles > 0) {
+					angles--;
+				}
+			}
+			next();
+		}
+	}
+
+	/**
+	 * Skip up to a symbol, and past the brackets it opens if asked.
+	 */
+	private void skipPast(char pSymbol, boolean pBalanced) {
+		while (this.type != EOF && !isSymbol(pSymbol)) {
+			next();
+		}
+		if (pBalanced) {
+			skipBalanced('{', '}');
+		} else {
+			next();
+		}
+	}
+
+	private void skipPast(char pSymbol) {
+		skipPast(pSymbol, false);
+	}
+
+	/**
+	 * Skip a bracketed sequence, current token on the opening bracket, then after the closing one.
+	 */
+	private void skipBalanced(char pOpen, char pClose) {
+		int depth = 0;
+		while (this.type != EOF) {
+			if (isSymbol(pOpen)) {
+				depth++;
+			} else if (isSymbol(pClose) && --depth == 0) {
+				next();
+				return;
+			}
+			next();
+		}
+	}
+
+	/**
+	 * @return a dotted name, current token after it, on <code>*</code> for on demand imports
+	 */
+	private String qualifiedName() {
+		StringBuilder name = new StringBuilder(this.text);
+		next();
+		while (isSymbol('.')) {
+			next();
+			if (isSymbol('*')) {
+				return name.append('.').toString();
+			}
+			name.append('.').append(this.text);
+			next();
+		}
+		return name.toString();
+	}
+
+	// tokenizer
+
+	private boolean isIdent(String pText) {
+		return this.type == IDENT && this.text.equals(pText);
+	}
+
+	private boolean isSymbol(char pSymbol) {
+		return this.type == SYMBOL && this.symbol == pSymbol;
+	}
+
+	/**
+	 * Go back to a token read before, whose text is known.
+	 *
+	 * @param pMark the position after the token
+	 * @param pText the token
+	 */
+	private void reset(int pMark, String pText) {
+		this.pos = pMark;
+		if (pText.length() == 1 && !Character.isJavaIdentifierStart(pText.charAt(0))) {
+			this.type = SYMBOL;
+			this.symbol = pText.charAt(0);
+		} else {
+			this.type = IDENT;
+			this.text = pText;
+		}
+	}
+
+	/**
+	 * Read the next token, skipping blanks and comments.
+	 */
+	private void next() {
+		skipBlanks();
+		if (this.pos >= this.length) {
+			this.type = EOF;
+			return;
+		}
+		char c = this.source.charAt(this.pos);
+		if (Character.isJavaIdentifierStart(c)) {
+			int start = this.pos++;
+			while (this.pos < this.length && Character.isJavaIdentifierPart(this.source.charAt(this.pos))) {
+				this.pos++;
+			}
+			this.type = IDENT;
+			this.text = this.source.subSequence(start, this.pos).toString();
+		} else if (Character.isDigit(c) || c == '.' && this.pos + 1 < this.length && Character.isDigit(this.source.charAt(this.pos + 1))) {
+			skipNumber();
+			this.type = LITERAL;
+		} else if (c == '"' || c == '\'') {
+			skipQuoted(c);
+			this.type = LITERAL;
+		} else {
+			this.pos++;
+			this.type = SYMBOL;
+			this.symbol = c;
+		}
+	}
+
+	private void skipBlanks() {
+		while (this.pos < this.length) {
+			char c = this.source.charAt(this.pos);
+			if (Character.isWhitespace(c)) {
+				this.pos++;
+			} else if (c == '/' && this.pos + 1 < this.length && this.source.charAt(this.pos + 1) == '/') {
+				while (this.pos < this.length && this.source.charAt(this.pos) != '\n') {
+					this.pos++;
+				}
+			} else if (c == '/' && this.pos + 1 < this.length && this.source.charAt(this.pos + 1) == '*') {
+				int end = indexOf("*/", this.pos + 2);
+				this.pos = end < 0 ? this.length : end + 2;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void skipNumber() {
+		while (this.pos < this.length) {
+			char c = this.source.charAt(this.pos);
+			if (Character.isJavaIdentifierPart(c) || c == '.') {
+				this.pos++;
+			} else if ((c == '+' || c == '-') && "eEpP".indexOf(this.source.charAt(this.pos - 1)) >= 0) {
+				this.pos++;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Skip a string, text block or character literal, current position on its opening quote.
+	 */
+	private void skipQuoted(char pQuote) {
+		if (pQuote == '"' && this.pos + 2 < this.length && this.source.charAt(this.pos + 1) == '"' && this.source.charAt(this.pos + 2) == '"') {
+			this.pos += 3;
+			while (this.pos < this.length && !(this.source.charAt(this.pos) == '"' && this.pos + 2 < this.length && this.source.charAt(this.pos + 1) == '"'
+					&& this.source.charAt(this.pos + 2) == '"')) {
+				this.pos += this.source.charAt(this.pos) == '\\' ? 2 : 1;
+			}
+			this.pos += 3;
+			return;
+		}
+		this.pos++;
+		while (this.pos < this.length) {
+			char c = this.source.charAt(this.pos);
+			if (c == '\\') {
+				this.pos += 2;
+			} else {
+				this.pos++;
+				if (c == pQuote || c == '\n') {
+					return;
+				}
+			}
+		}
+	}
+
+	private int indexOf(String pText, int pFrom) {
+		for (int i = pFrom; i + pText.length() <= this.length; i++) {
+			boolean match = true;
+			for (int j = 0; j < pText.length() && match; j++) {
+				match = this.source.charAt(i + j) == pText.charAt(j);
+			}
+			if (match) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * A type as written in the source.
+	 */
+	private static final class RawType {
+
+		private String				name;
+		/** <code>null</code> if not parameterized, <code>null</code> elements for wildcards */
+		private List<RawType>	arguments;
+		private int						dimensions;
+
+		RawType(String pName) {
+			this.name = pName;
+		}
+	}
+
+	/**
+	 * A field as written in the source, with the dimensions following its name.
+	 */
+	private static final class RawField {
+
+		private final String	name;
+		private final RawType	type;
+		private final int			dimensions;
+
+		RawField(String pName, RawType pType, int pDimensions) {
+			this.name = pName;
+			this.type = pType;
+			this.dimensions = pDimensions;
+		}
+	}
+
+}
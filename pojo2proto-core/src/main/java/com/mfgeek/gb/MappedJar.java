@@ -0,0 +1,275 @@
+package com.mfgeek.gb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Entries of a jar read through a memory mapping of the whole file.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The central directory at the end of the zip file is walked once, ZIP64 included: the names are
+ * compared byte by byte with the prefix and only the matching ones are decoded and indexed, the
+ * other entries are skipped without being read. The content of an entry is inflated when it is
+ * asked for, straight from the mapping. The channel is closed once the file is mapped, the mapping
+ * itself goes away with this object.
+ *
+ * <h3>USAGE</h3>
+ * Opened by {@link PojoInput} for jar inputs; safe to read from several threads at once.
+ *
+ */
+final class MappedJar {
+
+	private static final int					EOCD_SIGNATURE					= 0x06054b50;
+	private static final int					ZIP64_LOCATOR_SIGNATURE	= 0x07064b50;
+	private static final int					ZIP64_EOCD_SIGNATURE		= 0x06064b50;
+	private static final int					CEN_SIGNATURE						= 0x02014b50;
+	private static final int					LOC_SIGNATURE						= 0x04034b50;
+	private static final int					EOCD_SIZE								= 22;
+	private static final int					CEN_SIZE								= 46;
+	private static final int					LOC_SIZE								= 30;
+	private static final int					ZIP64_LOCATOR_SIZE			= 20;
+	/** header id of the extra field holding the 64 bits sizes and offset */
+	private static final int					ZIP64_EXTRA							= 0x0001;
+	private static final long					ZIP64_MAGIC							= 0xFFFFFFFFL;
+	private static final int					STORED									= 0;
+	private static final int					DEFLATED								= 8;
+
+	private final File								file;
+	/** little endian, read only, never moved: readers work on duplicates */
+	private final ByteBuffer					mapping;
+	/** entries under the prefix by name */
+	private final Map<String, Entry>	entries;
+
+	private MappedJar(File pFile, ByteBuffer pMapping, Map<String, Entry> pEntries) {
+		this.file = pFile;
+		this.mapping = pMapping;
+		this.entries = pEntries;
+	}
+
+	/**
+	 * @param pFile a jar
+	 * @param pPrefix beginning of the names of the entries to index, empty for all
+	 * @return the jar
+	 * @throws IOException if the file cannot be read or is not a zip file
+	 */
+	static MappedJar open(File pFile, String pPrefix) throws IOException {
+		ByteBuffer mapping;
+		try (FileChannel channel = FileChannel.open(pFile.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(pFile + " is too large to be mapped");
+			}
+			mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return new MappedJar(pFile, mapping, index(pFile, mapping, pPrefix.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * @return the names of the entries under the prefix, in no particular order
+	 */
+	List<String> getNames() {
+		return new ArrayList<>(this.entries.keySet());
+	}
+
+	/**
+	 * @param pName the name of an entry under the prefix
+	 * @return its content, <code>null</code> if the jar has no such entry
+	 * @throws IOException if the entry is compressed with an unsupported method or is corrupted
+	 */
+	byte[] read(String pName) throws IOException {
+		Entry entry = this.entries.get(pName);
+		if (entry == null) {
+			return null;
+		}
+		ByteBuffer buf = this.mapping.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int loc = checkedOffset(entry.localOffset);
+		if (loc > buf.limit() - LOC_SIZE || buf.getInt(loc) != LOC_SIGNATURE) {
+			throw new IOException("Corrupted entry " + pName + " in " + this.file);
+		}
+		int data = loc + LOC_SIZE + (buf.getShort(loc + 26) & 0xFFFF) + (buf.getShort(loc + 28) & 0xFFFF);
+		if (entry.compressedSize > buf.limit() - data) {
+			throw new IOException("Truncated entry " + pName + " in " + this.file);
+		}
+		byte[] compressed = new byte[(int) entry.compressedSize];
+		buf.position(data);
+		buf.get(compressed);
+		if (entry.method == STORED) {
+			return compressed;
+		}
+		if (entry.method != DEFLATED) {
+			throw new IOException("Unsupported compression method " + entry.method + " of " + pName + " in " + this.file);
+		}
+		byte[] content = new byte[checkedOffset(entry.size)];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(compressed);
+			int length = 0;
+			while (length < content.length && !inflater.finished()) {
+				int n = inflater.inflate(content, length, content.length - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += n;
+			}
+			if (length != content.length) {
+				throw new IOException("Truncated entry " + pName + " in " + this.file);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupted entry " + pName + " in " + this.file, e);
+		} finally {
+			inflater.end();
+		}
+		return content;
+	}
+
+	/**
+	 * @param pFile the jar, for the messages
+	 * @param pMapping the whole file
+	 * @param pPrefix UTF-8 beginning of the names to index
+	 * @return the entries under the prefix, directories excluded
+	 * @throws IOException if the file is not a zip file
+	 */
+	private static Map<String, Entry> index(File pFile, ByteBuffer pMapping, byte[] pPrefix) throws IOException {
+		ByteBuffer buf = pMapping.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int eocd = findEndOfCentralDirectory(buf);
+		if (eocd < 0) {
+			throw new IOException(pFile + " is not a zip file");
+		}
+		long count = buf.getShort(eocd + 10) & 0xFFFF;
+		long cen = buf.getInt(eocd + 16) & ZIP64_MAGIC;
+		if ((count == 0xFFFF || cen == ZIP64_MAGIC) && eocd >= ZIP64_LOCATOR_SIZE && buf.getInt(eocd - ZIP64_LOCATOR_SIZE) == ZIP64_LOCATOR_SIGNATURE) {
+			int zip64 = checkedOffset(buf.getLong(eocd - ZIP64_LOCATOR_SIZE + 8));
+			if (zip64 > buf.limit() - 56 || buf.getInt(zip64) != ZIP64_EOCD_SIGNATURE) {
+				throw new IOException(pFile + " has a corrupted ZIP64 central directory");
+			}
+			count = buf.getLong(zip64 + 32);
+			cen = buf.getLong(zip64 + 48);
+		}
+		Map<String, Entry> entries = new HashMap<>();
+		int pos = checkedOffset(cen);
+		for (long i = 0; i < count; i++) {
+			if (pos > buf.limit() - CEN_SIZE || buf.getInt(pos) != CEN_SIGNATURE) {
+				throw new IOException(pFile + " has a corrupted central directory");
+			}
+			int nameLength = buf.getShort(pos + 28) & 0xFFFF;
+			int extraLength = buf.getShort(pos + 30) & 0xFFFF;
+			int commentLength = buf.getShort(pos + 32) & 0xFFFF;
+			int name = pos + CEN_SIZE;
+			if (name + nameLength + extraLength > buf.limit()) {
+				throw new IOException(pFile + " has a corrupted central directory");
+			}
+			if (nameLength > 0 && buf.get(name + nameLength - 1) != '/' && startsWith(buf, name, nameLength, pPrefix)) {
+				Entry entry = new Entry(buf.getShort(pos + 10) & 0xFFFF, buf.getInt(pos + 20) & ZIP64_MAGIC, buf.getInt(pos + 24) & ZIP64_MAGIC,
+						buf.getInt(pos + 42) & ZIP64_MAGIC);
+				readZip64Extra(buf, name + nameLength, extraLength, entry);
+				byte[] bytes = new byte[nameLength];
+				buf.position(name);
+				buf.get(bytes);
+				entries.put(new String(bytes, StandardCharsets.UTF_8), entry);
+			}
+			pos = name + nameLength + extraLength + commentLength;
+		}
+		return entries;
+	}
+
+	/**
+	 * @return the offset of the end of central directory record, <code>-1</code> if none
+	 */
+	private static int findEndOfCentralDirectory(ByteBuffer pBuf) {
+		// the record ends the file, followed by a comment of at most 64 KB
+		int last = pBuf.limit() - EOCD_SIZE;
+		for (int pos = last; pos >= 0 && pos >= last - 0xFFFF; pos--) {
+			if (pBuf.getInt(pos) == EOCD_SIGNATURE) {
+				return pos;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Replace the sizes and offset of the entry saturated at 32 bits by their 64 bits values.
+	 */
+	private static void readZip64Extra(ByteBuffer pBuf, int pExtra, int pLength, Entry pEntry) {
+		int end = pExtra + pLength;
+		for (int pos = pExtra; pos + 4 <= end;) {
+			int id = pBuf.getShort(pos) & 0xFFFF;
+			int size = pBuf.getShort(pos + 2) & 0xFFFF;
+			if (id == ZIP64_EXTRA) {
+				// only the saturated values are present, in this order
+				int field = pos + 4;
+				if (pEntry.size == ZIP64_MAGIC && field + 8 <= end) {
+					pEntry.size = pBuf.getLong(field);
+					field += 8;
+				}
+				if (pEntry.compressedSize == ZIP64_MAGIC && field + 8 <= end) {
+					pEntry.compressedSize = pBuf.getLong(field);
+					field += 8;
+				}
+				if (pEntry.localOffset == ZIP64_MAGIC && field + 8 <= end) {
+					pEntry.localOffset = pBuf.getLong(field);
+				}
+				return;
+			}
+			pos += 4 + size;
+		}
+	}
+
+	private static boolean startsWith(ByteBuffer pBuf, int pName, int pLength, byte[] pPrefix) {
+		if (pLength < pPrefix.length) {
+			return false;
+		}
+		for (int i = 0; i < pPrefix.length; i++) {
+			if (pBuf.get(pName + i) != pPrefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param pOffset an offset or a size read from the file
+	 * @return it as an index of the mapping
+	 * @throws IOException if it is out of the mapping
+	 */
+	private static int checkedOffset(long pOffset) throws IOException {
+		if (pOffset < 0 || pOffset > Integer.MAX_VALUE) {
+			throw new IOException("Offset out of the file: " + pOffset);
+		}
+		return (int) pOffset;
+	}
+
+	@Override
+	public String toString() {
+		return this.file.getPath();
+	}
+
+	/**
+	 * Location and compression of an entry.
+	 */
+	private static final class Entry {
+
+		private final int	method;
+		private long			compressedSize;
+		private long			size;
+		private long			localOffset;
+
+		Entry(int pMethod, long pCompressedSize, long pSize, long pLocalOffset) {
+			this.method = pMethod;
+			this.compressedSize = pCompressedSize;
+			this.size = pSize;
+			this.localOffset = pLocalOffset;
+		}
+	}
+
+}
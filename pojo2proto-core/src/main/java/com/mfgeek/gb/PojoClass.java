@@ -0,0 +1,37 @@
+package com.mfgeek.gb;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * A POJO class as seen by the proto generator: its name, kind, superclass and declared fields.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Holds names only, never a {@link Class}, so it can be built without loading the POJO.
+ *
+ * <h3>USAGE</h3>
+ * Built by a {@link PojoReader}.
+ *
+ */
+@Data
+public class PojoClass {
+
+	private final String					name;
+	private final String					simpleName;
+	private final String					packageName;
+	private final boolean					isEnum;
+	private final String					superclassName;
+	private final List<PojoField>	fields;
+
+	public PojoClass(String pName, String pSimpleName, String pPackageName, boolean pEnum, String pSuperclassName, List<PojoField> pFields) {
+		this.name = pName;
+		this.simpleName = pSimpleName;
+		this.packageName = pPackageName;
+		this.isEnum = pEnum;
+		this.superclassName = pSuperclassName;
+		this.fields = pFields;
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.mfgeek.gb;
+
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * A field of a POJO as seen by the proto generator, whatever the way it was read.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Type names are java binary names (<code>java.lang.String</code>, <code>int</code>,
+ * <code>com.foo.Outer$Inner</code>, <code>int[]</code>). Type arguments are only kept for
+ * parameterized types, an argument which is not a plain class (wildcard, type variable) is
+ * <code>null</code>. A field is a collection or a map when its type is a JDK collection or map,
+ * whose element, or key and value, types are the type arguments. The lower case keys used to look types up in the {@link TypeRegistry} are computed
+ * once, when the field is built.
+ *
+ * <h3>USAGE</h3>
+ *
+ */
+@Data
+public class PojoField {
+
+	private final String				name;
+	private final String				typeName;
+	private final String				simpleName;
+	private final boolean				collection;
+	private final boolean				map;
+	private final List<String>	typeArguments;
+	private final String				typeKey;
+	private final String[]			typeArgumentSimpleNames;
+	private final String[]			typeArgumentKeys;
+
+	public PojoField(String pName, String pTypeName, String pSimpleName, boolean pCollection, List<String> pTypeArguments) {
+		this(pName, pTypeName, pSimpleName, pCollection, false, pTypeArguments);
+	}
+
+	/**
+	 * @param pName the field name
+	 * @param pTypeName the binary name of the type
+	 * @param pSimpleName the simple name of the type
+	 * @param pCollection <code>true</code> if the type is a collection
+	 * @param pMap <code>true</code> if the type is a map
+	 * @param pTypeArguments the type arguments, <code>null</code> if the type is not parameterized
+	 */
+	public PojoField(String pName, String pTypeName, String pSimpleName, boolean pCollection, boolean pMap, List<String> pTypeArguments) {
+		this.name = pName;
+		this.typeName = pTypeName;
+		this.simpleName = pSimpleName;
+		this.collection = pCollection;
+		this.map = pMap;
+		this.typeArguments = pTypeArguments == null ? Collections.<String> emptyList() : pTypeArguments;
+		this.typeKey = pSimpleName.toLowerCase();
+		this.typeArgumentSimpleNames = new String[this.typeArguments.size()];
+		this.typeArgumentKeys = new String[this.typeArguments.size()];
+		for (int i = 0; i < this.typeArgumentSimpleNames.length; i++) {
+			if (this.typeArguments.get(i) != null) {
+				this.typeArgumentSimpleNames[i] = simpleNameOf(this.typeArguments.get(i));
+				this.typeArgumentKeys[i] = this.typeArgumentSimpleNames[i].toLowerCase();
+			}
+		}
+	}
+
+	/**
+	 * @param pIndex the index of the type argument
+	 * @return the simple name of the type argument, <code>null</code> if missing or not a class
+	 */
+	public String getTypeArgumentSimpleName(int pIndex) {
+		return pIndex < this.typeArgumentSimpleNames.length ? this.typeArgumentSimpleNames[pIndex] : null;
+	}
+
+	/**
+	 * @param pIndex the index of the type argument
+	 * @return the lower case simple name of the type argument, <code>null</code> if missing or not a
+	 *         class
+	 */
+	public String getTypeArgumentKey(int pIndex) {
+		return pIndex < this.typeArgumentKeys.length ? this.typeArgumentKeys[pIndex] : null;
+	}
+
+	/**
+	 * @param pBinaryName a java binary name
+	 * @return the simple name, as {@link Class#getSimpleName()} returns it
+	 */
+	public static String simpleNameOf(String pBinaryName) {
+		int start = Math.max(pBinaryName.lastIndexOf('.'), pBinaryName.lastIndexOf('$'));
+		return pBinaryName.substring(start + 1);
+	}
+
+}
@@ -0,0 +1,222 @@
+package com.mfgeek.gb;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * A directory or a jar holding POJO classes, listed and loaded apart from the classes of the tool.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The classes are loaded by a {@link URLClassLoader} of their own, created on first use, whose
+ * parent is the class loader of the tool. A class it refers to but does not hold, such as the type
+ * of a field defined in another input, is looked up in an optional fallback loader shared by the
+ * inputs of the run, so only the classes referred to across inputs outlive their input. Closing the
+ * input closes its own loader: once the proto files
+ * are built nothing refers to the loader nor to its classes, the structures read from them are
+ * names only, so they are unloaded and the metaspace they used is given back. The class files can
+ * also be read without loading them. A jar is read through a {@link MappedJar}: only the entries
+ * under the prefix given are indexed, by directory, when it is opened, and an entry is only
+ * inflated when its class is read, so neither unrelated entries nor an extracted copy of the jar
+ * cost anything.
+ *
+ * <h3>USAGE</h3>
+ * Set the inputs in {@link GeneratorConfig#setInputs(List)}, the generator opens and closes them.
+ *
+ */
+public class PojoInput implements Closeable {
+
+	private final File														file;
+	/** <code>null</code> for a directory */
+	private final MappedJar												jar;
+	/** names of the entries of each directory of the jar, directories ending with a slash */
+	private final Map<String, SortedSet<String>>	jarDirs;
+	/** <code>null</code> if the input holds all the classes it refers to */
+	private final ClassLoader											fallback;
+	private URLClassLoader												loader;
+
+	/**
+	 * @param pFile a directory of classes
+	 */
+	PojoInput(File pFile) {
+		this(pFile, null, null, null);
+	}
+
+	private PojoInput(File pFile, MappedJar pJar, Map<String, SortedSet<String>> pJarDirs, ClassLoader pFallback) {
+		this.file = pFile;
+		this.jar = pJar;
+		this.jarDirs = pJarDirs;
+		this.fallback = pFallback;
+	}
+
+	/**
+	 * @param pFile a directory of classes or a jar
+	 * @return the input, to close
+	 * @throws IOException if the jar cannot be read
+	 */
+	public static PojoInput open(File pFile) throws IOException {
+		return open(pFile, "");
+	}
+
+	/**
+	 * @param pFile a directory of classes or a jar
+	 * @param pPrefix beginning of the paths of the entries of a jar to list and read, such as the
+	 *          directory of a package, empty for all
+	 * @return the input, to close
+	 * @throws IOException if the jar cannot be read
+	 */
+	public static PojoInput open(File pFile, String pPrefix) throws IOException {
+		return open(pFile, pPrefix, null);
+	}
+
+	/**
+	 * @param pFile a directory of classes or a jar
+	 * @param pPrefix beginning of the paths of the entries of a jar to list and read, such as the
+	 *          directory of a package, empty for all
+	 * @param pFallback loads the classes the input refers to but does not hold, <code>null</code> for
+	 *          none
+	 * @return the input, to close
+	 * @throws IOException if the jar cannot be read
+	 */
+	public static PojoInput open(File pFile, String pPrefix, ClassLoader pFallback) throws IOException {
+		if (pFile.isDirectory()) {
+			return new PojoInput(pFile, null, null, pFallback);
+		}
+		MappedJar jar = MappedJar.open(pFile, pPrefix);
+		Map<String, SortedSet<String>> dirs = new HashMap<>();
+		for (String name : jar.getNames()) {
+			// index the implied parent directories too, jars do not always hold their entries
+			int slash = name.lastIndexOf('/', name.length() - 2);
+			while (true) {
+				String dir = name.substring(0, slash + 1);
+				SortedSet<String> children = dirs.get(dir);
+				if (children == null) {
+					children = new TreeSet<>();
+					dirs.put(dir, children);
+				}
+				if (!children.add(name.substring(slash + 1)) || slash < 0) {
+					break;
+				}
+				name = dir;
+				slash = name.lastIndexOf('/', name.length() - 2);
+			}
+		}
+		return new PojoInput(pFile, jar, dirs, pFallback);
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * @return the class loader of the input, created on the first call
+	 * @throws IOException if the input has no URL
+	 */
+	public synchronized ClassLoader getLoader() throws IOException {
+		if (this.loader == null) {
+			this.loader = new InputLoader(this.file.toURI().toURL(), this.fallback);
+		}
+		return this.loader;
+	}
+
+	/**
+	 * @param pDir path of a directory of the input, slash separated and ending with a slash, empty for
+	 *          the root
+	 * @return the names of its entries sorted by name, sub-directories ending with a slash, empty if
+	 *         the directory does not exist
+	 */
+	public List<String> list(String pDir) {
+		if (this.jar != null) {
+			SortedSet<String> children = this.jarDirs.get(pDir);
+			return children != null ? new ArrayList<>(children) : Collections.<String> emptyList();
+		}
+		File dir = new File(this.file, pDir);
+		String[] names = dir.list();
+		if (names == null) {
+			return Collections.emptyList();
+		}
+		Arrays.sort(names);
+		List<String> children = new ArrayList<>(names.length);
+		for (String name : names) {
+			children.add(new File(dir, name).isDirectory() ? name + "/" : name);
+		}
+		return children;
+	}
+
+	/**
+	 * @param pClassName the binary name of a class
+	 * @return the content of its class file
+	 * @throws FileNotFoundException if the input has no such class
+	 * @throws IOException if the class file cannot be read
+	 */
+	public byte[] readClass(String pClassName) throws IOException {
+		String path = pClassName.replace('.', '/') + ".class";
+		if (this.jar == null) {
+			File file = new File(this.file, path);
+			if (!file.isFile()) {
+				throw new FileNotFoundException(file.getPath());
+			}
+			return Files.readAllBytes(file.toPath());
+		}
+		byte[] content = this.jar.read(path);
+		if (content == null) {
+			throw new FileNotFoundException(path + " in " + this.file);
+		}
+		return content;
+	}
+
+	/**
+	 * Close the class loader, the classes already loaded can no longer load others.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (this.loader != null) {
+			this.loader.close();
+			this.loader = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.file.getPath();
+	}
+
+	/**
+	 * Loads the classes of the input, parent first, then from the fallback loader if any.
+	 */
+	private static final class InputLoader extends URLClassLoader {
+
+		private final ClassLoader	fallback;
+
+		InputLoader(URL pUrl, ClassLoader pFallback) {
+			super(new URL[] { pUrl }, PojoInput.class.getClassLoader());
+			this.fallback = pFallback;
+		}
+
+		@Override
+		protected Class<?> findClass(String pName) throws ClassNotFoundException {
+			try {
+				return super.findClass(pName);
+			} catch (ClassNotFoundException e) {
+				if (this.fallback == null) {
+					throw e;
+				}
+				return this.fallback.loadClass(pName);
+			}
+		}
+	}
+
+}
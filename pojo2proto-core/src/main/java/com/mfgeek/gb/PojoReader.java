@@ -0,0 +1,23 @@
+package com.mfgeek.gb;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Read the structure of a POJO class.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Implementations must be safe to call from several threads at once.
+ *
+ * <h3>USAGE</h3>
+ * Given to {@link ProtoGenerator#parse(String, String, String, String, String, int, PojoReader)}.
+ *
+ */
+public interface PojoReader {
+
+	/**
+	 * @param pClassName the binary name of the class
+	 * @return the class structure
+	 * @throws ClassNotFoundException if the class cannot be found or read
+	 */
+	PojoClass read(String pClassName) throws ClassNotFoundException;
+
+}
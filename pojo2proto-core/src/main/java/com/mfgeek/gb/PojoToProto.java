@@ -0,0 +1,340 @@
+package com.mfgeek.gb;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mfgeek.gb.utils.StringUtils;
+
+public class PojoToProto {
+
+	private static final Logger		LOGGER	= LoggerFactory.getLogger(PojoToProto.class);
+
+	private static String					source;
+	private static String					classes;
+	private static String					target;
+	private static String					packageName;
+	private static String					javaPackageName;
+	private static String					protoPackageName;
+	private static String					syntax;
+	private static int						parallelism;
+	private static boolean				recursive;
+	private static boolean				incremental;
+	private static int						writerThreads;
+	private static boolean				watch;
+	private static String					report;
+	private static ProtoBundling	bundling;
+	private static String					descriptorSet;
+	private static boolean				sourceOnly;
+	private static List<File>			inputs;
+
+	private static Options				options;
+
+	static {
+		syntax = "proto2";
+		parallelism = 1;
+		writerThreads = 4;
+
+		// create Options object
+		options = new Options();
+
+		// add required options
+		options.addOption("i", "input", true, "root directory of the POJO source code, required unless -l or a jar for -c is given");
+		options.addRequiredOption("p", "package", true, "specify the package name of the POJO source class");
+		options.addRequiredOption("o", "proto-package", true, "specify the package name of the proto file");
+
+		// add options
+		options.addOption("h", "help", false, "print help");
+		options.addOption("j", "java-package", true, "specify the package name of the generated proto class");
+		options.addOption("s", "syntax", true, "protocol buffer syntax (\"proto2\" by default)");
+		options.addOption("g", "generated-output", true, "generated proto file output directory");
+		options.addOption("t", "threads", true, "number of classes processed in parallel (1 by default)");
+		options.addOption("r", "recursive", false, "process the sub-packages of the package too");
+		options.addOption(Option.builder().longOpt("writer-threads").hasArg().desc("number of proto files written in parallel (4 by default)").build());
+		options.addOption("u", "incremental", false, "only regenerate the proto files of the classes changed since the previous run");
+		options.addOption("c", "classes", true,
+				"root directory of the compiled POJO classes, or jar, read from the class files without loading them nor extracting the jar");
+		options.addOption(Option.builder().longOpt("report").hasArg().argName("file")
+				.desc("write a JSON report of the run: counters, bytes written, time per phase and slowest classes").build());
+		options.addOption("w", "watch", false, "keep running and regenerate the proto files affected by each change of the classes (needs -c and -g)");
+		options.addOption("b", "bundle", false, "write one proto file per java package, named after the package, instead of one per class");
+		options.addOption(Option.builder().longOpt("bundle-group").hasArgs().argName("package=name")
+				.desc("write the classes of a package and of its sub-packages into the proto file <name>.proto, implies -b").build());
+		options.addOption(Option.builder("d").longOpt("descriptor-set").hasArg().argName("file")
+				.desc("write the binary FileDescriptorSet of the proto files, as protoc --descriptor_set_out would, -g not needed").build());
+		options.addOption("S", "source-only", false, "read the POJOs from their .java files, without compiling nor loading them");
+		options.addOption(Option.builder("l").longOpt("load").hasArgs().argName("dir|jar")
+				.desc("directory of compiled classes or jar to read the POJOs from, loaded by a class loader of its own, instead of -i").build());
+
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		manageCommandLine(args);
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource(source);
+		config.setPojoPackage(packageName);
+		config.setProtoPackage(protoPackageName);
+		config.setJavaPackage(javaPackageName);
+		config.setSyntax(syntax);
+		config.setParallelism(parallelism);
+		config.setRecursive(recursive);
+		// always counted: a class which could not be read fails the run and keeps the removed proto files
+		RunStats stats = new RunStats();
+		config.setStats(stats);
+		config.setBundling(bundling);
+		config.setInputs(inputs);
+		if (watch) {
+			watch(config);
+			return;
+		}
+		if (StringUtils.isNotEmpty(classes) && new File(classes).isFile()) {
+			// a jar is listed and read in place, the source directory is not needed
+			config.setInputs(Collections.singletonList(new File(classes)));
+			config.setLoadInputs(false);
+		} else if (StringUtils.isNotEmpty(classes)) {
+			config.setReader(new ClassFilePojoReader(new File(classes)));
+		} else if (sourceOnly) {
+			config.setReader(new SourcePojoReader(new File(source)));
+		}
+
+		if (StringUtils.isNotEmpty(target) && !incremental) {
+			File out = new File(target);
+			if (out.exists() && !out.delete()) {
+				LOGGER.info(target + " exist, but cannot be deleted!");
+			}
+		}
+		SchemaManifest manifest = StringUtils.isNotEmpty(target) && incremental ? SchemaManifest.load(new File(target)) : null;
+		ProtoFileWriter writer = StringUtils.isNotEmpty(target) ? new ProtoFileWriter(target, writerThreads, stats) : null;
+		final ProtoFileSink sink;
+		if (writer == null) {
+			sink = null;
+		} else if (bundling != null) {
+			// the inputs come one after the other, a package may be split between them
+			sink = new BundleSink(writer, bundling, config.getInputs() != null && config.getInputs().size() > 1);
+		} else {
+			sink = new IncrementalSink(writer, manifest);
+		}
+		final DescriptorSetSink descriptors = StringUtils.isNotEmpty(descriptorSet) ? new DescriptorSetSink(bundling) : null;
+		// write each proto file as soon as it is built rather than once the whole package is parsed
+		int count;
+		try {
+			count = ProtoGenerator.getInstance().generate(config, new ProtoFileSink() {
+
+				@Override
+				public void accept(ProtoFile pf) {
+					if (sink != null) {
+						sink.accept(pf);
+					}
+					if (descriptors != null) {
+						descriptors.accept(pf);
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			// an incomplete run neither saves the manifest nor deletes any proto file
+			LOGGER.error("Unable to generate the proto files of " + packageName, e);
+			if (writer != null) {
+				writer.close();
+			}
+			System.exit(1);
+			return;
+		}
+
+		boolean failed = false;
+		if (sink != null) {
+			try {
+				((Closeable) sink).close();
+			} catch (IOException e) {
+				LOGGER.error("Unable to write the manifest in " + target, e);
+				failed = true;
+			}
+			if (writer.getFailures() > 0) {
+				LOGGER.error(writer.getFailures() + " proto files could not be written in " + target);
+				failed = true;
+			}
+			if (manifest != null) {
+				IncrementalSink incrementalSink = (IncrementalSink) sink;
+				LOGGER.info(count + " classes, " + incrementalSink.getClassesSkipped() + " unchanged classes skipped, " + incrementalSink.getProtosKept()
+						+ " unchanged proto files kept, " + incrementalSink.getProtosDeleted() + " proto files of removed classes deleted");
+			}
+			if (bundling != null) {
+				LOGGER.info(count + " classes written into " + ((BundleSink) sink).getBundlesWritten() + " proto files");
+			}
+		}
+		if (stats.get(RunStats.Counter.CLASSES_FAILED) > 0) {
+			LOGGER.error(stats.get(RunStats.Counter.CLASSES_FAILED) + " classes could not be read");
+			failed = true;
+		}
+		if (descriptors != null) {
+			try {
+				descriptors.writeTo(new File(descriptorSet));
+				LOGGER.info(count + " classes written into a descriptor set of " + descriptors.getFileCount() + " files: " + descriptorSet);
+			} catch (IOException e) {
+				LOGGER.error("Unable to write the descriptor set " + descriptorSet, e);
+				failed = true;
+			}
+		}
+		if (StringUtils.isNotEmpty(report)) {
+			stats.stop();
+			try {
+				stats.writeJson(new File(report));
+			} catch (IOException e) {
+				LOGGER.error("Unable to write the report " + report, e);
+			}
+		}
+		if (failed) {
+			System.exit(1);
+		}
+
+	}
+
+	/**
+	 * Generate all the proto files, then regenerate the affected ones on every change until the
+	 * process is stopped.
+	 *
+	 * @param config the run settings
+	 */
+	private static void watch(GeneratorConfig config) {
+		try (ProtoWatcher watcher = new ProtoWatcher(config, new File(classes), target, writerThreads)) {
+			watcher.generateAll();
+			watcher.run();
+		} catch (IOException e) {
+			LOGGER.error("Unable to watch " + source + " and " + classes, e);
+		}
+	}
+
+	/**
+	 * @param args command line arguments
+	 */
+	private static void manageCommandLine(String[] args) {
+		CommandLineParser parser = new DefaultParser();
+		try {
+			CommandLine cmd = parser.parse(options, args);
+			if (cmd.hasOption("h")) {
+				printHelp();
+			}
+			if (cmd.hasOption("i")) {
+				source = cmd.getOptionValue("i");
+			}
+			if (cmd.hasOption("p")) {
+				packageName = cmd.getOptionValue("p");
+			}
+			if (cmd.hasOption("j")) {
+				javaPackageName = cmd.getOptionValue("j");
+			}
+			if (cmd.hasOption("g")) {
+				target = cmd.getOptionValue("g");
+			}
+			if (cmd.hasOption("o")) {
+				protoPackageName = cmd.getOptionValue("o");
+			}
+			if (cmd.hasOption("s")) {
+				syntax = ESyntax.enumOf(cmd.getOptionValue("s")).name();
+			}
+			recursive = cmd.hasOption("r");
+			incremental = cmd.hasOption("u");
+			watch = cmd.hasOption("w");
+			sourceOnly = cmd.hasOption("S");
+			if (cmd.hasOption("l")) {
+				inputs = new ArrayList<>();
+				for (String input : cmd.getOptionValues("l")) {
+					inputs.add(new File(input));
+				}
+			}
+			if (cmd.hasOption("report")) {
+				report = cmd.getOptionValue("report");
+			}
+			if (cmd.hasOption("c")) {
+				classes = cmd.getOptionValue("c");
+			}
+			if (cmd.hasOption("d")) {
+				descriptorSet = cmd.getOptionValue("d");
+			}
+			if (cmd.hasOption("b") || cmd.hasOption("bundle-group")) {
+				bundling = new ProtoBundling();
+			}
+			if (cmd.hasOption("bundle-group")) {
+				for (String group : cmd.getOptionValues("bundle-group")) {
+					int eq = group.indexOf('=');
+					if (eq <= 0 || eq == group.length() - 1) {
+						printHelp();
+					}
+					bundling.addGroup(group.substring(0, eq), group.substring(eq + 1));
+				}
+			}
+			if (cmd.hasOption("writer-threads")) {
+				writerThreads = Integer.parseInt(cmd.getOptionValue("writer-threads"));
+			}
+			if (cmd.hasOption("t")) {
+				parallelism = Integer.parseInt(cmd.getOptionValue("t"));
+			}
+			boolean classesJar = StringUtils.isNotEmpty(classes) && new File(classes).isFile();
+			if ((StringUtils.isEmptyOrNull(source) && inputs == null && !classesJar) || StringUtils.isEmptyOrNull(packageName)
+					|| StringUtils.isEmptyOrNull(protoPackageName)) {
+				printHelp();
+			}
+			if (watch && (StringUtils.isEmptyOrNull(classes) || classesJar || StringUtils.isEmptyOrNull(target))) {
+				printHelp();
+			}
+			// a single reader: the class files, the source files or the loaded inputs
+			if (sourceOnly && (StringUtils.isNotEmpty(classes) || watch)) {
+				printHelp();
+			}
+			if (inputs != null && (sourceOnly || StringUtils.isNotEmpty(classes) || watch)) {
+				printHelp();
+			}
+			// bundles are not tracked by the manifest
+			if (bundling != null && incremental) {
+				printHelp();
+			}
+		} catch (ParseException | NumberFormatException e) {
+			printHelp();
+		}
+	}
+
+	/**
+	 *
+	 */
+	private static void printHelp() {
+		// automatically generate the help statement
+		HelpFormatter formatter = new HelpFormatter();
+		formatter.printHelp(PojoToProto.class.getSimpleName(), options);
+		System.exit(1);
+	}
+
+	enum ESyntax {
+
+		proto2, //
+		proto3; //
+
+		public static final ESyntax enumOf(String pValue) {
+			if (StringUtils.isNotEmptyOrNull(pValue)) {
+				for (ESyntax type : values()) {
+					if (pValue.equals(type.name())) {
+						return type;
+					}
+				}
+			}
+			return proto2;
+		}
+
+	}
+
+}
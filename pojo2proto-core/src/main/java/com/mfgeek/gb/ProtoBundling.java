@@ -0,0 +1,105 @@
+package com.mfgeek.gb;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * The way classes are grouped into proto files when a run writes one proto file per group rather
+ * than one per class: by default one file per java package, named after the package.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Groups gather the classes of a package and of its sub-packages under a name of their own, the
+ * group of the longest enclosing package wins. The bundle of a class is looked up in a map of
+ * packages, walking up the package name, and cached by package.
+ *
+ * <h3>USAGE</h3>
+ * Set it in {@link GeneratorConfig#setBundling(ProtoBundling)} so that imports refer to bundles, and
+ * give it to the {@link BundleSink} of the run. Do not change it while the run is in progress.
+ *
+ */
+public class ProtoBundling {
+
+	private final Map<String, String>	groups		= new HashMap<>();
+	private final Map<String, String>	bundles		= new HashMap<>();
+
+	/**
+	 * Put the classes of a package and of its sub-packages into one bundle.
+	 *
+	 * @param pPackage the java package
+	 * @param pBundle the bundle name, the file name without <code>.proto</code>
+	 */
+	public void addGroup(String pPackage, String pBundle) {
+		this.groups.put(pPackage, pBundle);
+		synchronized (this.bundles) {
+			this.bundles.clear();
+		}
+	}
+
+	/**
+	 * @param pBundle a bundle name
+	 * @return <code>true</code> if the bundle is a group, which may gather classes of non consecutive
+	 *         packages
+	 */
+	public boolean isGroup(String pBundle) {
+		return this.groups.containsValue(pBundle);
+	}
+
+	/**
+	 * @param pBinaryName the binary name of a class
+	 * @return the name of its bundle
+	 */
+	public String bundleOf(String pBinaryName) {
+		int dot = pBinaryName.lastIndexOf('.');
+		String packageName = dot < 0 ? "" : pBinaryName.substring(0, dot);
+		synchronized (this.bundles) {
+			String bundle = this.bundles.get(packageName);
+			if (bundle == null) {
+				bundle = packageName;
+				for (String p = packageName; p != null; p = parentOf(p)) {
+					String group = this.groups.get(p);
+					if (group != null) {
+						bundle = group;
+						break;
+					}
+				}
+				this.bundles.put(packageName, bundle);
+			}
+			return bundle;
+		}
+	}
+
+	/**
+	 * @param pBinaryName the binary name of a class
+	 * @return the name of the proto file of its bundle
+	 */
+	public String fileOf(String pBinaryName) {
+		return bundleOf(pBinaryName) + ".proto";
+	}
+
+	/**
+	 * @param pBundle a bundle name
+	 * @return the outer class of the proto classes of the bundle: the last segment of the name,
+	 *         capitalized, followed by <code>Protos</code>
+	 */
+	public static String outerClassNameOf(String pBundle) {
+		String last = pBundle.substring(pBundle.lastIndexOf('.') + 1);
+		if (last.isEmpty()) {
+			return "Protos";
+		}
+		return Character.toUpperCase(last.charAt(0)) + last.substring(1) + "Protos";
+	}
+
+	/**
+	 * @param pPackage a package
+	 * @return the enclosing package, <code>null</code> for the default package
+	 */
+	private static String parentOf(String pPackage) {
+		if (pPackage.isEmpty()) {
+			return null;
+		}
+		int dot = pPackage.lastIndexOf('.');
+		return dot < 0 ? "" : pPackage.substring(0, dot);
+	}
+
+}
@@ -0,0 +1,507 @@
+package com.mfgeek.gb;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.mfgeek.gb.PojoToProto.ESyntax;
+
+import lombok.Data;
+import okio.BufferedSink;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * The model of a proto file: its header and the fields of its message or enum.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Built to be kept by the thousands: the fields are packed by column, one array per attribute of
+ * the message rather than one object per field, the defaults and map key types only get an array
+ * once a field has one, and the imports are a sorted array. {@link #getFields()} gives a read only
+ * view whose elements are built on access. The strings are the ones given, the generator passes
+ * shared instances for the types, imports and field names of a run. Equality of two files compares
+ * the columns, no field object is built; the hash code of the fields follows the {@link List}
+ * contract.
+ *
+ * <h3>USAGE</h3>
+ * Built by {@link ProtoGenerator}, fields are appended in number order.
+ *
+ */
+@Data
+public class ProtoFile {
+
+	private static final String	INDENT							= "\t";
+
+	private String							syntax;
+	private String							name;
+	private boolean							isEnum							= false;
+	private String							javaOuterClassName	= null;
+	private String							javaPackage					= null;
+	private String							packageName;
+	/** binary name of the class the file is built from */
+	private String							className						= null;
+	private int									index								= 1;
+	/** fingerprint of the class the file is built from, see {@link SchemaManifest} */
+	private String							sourceFingerprint		= null;
+
+	/** sorted and without duplicates, so the output does not depend on the order of the fields */
+	private final SortedNames		imports							= new SortedNames();
+	private final FieldTable		fields							= new FieldTable();
+	/** binary names of the superclasses whose fields the file holds, closest first */
+	private List<String>				superclassNames			= Collections.emptyList();
+
+	public void appendImport(String pImport) {
+		this.imports.insert(pImport);
+	}
+
+	/**
+	 * @return the imports, sorted and without duplicates, read only
+	 */
+	public List<String> getImports() {
+		return this.imports;
+	}
+
+	/**
+	 * @param field a field, appended with its own number, the next fields appended by name are
+	 *          numbered after it
+	 */
+	public void appendField(ProtoField field) {
+		this.fields.add(field.required, field.repeated, field.packed, field.keyType, field.type, field.name, field.defaultValue, field.index);
+		this.index = Math.max(this.index, field.index + 1);
+	}
+
+	/**
+	 * @return the fields in number order, read only
+	 */
+	public List<ProtoField> getFields() {
+		return this.fields;
+	}
+
+	public void appendField(boolean required, boolean repeated, String type, String name, String def) {
+		appendField(required, repeated, false, type, name, def);
+	}
+
+	/**
+	 * @param required <code>true</code> for a proto2 required field
+	 * @param repeated <code>true</code> for a repeated field
+	 * @param packed <code>true</code> for a repeated scalar field written as a single packed record
+	 * @param type the proto type
+	 * @param name the field name
+	 * @param def the default value option, <code>null</code> if none
+	 */
+	public void appendField(boolean required, boolean repeated, boolean packed, String type, String name, String def) {
+		this.fields.add(required, repeated, packed, null, type, name, def, this.index++);
+	}
+
+	/**
+	 * @param keyType the proto type of the keys, an integral or string scalar
+	 * @param valueType the proto type of the values
+	 * @param name the field name
+	 */
+	public void appendMapField(String keyType, String valueType, String name) {
+		this.fields.add(false, false, false, keyType, valueType, name, null, this.index++);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder(256);
+		try {
+			writeTo(buf);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // a StringBuilder never fails
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Write the proto file to a sink, UTF-8 encoded, without building it as a string first.
+	 *
+	 * @param sink the sink, neither flushed nor closed
+	 * @throws IOException if the sink fails
+	 */
+	public void writeTo(BufferedSink sink) throws IOException {
+		SinkAppendable appendable = new SinkAppendable(sink);
+		writeTo(appendable);
+		appendable.flush();
+	}
+
+	/**
+	 * Write the proto file piece by piece to an appendable.
+	 *
+	 * @param buf the appendable
+	 * @throws IOException if the appendable fails
+	 */
+	public void writeTo(Appendable buf) throws IOException {
+		writeHeader(buf);
+		writeBody(buf);
+	}
+
+	/**
+	 * Write syntax, package, imports and options to a sink, UTF-8 encoded.
+	 *
+	 * @param sink the sink, neither flushed nor closed
+	 * @throws IOException if the sink fails
+	 */
+	public void writeHeader(BufferedSink sink) throws IOException {
+		writeHeader(new SinkAppendable(sink));
+	}
+
+	/**
+	 * Write syntax, package, imports and options.
+	 *
+	 * @param buf the appendable
+	 * @throws IOException if the appendable fails
+	 */
+	public void writeHeader(Appendable buf) throws IOException {
+		if (this.syntax != null && !this.syntax.isEmpty()) {
+			buf.append("syntax = \"").append(this.syntax).append('"');
+			appendEndOfLine(buf);
+			appendNewLine(buf);
+		}
+		buf.append("package ").append(this.packageName);
+		appendEndOfLine(buf);
+		if (!this.isEnum) {
+			appendNewLine(buf);
+			if (!this.imports.isEmpty()) {
+				for (String i : this.imports) {
+					buf.append("import \"").append(i).append('"');
+					appendEndOfLine(buf);
+				}
+			}
+		}
+		appendNewLine(buf);
+		if (this.javaPackage != null && !this.javaPackage.isEmpty()) {
+			buf.append("option java_package = \"").append(this.javaPackage).append('"');
+			appendEndOfLine(buf);
+		}
+		if (this.javaOuterClassName != null && !this.javaOuterClassName.isEmpty()) {
+			buf.append("option java_outer_classname = \"").append(this.javaOuterClassName).append('"');
+			appendEndOfLine(buf);
+		}
+		appendNewLine(buf);
+	}
+
+	/**
+	 * Write the message or enum definition to a sink, UTF-8 encoded.
+	 *
+	 * @param sink the sink, neither flushed nor closed
+	 * @throws IOException if the sink fails
+	 */
+	public void writeBody(BufferedSink sink) throws IOException {
+		writeBody(new SinkAppendable(sink));
+	}
+
+	/**
+	 * Write the message or enum definition.
+	 *
+	 * @param buf the appendable
+	 * @throws IOException if the appendable fails
+	 */
+	public void writeBody(Appendable buf) throws IOException {
+		buf.append(this.isEnum ? "enum " : "message ").append(this.name);
+		appendOpenQuote(buf);
+		appendNewLine(buf);
+		for (ProtoField f : this.fields) {
+			if (this.isEnum && "value".equals(f.name)) {
+				continue;
+			}
+			buf.append(INDENT);
+			f.writeTo(buf, this.syntax, this.isEnum);
+			appendEndOfLine(buf);
+			appendNewLine(buf);
+		}
+		appendClosedQuote(buf);
+	}
+
+	void appendNewLine(Appendable buf) throws IOException {
+		buf.append('\n');
+	}
+
+	void appendEndOfLine(Appendable buf) throws IOException {
+		buf.append(";\n");
+	}
+
+	void appendOpenQuote(Appendable buf) throws IOException {
+		buf.append(" {\n");
+	}
+
+	void appendClosedQuote(Appendable buf) throws IOException {
+		buf.append("}\n");
+	}
+
+	/**
+	 * A field of the file, as stored in its columns: changing the file does not change it.
+	 */
+	@Data
+	public static class ProtoField {
+
+		private final boolean	repeated;
+		private final boolean	required;
+		/** repeated scalar written as one length delimited record, the proto3 default */
+		private final boolean	packed;
+		/** proto type of the keys of a map field, <code>null</code> for other fields */
+		private final String	keyType;
+		private final String	type;
+		private final String	name;
+		private final String	defaultValue;
+		private final int			index;
+
+		ProtoField(boolean required, boolean repeated, String type, String name, String defaultValue, int in) {
+			this(required, repeated, false, null, type, name, defaultValue, in);
+		}
+
+		ProtoField(boolean required, boolean repeated, boolean packed, String keyType, String type, String name, String defaultValue, int in) {
+			this.required = required;
+			this.repeated = repeated;
+			this.packed = packed;
+			this.keyType = keyType;
+			this.type = type;
+			this.name = name;
+			this.defaultValue = defaultValue;
+			this.index = in;
+		}
+
+		@Override
+		public String toString() {
+			return toString(ESyntax.proto2.name(), false);
+		}
+
+		public String toString(String syntax, boolean isFieldForEnum) {
+			StringBuilder buf = new StringBuilder(64);
+			try {
+				writeTo(buf, syntax, isFieldForEnum);
+			} catch (IOException e) {
+				throw new IllegalStateException(e); // a StringBuilder never fails
+			}
+			return buf.toString();
+		}
+
+		void writeTo(Appendable buf, String syntax, boolean isFieldForEnum) throws IOException {
+			if (isFieldForEnum) {
+				buf.append(this.name).append(" = ").append(Integer.toString(this.index - 1));
+			} else {
+				ESyntax eSyntax = ESyntax.enumOf(syntax);
+				if (this.keyType != null) {
+					// map fields take no label, whatever the syntax
+					buf.append("map<").append(this.keyType).append(", ").append(this.type).append("> ").append(this.name).append(" = ")
+							.append(Integer.toString(this.index)).append(' ');
+					return;
+				}
+				if (this.repeated) {
+					buf.append("repeated ");
+				} else if (eSyntax == ESyntax.proto2) {
+					if (this.required) {
+						buf.append("required ");
+					} else {
+						buf.append("optional ");
+					}
+				}
+				buf.append(this.type).append(' ').append(this.name).append(" = ").append(Integer.toString(this.index)).append(' ');
+				if (this.defaultValue != null && eSyntax != ESyntax.proto3) {
+					buf.append("[ ").append(this.defaultValue).append(" ]");
+				} else if (this.packed && eSyntax == ESyntax.proto2) {
+					buf.append("[ packed = true ]");
+				}
+			}
+		}
+	}
+
+	/**
+	 * The fields of a file, one array per attribute, the first <code>size</code> entries used.
+	 */
+	private static final class FieldTable extends AbstractList<ProtoField> implements RandomAccess {
+
+		private static final String[]	NO_STRINGS	= new String[0];
+		private static final int			REQUIRED		= 1;
+		private static final int			REPEATED		= 2;
+		private static final int			PACKED			= 4;
+
+		private int										size;
+		private String[]							names				= NO_STRINGS;
+		private String[]							types				= NO_STRINGS;
+		private int[]									numbers			= new int[0];
+		private byte[]								flags				= new byte[0];
+		/** <code>null</code> until a field has a default value */
+		private String[]							defaults;
+		/** <code>null</code> until a field is a map */
+		private String[]							keyTypes;
+
+		void add(boolean pRequired, boolean pRepeated, boolean pPacked, String pKeyType, String pType, String pName, String pDefault, int pNumber) {
+			if (this.size == this.names.length) {
+				int capacity = this.size < 4 ? 4 : this.size + (this.size >> 1);
+				this.names = Arrays.copyOf(this.names, capacity);
+				this.types = Arrays.copyOf(this.types, capacity);
+				this.numbers = Arrays.copyOf(this.numbers, capacity);
+				this.flags = Arrays.copyOf(this.flags, capacity);
+				this.defaults = this.defaults != null ? Arrays.copyOf(this.defaults, capacity) : null;
+				this.keyTypes = this.keyTypes != null ? Arrays.copyOf(this.keyTypes, capacity) : null;
+			}
+			this.names[this.size] = pName;
+			this.types[this.size] = pType;
+			this.numbers[this.size] = pNumber;
+			this.flags[this.size] = (byte) ((pRequired ? REQUIRED : 0) | (pRepeated ? REPEATED : 0) | (pPacked ? PACKED : 0));
+			if (pDefault != null) {
+				if (this.defaults == null) {
+					this.defaults = new String[this.names.length];
+				}
+				this.defaults[this.size] = pDefault;
+			}
+			if (pKeyType != null) {
+				if (this.keyTypes == null) {
+					this.keyTypes = new String[this.names.length];
+				}
+				this.keyTypes[this.size] = pKeyType;
+			}
+			this.size++;
+			this.modCount++;
+		}
+
+		@Override
+		public ProtoField get(int pIndex) {
+			if (pIndex < 0 || pIndex >= this.size) {
+				throw new IndexOutOfBoundsException("Index: " + pIndex + ", Size: " + this.size);
+			}
+			int flag = this.flags[pIndex];
+			return new ProtoField((flag & REQUIRED) != 0, (flag & REPEATED) != 0, (flag & PACKED) != 0,
+					this.keyTypes != null ? this.keyTypes[pIndex] : null, this.types[pIndex], this.names[pIndex],
+					this.defaults != null ? this.defaults[pIndex] : null, this.numbers[pIndex]);
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof FieldTable)) {
+				return super.equals(o);
+			}
+			FieldTable other = (FieldTable) o;
+			if (this.size != other.size) {
+				return false;
+			}
+			for (int i = 0; i < this.size; i++) {
+				if (this.numbers[i] != other.numbers[i] || this.flags[i] != other.flags[i] || !this.names[i].equals(other.names[i])
+						|| !equal(this.types[i], other.types[i]) || !equal(column(this.defaults, i), column(other.defaults, i))
+						|| !equal(column(this.keyTypes, i), column(other.keyTypes, i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static String column(String[] pColumn, int pIndex) {
+			return pColumn != null ? pColumn[pIndex] : null;
+		}
+
+		private static boolean equal(String a, String b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
+	/**
+	 * Strings kept sorted and without duplicates in an array, the first <code>size</code> entries
+	 * used.
+	 */
+	private static final class SortedNames extends AbstractList<String> implements RandomAccess {
+
+		private int				size;
+		private String[]	names	= FieldTable.NO_STRINGS;
+
+		void insert(String pName) {
+			int position = Arrays.binarySearch(this.names, 0, this.size, pName);
+			if (position >= 0) {
+				return;
+			}
+			position = -position - 1;
+			if (this.size == this.names.length) {
+				this.names = Arrays.copyOf(this.names, this.size < 2 ? 2 : this.size * 2);
+			}
+			System.arraycopy(this.names, position, this.names, position + 1, this.size - position);
+			this.names[position] = pName;
+			this.size++;
+			this.modCount++;
+		}
+
+		@Override
+		public String get(int pIndex) {
+			if (pIndex < 0 || pIndex >= this.size) {
+				throw new IndexOutOfBoundsException("Index: " + pIndex + ", Size: " + this.size);
+			}
+			return this.names[pIndex];
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof String && Arrays.binarySearch(this.names, 0, this.size, o) >= 0;
+		}
+	}
+
+	/**
+	 * Appendable view of an okio sink, characters are UTF-8 encoded straight into the sink segments.
+	 * A high surrogate appended alone is held until its low surrogate comes, so a supplementary
+	 * character appended char by char is encoded as one code point.
+	 */
+	static final class SinkAppendable implements Appendable {
+
+		private final BufferedSink	sink;
+		/** high surrogate waiting for its low surrogate, 0 if none */
+		private char								pending;
+
+		SinkAppendable(BufferedSink pSink) {
+			this.sink = pSink;
+		}
+
+		@Override
+		public Appendable append(CharSequence csq) throws IOException {
+			String str = csq == null ? "null" : csq.toString();
+			flush();
+			this.sink.writeUtf8(str);
+			return this;
+		}
+
+		@Override
+		public Appendable append(CharSequence csq, int start, int end) throws IOException {
+			String str = csq == null ? "null" : csq.toString();
+			flush();
+			this.sink.writeUtf8(str, start, end);
+			return this;
+		}
+
+		@Override
+		public Appendable append(char c) throws IOException {
+			if (this.pending != 0 && Character.isLowSurrogate(c)) {
+				this.sink.writeUtf8CodePoint(Character.toCodePoint(this.pending, c));
+				this.pending = 0;
+			} else if (Character.isHighSurrogate(c)) {
+				flush();
+				this.pending = c;
+			} else {
+				flush();
+				this.sink.writeUtf8CodePoint(c);
+			}
+			return this;
+		}
+
+		/**
+		 * Write a high surrogate left alone as <code>?</code>, as okio does for a malformed string.
+		 *
+		 * @throws IOException if the sink fails
+		 */
+		void flush() throws IOException {
+			if (this.pending != 0) {
+				this.sink.writeByte('?');
+				this.pending = 0;
+			}
+		}
+	}
+
+}
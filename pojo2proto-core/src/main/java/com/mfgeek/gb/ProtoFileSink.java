@@ -0,0 +1,21 @@
+package com.mfgeek.gb;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Receive the proto files of a run as soon as they are built.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Always called from the thread which started the run, in class name order.
+ *
+ * <h3>USAGE</h3>
+ * Given to {@link ProtoGenerator#generate(GeneratorConfig, ProtoFileSink)}.
+ *
+ */
+public interface ProtoFileSink {
+
+	/**
+	 * @param pProtoFile a proto file, not kept by the generator once given
+	 */
+	void accept(ProtoFile pProtoFile);
+
+}
@@ -0,0 +1,272 @@
+package com.mfgeek.gb;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import okio.Buffer;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Write proto files to an output directory from a pool of worker threads.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Each file is rendered and written by a worker: content is compared with the bytes already on
+ * disk, and only written when it differs, to a temporary file of the output directory through a
+ * {@link FileChannel}, created with the permissions of any new file, then moved atomically over the
+ * previous file. A file which cannot be rendered or written is counted as failed and logged. The
+ * queue of pending files is bounded: once it is full the calling thread writes the file itself,
+ * which throttles the producer.
+ *
+ * <h3>USAGE</h3>
+ * Call {@link #close()} to wait for the pending files, then read the counters.
+ *
+ */
+public class ProtoFileWriter implements Closeable {
+
+	private static final Logger		LOGGER					= LoggerFactory.getLogger(ProtoFileWriter.class);
+
+	/** Number of files waiting for a worker per worker. */
+	private static final int			QUEUE_PER_THREAD	= 16;
+
+	private final Path						dir;
+	private final ExecutorService	executor;
+	private final long						start						= System.nanoTime();
+
+	private final AtomicInteger		filesWritten		= new AtomicInteger();
+	private final AtomicInteger		filesUnchanged	= new AtomicInteger();
+	private final AtomicInteger		failures				= new AtomicInteger();
+	private final AtomicLong			bytesWritten		= new AtomicLong();
+	/** names of the files whose write failed */
+	private final Set<String>			failedFiles			= Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final RunStats				stats;
+
+	/**
+	 * @param pDir the output directory, created if needed
+	 * @param pThreads the number of worker threads
+	 */
+	public ProtoFileWriter(String pDir, int pThreads) {
+		this(pDir, pThreads, null);
+	}
+
+	/**
+	 * @param pDir the output directory, created if needed
+	 * @param pThreads the number of worker threads
+	 * @param pStats receive the rendering and writing times, and the counters once closed,
+	 *          <code>null</code> for none
+	 */
+	public ProtoFileWriter(String pDir, int pThreads, RunStats pStats) {
+		this.stats = pStats;
+		File out = new File(pDir);
+		if (!out.exists()) {
+			LOGGER.info(pDir + " doesn't exist, will create a new directory with name:[" + pDir + "]");
+			out.mkdirs();
+		}
+		if (out.isFile()) {
+			LOGGER.info(pDir + " is a file, create another directory with name:[" + pDir + ".2]");
+			out = new File(pDir + ".2");
+			out.mkdirs();
+		}
+		this.dir = out.toPath();
+		int threads = Math.max(1, pThreads);
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(threads * QUEUE_PER_THREAD),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Render and write a proto file in the background, the proto file must not change afterwards.
+	 *
+	 * @param pf the proto file
+	 */
+	public void write(final ProtoFile pf) {
+		this.executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				long start = System.nanoTime();
+				String fileName = pf.getName() + ".proto";
+				Buffer content = new Buffer();
+				try {
+					pf.writeTo(content);
+				} catch (IOException | RuntimeException e) {
+					// a Buffer never fails, a malformed model may
+					fail(fileName, "Unable to render ", e);
+					return;
+				}
+				byte[] bytes = content.readByteArray();
+				if (ProtoFileWriter.this.stats != null) {
+					ProtoFileWriter.this.stats.add(RunStats.Phase.RENDER, System.nanoTime() - start);
+				}
+				writeNow(fileName, bytes);
+			}
+		});
+	}
+
+	/**
+	 * Write an already rendered proto file in the background.
+	 *
+	 * @param pFileName the file name
+	 * @param pContent the content, consumed
+	 */
+	public void write(final String pFileName, Buffer pContent) {
+		final byte[] content = pContent.readByteArray();
+		this.executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				writeNow(pFileName, content);
+			}
+		});
+	}
+
+	/**
+	 * @param pFileName the file name
+	 * @param pContent the content
+	 */
+	private void writeNow(String pFileName, byte[] pContent) {
+		long start = System.nanoTime();
+		try {
+			store(pFileName, pContent);
+		} finally {
+			if (this.stats != null) {
+				this.stats.add(RunStats.Phase.WRITE, System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * @param pFileName the file name
+	 * @param pContent the content
+	 */
+	private void store(String pFileName, byte[] pContent) {
+		Path file = this.dir.resolve(pFileName);
+		try {
+			if (sameContent(file, pContent)) {
+				this.filesUnchanged.incrementAndGet();
+				return;
+			}
+			LOGGER.debug("writing proto file: {}", file);
+			// not Files.createTempFile: its files are private to the owner, a proto file gets the umask
+			Path tmp = this.dir.resolve(pFileName + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+			try {
+				try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+					ByteBuffer buffer = ByteBuffer.wrap(pContent);
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+				}
+				try {
+					Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+				}
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+			this.filesWritten.incrementAndGet();
+			this.bytesWritten.addAndGet(pContent.length);
+		} catch (IOException e) {
+			fail(pFileName, "Unable to write ", e);
+		}
+	}
+
+	/**
+	 * @param pFileName the name of the file which is not written
+	 * @param pMessage beginning of the message to log
+	 * @param pCause the failure
+	 */
+	private void fail(String pFileName, String pMessage, Exception pCause) {
+		this.failures.incrementAndGet();
+		this.failedFiles.add(pFileName);
+		LOGGER.error(pMessage + this.dir.resolve(pFileName), pCause);
+	}
+
+	/**
+	 * @param pFile a file
+	 * @param pContent a content
+	 * @return <code>true</code> if the file exists with exactly this content
+	 * @throws IOException if the file cannot be read
+	 */
+	private static boolean sameContent(Path pFile, byte[] pContent) throws IOException {
+		if (!Files.isRegularFile(pFile) || Files.size(pFile) != pContent.length) {
+			return false;
+		}
+		return Arrays.equals(Files.readAllBytes(pFile), pContent);
+	}
+
+	/**
+	 * Wait for the pending files and log what was written.
+	 */
+	@Override
+	public void close() {
+		this.executor.shutdown();
+		try {
+			while (!this.executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOGGER.info("waiting for proto files to be written");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		LOGGER.info(this.filesWritten + " proto files written (" + this.bytesWritten + " bytes), " + this.filesUnchanged + " unchanged, "
+				+ this.failures + " failed in " + (System.nanoTime() - this.start) / 1000000 + " ms");
+		if (this.stats != null) {
+			this.stats.add(RunStats.Counter.FILES_WRITTEN, this.filesWritten.get());
+			this.stats.add(RunStats.Counter.FILES_UNCHANGED, this.filesUnchanged.get());
+			this.stats.add(RunStats.Counter.FILES_FAILED, this.failures.get());
+			this.stats.add(RunStats.Counter.BYTES_WRITTEN, this.bytesWritten.get());
+		}
+	}
+
+	public int getFilesWritten() {
+		return this.filesWritten.get();
+	}
+
+	public int getFilesUnchanged() {
+		return this.filesUnchanged.get();
+	}
+
+	public int getFailures() {
+		return this.failures.get();
+	}
+
+	/**
+	 * @param pFileName the name of a file given to this writer
+	 * @return <code>true</code> if its write failed, final once the writer is closed
+	 */
+	public boolean isFailed(String pFileName) {
+		return this.failedFiles.contains(pFileName);
+	}
+
+	public long getBytesWritten() {
+		return this.bytesWritten.get();
+	}
+
+	/**
+	 * @return the statistics given to the constructor, <code>null</code> if none
+	 */
+	public RunStats getStats() {
+		return this.stats;
+	}
+
+}
@@ -0,0 +1,814 @@
+package com.mfgeek.gb;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mfgeek.gb.ProtoFile.ProtoField;
+import com.mfgeek.gb.utils.DigestUtils;
+
+public class ProtoGenerator {
+
+	private static final Logger								LOGGER								= LoggerFactory.getLogger(ProtoGenerator.class);
+
+	private static ProtoGenerator							instance							= new ProtoGenerator();
+
+	public static ProtoGenerator getInstance() {
+		return instance;
+	}
+
+	private static final TypeRegistry				SCALAR_TYPES;
+	static {
+		Map<String, String> map = new HashMap<>();
+		map.put("int", "int32");
+		map.put("integer", "int32");
+		map.put("short", "int32");
+		map.put("long", "int64");	// need to manually convert from pojo date value to long value
+		map.put("string", "string");
+		map.put("float", "float");
+		map.put("double", "double");
+		map.put("date", "int64");	// convert date value to int64/long TODO
+		map.put("boolean", "bool");
+		map.put("byte", "int32");
+		SCALAR_TYPES = new TypeRegistry(map);
+	}
+
+	/** Proto scalar types allowed as keys of map fields. */
+	private static final Set<String>					MAP_KEY_TYPES					= Collections.unmodifiableSet(new HashSet<>(Arrays.asList("int32", "int64", "bool", "string")));
+
+	/** Proto scalar types whose repeated fields can be packed. */
+	private static final Set<String>					PACKABLE_TYPES				= Collections.unmodifiableSet(new HashSet<>(Arrays.asList("int32", "int64", "float", "double", "bool")));
+
+	/** Primitive java types whose arrays map to packed repeated fields. */
+	private static final Set<String>					PRIMITIVE_TYPES				= Collections.unmodifiableSet(new HashSet<>(Arrays.asList("int", "short", "long", "float", "double", "boolean")));
+
+	/** Number of classes below which a parallel task stops splitting. */
+	private static final int									SEQUENTIAL_THRESHOLD	= 8;
+
+	/** Number of classes in flight per thread when a parallel run streams its results. */
+	private static final int									WINDOW_PER_THREAD			= 4 * SEQUENTIAL_THRESHOLD;
+
+	/** Marks the end of the proto files of an input in its queue. */
+	private static final ProtoFile						END_OF_INPUT					= new ProtoFile();
+
+	public List<ProtoFile> parse(String pSource, String pPackage, String pProtoPackageName, String pJavaPackageName, String pSyntax) {
+		return parse(pSource, pPackage, pProtoPackageName, pJavaPackageName, pSyntax, 1);
+	}
+
+	/**
+	 * @param pSource root directory of the POJO source code
+	 * @param pPackage package of the POJO classes
+	 * @param pProtoPackageName package of the proto files
+	 * @param pJavaPackageName package of the generated proto classes, POJO package if empty
+	 * @param pSyntax proto syntax
+	 * @param pParallelism number of classes processed in parallel, sequential if lower than 2
+	 * @return the proto files, sorted by class name whatever the parallelism
+	 */
+	public List<ProtoFile> parse(String pSource, String pPackage, String pProtoPackageName, String pJavaPackageName, String pSyntax,
+			int pParallelism) {
+		return parse(pSource, pPackage, pProtoPackageName, pJavaPackageName, pSyntax, pParallelism, new ReflectionPojoReader());
+	}
+
+	/**
+	 * @param pSource root directory of the POJO source code
+	 * @param pPackage package of the POJO classes
+	 * @param pProtoPackageName package of the proto files
+	 * @param pJavaPackageName package of the generated proto classes, POJO package if empty
+	 * @param pSyntax proto syntax
+	 * @param pParallelism number of classes processed in parallel, sequential if lower than 2
+	 * @param pReader the way POJO classes are read
+	 * @return the proto files, sorted by class name whatever the parallelism
+	 */
+	public List<ProtoFile> parse(String pSource, String pPackage, String pProtoPackageName, String pJavaPackageName, String pSyntax,
+			int pParallelism, PojoReader pReader) {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource(pSource);
+		config.setPojoPackage(pPackage);
+		config.setProtoPackage(pProtoPackageName);
+		config.setJavaPackage(pJavaPackageName);
+		config.setSyntax(pSyntax);
+		config.setParallelism(pParallelism);
+		config.setReader(pReader);
+		return parse(config);
+	}
+
+	/**
+	 * @param pConfig the run settings
+	 * @return the proto files, sorted by package then class name whatever the parallelism
+	 */
+	public List<ProtoFile> parse(GeneratorConfig pConfig) {
+		final List<ProtoFile> protos = new ArrayList<>();
+		generate(pConfig, new ProtoFileSink() {
+
+			@Override
+			public void accept(ProtoFile pProtoFile) {
+				protos.add(pProtoFile);
+			}
+		});
+		return protos;
+	}
+
+	/**
+	 * Build the proto files one by one and hand each of them to the sink as soon as it is ready, so
+	 * only a bounded number of proto files is in memory at a time.
+	 *
+	 * @param pConfig the run settings
+	 * @param pSink receive the proto files, sorted by package then class name whatever the parallelism
+	 * @return the number of proto files given to the sink
+	 */
+	public int generate(GeneratorConfig pConfig, ProtoFileSink pSink) {
+		return generate(pConfig, null, pSink);
+	}
+
+	/**
+	 * Build the proto files of some classes of the package only. The whole package is still listed,
+	 * so the types of the fields resolve as in a full run.
+	 *
+	 * @param pConfig the run settings
+	 * @param pClassNames binary names of the classes to process, all the classes of the package if
+	 *          <code>null</code>
+	 * @param pSink receive the proto files, sorted by package then class name whatever the parallelism
+	 * @return the number of proto files given to the sink
+	 */
+	public int generate(GeneratorConfig pConfig, Collection<String> pClassNames, ProtoFileSink pSink) {
+		if (pConfig.getInputs() != null && !pConfig.getInputs().isEmpty()) {
+			return generateInputs(pConfig, pClassNames, pSink);
+		}
+		LOGGER.info("parsing java classes in package:" + pConfig.getSource());
+
+		File f = new File(pConfig.getSource(), packToDir(pConfig.getPojoPackage()));
+		if (f.exists() && f.isDirectory() && f.list().length > 0) {
+			try (PojoInput source = PojoInput.open(new File(pConfig.getSource()))) {
+				return generate(pConfig, source, ".java", pClassNames, pSink);
+			} catch (IOException e) {
+				throw new IllegalStateException(e); // a directory is never opened
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Build the proto files of the classes of each input. The classes of all the inputs are listed
+	 * first into one index, so a field may refer to a class of another input. Each input is then
+	 * loaded by a class loader of its own, released once its classes are processed, or read from its
+	 * class files. Inputs are processed in parallel, one thread each, or a single input with the
+	 * parallelism of the run; each hands its proto files over through a small bounded queue, drained
+	 * input after input, so only a few models per input are held whatever the size of the inputs.
+	 *
+	 * @param pConfig the run settings, with inputs
+	 * @param pClassNames binary names of the classes to process, all the classes of the package if
+	 *          <code>null</code>
+	 * @param pSink receive the proto files, sorted by input then package then class name
+	 * @return the number of proto files given to the sink
+	 */
+	private int generateInputs(final GeneratorConfig pConfig, Collection<String> pClassNames, ProtoFileSink pSink) {
+		List<File> inputs = pConfig.getInputs();
+		// one set of counters and one index of the classes for all the inputs
+		final RunStats stats = pConfig.getStats() != null ? pConfig.getStats() : new RunStats();
+		final SymbolIndex symbols = new SymbolIndex(pConfig.getBundling());
+		List<List<String>> classes = discoverInputs(pConfig, pClassNames, symbols, stats);
+		final int classParallelism = inputs.size() > 1 ? 1 : pConfig.getParallelism();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(pConfig.getParallelism(), inputs.size())));
+		URLClassLoader fallback = null;
+		int count = 0;
+		try {
+			if (pConfig.isLoadInputs()) {
+				// loads the classes an input refers to in the other inputs, kept until the end of the run
+				URL[] urls = new URL[inputs.size()];
+				for (int i = 0; i < urls.length; i++) {
+					urls[i] = inputs.get(i).toURI().toURL();
+				}
+				fallback = new URLClassLoader(urls, ProtoGenerator.class.getClassLoader());
+			}
+			final ClassLoader inputsLoader = fallback;
+			List<Future<?>> results = new ArrayList<>(inputs.size());
+			List<BlockingQueue<ProtoFile>> queues = new ArrayList<>(inputs.size());
+			for (int i = 0; i < inputs.size(); i++) {
+				final File input = inputs.get(i);
+				final List<String> inputClasses = classes.get(i);
+				final BlockingQueue<ProtoFile> queue = new ArrayBlockingQueue<>(WINDOW_PER_THREAD);
+				queues.add(queue);
+				results.add(executor.submit(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							generateInput(pConfig, input, classParallelism, inputsLoader, symbols, inputClasses, stats, new ProtoFileSink() {
+
+								@Override
+								public void accept(ProtoFile pProtoFile) {
+									try {
+										queue.put(pProtoFile);
+									} catch (InterruptedException e) {
+										Thread.currentThread().interrupt();
+										throw new CancellationException("generation of " + input + " cancelled");
+									}
+								}
+							});
+						} finally {
+							try {
+								queue.put(END_OF_INPUT);
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+						}
+					}
+				}));
+			}
+			// the tasks start in the order of the inputs, so the input drained is always running or done
+			for (int i = 0; i < inputs.size(); i++) {
+				BlockingQueue<ProtoFile> queue = queues.get(i);
+				for (ProtoFile pf = queue.take(); pf != END_OF_INPUT; pf = queue.take()) {
+					pSink.accept(pf);
+					count++;
+				}
+				results.get(i).get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			// never return a partial count: the sinks would take the undrained inputs as removed
+			throw new CancellationException("generation of " + pConfig.getPojoPackage() + " interrupted");
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // the URL of a file is always valid
+		} finally {
+			executor.shutdownNow();
+			if (fallback != null) {
+				try {
+					fallback.close();
+				} catch (IOException e) {
+					LOGGER.error("Unable to close the loader of the inputs", e);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * List the classes of all the inputs into one index.
+	 *
+	 * @param pConfig the run settings, with inputs
+	 * @param pClassNames binary names of the classes to process, all if <code>null</code>
+	 * @param pSymbols receive all the classes found
+	 * @param pStats counters and timers of the run
+	 * @return the binary names of the classes to process of each input, in the order of the inputs,
+	 *         empty for an input which cannot be opened
+	 */
+	private List<List<String>> discoverInputs(GeneratorConfig pConfig, Collection<String> pClassNames, SymbolIndex pSymbols, RunStats pStats) {
+		List<String> ignores = getIgnores();
+		String dir = packToDir(pConfig.getPojoPackage()) + "/";
+		long start = System.nanoTime();
+		List<List<String>> classes = new ArrayList<>(pConfig.getInputs().size());
+		for (File file : pConfig.getInputs()) {
+			List<String> inputClasses = new ArrayList<>();
+			try (PojoInput input = PojoInput.open(file, dir)) {
+				discover(input, dir, ".class", pConfig.getPojoPackage(), pConfig.isRecursive(), ignores, pSymbols, inputClasses);
+			} catch (IOException e) {
+				LOGGER.error("Unable to read " + file, e);
+			}
+			if (pClassNames != null) {
+				inputClasses.retainAll(new HashSet<>(pClassNames));
+			}
+			pStats.add(RunStats.Counter.CLASSES_FOUND, inputClasses.size());
+			classes.add(inputClasses);
+		}
+		LOGGER.info("found " + pSymbols.size() + " java classes in package");
+		pStats.add(RunStats.Phase.DISCOVER, System.nanoTime() - start);
+		return classes;
+	}
+
+	/**
+	 * @param pConfig the run settings
+	 * @param pInput a directory of classes or a jar
+	 * @param pParallelism number of classes of the input processed in parallel
+	 * @param pFallback loads the classes of the other inputs, <code>null</code> when the classes are
+	 *          not loaded
+	 * @param pSymbols all the classes of the run
+	 * @param pClasses binary names of the classes of the input to process
+	 * @param pStats counters and timers of the run
+	 * @param pSink receive the proto files, in the order of the classes
+	 */
+	private void generateInput(GeneratorConfig pConfig, File pInput, int pParallelism, ClassLoader pFallback, SymbolIndex pSymbols,
+			List<String> pClasses, RunStats pStats, ProtoFileSink pSink) {
+		if (pClasses.isEmpty()) {
+			return;
+		}
+		LOGGER.info("parsing java classes in input:" + pInput);
+		try (PojoInput input = PojoInput.open(pInput, packToDir(pConfig.getPojoPackage()) + "/", pFallback)) {
+			GeneratorConfig config = new GeneratorConfig();
+			config.setSource(pInput.getPath());
+			config.setPojoPackage(pConfig.getPojoPackage());
+			config.setProtoPackage(pConfig.getProtoPackage());
+			config.setJavaPackage(pConfig.getJavaPackage());
+			config.setSyntax(pConfig.getSyntax());
+			config.setParallelism(pParallelism);
+			config.setReader(pConfig.isLoadInputs() ? new ReflectionPojoReader(input.getLoader()) : new ClassFilePojoReader(input));
+			config.setRecursive(pConfig.isRecursive());
+			config.setStats(pStats);
+			config.setBundling(pConfig.getBundling());
+			process(config, pSymbols, pClasses, pStats, pSink);
+		} catch (IOException e) {
+			LOGGER.error("Unable to read " + pInput, e);
+		}
+	}
+
+	/**
+	 * @param pConfig the run settings
+	 * @param pInput the tree holding the package
+	 * @param pExtension extension of the files of the classes
+	 * @param pClassNames binary names of the classes to process, all if <code>null</code>
+	 * @param pSink receive the proto files, sorted by package then class name whatever the parallelism
+	 * @return the number of proto files given to the sink
+	 */
+	private int generate(GeneratorConfig pConfig, PojoInput pInput, String pExtension, Collection<String> pClassNames, ProtoFileSink pSink) {
+		List<String> ignores = getIgnores();
+
+		RunStats stats = pConfig.getStats() != null ? pConfig.getStats() : new RunStats();
+		long start = System.nanoTime();
+		SymbolIndex symbols = new SymbolIndex(pConfig.getBundling());
+		List<String> classes = new ArrayList<>();
+		discover(pInput, packToDir(pConfig.getPojoPackage()) + "/", pExtension, pConfig.getPojoPackage(), pConfig.isRecursive(), ignores, symbols,
+				classes);
+		LOGGER.info("found " + symbols.size() + " java classes in package");
+		if (pClassNames != null) {
+			classes.retainAll(new HashSet<>(pClassNames));
+		}
+		stats.add(RunStats.Counter.CLASSES_FOUND, classes.size());
+		stats.add(RunStats.Phase.DISCOVER, System.nanoTime() - start);
+		return process(pConfig, symbols, classes, stats, pSink);
+	}
+
+	/**
+	 * Build the proto files of classes listed by the caller, such as the ones being compiled, rather
+	 * than of a listed package. Custom types resolve to the classes known to the run only. Classes
+	 * named <code>*Example</code> or ignored by <code>ignore.txt</code> are skipped as in a listed
+	 * package.
+	 *
+	 * @param pConfig the run settings, the source directory is not used
+	 * @param pKnownClasses binary names of all the classes of the run, built or not
+	 * @param pClassNames binary names of the top level classes to build
+	 * @param pSink receive the proto files, in the order of the names
+	 * @return the number of proto files given to the sink
+	 */
+	public int generateClasses(GeneratorConfig pConfig, Collection<String> pKnownClasses, List<String> pClassNames, ProtoFileSink pSink) {
+		List<String> ignores = getIgnores();
+		RunStats stats = pConfig.getStats() != null ? pConfig.getStats() : new RunStats();
+		long start = System.nanoTime();
+		SymbolIndex symbols = new SymbolIndex(pConfig.getBundling());
+		for (String j : pKnownClasses) {
+			symbols.add(j);
+		}
+		List<String> classes = new ArrayList<>();
+		for (String j : pClassNames) {
+			symbols.add(j);
+			if (isProcessed(j.substring(j.lastIndexOf('.') + 1), ignores)) {
+				classes.add(j);
+			}
+		}
+		stats.add(RunStats.Counter.CLASSES_FOUND, classes.size());
+		stats.add(RunStats.Phase.DISCOVER, System.nanoTime() - start);
+		return process(pConfig, symbols, classes, stats, pSink);
+	}
+
+	/**
+	 * @param pConfig the run settings
+	 * @param pSymbols all the classes of the run
+	 * @param pClasses binary names of the classes to process
+	 * @param pStats counters and timers of the run
+	 * @param pSink receive the proto files, in the order of the classes whatever the parallelism
+	 * @return the number of proto files given to the sink
+	 */
+	private int process(GeneratorConfig pConfig, SymbolIndex pSymbols, List<String> pClasses, RunStats pStats, ProtoFileSink pSink) {
+		int count = 0;
+		long start = System.nanoTime();
+		ParseContext ctx = new ParseContext(pSymbols, SCALAR_TYPES, new TypeGraph(pConfig.getReader(), pStats), pConfig, pStats);
+		if (pConfig.getParallelism() > 1) {
+			ForkJoinPool pool = new ForkJoinPool(pConfig.getParallelism());
+			int window = pConfig.getParallelism() * WINDOW_PER_THREAD;
+			try {
+				for (int from = 0; from < pClasses.size(); from += window) {
+					for (ProtoFile pf : pool.invoke(new ParseTask(ctx, pClasses, from, Math.min(from + window, pClasses.size())))) {
+						pSink.accept(pf);
+						count++;
+					}
+				}
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			for (String j : pClasses) {
+				ProtoFile pf = parseClass(ctx, j);
+				if (pf != null) {
+					pSink.accept(pf);
+					count++;
+				}
+			}
+		}
+		long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+		LOGGER.info("parsed " + count + " classes with " + pConfig.getReader().getClass().getSimpleName() + " in " + millis + " ms ("
+				+ (count * 1000 / millis) + " classes/s)");
+		return count;
+	}
+
+	/**
+	 * List the classes to process, files of a directory first then its sub-directories, each sorted by
+	 * name. Nested classes are skipped.
+	 *
+	 * @param pInput the tree holding the package
+	 * @param pDir the directory of the package in the tree, ending with a slash
+	 * @param pExtension extension of the files of the classes
+	 * @param pPackage the package
+	 * @param pRecursive <code>true</code> to walk the sub-packages
+	 * @param pIgnores the ignored class names
+	 * @param pSymbols receive all the classes found, ignored ones included, used to resolve custom types
+	 * @param pClasses receive the binary names of the classes to process
+	 */
+	private void discover(PojoInput pInput, String pDir, String pExtension, String pPackage, boolean pRecursive, List<String> pIgnores,
+			SymbolIndex pSymbols, List<String> pClasses) {
+		List<String> subDirs = new ArrayList<>();
+		for (String j : pInput.list(pDir)) {
+			if (j.endsWith("/")) {
+				subDirs.add(j.substring(0, j.length() - 1));
+				continue;
+			}
+			if (!j.endsWith(pExtension)) {
+				continue;
+			}
+			String simpleName = j.substring(0, j.length() - pExtension.length());
+			if (simpleName.indexOf('$') >= 0 || simpleName.indexOf('-') >= 0) {
+				// nested class, package-info or module-info
+				continue;
+			}
+			pSymbols.add(pPackage + "." + simpleName);
+			if (isProcessed(simpleName, pIgnores)) {
+				pClasses.add(pPackage + "." + simpleName);
+			}
+		}
+		if (pRecursive) {
+			for (String subDir : subDirs) {
+				discover(pInput, pDir + subDir + "/", pExtension, pPackage + "." + subDir, true, pIgnores, pSymbols, pClasses);
+			}
+		}
+	}
+
+	/**
+	 * @param pSimpleName the simple name of a class
+	 * @param pIgnores the ignored class names
+	 * @return <code>false</code> if the class is skipped
+	 */
+	private boolean isProcessed(String pSimpleName, List<String> pIgnores) {
+		// skip **Example.java classes
+		if (pSimpleName.endsWith("Example")) {
+			LOGGER.info("processing class {} -- skipped **Example.java class", pSimpleName);
+			return false;
+		}
+
+		if (pIgnores.contains(pSimpleName)) {
+			LOGGER.info("processing class {} -- skipped ignored files defined in ignore.txt", pSimpleName);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param ctx the run context
+	 * @param j the binary name of the class
+	 * @return the proto file, <code>null</code> if the class cannot be loaded
+	 */
+	private ProtoFile parseClass(ParseContext ctx, String j) {
+		LOGGER.debug("processing class {}", j);
+		Object event = ClassEvents.begin();
+		long start = System.nanoTime();
+		PojoClass c;
+		try {
+			c = read(ctx, j, start);
+			long read = System.nanoTime();
+
+			String name = c.getSimpleName();
+			String packageName = c.getPackageName();
+			String javaPackage = ctx.config.getJavaPackage();
+
+			ProtoFile pf = new ProtoFile();
+			pf.setSyntax(ctx.config.getSyntax());
+			if (c.isEnum()) {
+				pf.setEnum(true);
+				pf.setJavaOuterClassName(name + "Enum");
+			} else {
+				pf.setJavaOuterClassName(name + "Obj");
+			}
+			pf.setJavaPackage(javaPackage != null && !javaPackage.isEmpty() ? javaPackage : packageName);
+			pf.setName(name);
+			pf.setClassName(c.getName());
+			pf.setPackageName(ctx.config.getProtoPackage());
+
+			// declared fields first, so adding a field to a superclass keeps the numbers of the class
+			List<PojoField> fields = ctx.graph.fieldsOf(c);
+			pf.setSuperclassNames(ctx.graph.superclassesOf(c));
+			int skipped = 0;
+			for (PojoField field : fields) {
+				if (!manageField(ctx, pf, field)) {
+					skipped++;
+				}
+			}
+			pf.setSourceFingerprint(fingerprint(c, fields, pf));
+
+			long end = System.nanoTime();
+			ctx.stats.add(RunStats.Phase.BUILD, end - read);
+			ctx.stats.increment(RunStats.Counter.CLASSES_PROCESSED);
+			ctx.stats.add(RunStats.Counter.FIELDS, fields.size());
+			ctx.stats.add(RunStats.Counter.FIELDS_SKIPPED, skipped);
+			ctx.stats.classProcessed(j, end - start);
+			ClassEvents.commit(event, j, fields.size(), skipped, read - start);
+			return pf;
+		} catch (ClassNotFoundException e) {
+			// such as a type of a field found neither in the input nor in the other inputs of the run
+			ctx.stats.increment(RunStats.Counter.CLASSES_FAILED);
+			LOGGER.error("Unable to read class " + j + ", skipped", e);
+		}
+		return null;
+	}
+
+	/**
+	 * @param ctx the run context
+	 * @param j the binary name of the class
+	 * @param start when the processing of the class started, from {@link System#nanoTime()}
+	 * @return the class structure
+	 * @throws ClassNotFoundException if the class cannot be found
+	 */
+	private PojoClass read(ParseContext ctx, String j, long start) throws ClassNotFoundException {
+		PojoReader reader = ctx.config.getReader();
+		if (!(reader instanceof ReflectionPojoReader)) {
+			PojoClass c = reader.read(j);
+			ctx.stats.add(RunStats.Phase.READ, System.nanoTime() - start);
+			return c;
+		}
+		// time loading, static initializers included, apart from reflection
+		long loaded;
+		PojoClass c;
+		try {
+			Class<?> type = ((ReflectionPojoReader) reader).load(j);
+			loaded = System.nanoTime();
+			ctx.stats.add(RunStats.Phase.LOAD, loaded - start);
+			c = ((ReflectionPojoReader) reader).read(type);
+		} catch (LinkageError e) {
+			// a type the class refers to is missing from its input, or its initializer failed
+			throw new ClassNotFoundException(j, e);
+		}
+		ctx.stats.add(RunStats.Phase.READ, System.nanoTime() - loaded);
+		return c;
+	}
+
+	/**
+	 * @param c the class
+	 * @param fields the fields given to manageField
+	 * @param pf the proto file built from the class
+	 * @return a fingerprint which changes whenever the class, as seen by the generator, or the proto
+	 *         file model change
+	 */
+	private String fingerprint(PojoClass c, List<PojoField> fields, ProtoFile pf) {
+		StringBuilder buf = new StringBuilder();
+		buf.append(pf.getSyntax()).append('|').append(pf.getPackageName()).append('|').append(pf.getJavaPackage()).append('|');
+		buf.append(c.getName()).append('|').append(c.isEnum()).append('\n');
+		for (PojoField field : fields) {
+			buf.append(field).append('\n');
+		}
+		buf.append(pf.getImports()).append('\n');
+		for (ProtoField field : pf.getFields()) {
+			if (field.getKeyType() != null) {
+				buf.append(field.getKeyType()).append(',');
+			}
+			buf.append(field.getType()).append('|');
+		}
+		return DigestUtils.sha1Hex(buf.toString());
+	}
+
+	/**
+	 * @param ctx
+	 * @param pf
+	 * @param field
+	 * @return <code>false</code> if the type of the field has no proto mapping
+	 */
+	private boolean manageField(ParseContext ctx, ProtoFile pf, PojoField field) {
+		// skip serialVersionUID
+		if (field.getName().equals("serialVersionUID")) {
+			return true;
+		}
+		String name = ctx.intern(field.getName());
+		String type = field.getTypeKey();
+		String customType = checkCustomType(ctx, pf, field.getTypeName());
+		if (customType != null) {
+			pf.appendField(false, false, customType, name, null);
+		} else if (checkType(ctx.registry, type)) {
+			pf.appendField(false, false, getProtoType(ctx.registry, type), name, null);
+		} else if (field.isMap()) {
+			return manageMapField(ctx, pf, field);
+		} else if (field.isCollection() && field.getTypeArgumentKey(0) != null) {
+			String protoType = checkCustomType(ctx, pf, field.getTypeArguments().get(0));
+			if (protoType == null) {
+				protoType = getProtoType(ctx.registry, field.getTypeArgumentKey(0));
+			}
+			pf.appendField(false, true, PACKABLE_TYPES.contains(protoType), protoType, name, null);
+		} else if (type.equals("byte[]")) {
+			pf.appendField(false, false, "bytes", name, null);
+		} else if (type.endsWith("[]") && PRIMITIVE_TYPES.contains(type.substring(0, type.length() - 2))) {
+			// primitive arrays are never boxed: packed, whatever the syntax
+			pf.appendField(false, true, true, getProtoType(ctx.registry, type.substring(0, type.length() - 2)), name, null);
+		} else {
+			LOGGER.info("WARNING: failed to handle field [" + field.getName() + "] with type [" + field.getTypeName() + "]. Skipped.");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Map a <code>Map&lt;K, V&gt;</code> field to a <code>map&lt;k, v&gt;</code> field: the keys must
+	 * map to an integral or string scalar, the values to a scalar or to a class of the run.
+	 *
+	 * @param ctx
+	 * @param pf
+	 * @param field a map field
+	 * @return <code>false</code> if the key or value type has no proto mapping
+	 */
+	private boolean manageMapField(ParseContext ctx, ProtoFile pf, PojoField field) {
+		String keyType = field.getTypeArgumentKey(0) != null ? getProtoType(ctx.registry, field.getTypeArgumentKey(0)) : null;
+		if (keyType != null && MAP_KEY_TYPES.contains(keyType) && field.getTypeArgumentKey(1) != null) {
+			String valueType = checkCustomType(ctx, pf, field.getTypeArguments().get(1));
+			if (valueType == null) {
+				valueType = getProtoType(ctx.registry, field.getTypeArgumentKey(1));
+			}
+			if (valueType != null) {
+				pf.appendMapField(keyType, valueType, ctx.intern(field.getName()));
+				return true;
+			}
+		}
+		LOGGER.info("WARNING: failed to handle map field [" + field.getName() + "] with types " + field.getTypeArguments() + ". Skipped.");
+		return false;
+	}
+
+	/**
+	 * @param registry
+	 * @param pType the lower case simple name of the type
+	 * @return
+	 */
+	private boolean checkType(TypeRegistry registry, String pType) {
+		return registry.contains(pType);
+	}
+
+	/**
+	 * Import the proto file of a class of the run, unless it is the file of the class itself.
+	 *
+	 * @param ctx
+	 * @param pf
+	 * @param pTypeName the binary name of the type, <code>null</code> allowed
+	 * @return the proto type, <code>null</code> if the type is not a class of the run
+	 */
+	private String checkCustomType(ParseContext ctx, ProtoFile pf, String pTypeName) {
+		SymbolIndex.Symbol symbol = ctx.symbols.get(pTypeName);
+		if (symbol == null) {
+			return null;
+		}
+		SymbolIndex.Symbol self = ctx.symbols.get(pf.getClassName());
+		if (self == null || !symbol.protoFile.equals(self.protoFile)) {
+			pf.appendImport(symbol.protoFile);
+		}
+		return symbol.protoType;
+	}
+
+	public List<String> getIgnores() {
+		List<String> ignoreFiles = new ArrayList<String>();
+		try {
+			InputStream is = this.getClass().getClassLoader().getResourceAsStream("ignore.txt");
+			InputStreamReader isr = new InputStreamReader(is);
+			if (is != null && isr.ready()) {
+				BufferedReader br = new BufferedReader(isr);
+				String s;
+				while ((s = br.readLine()) != null) {
+					ignoreFiles.add(s);
+				}
+				isr.close();
+				is.close();
+			} else {
+				LOGGER.info("ignore.txt not found");
+			}
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return ignoreFiles;
+	}
+
+	private String getProtoType(TypeRegistry registry, String type) {
+		return registry.get(type);
+	}
+
+	private String dirToPack(String dir) {
+		return dir.replace("/", ".");
+	}
+
+	private String packToDir(String packageName) {
+		return packageName.replace(".", "/");
+	}
+
+	/**
+	 * State of one generation run, shared by all the classes of the run.
+	 */
+	private static final class ParseContext {
+
+		private final SymbolIndex										symbols;
+		private final TypeRegistry									registry;
+		private final TypeGraph											graph;
+		private final GeneratorConfig								config;
+		private final RunStats											stats;
+		/** one instance per field name of the run, shared by the proto files */
+		private final ConcurrentMap<String, String>	names	= new ConcurrentHashMap<>();
+
+		ParseContext(SymbolIndex pSymbols, TypeRegistry pRegistry, TypeGraph pGraph, GeneratorConfig pConfig, RunStats pStats) {
+			this.symbols = pSymbols;
+			this.registry = pRegistry;
+			this.graph = pGraph;
+			this.config = pConfig;
+			this.stats = pStats;
+		}
+
+		/**
+		 * @param pName a field name
+		 * @return the instance of the run equal to it
+		 */
+		String intern(String pName) {
+			String previous = this.names.putIfAbsent(pName, pName);
+			return previous != null ? previous : pName;
+		}
+	}
+
+	/**
+	 * Parse a range of classes, splitting it in halves until it is small enough. Results are joined
+	 * left to right so the output keeps the order of the input.
+	 */
+	private final class ParseTask extends RecursiveTask<List<ProtoFile>> {
+
+		private static final long		serialVersionUID	= 1L;
+
+		private final ParseContext	ctx;
+		private final List<String>	classes;
+		private final int						from;
+		private final int						to;
+
+		ParseTask(ParseContext pCtx, List<String> pClasses, int pFrom, int pTo) {
+			this.ctx = pCtx;
+			this.classes = pClasses;
+			this.from = pFrom;
+			this.to = pTo;
+		}
+
+		@Override
+		protected List<ProtoFile> compute() {
+			if (this.to - this.from <= SEQUENTIAL_THRESHOLD) {
+				List<ProtoFile> protos = new ArrayList<>(this.to - this.from);
+				for (int i = this.from; i < this.to; i++) {
+					ProtoFile pf = parseClass(this.ctx, this.classes.get(i));
+					if (pf != null) {
+						protos.add(pf);
+					}
+				}
+				return protos;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			ParseTask left = new ParseTask(this.ctx, this.classes, this.from, middle);
+			ParseTask right = new ParseTask(this.ctx, this.classes, middle, this.to);
+			left.fork();
+			List<ProtoFile> protos = right.compute();
+			List<ProtoFile> result = left.join();
+			result.addAll(protos);
+			return result;
+		}
+	}
+
+}
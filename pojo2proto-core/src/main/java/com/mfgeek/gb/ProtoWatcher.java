@@ -0,0 +1,505 @@
+package com.mfgeek.gb;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Keep the proto files of a package in line with its classes: wait for the source or class files
+ * to change and regenerate the proto files they affect, until closed.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * A {@link WatchService} watches the package directories under the source root and under the
+ * classes root. Events are debounced: the first one opens a batch which ends once no event came
+ * for the debounce delay, so a compilation writing many class files gives a single regeneration.
+ * Then
+ * <ul>
+ * <li>the classes are loaded from a fresh class loader, child first over the classes root, and read
+ * by a {@link ReflectionPojoReader} on it: the previous versions go away with the previous loader;
+ * </li>
+ * <li>only the changed classes and the classes whose proto file imports one of them or holds the
+ * fields of one of them, as a superclass, are regenerated, from an index of the imports and of the
+ * superclasses kept up to date by every run;</li>
+ * <li>a java file created or deleted changes the types known in the package, so every class is
+ * regenerated and the proto files of the deleted classes are removed;</li>
+ * <li>with a bundling, a proto file holds several classes, so every class is regenerated, through a
+ * {@link BundleSink}.</li>
+ * </ul>
+ * A batch whose regeneration fails, as when a class is read while the compiler writes it, is logged
+ * and the next batch regenerates every class.
+ * The writer leaves the proto files whose content did not change untouched. The latency of each
+ * regeneration, from the first event of its batch, is logged and returned by {@link #poll(long)}.
+ *
+ * <h3>USAGE</h3>
+ *
+ * <pre>
+ * try (ProtoWatcher watcher = new ProtoWatcher(config, classesRoot, outputDir, 4)) {
+ * 	watcher.generateAll();
+ * 	watcher.run();
+ * }
+ * </pre>
+ *
+ */
+public class ProtoWatcher implements Runnable, Closeable {
+
+	private static final Logger							LOGGER					= LoggerFactory.getLogger(ProtoWatcher.class);
+
+	private final GeneratorConfig						config;
+	private final Path											classesRoot;
+	private final String										target;
+	private final int												writerThreads;
+	private final WatchService							watchService;
+	/** package of each watched directory */
+	private final Map<WatchKey, String>			packages				= new HashMap<>();
+	/** binary name of the class of each proto file, by proto file name without extension */
+	private final Map<String, String>				classNames			= new HashMap<>();
+	/** imports of each proto file */
+	private final Map<String, List<String>>	imports					= new HashMap<>();
+	/** proto files importing each file */
+	private final Map<String, Set<String>>	importers				= new HashMap<>();
+	/** superclasses of the class of each proto file */
+	private final Map<String, List<String>>	superclasses		= new HashMap<>();
+	/** proto files holding the fields of each superclass, by binary name */
+	private final Map<String, Set<String>>	subclasses			= new HashMap<>();
+	private long														debounceMillis	= 100;
+	private URLClassLoader									loader;
+	/** the last regeneration failed, the next one regenerates every class */
+	private boolean													failed;
+
+	/**
+	 * @param pConfig the run settings, copied, its reader is replaced by one on the classes root
+	 * @param pClassesRoot root directory of the compiled POJO classes
+	 * @param pTarget generated proto file output directory
+	 * @param pWriterThreads number of proto files written in parallel
+	 * @throws IOException if the directories cannot be watched
+	 */
+	public ProtoWatcher(GeneratorConfig pConfig, File pClassesRoot, String pTarget, int pWriterThreads) throws IOException {
+		this.config = new GeneratorConfig();
+		this.config.setSource(pConfig.getSource());
+		this.config.setPojoPackage(pConfig.getPojoPackage());
+		this.config.setProtoPackage(pConfig.getProtoPackage());
+		this.config.setJavaPackage(pConfig.getJavaPackage());
+		this.config.setSyntax(pConfig.getSyntax());
+		this.config.setParallelism(pConfig.getParallelism());
+		this.config.setRecursive(pConfig.isRecursive());
+		this.config.setBundling(pConfig.getBundling());
+		this.classesRoot = pClassesRoot.toPath();
+		this.target = pTarget;
+		this.writerThreads = pWriterThreads;
+		this.watchService = FileSystems.getDefault().newWatchService();
+
+		String packageDir = pConfig.getPojoPackage().replace(".", File.separator);
+		register(Paths.get(pConfig.getSource()).resolve(packageDir), pConfig.getPojoPackage());
+		register(this.classesRoot.resolve(packageDir), pConfig.getPojoPackage());
+	}
+
+	/**
+	 * @param pDebounceMillis delay without event which ends a batch of events, 100 ms by default
+	 */
+	public void setDebounceMillis(long pDebounceMillis) {
+		this.debounceMillis = pDebounceMillis;
+	}
+
+	/**
+	 * Generate the proto files of all the classes, to start from a known state.
+	 *
+	 * @return the regeneration
+	 */
+	public Regeneration generateAll() {
+		return regenerate(null, System.nanoTime());
+	}
+
+	/**
+	 * Wait for a batch of changes and regenerate the proto files it affects.
+	 *
+	 * @param pTimeoutMillis the longest time to wait for the first event of a batch
+	 * @return the regeneration, <code>null</code> if nothing changed in time or if the batch concerns
+	 *         no class
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws IOException if a new directory cannot be watched
+	 */
+	public Regeneration poll(long pTimeoutMillis) throws InterruptedException, IOException {
+		WatchKey key = this.watchService.poll(pTimeoutMillis, TimeUnit.MILLISECONDS);
+		if (key == null) {
+			return null;
+		}
+		long start = System.nanoTime();
+		Set<String> changed = new TreeSet<>();
+		boolean structural = false;
+		while (key != null) {
+			structural |= collect(key, changed);
+			key = this.watchService.poll(this.debounceMillis, TimeUnit.MILLISECONDS);
+		}
+		if (structural || this.failed) {
+			return regenerate(null, start);
+		}
+		return changed.isEmpty() ? null : regenerate(changed, start);
+	}
+
+	/**
+	 * Regenerate on every batch of changes until closed or interrupted.
+	 */
+	@Override
+	public void run() {
+		LOGGER.info("watching " + this.config.getPojoPackage() + " for changes");
+		try {
+			while (true) {
+				try {
+					poll(Long.MAX_VALUE);
+				} catch (ClosedWatchServiceException e) {
+					throw e;
+				} catch (RuntimeException | LinkageError e) {
+					LOGGER.error("regeneration failed, still watching " + this.config.getPojoPackage(), e);
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// closed, stop watching
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			LOGGER.error("stopped watching " + this.config.getPojoPackage(), e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.watchService.close();
+		if (this.loader != null) {
+			this.loader.close();
+		}
+	}
+
+	/**
+	 * @param pDir a package directory, ignored if it does not exist
+	 * @param pPackage the package
+	 * @throws IOException if the directory cannot be watched
+	 */
+	private void register(Path pDir, String pPackage) throws IOException {
+		if (!Files.isDirectory(pDir)) {
+			return;
+		}
+		WatchKey key = pDir.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		this.packages.put(key, pPackage);
+		if (this.config.isRecursive()) {
+			try (DirectoryStream<Path> children = Files.newDirectoryStream(pDir)) {
+				for (Path child : children) {
+					if (Files.isDirectory(child)) {
+						register(child, pPackage + "." + child.getFileName());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param pKey a signalled key
+	 * @param pChanged receive the binary names of the changed classes
+	 * @return <code>true</code> if the set of classes may have changed
+	 * @throws IOException if a new directory cannot be watched
+	 */
+	private boolean collect(WatchKey pKey, Set<String> pChanged) throws IOException {
+		String packageName = this.packages.get(pKey);
+		Path dir = (Path) pKey.watchable();
+		boolean structural = false;
+		for (WatchEvent<?> event : pKey.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				structural = true;
+				continue;
+			}
+			Path child = dir.resolve((Path) event.context());
+			String name = child.getFileName().toString();
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+				if (this.config.isRecursive()) {
+					register(child, packageName + "." + name);
+					structural = true;
+				}
+			} else if (name.endsWith(".java")) {
+				structural |= event.kind() != StandardWatchEventKinds.ENTRY_MODIFY;
+				pChanged.add(packageName + "." + name.substring(0, name.length() - ".java".length()));
+			} else if (name.endsWith(".class")) {
+				// nested classes belong to the proto file of their top level class
+				String simpleName = name.substring(0, name.length() - ".class".length());
+				int dollar = simpleName.indexOf('$');
+				pChanged.add(packageName + "." + (dollar < 0 ? simpleName : simpleName.substring(0, dollar)));
+			}
+		}
+		if (!pKey.reset()) {
+			// the directory is gone, with its classes
+			this.packages.remove(pKey);
+			structural = true;
+		}
+		return structural;
+	}
+
+	/**
+	 * @param pChanged binary names of the changed classes
+	 * @return the changed classes and the classes whose proto file depends on one of them
+	 */
+	private Set<String> affected(Set<String> pChanged) {
+		Set<String> classes = new TreeSet<>(pChanged);
+		for (String className : pChanged) {
+			String protoName = className.substring(className.lastIndexOf('.') + 1);
+			Set<String> protos = this.importers.get(protoName + ".proto");
+			if (protos != null) {
+				for (String importer : protos) {
+					classes.add(this.classNames.get(importer));
+				}
+			}
+			// the fields of a superclass are copied into its subclasses
+			protos = this.subclasses.get(className);
+			if (protos != null) {
+				for (String subclass : protos) {
+					classes.add(this.classNames.get(subclass));
+				}
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * @param pChanged binary names of the changed classes, <code>null</code> to regenerate all
+	 * @param pStart time of the first event, from {@link System#nanoTime()}
+	 * @return the regeneration
+	 */
+	private Regeneration regenerate(Set<String> pChanged, long pStart) {
+		final ProtoBundling bundling = this.config.getBundling();
+		Set<String> classes = pChanged != null && bundling == null ? affected(pChanged) : null;
+		// until it succeeds, the next batch regenerates every class
+		this.failed = true;
+		reload();
+
+		final Set<String> generated = new HashSet<>();
+		final Set<String> files = new HashSet<>();
+		final ProtoFileWriter writer = new ProtoFileWriter(this.target, this.writerThreads);
+		final BundleSink bundles = bundling != null ? new BundleSink(writer, bundling) : null;
+		try {
+			ProtoGenerator.getInstance().generate(this.config, classes, new ProtoFileSink() {
+
+				@Override
+				public void accept(ProtoFile pf) {
+					index(pf);
+					generated.add(pf.getName());
+					if (bundles != null) {
+						files.add(bundling.bundleOf(pf.getClassName()));
+						bundles.accept(pf);
+					} else {
+						files.add(pf.getName());
+						writer.write(pf);
+					}
+				}
+			});
+		} finally {
+			if (bundles != null) {
+				bundles.close();
+			} else {
+				writer.close();
+			}
+		}
+		int removed = classes == null ? removeStale(generated, files) : 0;
+		this.failed = false;
+
+		Regeneration regeneration = new Regeneration(classes == null, files, writer.getFilesWritten() + removed, (System.nanoTime() - pStart) / 1000000);
+		LOGGER.info("regenerated " + files.size() + (classes == null ? " proto files (all)" : " proto files " + new TreeSet<>(files)) + ", "
+				+ writer.getFilesWritten() + " written, " + removed + " removed, " + regeneration.getLatencyMillis() + " ms after the change");
+		return regeneration;
+	}
+
+	/**
+	 * Replace the class loader of the classes by a new one, so the classes are loaded again.
+	 */
+	private void reload() {
+		if (this.loader != null) {
+			try {
+				this.loader.close();
+			} catch (IOException e) {
+				LOGGER.warn("Unable to close the previous class loader", e);
+			}
+		}
+		try {
+			this.loader = new ChildFirstClassLoader(this.classesRoot.toUri().toURL(), ProtoWatcher.class.getClassLoader());
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // a path always converts to a URL
+		}
+		this.config.setReader(new ReflectionPojoReader(this.loader));
+	}
+
+	/**
+	 * @param pf a proto file just generated
+	 */
+	private void index(ProtoFile pf) {
+		this.classNames.put(pf.getName(), pf.getClassName());
+		unindex(pf.getName());
+		List<String> protoImports = new ArrayList<>(pf.getImports());
+		this.imports.put(pf.getName(), protoImports);
+		for (String protoImport : protoImports) {
+			add(this.importers, protoImport, pf.getName());
+		}
+		List<String> protoSuperclasses = new ArrayList<>(pf.getSuperclassNames());
+		this.superclasses.put(pf.getName(), protoSuperclasses);
+		for (String superclass : protoSuperclasses) {
+			add(this.subclasses, superclass, pf.getName());
+		}
+	}
+
+	private static void add(Map<String, Set<String>> pIndex, String pKey, String pProtoName) {
+		Set<String> protos = pIndex.get(pKey);
+		if (protos == null) {
+			protos = new HashSet<>();
+			pIndex.put(pKey, protos);
+		}
+		protos.add(pProtoName);
+	}
+
+	/**
+	 * @param pProtoName a proto file name without extension
+	 */
+	private void unindex(String pProtoName) {
+		List<String> previous = this.imports.remove(pProtoName);
+		if (previous != null) {
+			for (String protoImport : previous) {
+				this.importers.get(protoImport).remove(pProtoName);
+			}
+		}
+		previous = this.superclasses.remove(pProtoName);
+		if (previous != null) {
+			for (String superclass : previous) {
+				this.subclasses.get(superclass).remove(pProtoName);
+			}
+		}
+	}
+
+	/**
+	 * @param pGenerated the proto files of the classes of a full run
+	 * @param pFiles the proto files written by the run, the bundles when bundled
+	 * @return the number of proto files removed because their classes are gone
+	 */
+	private int removeStale(Set<String> pGenerated, Set<String> pFiles) {
+		int removed = 0;
+		for (Iterator<Map.Entry<String, String>> it = this.classNames.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, String> entry = it.next();
+			String protoName = entry.getKey();
+			if (pGenerated.contains(protoName)) {
+				continue;
+			}
+			it.remove();
+			unindex(protoName);
+			String fileName = this.config.getBundling() != null ? this.config.getBundling().bundleOf(entry.getValue()) : protoName;
+			if (pFiles.contains(fileName)) {
+				// the bundle still holds other classes
+				continue;
+			}
+			String file = fileName + ".proto";
+			try {
+				if (Files.deleteIfExists(Paths.get(this.target, file))) {
+					LOGGER.info("removed proto file: " + file);
+					removed++;
+				}
+			} catch (IOException e) {
+				LOGGER.error("Unable to remove " + file, e);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Outcome of a regeneration.
+	 */
+	public static final class Regeneration {
+
+		private final boolean			full;
+		private final Set<String>	protoNames;
+		private final int					filesChanged;
+		private final long				latencyMillis;
+
+		Regeneration(boolean pFull, Set<String> pProtoNames, int pFilesChanged, long pLatencyMillis) {
+			this.full = pFull;
+			this.protoNames = Collections.unmodifiableSet(new TreeSet<>(pProtoNames));
+			this.filesChanged = pFilesChanged;
+			this.latencyMillis = pLatencyMillis;
+		}
+
+		/**
+		 * @return <code>true</code> if every class was regenerated
+		 */
+		public boolean isFull() {
+			return this.full;
+		}
+
+		/**
+		 * @return names, without extension, of the proto files generated
+		 */
+		public Set<String> getProtoNames() {
+			return this.protoNames;
+		}
+
+		/**
+		 * @return number of proto files written or removed, the others were unchanged
+		 */
+		public int getFilesChanged() {
+			return this.filesChanged;
+		}
+
+		/**
+		 * @return time from the first event of the batch to the proto files written
+		 */
+		public long getLatencyMillis() {
+			return this.latencyMillis;
+		}
+	}
+
+	/**
+	 * Load the classes of the classes root itself rather than from its parent, which may already hold
+	 * an older version of them.
+	 */
+	private static final class ChildFirstClassLoader extends URLClassLoader {
+
+		ChildFirstClassLoader(URL pRoot, ClassLoader pParent) {
+			super(new URL[] { pRoot }, pParent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> c = findLoadedClass(name);
+				if (c == null && findResource(name.replace('.', '/') + ".class") != null) {
+					c = findClass(name);
+				}
+				if (c == null) {
+					return super.loadClass(name, resolve);
+				}
+				if (resolve) {
+					resolveClass(c);
+				}
+				return c;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.mfgeek.gb;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Read POJO classes by loading them and reflecting on their declared fields.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Classes are loaded, and initialized, from the class loader of the tool or the one given. The structure of each
+ * class is reflected once and kept in a {@link ClassValue}: later reads of the same class, from any
+ * run, get it back without calling {@link Class#getDeclaredFields()} again. The cached value holds
+ * names only, so it never keeps a class loader alive and goes away with its class.
+ *
+ * <h3>USAGE</h3>
+ * Default reader of {@link ProtoGenerator}.
+ *
+ */
+public class ReflectionPojoReader implements PojoReader {
+
+	private static final ClassValue<PojoClass> CLASSES = new ClassValue<PojoClass>() {
+
+		@Override
+		protected PojoClass computeValue(Class<?> type) {
+			return reflect(type);
+		}
+	};
+
+	private final ClassLoader loader;
+
+	public ReflectionPojoReader() {
+		this(ReflectionPojoReader.class.getClassLoader());
+	}
+
+	/**
+	 * @param pLoader the class loader the classes are loaded from
+	 */
+	public ReflectionPojoReader(ClassLoader pLoader) {
+		this.loader = pLoader;
+	}
+
+	@Override
+	public PojoClass read(String pClassName) throws ClassNotFoundException {
+		return read(load(pClassName));
+	}
+
+	/**
+	 * @param pClassName the binary name of a class
+	 * @return the class, loaded and initialized
+	 * @throws ClassNotFoundException if the class cannot be found
+	 */
+	public Class<?> load(String pClassName) throws ClassNotFoundException {
+		return Class.forName(pClassName, true, this.loader);
+	}
+
+	/**
+	 * @param pClass a loaded class
+	 * @return the class structure
+	 */
+	public PojoClass read(Class<?> pClass) {
+		return CLASSES.get(pClass);
+	}
+
+	/**
+	 * @param c a class
+	 * @return the class structure
+	 */
+	private static PojoClass reflect(Class<?> c) {
+		List<PojoField> fields = new ArrayList<>();
+		for (Field field : c.getDeclaredFields()) {
+			fields.add(toPojoField(field));
+		}
+		return new PojoClass(c.getName(), c.getSimpleName(), c.getPackage().getName(), c.isEnum(),
+				c.getSuperclass() != null ? c.getSuperclass().getName() : null, Collections.unmodifiableList(fields));
+	}
+
+	/**
+	 * @param pField a reflected field
+	 * @return the field
+	 */
+	private static PojoField toPojoField(Field pField) {
+		Class<?> type = pField.getType();
+		List<String> typeArguments = null;
+		if (pField.getGenericType() instanceof ParameterizedType) {
+			typeArguments = new ArrayList<>();
+			for (Type t : ((ParameterizedType) pField.getGenericType()).getActualTypeArguments()) {
+				typeArguments.add(t instanceof Class ? ((Class<?>) t).getName() : null);
+			}
+		}
+		return new PojoField(pField.getName(), typeName(type), type.getSimpleName(), Collection.class.isAssignableFrom(type), Map.class.isAssignableFrom(type),
+				typeArguments);
+	}
+
+	/**
+	 * @param pType a type
+	 * @return the binary name, with a <code>[]</code> suffix per dimension for arrays
+	 */
+	private static String typeName(Class<?> pType) {
+		if (pType.isArray()) {
+			return typeName(pType.getComponentType()) + "[]";
+		}
+		return pType.getName();
+	}
+
+}
@@ -0,0 +1,244 @@
+package com.mfgeek.gb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Counters and phase timers of a generation run, reported as JSON.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Thread safe: the generator threads and the writer threads update atomic counters and times. The
+ * time of a phase is the sum of the time spent in it by all the threads, so with parallelism the
+ * phases add up to more than the elapsed time. The slowest classes, by time to read and build their
+ * model, are kept in a bounded heap.
+ *
+ * <h3>USAGE</h3>
+ * Set it in {@link GeneratorConfig#setStats(RunStats)} and give it to the {@link ProtoFileWriter},
+ * then call {@link #writeJson(File)} once the writer is closed.
+ *
+ */
+public class RunStats {
+
+	/** Phases of a run. */
+	public enum Phase {
+
+		/** list the classes of the package */
+		DISCOVER("discover"),
+		/** load the classes, reflection reader only */
+		LOAD("load"),
+		/** read the structure of the classes, by reflection or from the class files */
+		READ("read"),
+		/** build the proto file models */
+		BUILD("build"),
+		/** render the proto files */
+		RENDER("render"),
+		/** compare with and write to the files */
+		WRITE("write");
+
+		private final String jsonName;
+
+		private Phase(String pJsonName) {
+			this.jsonName = pJsonName;
+		}
+	}
+
+	/** Counters of a run. */
+	public enum Counter {
+
+		CLASSES_FOUND("classesFound"), //
+		CLASSES_PROCESSED("classesProcessed"), //
+		CLASSES_FAILED("classesFailed"), //
+		/** classes skipped because the manifest holds their fingerprint */
+		CLASSES_UNCHANGED("classesUnchanged"), //
+		FIELDS("fields"), //
+		/** fields whose type has no proto mapping */
+		FIELDS_SKIPPED("fieldsSkipped"), //
+		FILES_WRITTEN("filesWritten"), //
+		/** files not rewritten because their content did not change */
+		FILES_UNCHANGED("filesUnchanged"), //
+		FILES_FAILED("filesFailed"), //
+		BYTES_WRITTEN("bytesWritten");
+
+		private final String jsonName;
+
+		private Counter(String pJsonName) {
+			this.jsonName = pJsonName;
+		}
+	}
+
+	/** Number of slowest classes reported. */
+	private static final int										SLOWEST					= 10;
+
+	private static final Comparator<ClassTime> BY_TIME = new Comparator<ClassTime>() {
+
+		@Override
+		public int compare(ClassTime o1, ClassTime o2) {
+			return Long.compare(o1.nanos, o2.nanos);
+		}
+	};
+
+	private final long													start						= System.nanoTime();
+	private volatile long												end;
+	private final AtomicLongArray								phaseNanos			= new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray								counters				= new AtomicLongArray(Counter.values().length);
+	/** fastest of the slowest classes first */
+	private final PriorityQueue<ClassTime>			slowestClasses	= new PriorityQueue<>(SLOWEST + 1, BY_TIME);
+
+	/**
+	 * @param pPhase a phase
+	 * @param pNanos time spent in it
+	 */
+	public void add(Phase pPhase, long pNanos) {
+		this.phaseNanos.addAndGet(pPhase.ordinal(), pNanos);
+	}
+
+	/**
+	 * @param pCounter a counter
+	 * @param pDelta value to add to it
+	 */
+	public void add(Counter pCounter, long pDelta) {
+		this.counters.addAndGet(pCounter.ordinal(), pDelta);
+	}
+
+	public void increment(Counter pCounter) {
+		this.counters.incrementAndGet(pCounter.ordinal());
+	}
+
+	/**
+	 * @param pClassName binary name of a class
+	 * @param pNanos time to read the class and build its proto file
+	 */
+	public void classProcessed(String pClassName, long pNanos) {
+		synchronized (this.slowestClasses) {
+			if (this.slowestClasses.size() < SLOWEST || this.slowestClasses.peek().nanos < pNanos) {
+				this.slowestClasses.add(new ClassTime(pClassName, pNanos));
+				if (this.slowestClasses.size() > SLOWEST) {
+					this.slowestClasses.poll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop the clock of the run, the elapsed time of the report no longer changes.
+	 */
+	public void stop() {
+		this.end = System.nanoTime();
+	}
+
+	public long get(Counter pCounter) {
+		return this.counters.get(pCounter.ordinal());
+	}
+
+	public long getNanos(Phase pPhase) {
+		return this.phaseNanos.get(pPhase.ordinal());
+	}
+
+	/**
+	 * @return the time since the creation, or until {@link #stop()}
+	 */
+	public long getElapsedMillis() {
+		return ((this.end != 0 ? this.end : System.nanoTime()) - this.start) / 1000000;
+	}
+
+	/**
+	 * @return binary names of the slowest classes, slowest first
+	 */
+	public List<String> getSlowestClasses() {
+		List<String> names = new ArrayList<>();
+		for (ClassTime time : sortedSlowest()) {
+			names.add(time.className);
+		}
+		return names;
+	}
+
+	private List<ClassTime> sortedSlowest() {
+		List<ClassTime> times;
+		synchronized (this.slowestClasses) {
+			times = new ArrayList<>(this.slowestClasses);
+		}
+		Collections.sort(times, Collections.reverseOrder(BY_TIME));
+		return times;
+	}
+
+	/**
+	 * @return the report: elapsed time, counters, time per phase and slowest classes
+	 */
+	public String toJson() {
+		StringBuilder buf = new StringBuilder(1024);
+		buf.append("{\n  \"elapsedMillis\": ").append(getElapsedMillis()).append(",\n  \"counters\": {");
+		for (Counter counter : Counter.values()) {
+			buf.append(counter.ordinal() == 0 ? "\n" : ",\n").append("    \"").append(counter.jsonName).append("\": ").append(get(counter));
+		}
+		buf.append("\n  },\n  \"phaseMillis\": {");
+		for (Phase phase : Phase.values()) {
+			buf.append(phase.ordinal() == 0 ? "\n" : ",\n").append("    \"").append(phase.jsonName).append("\": ").append(millis(getNanos(phase)));
+		}
+		buf.append("\n  },\n  \"slowestClasses\": [");
+		List<ClassTime> slowest = sortedSlowest();
+		for (int i = 0; i < slowest.size(); i++) {
+			buf.append(i == 0 ? "\n" : ",\n").append("    { \"name\": \"").append(escape(slowest.get(i).className)).append("\", \"millis\": ")
+					.append(millis(slowest.get(i).nanos)).append(" }");
+		}
+		return buf.append(slowest.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+	}
+
+	/**
+	 * @param pFile the file receiving the report
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeJson(File pFile) throws IOException {
+		try (Writer out = Files.newBufferedWriter(pFile.toPath(), StandardCharsets.UTF_8)) {
+			out.write(toJson());
+		}
+	}
+
+	private static String millis(long pNanos) {
+		return String.format(Locale.ROOT, "%.3f", pNanos / 1e6);
+	}
+
+	/**
+	 * @param pValue a string
+	 * @return the string escaped for a JSON string literal
+	 */
+	private static String escape(String pValue) {
+		StringBuilder buf = new StringBuilder(pValue.length());
+		for (int i = 0; i < pValue.length(); i++) {
+			char c = pValue.charAt(i);
+			if (c == '"' || c == '\\') {
+				buf.append('\\').append(c);
+			} else if (c < 0x20) {
+				buf.append(String.format("\\u%04x", (int) c));
+			} else {
+				buf.append(c);
+			}
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Time of a class.
+	 */
+	private static final class ClassTime {
+
+		private final String	className;
+		private final long		nanos;
+
+		ClassTime(String pClassName, long pNanos) {
+			this.className = pClassName;
+			this.nanos = pNanos;
+		}
+	}
+
+}
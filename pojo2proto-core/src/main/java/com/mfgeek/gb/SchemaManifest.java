@@ -0,0 +1,170 @@
+package com.mfgeek.gb;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Manifest of an output directory: for each proto file, the fingerprint of the class it was built
+ * from and the hash of its content.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * One line per proto file, <code>name fingerprint hash</code> separated by tabulations and sorted
+ * by name, so the manifest itself only changes when an entry does. Entries of proto files not
+ * produced by the current run are dropped on {@link #save()}, and their files removed by
+ * {@link #deleteRemoved()}, unless {@link #keepRemoved()} keeps them. A proto file produced but not
+ * written keeps no entry, so the next run writes it again.
+ *
+ * <h3>USAGE</h3>
+ * Used by the incremental mode of {@link PojoToProto}: a class whose fingerprint did not change is
+ * skipped, a proto file whose content did not change is not rewritten.
+ *
+ */
+public class SchemaManifest {
+
+	public static final String					FILE_NAME	= ".pojo2proto.manifest";
+
+	private static final String					HEADER		= "# pojo2proto manifest: proto file, source fingerprint, content hash";
+
+	private final File									dir;
+	private final Map<String, String[]>	previous;
+	private final Map<String, String[]>	current		= new TreeMap<>();
+	/** proto files produced by the current run, written or not */
+	private final Set<String>						produced	= new HashSet<>();
+
+	private SchemaManifest(File pDir, Map<String, String[]> pPrevious) {
+		this.dir = pDir;
+		this.previous = pPrevious;
+	}
+
+	/**
+	 * @param pDir the output directory
+	 * @return the manifest of the directory, empty if there is none or if it cannot be read
+	 */
+	public static SchemaManifest load(File pDir) {
+		Map<String, String[]> entries = new HashMap<>();
+		File file = new File(pDir, FILE_NAME);
+		if (file.isFile()) {
+			try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] entry = line.split("\t");
+					if (!line.startsWith("#") && entry.length == 3) {
+						entries.put(entry[0], new String[] { entry[1], entry[2] });
+					}
+				}
+			} catch (IOException e) {
+				entries.clear();
+			}
+		}
+		return new SchemaManifest(pDir, entries);
+	}
+
+	/**
+	 * If the class did not change since the previous run and its proto file is still there, keep the
+	 * entry as is.
+	 *
+	 * @param pProtoName the proto file name
+	 * @param pSourceFingerprint the fingerprint of the class
+	 * @return <code>true</code> if the proto file does not need to be generated again
+	 */
+	public boolean isUpToDate(String pProtoName, String pSourceFingerprint) {
+		String[] entry = this.previous.get(pProtoName);
+		if (entry != null && entry[0].equals(pSourceFingerprint) && new File(this.dir, pProtoName).isFile()) {
+			this.current.put(pProtoName, entry);
+			this.produced.add(pProtoName);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param pProtoName the proto file name
+	 * @param pContentHash the hash of the new content
+	 * @return <code>true</code> if the proto file on disk already has this content
+	 */
+	public boolean isUnchanged(String pProtoName, String pContentHash) {
+		String[] entry = this.previous.get(pProtoName);
+		return entry != null && entry[1].equals(pContentHash) && new File(this.dir, pProtoName).isFile();
+	}
+
+	/**
+	 * @param pProtoName the proto file name
+	 * @param pSourceFingerprint the fingerprint of the class
+	 * @param pContentHash the hash of the content
+	 */
+	public void record(String pProtoName, String pSourceFingerprint, String pContentHash) {
+		this.current.put(pProtoName, new String[] { pSourceFingerprint, pContentHash });
+		this.produced.add(pProtoName);
+	}
+
+	/**
+	 * The proto file was produced by the current run but could not be written: it gets no entry, so
+	 * the next run writes it again, and it is not deleted as a removed file.
+	 *
+	 * @param pProtoName the proto file name
+	 */
+	public void skip(String pProtoName) {
+		this.current.remove(pProtoName);
+		this.produced.add(pProtoName);
+	}
+
+	/**
+	 * Delete the proto files of the previous run that the current run did not produce, the classes
+	 * they were built from are gone.
+	 *
+	 * @return the number of proto files deleted
+	 * @throws IOException if a file cannot be deleted
+	 */
+	public int deleteRemoved() throws IOException {
+		int deleted = 0;
+		for (String name : this.previous.keySet()) {
+			Path file = new File(this.dir, name).toPath();
+			if (!this.produced.contains(name) && Files.deleteIfExists(file)) {
+				deleted++;
+			}
+		}
+		return deleted;
+	}
+
+	/**
+	 * Keep the proto files of the previous run that the current run did not produce, with their
+	 * entries, when the run may have missed classes which still exist, such as classes it could not
+	 * read.
+	 */
+	public void keepRemoved() {
+		for (Map.Entry<String, String[]> entry : this.previous.entrySet()) {
+			if (this.produced.add(entry.getKey())) {
+				this.current.put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Write the entries recorded by the current run.
+	 *
+	 * @throws IOException if the manifest cannot be written
+	 */
+	public void save() throws IOException {
+		this.dir.mkdirs();
+		try (BufferedWriter writer = Files.newBufferedWriter(new File(this.dir, FILE_NAME).toPath(), StandardCharsets.UTF_8)) {
+			writer.write(HEADER);
+			writer.write('\n');
+			for (Map.Entry<String, String[]> entry : this.current.entrySet()) {
+				writer.write(entry.getKey() + "\t" + entry.getValue()[0] + "\t" + entry.getValue()[1]);
+				writer.write('\n');
+			}
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.mfgeek.gb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Read POJO classes from their <code>.java</code> files, without compiling nor loading them.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Each file is decoded and handed to a {@link JavaSourceParser}, which keeps the declarations of the
+ * class: fields, type arguments, enum constants and superclass. Large files are memory-mapped and
+ * decoded straight from the mapping; the mapping of a file is only released by the garbage
+ * collector, so small files, most POJOs, are read into the heap instead, which keeps thousands of
+ * files from pinning as many mappings. Whether a simple name is a class of the source tree or of
+ * the JDK is cached, the reader is shared by all the threads of a run.
+ *
+ * <h3>USAGE</h3>
+ * Selected with the <code>-S</code> option of {@link PojoToProto}. The POJOs must compile, the
+ * reader does not report syntax errors.
+ *
+ */
+public class SourcePojoReader implements PojoReader {
+
+	/** Size from which a file is memory-mapped rather than read. */
+	private static final long														MAP_THRESHOLD	= 64 * 1024;
+
+	/** binary names of the classes looked up in the JDK, whether found */
+	private static final ConcurrentMap<String, Boolean>	JDK_TYPES			= new ConcurrentHashMap<>();
+
+	private final File																	sourceRoot;
+	/** paths of the source files looked up, whether found */
+	private final ConcurrentMap<String, Boolean>				sourceTypes		= new ConcurrentHashMap<>();
+
+	/**
+	 * @param pSourceRoot root directory of the POJO source code
+	 */
+	public SourcePojoReader(File pSourceRoot) {
+		this.sourceRoot = pSourceRoot;
+	}
+
+	@Override
+	public PojoClass read(String pClassName) throws ClassNotFoundException {
+		int dollar = pClassName.indexOf('$');
+		String topLevel = dollar < 0 ? pClassName : pClassName.substring(0, dollar);
+		File file = new File(this.sourceRoot, topLevel.replace('.', '/') + ".java");
+		if (!file.isFile()) {
+			throw new ClassNotFoundException(pClassName);
+		}
+		try {
+			return new JavaSourceParser(this, decode(file)).parse(pClassName);
+		} catch (IOException | RuntimeException e) {
+			throw new ClassNotFoundException("Unable to read " + file, e);
+		}
+	}
+
+	/**
+	 * @param pFile a UTF-8 source file
+	 * @return its characters
+	 * @throws IOException if the file cannot be read
+	 */
+	private static CharSequence decode(File pFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(pFile.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer bytes;
+			if (size >= MAP_THRESHOLD) {
+				bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} else {
+				bytes = ByteBuffer.allocate((int) size);
+				while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+					// read it all
+				}
+				bytes.flip();
+			}
+			CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			return decoder.decode(bytes);
+		}
+	}
+
+	/**
+	 * @param pPackage a package
+	 * @param pSimpleName a simple name
+	 * @return <code>true</code> if the source tree holds the top level class
+	 */
+	boolean isSourceType(String pPackage, String pSimpleName) {
+		String path = (pPackage.isEmpty() ? "" : pPackage.replace('.', '/') + "/") + pSimpleName + ".java";
+		Boolean exists = this.sourceTypes.get(path);
+		if (exists == null) {
+			exists = new File(this.sourceRoot, path).isFile();
+			this.sourceTypes.put(path, exists);
+		}
+		return exists;
+	}
+
+	/**
+	 * @param pBinaryName a binary name
+	 * @return <code>true</code> if the class is found by the system class loader, without
+	 *         initializing it
+	 */
+	static boolean isJdkType(String pBinaryName) {
+		Boolean exists = JDK_TYPES.get(pBinaryName);
+		if (exists == null) {
+			try {
+				Class.forName(pBinaryName, false, ClassLoader.getSystemClassLoader());
+				exists = Boolean.TRUE;
+			} catch (ClassNotFoundException | LinkageError e) {
+				exists = Boolean.FALSE;
+			}
+			JDK_TYPES.put(pBinaryName, exists);
+		}
+		return exists;
+	}
+
+}
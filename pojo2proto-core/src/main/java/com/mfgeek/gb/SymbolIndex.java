@@ -0,0 +1,80 @@
+package com.mfgeek.gb;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * The custom types of a generation run: every class found in the packages of the run, message or
+ * enum, with the proto type and file it maps to.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * A hash map keyed by the java binary name, so a field type resolves in constant time whatever the
+ * size of the package. The proto messages and files are named after the simple names and all share
+ * the proto package of the run, so two classes of the same simple name in different packages are
+ * refused instead of silently overwriting each other; file names are therefore unique in a run and
+ * the sinks, the manifest and the watcher key on them safely. Filled while the packages are listed,
+ * only read afterwards, so the workers of a parallel run share it without locking.
+ *
+ * <h3>USAGE</h3>
+ * Built by {@link ProtoGenerator} for each run.
+ *
+ */
+final class SymbolIndex {
+
+	private final Map<String, Symbol>	symbols	= new HashMap<>();
+	private final Map<String, String>	owners	= new HashMap<>();
+	private final ProtoBundling				bundling;
+
+	/**
+	 * @param pBundling the grouping of the classes into proto files, <code>null</code> for one proto
+	 *          file per class
+	 */
+	SymbolIndex(ProtoBundling pBundling) {
+		this.bundling = pBundling;
+	}
+
+	/**
+	 * @param pBinaryName the binary name of a class of the run
+	 * @throws IllegalStateException if another class of the run has the same simple name
+	 */
+	void add(String pBinaryName) {
+		String simpleName = PojoField.simpleNameOf(pBinaryName);
+		String owner = this.owners.put(simpleName, pBinaryName);
+		if (owner != null && !owner.equals(pBinaryName)) {
+			throw new IllegalStateException("Classes " + owner + " and " + pBinaryName + " both map to the proto message " + simpleName
+					+ ", rename one of them or generate their packages separately");
+		}
+		String protoFile = this.bundling != null ? this.bundling.fileOf(pBinaryName) : simpleName + ".proto";
+		this.symbols.put(pBinaryName, new Symbol(simpleName, protoFile));
+	}
+
+	/**
+	 * @param pBinaryName the binary name of a java type, <code>null</code> allowed
+	 * @return the symbol, <code>null</code> if the type is not a class of the run
+	 */
+	Symbol get(String pBinaryName) {
+		return pBinaryName != null ? this.symbols.get(pBinaryName) : null;
+	}
+
+	int size() {
+		return this.symbols.size();
+	}
+
+	/**
+	 * A class of the run as the proto files refer to it.
+	 */
+	static final class Symbol {
+
+		/** name of the proto message or enum */
+		final String	protoType;
+		/** name of the proto file to import, the file of its bundle when bundled */
+		final String	protoFile;
+
+		Symbol(String pProtoType, String pProtoFile) {
+			this.protoType = pProtoType;
+			this.protoFile = pProtoFile;
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.mfgeek.gb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * The superclass chains of the classes of a run, read once and shared by all their subclasses.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Each ancestor is read a single time through the reader of the run and its fields, merged with the
+ * ones of its own ancestors, are kept by class name: a superclass shared by many classes, or a deep
+ * chain, costs one read per class of the chain whatever the number of subclasses. The walk stops at
+ * the first JDK class, enum or class the reader cannot find. A field hidden by a field of the same
+ * name closer to the class is dropped, as a POJO only exposes the closest one. Only the ancestors
+ * are kept, not the leaf classes, so the memory of a run grows with the number of distinct
+ * superclasses rather than with the number of classes. Concurrent runs of the same ancestor may
+ * both read it, the first result is kept.
+ *
+ * <h3>USAGE</h3>
+ * One instance per run, shared by the threads of the run.
+ *
+ */
+final class TypeGraph {
+
+	private static final Logger								LOGGER	= LoggerFactory.getLogger(TypeGraph.class);
+
+	/** marks an ancestor whose chain ends there */
+	private static final Node									NONE		= new Node(Collections.<String> emptyList(), Collections.<PojoField> emptyList());
+
+	private final PojoReader									reader;
+	private final RunStats										stats;
+	/** ancestors read so far, by binary name */
+	private final ConcurrentMap<String, Node>	nodes		= new ConcurrentHashMap<>();
+
+	/**
+	 * @param pReader the reader of the run
+	 * @param pStats counters and timers of the run, the reads of the ancestors are timed as reads
+	 */
+	TypeGraph(PojoReader pReader, RunStats pStats) {
+		this.reader = pReader;
+		this.stats = pStats;
+	}
+
+	/**
+	 * @param pClass a class of the run
+	 * @return the binary names of the ancestors whose fields are inherited, closest first
+	 */
+	List<String> superclassesOf(PojoClass pClass) {
+		return nodeOf(pClass.getSuperclassName()).chain;
+	}
+
+	/**
+	 * @param pClass a class of the run
+	 * @return its declared fields then the inherited ones, closest ancestor first
+	 */
+	List<PojoField> fieldsOf(PojoClass pClass) {
+		Node parent = nodeOf(pClass.getSuperclassName());
+		if (parent.fields.isEmpty()) {
+			return pClass.getFields();
+		}
+		return merge(pClass.getFields(), parent.fields);
+	}
+
+	/**
+	 * @param pName the binary name of a superclass, <code>null</code> allowed
+	 * @return the ancestor and its own ancestors, {@link #NONE} if the chain stops before it
+	 */
+	private Node nodeOf(String pName) {
+		if (pName == null || pName.startsWith("java.") || pName.startsWith("javax.")) {
+			return NONE;
+		}
+		Node node = this.nodes.get(pName);
+		if (node != null) {
+			return node;
+		}
+		node = read(pName);
+		Node previous = this.nodes.putIfAbsent(pName, node);
+		return previous != null ? previous : node;
+	}
+
+	/**
+	 * @param pName the binary name of an ancestor, not yet read
+	 * @return the ancestor with its inherited fields merged
+	 */
+	private Node read(String pName) {
+		PojoClass c;
+		long start = System.nanoTime();
+		try {
+			c = this.reader.read(pName);
+		} catch (ClassNotFoundException | LinkageError e) {
+			LOGGER.info("WARNING: superclass " + pName + " cannot be read, its fields are not inherited: " + e);
+			return NONE;
+		} finally {
+			this.stats.add(RunStats.Phase.READ, System.nanoTime() - start);
+		}
+		if (c.isEnum()) {
+			return NONE;
+		}
+		Node parent = nodeOf(c.getSuperclassName());
+		List<String> chain = new ArrayList<>(parent.chain.size() + 1);
+		chain.add(pName);
+		chain.addAll(parent.chain);
+		return new Node(Collections.unmodifiableList(chain), Collections.unmodifiableList(merge(c.getFields(), parent.fields)));
+	}
+
+	/**
+	 * @param pOwn the fields of a class
+	 * @param pInherited the fields of its ancestors
+	 * @return the fields of the class, then the inherited ones it does not hide
+	 */
+	private static List<PojoField> merge(List<PojoField> pOwn, List<PojoField> pInherited) {
+		Set<String> names = new HashSet<>();
+		for (PojoField field : pOwn) {
+			names.add(field.getName());
+		}
+		List<PojoField> fields = new ArrayList<>(pOwn.size() + pInherited.size());
+		fields.addAll(pOwn);
+		for (PojoField field : pInherited) {
+			if (names.add(field.getName())) {
+				fields.add(field);
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * An ancestor: its chain and the fields it gives to its subclasses.
+	 */
+	private static final class Node {
+
+		private final List<String>		chain;
+		private final List<PojoField>	fields;
+
+		Node(List<String> pChain, List<PojoField> pFields) {
+			this.chain = pChain;
+			this.fields = pFields;
+		}
+	}
+
+}
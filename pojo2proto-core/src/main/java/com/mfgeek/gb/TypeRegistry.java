@@ -0,0 +1,47 @@
+package com.mfgeek.gb;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Table of the scalar java type names to proto type names.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Keys are the lower case simple names of the java types. The classes of the run are resolved by
+ * their binary name in a {@link SymbolIndex} first, so they never shadow or get shadowed by a scalar
+ * type. Immutable once built, so the workers of a parallel run read it without locking.
+ *
+ * <h3>USAGE</h3>
+ * Build it from the scalar types, share it freely.
+ *
+ */
+public class TypeRegistry {
+
+	private final Map<String, String> types;
+
+	/**
+	 * @param pTypes the scalar types, copied
+	 */
+	public TypeRegistry(Map<String, String> pTypes) {
+		this.types = Collections.unmodifiableMap(new HashMap<>(pTypes));
+	}
+
+	/**
+	 * @param pType the lower case simple name of a java type
+	 * @return <code>true</code> if the type is mapped to a proto type
+	 */
+	public boolean contains(String pType) {
+		return this.types.containsKey(pType);
+	}
+
+	/**
+	 * @param pType the lower case simple name of a java type
+	 * @return the proto type, <code>null</code> if not mapped
+	 */
+	public String get(String pType) {
+		return this.types.get(pType);
+	}
+
+}
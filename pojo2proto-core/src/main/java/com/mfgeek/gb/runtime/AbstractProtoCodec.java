@@ -0,0 +1,46 @@
+package com.mfgeek.gb.runtime;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Base of the codecs: run the size pass, allocate the array, run the write pass. Decode into a new
+ * instance.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ *
+ * <h3>USAGE</h3>
+ *
+ * @param <T> the POJO class
+ */
+public abstract class AbstractProtoCodec<T> implements ProtoCodec<T> {
+
+	@Override
+	public byte[] encode(T pValue) {
+		SizeCache cache = new SizeCache();
+		ProtoOutput out = new ProtoOutput(new byte[computeSize(pValue, cache)]);
+		cache.rewind();
+		writeTo(pValue, out, cache);
+		return out.toByteArray();
+	}
+
+	@Override
+	public T decode(byte[] pBytes) {
+		T value = newInstance();
+		mergeFrom(value, new ProtoInput(pBytes));
+		return value;
+	}
+
+	/**
+	 * @param pThrowable a failure of a method handle
+	 * @return an unchecked exception to throw
+	 */
+	static RuntimeException rethrow(Throwable pThrowable) {
+		if (pThrowable instanceof RuntimeException) {
+			return (RuntimeException) pThrowable;
+		}
+		if (pThrowable instanceof Error) {
+			throw (Error) pThrowable;
+		}
+		return new IllegalStateException(pThrowable);
+	}
+
+}
@@ -0,0 +1,234 @@
+package com.mfgeek.gb.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Compile the source written by {@link CodecGenerator} in memory and load the codec class.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The class is compiled with the system java compiler against the locations of the classes it
+ * refers to, with file managers closed once the class is compiled, so no archive of the class path
+ * stays open. On a JVM with hidden classes (java 15 and later) it is defined as a hidden class of
+ * the package of the POJO, so it can be unloaded with its codec and is invisible to the class
+ * loader; these methods are looked up by reflection so this class still runs on java 7. Otherwise,
+ * and for a POJO of another class loader than this one, on which no full privilege lookup can be
+ * had, it is defined by a child of the POJO class loader.
+ *
+ * <h3>USAGE</h3>
+ * Used by {@link CodecRegistry} when generated codecs are asked for. Any failure gives
+ * <code>null</code>, the registry then keeps the reflection codec.
+ *
+ */
+final class CodecCompiler {
+
+	private static final Logger	LOGGER	= LoggerFactory.getLogger(CodecCompiler.class);
+
+	private CodecCompiler() {
+	}
+
+	/**
+	 * @param <T> the POJO class
+	 * @param pGenerator the generator of the codec
+	 * @return the generated codec, <code>null</code> if it cannot be built
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> ProtoCodec<T> build(CodecGenerator pGenerator) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			LOGGER.debug("no java compiler, generated codecs are not available");
+			return null;
+		}
+		try {
+			String source = pGenerator.generate();
+			if (source == null) {
+				return null;
+			}
+			Class<?> host = pGenerator.getReferencedTypes().get(0);
+			byte[] bytes = compile(compiler, pGenerator.getClassName(), source, classPath(pGenerator.getReferencedTypes()));
+			if (bytes == null) {
+				return null;
+			}
+			Class<?> codecClass = define(host, pGenerator.getClassName(), bytes);
+			List<ProtoCodec<?>> codecs = pGenerator.getCodecs();
+			List<int[]> numbers = pGenerator.getEnumNumbers();
+			List<Object[]> constants = pGenerator.getEnumConstants();
+			return (ProtoCodec<T>) codecClass.getConstructor(ProtoCodec[].class, int[][].class, Object[][].class).newInstance(
+					codecs.toArray(new ProtoCodec[codecs.size()]), numbers.toArray(new int[numbers.size()][]), constants.toArray(new Object[constants.size()][]));
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			LOGGER.warn("cannot generate the codec {}: {}", pGenerator.getClassName(), e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * @param pTypes the classes referred to by the source
+	 * @return the class path of the compilation: their locations and the one of this runtime
+	 */
+	private static String classPath(List<Class<?>> pTypes) {
+		Set<String> locations = new LinkedHashSet<>();
+		addLocation(locations, ProtoCodec.class);
+		for (Class<?> type : pTypes) {
+			addLocation(locations, type);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (String location : locations) {
+			if (sb.length() > 0) {
+				sb.append(File.pathSeparatorChar);
+			}
+			sb.append(location);
+		}
+		return sb.toString();
+	}
+
+	private static void addLocation(Set<String> pLocations, Class<?> pType) {
+		CodeSource codeSource = pType.getProtectionDomain().getCodeSource();
+		URL location = codeSource != null ? codeSource.getLocation() : null;
+		if (location != null) {
+			try {
+				pLocations.add(new File(location.toURI()).getPath());
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				LOGGER.debug("ignored class path location {}", location);
+			}
+		}
+	}
+
+	/**
+	 * @return the bytes of the class, <code>null</code> if the compilation failed
+	 */
+	private static byte[] compile(JavaCompiler pCompiler, String pClassName, String pSource, String pClassPath) {
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		// closing it closes the standard file manager, and the archives of the class path it opened
+		try (MemoryFileManager fileManager = new MemoryFileManager(pCompiler.getStandardFileManager(diagnostics, null, null))) {
+			JavaFileObject unit = new SourceFile(pClassName, pSource);
+			List<String> options = Arrays.asList("-classpath", pClassPath, "-proc:none", "-nowarn", "-g:source,lines");
+			boolean success = pCompiler.getTask(null, fileManager, diagnostics, options, null, Arrays.asList(unit)).call();
+			if (!success) {
+				for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+					LOGGER.warn("cannot compile the codec {}: {}", pClassName, diagnostic.getMessage(null));
+				}
+				return null;
+			}
+			return fileManager.output.toByteArray();
+		} catch (IOException e) {
+			LOGGER.warn("cannot close the file manager of the codec {}: {}", pClassName, e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * @param pHost the POJO class
+	 * @param pClassName the binary name of the codec class
+	 * @param pBytes its bytes
+	 * @return the loaded class
+	 * @throws ReflectiveOperationException if the class cannot be defined
+	 */
+	private static Class<?> define(Class<?> pHost, String pClassName, byte[] pBytes) throws ReflectiveOperationException {
+		Method privateLookupIn;
+		Method defineHiddenClass;
+		Class<?> classOption;
+		try {
+			privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+			classOption = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, Array.newInstance(classOption, 0).getClass());
+		} catch (NoSuchMethodException | ClassNotFoundException e) {
+			return new CodecClassLoader(pHost.getClassLoader()).define(pClassName, pBytes);
+		}
+		Object lookup = privateLookupIn.invoke(null, pHost, MethodHandles.lookup());
+		try {
+			Object hidden = defineHiddenClass.invoke(lookup, pBytes, true, Array.newInstance(classOption, 0));
+			return ((MethodHandles.Lookup) hidden).lookupClass();
+		} catch (InvocationTargetException e) {
+			if (!(e.getCause() instanceof IllegalAccessException)) {
+				throw e;
+			}
+			// a POJO of another class loader is in another unnamed module: no full privilege lookup on it
+			return new CodecClassLoader(pHost.getClassLoader()).define(pClassName, pBytes);
+		}
+	}
+
+	/**
+	 * Source held in memory.
+	 */
+	private static final class SourceFile extends SimpleJavaFileObject {
+
+		private final String source;
+
+		SourceFile(String pClassName, String pSource) {
+			super(URI.create("string:///" + pClassName.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			this.source = pSource;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean pIgnoreEncodingErrors) {
+			return this.source;
+		}
+	}
+
+	/**
+	 * Keep the compiled class in memory, the generated source has a single top level class.
+	 */
+	private static final class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		MemoryFileManager(JavaFileManager pFileManager) {
+			super(pFileManager);
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(Location pLocation, String pClassName, Kind pKind, FileObject pSibling) {
+			return new SimpleJavaFileObject(URI.create("bytes:///" + pClassName.replace('.', '/') + pKind.extension), pKind) {
+
+				@Override
+				public OutputStream openOutputStream() {
+					return MemoryFileManager.this.output;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Define the codec classes when hidden classes are not available.
+	 */
+	private static final class CodecClassLoader extends ClassLoader {
+
+		CodecClassLoader(ClassLoader pParent) {
+			super(pParent);
+		}
+
+		Class<?> define(String pClassName, byte[] pBytes) {
+			return defineClass(pClassName, pBytes, 0, pBytes.length);
+		}
+	}
+
+}
@@ -0,0 +1,564 @@
+package com.mfgeek.gb.runtime;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import com.mfgeek.gb.ProtoFile;
+import com.mfgeek.gb.ProtoFile.ProtoField;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Write the java source of a codec specialized for one POJO class: straight-line code, one block
+ * per field, calling the getters and setters of the class directly.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The generated class extends {@link AbstractProtoCodec} and lives in the package of the POJO. The
+ * codecs of nested messages and the numbers of enum constants are given to its constructor, in the
+ * order of {@link #getCodecs()}, {@link #getEnumNumbers()} and {@link #getEnumConstants()}. Tags
+ * are written as constants, decoding switches on the whole tag, so each field number and wire type
+ * pair is a single case.
+ *
+ * <h3>USAGE</h3>
+ * Used by {@link CodecCompiler}. A class without public accessors for every field, without a
+ * public constructor, or with a map field, cannot be generated: {@link #generate()} returns
+ * <code>null</code>.
+ *
+ */
+class CodecGenerator {
+
+	static final String								SUFFIX					= "$$ProtoCodec";
+
+	private final Class<?>						type;
+	private final ProtoFile						protoFile;
+	private final CodecRegistry				registry;
+	private final boolean							proto3;
+	private final List<ProtoCodec<?>>	codecs					= new ArrayList<>();
+	private final List<Class<?>>			codecTypes			= new ArrayList<>();
+	private final List<int[]>					enumNumbers			= new ArrayList<>();
+	private final List<Object[]>			enumConstants		= new ArrayList<>();
+	private final List<Class<?>>			enumTypes				= new ArrayList<>();
+	private final List<Class<?>>			referencedTypes	= new ArrayList<>();
+
+	/**
+	 * @param pType a POJO class
+	 * @param pf its proto file
+	 * @param pRegistry the registry giving the codecs of nested messages and enums
+	 */
+	CodecGenerator(Class<?> pType, ProtoFile pf, CodecRegistry pRegistry) {
+		this.type = pType;
+		this.protoFile = pf;
+		this.registry = pRegistry;
+		this.proto3 = "proto3".equals(pf.getSyntax());
+	}
+
+	/**
+	 * @return the binary name of the generated class
+	 */
+	String getClassName() {
+		return this.type.getName() + SUFFIX;
+	}
+
+	List<ProtoCodec<?>> getCodecs() {
+		return this.codecs;
+	}
+
+	List<int[]> getEnumNumbers() {
+		return this.enumNumbers;
+	}
+
+	List<Object[]> getEnumConstants() {
+		return this.enumConstants;
+	}
+
+	/**
+	 * @return the classes the generated source refers to, to build the compilation class path
+	 */
+	List<Class<?>> getReferencedTypes() {
+		return this.referencedTypes;
+	}
+
+	/**
+	 * @return the java source, <code>null</code> if the class cannot be generated
+	 */
+	String generate() {
+		if (!Modifier.isPublic(this.type.getModifiers()) || this.type.getEnclosingClass() != null || this.type.getPackage() == null) {
+			return null;
+		}
+		this.referencedTypes.add(this.type);
+		List<Accessor> accessors = new ArrayList<>();
+		for (ProtoField f : this.protoFile.getFields()) {
+			Accessor accessor = accessor(f);
+			if (accessor == null) {
+				return null;
+			}
+			accessors.add(accessor);
+		}
+
+		String pojo = this.type.getCanonicalName();
+		String simpleName = this.type.getSimpleName() + SUFFIX;
+		StringBuilder sb = new StringBuilder(4096);
+		sb.append("package ").append(this.type.getPackage().getName()).append(";\n\n");
+		sb.append("import com.mfgeek.gb.runtime.*;\n\n");
+		sb.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+		sb.append("public final class ").append(simpleName).append(" extends AbstractProtoCodec<").append(pojo).append("> {\n\n");
+		for (int i = 0; i < this.codecs.size(); i++) {
+			sb.append("\tprivate final ProtoCodec<").append(this.codecTypes.get(i).getCanonicalName()).append("> c").append(i).append(";\n");
+		}
+		for (int i = 0; i < this.enumNumbers.size(); i++) {
+			sb.append("\tprivate final int[] n").append(i).append(";\n");
+			sb.append("\tprivate final Object[] e").append(i).append(";\n");
+		}
+		sb.append("\n\tpublic ").append(simpleName).append("(ProtoCodec[] pCodecs, int[][] pNumbers, Object[][] pConstants) {\n");
+		for (int i = 0; i < this.codecs.size(); i++) {
+			sb.append("\t\tthis.c").append(i).append(" = pCodecs[").append(i).append("];\n");
+		}
+		for (int i = 0; i < this.enumNumbers.size(); i++) {
+			sb.append("\t\tthis.n").append(i).append(" = pNumbers[").append(i).append("];\n");
+			sb.append("\t\tthis.e").append(i).append(" = pConstants[").append(i).append("];\n");
+		}
+		sb.append("\t}\n\n");
+
+		sb.append("\t@Override\n\tpublic int computeSize(").append(pojo).append(" v, SizeCache cache) {\n\t\tint size = 0;\n");
+		for (Accessor a : accessors) {
+			a.appendSize(sb);
+		}
+		sb.append("\t\treturn size;\n\t}\n\n");
+
+		sb.append("\t@Override\n\tpublic void writeTo(").append(pojo).append(" v, ProtoOutput out, SizeCache cache) {\n");
+		for (Accessor a : accessors) {
+			a.appendWrite(sb);
+		}
+		sb.append("\t}\n\n");
+
+		sb.append("\t@Override\n\tpublic ").append(pojo).append(" newInstance() {\n");
+		if (hasPublicConstructor()) {
+			sb.append("\t\treturn new ").append(pojo).append("();\n");
+		} else {
+			sb.append("\t\tthrow new IllegalStateException(\"").append(pojo).append(" has no public constructor without argument\");\n");
+		}
+		sb.append("\t}\n\n");
+
+		sb.append("\t@Override\n\tpublic void mergeFrom(").append(pojo).append(" v, ProtoInput in) {\n");
+		sb.append("\t\tfor (int tag = in.readTag(); tag != 0; tag = in.readTag()) {\n\t\t\tswitch (tag) {\n");
+		for (Accessor a : accessors) {
+			a.appendRead(sb);
+		}
+		sb.append("\t\t\t\tdefault:\n\t\t\t\t\tin.skipField(tag);\n\t\t\t}\n\t\t}\n\t}\n");
+
+		for (Accessor a : accessors) {
+			a.appendHelpers(sb, pojo);
+		}
+		for (int i = 0; i < this.codecs.size(); i++) {
+			appendMessageHelpers(sb, i);
+		}
+		for (int i = 0; i < this.enumNumbers.size(); i++) {
+			String e = this.enumTypes.get(i).getCanonicalName();
+			sb.append("\n\tprivate ").append(e).append(" enum").append(i).append("(int n) {\n");
+			sb.append("\t\treturn n >= 0 && n < this.e").append(i).append(".length ? (").append(e).append(") this.e").append(i).append("[n] : null;\n\t}\n");
+		}
+		sb.append("\n}\n");
+		return sb.toString();
+	}
+
+	private boolean hasPublicConstructor() {
+		try {
+			return !Modifier.isAbstract(this.type.getModifiers()) && Modifier.isPublic(this.type.getConstructor().getModifiers());
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private void appendMessageHelpers(StringBuilder sb, int i) {
+		String m = this.codecTypes.get(i).getCanonicalName();
+		String codec = this.codecs.get(i) == null ? "this" : "this.c" + i;
+		sb.append("\n\tprivate int size").append(i).append("(").append(m).append(" x, SizeCache cache) {\n");
+		sb.append("\t\tint slot = cache.reserve();\n");
+		sb.append("\t\tint s = ").append(codec).append(".computeSize(x, cache);\n");
+		sb.append("\t\tcache.set(slot, s);\n");
+		sb.append("\t\treturn ProtoOutput.varint32Size(s) + s;\n\t}\n");
+		sb.append("\n\tprivate void write").append(i).append("(").append(m).append(" x, ProtoOutput out, SizeCache cache) {\n");
+		sb.append("\t\tout.writeVarint32(cache.next());\n");
+		sb.append("\t\t").append(codec).append(".writeTo(x, out, cache);\n\t}\n");
+		sb.append("\n\tprivate ").append(m).append(" read").append(i).append("(ProtoInput in) {\n");
+		sb.append("\t\tint limit = in.pushLimit(in.readLength());\n");
+		sb.append("\t\t").append(m).append(" x = ").append(codec).append(".newInstance();\n");
+		sb.append("\t\t").append(codec).append(".mergeFrom(x, in);\n");
+		sb.append("\t\tin.popLimit(limit);\n");
+		sb.append("\t\treturn x;\n\t}\n");
+	}
+
+	/**
+	 * @param f a proto field
+	 * @return how to access it, <code>null</code> if the class does not allow it
+	 */
+	private Accessor accessor(ProtoField f) {
+		// map fields are left to the reflection codec
+		if (f.getType() == null || f.getKeyType() != null) {
+			return null;
+		}
+		Field field;
+		try {
+			field = CodecRegistry.findField(this.type, f.getName());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		Class<?> fieldType = field.getType();
+		String suffix = Character.toUpperCase(f.getName().charAt(0)) + f.getName().substring(1);
+		Method getter = method((fieldType == boolean.class ? "is" : "get") + suffix, fieldType);
+		if (getter == null && fieldType == boolean.class) {
+			getter = method("get" + suffix, fieldType);
+		}
+		Method setter = method("set" + suffix, null, fieldType);
+		if (getter == null || setter == null) {
+			return null;
+		}
+		Class<?> valueType = fieldType;
+		if (f.isRepeated() && fieldType.isArray() && fieldType.getComponentType().isPrimitive()) {
+			valueType = fieldType.getComponentType();
+		} else if (f.isRepeated()) {
+			if (!Collection.class.isAssignableFrom(fieldType)) {
+				return null;
+			}
+			Class<?> collectionClass = CodecRegistry.collectionClass(fieldType);
+			if (!Modifier.isPublic(collectionClass.getModifiers()) || Modifier.isAbstract(collectionClass.getModifiers())) {
+				return null;
+			}
+			valueType = CodecRegistry.elementType(field);
+		}
+		Value value = value(f.getType(), valueType);
+		if (value == null) {
+			return null;
+		}
+		return new Accessor(f, getter.getName(), setter.getName(), fieldType, value);
+	}
+
+	/**
+	 * @param pName a method name
+	 * @param pReturnType the expected return type, <code>null</code> for <code>void</code>
+	 * @param pParameterTypes the parameter types
+	 * @return the public method, <code>null</code> if none
+	 */
+	private Method method(String pName, Class<?> pReturnType, Class<?>... pParameterTypes) {
+		try {
+			Method method = this.type.getMethod(pName, pParameterTypes);
+			Class<?> expected = pReturnType == null ? void.class : pReturnType;
+			return method.getReturnType() == expected && Modifier.isPublic(method.getDeclaringClass().getModifiers()) ? method : null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param pProtoType the proto type of a value
+	 * @param pJavaType its java type
+	 * @return how to encode and decode it, <code>null</code> if not supported
+	 */
+	private Value value(String pProtoType, Class<?> pJavaType) {
+		if (!Modifier.isPublic(pJavaType.getModifiers())) {
+			return null;
+		}
+		switch (pProtoType) {
+			case "int32":
+				String cast = pJavaType == short.class || pJavaType == Short.class ? "(short) " : pJavaType == byte.class || pJavaType == Byte.class ? "(byte) " : "";
+				return new Value(pJavaType, "ProtoOutput.varint32Size(%s)", "out.writeVarint32(%s);", cast + "in.readVarint32()", "%s == 0", 0);
+			case "int64":
+				if (Date.class.isAssignableFrom(pJavaType)) {
+					if (pJavaType != Date.class) {
+						return null;
+					}
+					return new Value(pJavaType, "ProtoOutput.varint64Size(%s.getTime())", "out.writeVarint64(%s.getTime());", "new java.util.Date(in.readVarint64())",
+							"%s.getTime() == 0", 0);
+				}
+				return new Value(pJavaType, "ProtoOutput.varint64Size(%s)", "out.writeVarint64(%s);", "in.readVarint64()", "%s == 0", 0);
+			case "float":
+				return new Value(pJavaType, "4", "out.writeFixed32(Float.floatToRawIntBits(%s));", "Float.intBitsToFloat(in.readFixed32())",
+						"Float.floatToRawIntBits(%s) == 0", 5);
+			case "double":
+				return new Value(pJavaType, "8", "out.writeFixed64(Double.doubleToRawLongBits(%s));", "Double.longBitsToDouble(in.readFixed64())",
+						"Double.doubleToRawLongBits(%s) == 0L", 1);
+			case "bool":
+				return new Value(pJavaType, "1", "out.writeBool(%s);", "in.readBool()", "!%s", 0);
+			case "string":
+				return new Value(pJavaType, "ProtoOutput.stringSize(%s)", "out.writeString(%s);", "in.readString()", "%s.isEmpty()", 2);
+			case "bytes":
+				return new Value(pJavaType, "ProtoOutput.bytesSize(%s)", "out.writeBytes(%s);", "in.readBytes()", "%s.length == 0", 2);
+			default:
+				break;
+		}
+		if (pJavaType.isEnum()) {
+			int i = this.enumTypes.indexOf(pJavaType);
+			if (i < 0) {
+				ValueCodec.EnumCodec codec = this.registry.enumCodec(pJavaType);
+				i = this.enumTypes.size();
+				this.enumTypes.add(pJavaType);
+				this.enumNumbers.add(codec.numbers);
+				this.enumConstants.add(codec.constants);
+				this.referencedTypes.add(pJavaType);
+			}
+			String number = "this.n" + i + "[%s.ordinal()]";
+			Value value = new Value(pJavaType, "ProtoOutput.varint32Size(" + number + ")", "out.writeVarint32(" + number + ");", "enum" + i + "(in.readVarint32())",
+					number + " == 0", 0);
+			value.nullable = true;
+			return value;
+		}
+		if (pJavaType.isPrimitive() || pJavaType.getEnclosingClass() != null && !Modifier.isStatic(pJavaType.getModifiers())) {
+			return null;
+		}
+		int i = this.codecTypes.indexOf(pJavaType);
+		if (i < 0) {
+			i = this.codecTypes.size();
+			this.codecTypes.add(pJavaType);
+			// the codec of the class itself is the generated one
+			this.codecs.add(pJavaType == this.type ? null : this.registry.codec(pJavaType));
+			this.referencedTypes.add(pJavaType);
+		}
+		return new Value(pJavaType, "size" + i + "(%s, cache)", "write" + i + "(%s, out, cache);", "read" + i + "(in)", null, 2);
+	}
+
+	/**
+	 * Encoding of a value, as java expressions and statements where <code>%s</code> stands for the
+	 * value.
+	 */
+	private static final class Value {
+
+		final Class<?>	javaType;
+		final String		size;
+		final String		write;
+		final String		read;
+		/** <code>null</code> for messages, which have no default value */
+		final String		isDefault;
+		final int				wireType;
+		/** <code>true</code> when decoding may give <code>null</code>, for unknown enum numbers */
+		boolean					nullable;
+
+		Value(Class<?> pJavaType, String pSize, String pWrite, String pRead, String pIsDefault, int pWireType) {
+			this.javaType = pJavaType;
+			this.size = pSize;
+			this.write = pWrite;
+			this.read = pRead;
+			this.isDefault = pIsDefault;
+			this.wireType = pWireType;
+		}
+
+		boolean isPackable() {
+			return this.wireType != 2;
+		}
+	}
+
+	/**
+	 * Generated code of one field.
+	 */
+	private final class Accessor {
+
+		final int				number;
+		final String		getter;
+		final String		setter;
+		final Class<?>	fieldType;
+		final Value			value;
+		final boolean		repeated;
+		/** primitive array, always packed */
+		final boolean		array;
+		final boolean		packed;
+		final int				tagSize;
+
+		Accessor(ProtoField f, String pGetter, String pSetter, Class<?> pFieldType, Value pValue) {
+			this.number = f.getIndex();
+			this.getter = pGetter;
+			this.setter = pSetter;
+			this.fieldType = pFieldType;
+			this.value = pValue;
+			this.repeated = f.isRepeated();
+			this.array = this.repeated && pFieldType.isArray();
+			this.packed = this.array || this.repeated && (CodecGenerator.this.proto3 || f.isPacked()) && pValue.isPackable();
+			this.tagSize = ProtoOutput.tagSize(f.getIndex());
+		}
+
+		String elementType() {
+			return boxed(this.value.javaType).getCanonicalName();
+		}
+
+		String collectionType() {
+			return this.fieldType.getCanonicalName() + "<" + elementType() + ">";
+		}
+
+		/** skip the default value of singular fields in proto3, never write null */
+		String condition(String x) {
+			String notDefault = CodecGenerator.this.proto3 && this.value.isDefault != null ? "!(" + String.format(this.value.isDefault, x) + ")" : null;
+			if (this.fieldType.isPrimitive()) {
+				return notDefault;
+			}
+			return notDefault == null ? x + " != null" : x + " != null && " + notDefault;
+		}
+
+		void appendSize(StringBuilder sb) {
+			sb.append("\t\t{\n");
+			if (this.array) {
+				sb.append("\t\t\t").append(this.fieldType.getCanonicalName()).append(" a = v.").append(this.getter).append("();\n");
+				sb.append("\t\t\tif (a != null && a.length != 0) {\n");
+				sb.append("\t\t\t\tint s = PackedArrays.size(a);\n");
+				sb.append("\t\t\t\tsize += ").append(this.tagSize).append(" + ProtoOutput.varint32Size(s) + s;\n");
+				sb.append("\t\t\t}\n");
+			} else if (this.repeated) {
+				sb.append("\t\t\t").append(collectionType()).append(" c = v.").append(this.getter).append("();\n");
+				sb.append("\t\t\tif (c != null && !c.isEmpty()) {\n");
+				if (this.packed) {
+					sb.append("\t\t\t\tint slot = cache.reserve();\n\t\t\t\tint s = 0;\n");
+					sb.append("\t\t\t\tfor (").append(elementType()).append(" x : c) {\n\t\t\t\t\tif (x != null) {\n");
+					sb.append("\t\t\t\t\t\ts += ").append(String.format(this.value.size, "x")).append(";\n\t\t\t\t\t}\n\t\t\t\t}\n");
+					sb.append("\t\t\t\tcache.set(slot, s);\n");
+					sb.append("\t\t\t\tsize += ").append(this.tagSize).append(" + ProtoOutput.varint32Size(s) + s;\n");
+				} else {
+					sb.append("\t\t\t\tfor (").append(elementType()).append(" x : c) {\n\t\t\t\t\tif (x != null) {\n");
+					sb.append("\t\t\t\t\t\tsize += ").append(this.tagSize).append(" + ").append(String.format(this.value.size, "x")).append(";\n\t\t\t\t\t}\n\t\t\t\t}\n");
+				}
+				sb.append("\t\t\t}\n");
+			} else {
+				sb.append("\t\t\t").append(this.fieldType.getCanonicalName()).append(" x = v.").append(this.getter).append("();\n");
+				String condition = condition("x");
+				if (condition != null) {
+					sb.append("\t\t\tif (").append(condition).append(") {\n\t");
+				}
+				sb.append("\t\t\tsize += ").append(this.tagSize).append(" + ").append(String.format(this.value.size, "x")).append(";\n");
+				if (condition != null) {
+					sb.append("\t\t\t}\n");
+				}
+			}
+			sb.append("\t\t}\n");
+		}
+
+		void appendWrite(StringBuilder sb) {
+			sb.append("\t\t{\n");
+			if (this.array) {
+				sb.append("\t\t\t").append(this.fieldType.getCanonicalName()).append(" a = v.").append(this.getter).append("();\n");
+				sb.append("\t\t\tif (a != null && a.length != 0) {\n");
+				sb.append("\t\t\t\tout.writeVarint32(").append(this.number << 3 | 2).append(");\n");
+				sb.append("\t\t\t\tout.writeVarint32(PackedArrays.size(a));\n");
+				sb.append("\t\t\t\tPackedArrays.write(out, a);\n");
+				sb.append("\t\t\t}\n");
+			} else if (this.repeated) {
+				sb.append("\t\t\t").append(collectionType()).append(" c = v.").append(this.getter).append("();\n");
+				sb.append("\t\t\tif (c != null && !c.isEmpty()) {\n");
+				if (this.packed) {
+					sb.append("\t\t\t\tout.writeVarint32(").append(this.number << 3 | 2).append(");\n");
+					sb.append("\t\t\t\tout.writeVarint32(cache.next());\n");
+					sb.append("\t\t\t\tfor (").append(elementType()).append(" x : c) {\n\t\t\t\t\tif (x != null) {\n");
+					sb.append("\t\t\t\t\t\t").append(String.format(this.value.write, "x")).append("\n\t\t\t\t\t}\n\t\t\t\t}\n");
+				} else {
+					sb.append("\t\t\t\tfor (").append(elementType()).append(" x : c) {\n\t\t\t\t\tif (x != null) {\n");
+					sb.append("\t\t\t\t\t\tout.writeVarint32(").append(tag()).append(");\n");
+					sb.append("\t\t\t\t\t\t").append(String.format(this.value.write, "x")).append("\n\t\t\t\t\t}\n\t\t\t\t}\n");
+				}
+				sb.append("\t\t\t}\n");
+			} else {
+				sb.append("\t\t\t").append(this.fieldType.getCanonicalName()).append(" x = v.").append(this.getter).append("();\n");
+				String condition = condition("x");
+				String indent = condition != null ? "\t\t\t\t" : "\t\t\t";
+				if (condition != null) {
+					sb.append("\t\t\tif (").append(condition).append(") {\n");
+				}
+				sb.append(indent).append("out.writeVarint32(").append(tag()).append(");\n");
+				sb.append(indent).append(String.format(this.value.write, "x")).append("\n");
+				if (condition != null) {
+					sb.append("\t\t\t}\n");
+				}
+			}
+			sb.append("\t\t}\n");
+		}
+
+		int tag() {
+			return this.number << 3 | this.value.wireType;
+		}
+
+		void appendRead(StringBuilder sb) {
+			int tag = tag();
+			if (this.array) {
+				sb.append("\t\t\t\tcase ").append(tag).append(":\n");
+				sb.append("\t\t\t\t\tv.").append(this.setter).append("(PackedArrays.read(in, v.").append(this.getter).append("(), ").append(tag).append("));\n");
+				sb.append("\t\t\t\t\tbreak;\n");
+				sb.append("\t\t\t\tcase ").append(this.number << 3 | 2).append(":\n");
+				sb.append("\t\t\t\t\tv.").append(this.setter).append("(PackedArrays.read(in, v.").append(this.getter).append("()));\n");
+				sb.append("\t\t\t\t\tbreak;\n");
+			} else if (this.repeated) {
+				sb.append("\t\t\t\tcase ").append(tag).append(": {\n");
+				appendAdd(sb, "collection" + this.number + "(v)", "\t\t\t\t\t");
+				sb.append("\t\t\t\t\tbreak;\n\t\t\t\t}\n");
+				if (this.value.isPackable()) {
+					sb.append("\t\t\t\tcase ").append(this.number << 3 | 2).append(": {\n");
+					sb.append("\t\t\t\t\t").append(collectionType()).append(" c = collection").append(this.number).append("(v);\n");
+					sb.append("\t\t\t\t\tint limit = in.pushLimit(in.readLength());\n");
+					sb.append("\t\t\t\t\twhile (!in.isAtEnd()) {\n");
+					appendAdd(sb, "c", "\t\t\t\t\t\t");
+					sb.append("\t\t\t\t\t}\n\t\t\t\t\tin.popLimit(limit);\n\t\t\t\t\tbreak;\n\t\t\t\t}\n");
+				}
+			} else if (this.value.nullable) {
+				sb.append("\t\t\t\tcase ").append(tag).append(": {\n");
+				sb.append("\t\t\t\t\t").append(this.fieldType.getCanonicalName()).append(" x = ").append(this.value.read).append(";\n");
+				sb.append("\t\t\t\t\tif (x != null) {\n\t\t\t\t\t\tv.").append(this.setter).append("(x);\n\t\t\t\t\t}\n");
+				sb.append("\t\t\t\t\tbreak;\n\t\t\t\t}\n");
+			} else {
+				sb.append("\t\t\t\tcase ").append(tag).append(":\n");
+				sb.append("\t\t\t\t\tv.").append(this.setter).append("(").append(this.value.read).append(");\n");
+				sb.append("\t\t\t\t\tbreak;\n");
+			}
+		}
+
+		private void appendAdd(StringBuilder sb, String pCollection, String pIndent) {
+			if (this.value.nullable) {
+				sb.append(pIndent).append(elementType()).append(" x = ").append(this.value.read).append(";\n");
+				sb.append(pIndent).append("if (x != null) {\n");
+				sb.append(pIndent).append("\t").append(pCollection).append(".add(x);\n");
+				sb.append(pIndent).append("}\n");
+			} else {
+				sb.append(pIndent).append(pCollection).append(".add(").append(this.value.read).append(");\n");
+			}
+		}
+
+		void appendHelpers(StringBuilder sb, String pojo) {
+			if (!this.repeated || this.array) {
+				return;
+			}
+			String collection = collectionType();
+			String created = CodecRegistry.collectionClass(this.fieldType).getCanonicalName() + "<" + elementType() + ">";
+			sb.append("\n\tprivate ").append(collection).append(" collection").append(this.number).append("(").append(pojo).append(" v) {\n");
+			sb.append("\t\t").append(collection).append(" c = v.").append(this.getter).append("();\n");
+			sb.append("\t\tif (c == null) {\n");
+			sb.append("\t\t\tc = new ").append(created).append("();\n");
+			sb.append("\t\t\tv.").append(this.setter).append("(c);\n");
+			sb.append("\t\t}\n\t\treturn c;\n\t}\n");
+		}
+	}
+
+	private static Class<?> boxed(Class<?> pType) {
+		if (!pType.isPrimitive()) {
+			return pType;
+		}
+		if (pType == int.class) {
+			return Integer.class;
+		}
+		if (pType == long.class) {
+			return Long.class;
+		}
+		if (pType == short.class) {
+			return Short.class;
+		}
+		if (pType == byte.class) {
+			return Byte.class;
+		}
+		if (pType == float.class) {
+			return Float.class;
+		}
+		if (pType == double.class) {
+			return Double.class;
+		}
+		if (pType == boolean.class) {
+			return Boolean.class;
+		}
+		return Character.class;
+	}
+
+}
@@ -0,0 +1,333 @@
+package com.mfgeek.gb.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.mfgeek.gb.ProtoFile;
+import com.mfgeek.gb.ProtoFile.ProtoField;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Codecs of the POJO classes of a generation run, to serialize their instances to the protobuf
+ * wire format and back without going through protoc generated classes.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Driven by the proto files built by {@link com.mfgeek.gb.ProtoGenerator}: a POJO class is matched
+ * to the proto file of the same simple name, each proto field to the java field of the same name,
+ * in the class or its superclasses. Codecs are built on first use and kept. Decoding needs a
+ * constructor without argument, collections of an interface type are created as {@link ArrayList},
+ * {@link LinkedHashSet} or {@link TreeSet}, maps as {@link LinkedHashMap} or {@link TreeMap}.
+ * Primitive arrays are always packed, see {@link PackedArrays}.
+ * <p>
+ * With generated codecs, each class gets a codec compiled for it at runtime, see
+ * {@link CodecGenerator}. A class the generator does not handle keeps its reflection codec.
+ *
+ * <h3>USAGE</h3>
+ * <code>new CodecRegistry(ProtoGenerator.getInstance().parse(...)).codec(Customer.class).encode(customer)</code>
+ *
+ */
+public class CodecRegistry {
+
+	private static final MethodType										OBJECT_GETTER	= MethodType.methodType(Object.class, Object.class);
+	private static final MethodType										OBJECT_SETTER	= MethodType.methodType(void.class, Object.class, Object.class);
+	private static final MethodType										FACTORY				= MethodType.methodType(Object.class);
+
+	private final MethodHandles.Lookup								lookup				= MethodHandles.lookup();
+	private final Map<String, ProtoFile>							protoFiles		= new HashMap<>();
+	private final Map<Class<?>, ProtoCodec<?>>				codecs				= new HashMap<>();
+	private final Map<Class<?>, ValueCodec.EnumCodec>	enums					= new HashMap<>();
+	private final boolean															generated;
+
+	/**
+	 * @param pProtoFiles the proto files of a generation run
+	 */
+	public CodecRegistry(Collection<ProtoFile> pProtoFiles) {
+		this(pProtoFiles, false);
+	}
+
+	/**
+	 * @param pProtoFiles the proto files of a generation run
+	 * @param pGenerated <code>true</code> to generate a codec class per POJO class
+	 */
+	public CodecRegistry(Collection<ProtoFile> pProtoFiles, boolean pGenerated) {
+		this.generated = pGenerated;
+		for (ProtoFile pf : pProtoFiles) {
+			this.protoFiles.put(pf.getName(), pf);
+		}
+	}
+
+	/**
+	 * @param <T> the POJO class
+	 * @param pClass the POJO class
+	 * @return the codec of the class
+	 * @throws IllegalArgumentException if the class has no message proto file or a field cannot be
+	 *           encoded
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> ProtoCodec<T> codec(Class<T> pClass) {
+		ProtoCodec<?> codec = this.codecs.get(pClass);
+		if (codec == null) {
+			ProtoFile pf = protoFile(pClass);
+			if (pf.isEnum()) {
+				throw new IllegalArgumentException(pClass + " is an enum, not a message");
+			}
+			ReflectionCodec<T> reflectionCodec = new ReflectionCodec<>(pClass, factory(pClass));
+			// registered before its fields are built, for the messages which refer to themselves
+			this.codecs.put(pClass, reflectionCodec);
+			try {
+				reflectionCodec.init(fieldCodecs(pClass, pf));
+			} catch (RuntimeException e) {
+				this.codecs.remove(pClass);
+				throw e;
+			}
+			codec = reflectionCodec;
+			if (this.generated) {
+				ProtoCodec<T> generatedCodec = CodecCompiler.build(new CodecGenerator(pClass, pf, this));
+				if (generatedCodec != null) {
+					this.codecs.put(pClass, generatedCodec);
+					codec = generatedCodec;
+				}
+			}
+		}
+		return (ProtoCodec<T>) codec;
+	}
+
+	/**
+	 * @param pClass a POJO class
+	 * @return the proto file of the class
+	 */
+	ProtoFile protoFile(Class<?> pClass) {
+		ProtoFile pf = this.protoFiles.get(pClass.getSimpleName());
+		if (pf == null) {
+			throw new IllegalArgumentException("no proto file for " + pClass);
+		}
+		return pf;
+	}
+
+	/**
+	 * @param pClass a POJO class
+	 * @param pf its proto file
+	 * @return the codecs of its fields, in field number order
+	 */
+	private FieldCodec[] fieldCodecs(Class<?> pClass, ProtoFile pf) {
+		boolean proto3 = "proto3".equals(pf.getSyntax());
+		List<FieldCodec> fields = new ArrayList<>();
+		for (ProtoField f : pf.getFields()) {
+			Field field = findField(pClass, f.getName());
+			MethodHandle getter;
+			MethodHandle setter;
+			try {
+				field.setAccessible(true);
+				getter = this.lookup.unreflectGetter(field);
+				setter = this.lookup.unreflectSetter(field);
+			} catch (IllegalAccessException | RuntimeException e) {
+				throw new IllegalArgumentException("cannot access " + field, e);
+			}
+			if (f.getKeyType() != null) {
+				fields.add(new FieldCodec.MapField(f.getIndex(), getter.asType(OBJECT_GETTER), setter.asType(OBJECT_SETTER), factory(mapClass(field.getType())),
+						ValueCodec.scalar(f.getKeyType(), typeArgument(field, 0)), valueCodec(f, typeArgument(field, 1))));
+			} else if (f.isRepeated() && field.getType().isArray() && field.getType().getComponentType().isPrimitive()) {
+				fields.add(new FieldCodec.ArrayField(f.getIndex(), getter.asType(OBJECT_GETTER), setter.asType(OBJECT_SETTER), field.getType().getComponentType()));
+			} else if (f.isRepeated()) {
+				fields.add(new FieldCodec.RepeatedField(f.getIndex(), getter.asType(OBJECT_GETTER), setter.asType(OBJECT_SETTER), collectionFactory(field.getType()),
+						valueCodec(f, elementType(field)), proto3 || f.isPacked()));
+			} else if (field.getType().isPrimitive()) {
+				fields.add(primitiveField(f, getter, setter, proto3));
+			} else {
+				fields.add(new FieldCodec.ObjectField(f.getIndex(), getter.asType(OBJECT_GETTER), setter.asType(OBJECT_SETTER), proto3, valueCodec(f, field.getType())));
+			}
+		}
+		return fields.toArray(new FieldCodec[fields.size()]);
+	}
+
+	/**
+	 * @param f a proto field
+	 * @param pGetter the getter of a primitive java field
+	 * @param pSetter its setter
+	 * @param pProto3 <code>true</code> to skip default values
+	 * @return the field codec, accessing the value without boxing it
+	 */
+	private FieldCodec primitiveField(ProtoField f, MethodHandle pGetter, MethodHandle pSetter, boolean pProto3) {
+		switch (f.getType()) {
+			case "int32":
+				return new FieldCodec.IntField(f.getIndex(), pGetter.asType(getterType(int.class)), narrow(pSetter, int.class), pProto3);
+			case "int64":
+				return new FieldCodec.LongField(f.getIndex(), pGetter.asType(getterType(long.class)), narrow(pSetter, long.class), pProto3);
+			case "float":
+				return new FieldCodec.FloatField(f.getIndex(), pGetter.asType(getterType(float.class)), narrow(pSetter, float.class), pProto3);
+			case "double":
+				return new FieldCodec.DoubleField(f.getIndex(), pGetter.asType(getterType(double.class)), narrow(pSetter, double.class), pProto3);
+			case "bool":
+				return new FieldCodec.BoolField(f.getIndex(), pGetter.asType(getterType(boolean.class)), narrow(pSetter, boolean.class), pProto3);
+			default:
+				throw new IllegalArgumentException("cannot encode field " + f.getName() + " of type " + f.getType());
+		}
+	}
+
+	/**
+	 * @param f a proto field
+	 * @param pJavaType the java type of the values
+	 * @return the codec of the values
+	 */
+	private ValueCodec valueCodec(ProtoField f, Class<?> pJavaType) {
+		if (f.getType() == null) {
+			throw new IllegalArgumentException("cannot encode field " + f.getName() + " of unresolved type");
+		}
+		ValueCodec codec = ValueCodec.scalar(f.getType(), pJavaType);
+		if (codec != null) {
+			return codec;
+		}
+		if (pJavaType.isEnum()) {
+			return enumCodec(pJavaType);
+		}
+		return new ValueCodec.MessageCodec(codec(pJavaType));
+	}
+
+	/**
+	 * @param pEnum an enum class
+	 * @return the codec of its constants
+	 */
+	ValueCodec.EnumCodec enumCodec(Class<?> pEnum) {
+		ValueCodec.EnumCodec codec = this.enums.get(pEnum);
+		if (codec == null) {
+			Map<String, Integer> numbers = new HashMap<>();
+			for (ProtoField f : protoFile(pEnum).getFields()) {
+				numbers.put(f.getName(), f.getIndex() - 1);
+			}
+			Object[] constants = pEnum.getEnumConstants();
+			int[] byOrdinal = new int[constants.length];
+			for (int i = 0; i < constants.length; i++) {
+				Integer number = numbers.get(((Enum<?>) constants[i]).name());
+				byOrdinal[i] = number != null ? number : i;
+			}
+			codec = new ValueCodec.EnumCodec(constants, byOrdinal);
+			this.enums.put(pEnum, codec);
+		}
+		return codec;
+	}
+
+	private static MethodType getterType(Class<?> pType) {
+		return MethodType.methodType(pType, Object.class);
+	}
+
+	/**
+	 * @param pSetter the setter of a primitive field
+	 * @param pType the java type of the proto type, at least as wide as the field type
+	 * @return the setter typed <code>(Object, pType)void</code>, narrowing the value to the field type
+	 */
+	private static MethodHandle narrow(MethodHandle pSetter, Class<?> pType) {
+		return MethodHandles.explicitCastArguments(pSetter, MethodType.methodType(void.class, Object.class, pType));
+	}
+
+	/**
+	 * @param pClass a class
+	 * @return its constructor without argument typed <code>()Object</code>, <code>null</code> if none
+	 */
+	private MethodHandle factory(Class<?> pClass) {
+		if (pClass.isInterface() || Modifier.isAbstract(pClass.getModifiers())) {
+			return null;
+		}
+		try {
+			Constructor<?> constructor = pClass.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return this.lookup.unreflectConstructor(constructor).asType(FACTORY);
+		} catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param pType the java type of a collection field
+	 * @return the factory of the collections of this type, <code>null</code> if none
+	 */
+	private MethodHandle collectionFactory(Class<?> pType) {
+		return factory(collectionClass(pType));
+	}
+
+	/**
+	 * @param pType the java type of a collection field
+	 * @return the class of the collections created when decoding
+	 */
+	static Class<?> collectionClass(Class<?> pType) {
+		if (pType.isAssignableFrom(ArrayList.class)) {
+			return ArrayList.class;
+		}
+		if (pType.isAssignableFrom(LinkedHashSet.class)) {
+			return LinkedHashSet.class;
+		}
+		if (pType.isAssignableFrom(TreeSet.class)) {
+			return TreeSet.class;
+		}
+		return pType;
+	}
+
+	/**
+	 * @param pType the java type of a map field
+	 * @return the class of the maps created when decoding
+	 */
+	static Class<?> mapClass(Class<?> pType) {
+		if (pType.isAssignableFrom(LinkedHashMap.class)) {
+			return LinkedHashMap.class;
+		}
+		if (pType.isAssignableFrom(TreeMap.class)) {
+			return TreeMap.class;
+		}
+		return pType;
+	}
+
+	/**
+	 * @param pClass a class
+	 * @param pName a field name
+	 * @return the field, declared by the class or one of its superclasses
+	 */
+	static Field findField(Class<?> pClass, String pName) {
+		for (Class<?> c = pClass; c != null; c = c.getSuperclass()) {
+			try {
+				return c.getDeclaredField(pName);
+			} catch (NoSuchFieldException e) {
+				// look in the superclass
+			}
+		}
+		throw new IllegalArgumentException("no field " + pName + " in " + pClass);
+	}
+
+	/**
+	 * @param pField a collection field
+	 * @return the class of its elements
+	 */
+	static Class<?> elementType(Field pField) {
+		return typeArgument(pField, 0);
+	}
+
+	/**
+	 * @param pField a field of a parameterized type
+	 * @param pIndex the index of the type argument
+	 * @return the type argument, a class
+	 */
+	static Class<?> typeArgument(Field pField, int pIndex) {
+		Type type = pField.getGenericType();
+		if (type instanceof ParameterizedType) {
+			Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+			if (pIndex < arguments.length && arguments[pIndex] instanceof Class) {
+				return (Class<?>) arguments[pIndex];
+			}
+		}
+		throw new IllegalArgumentException("cannot find the type argument " + pIndex + " of " + pField);
+	}
+
+}
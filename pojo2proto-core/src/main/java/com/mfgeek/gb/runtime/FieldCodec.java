@@ -0,0 +1,578 @@
+package com.mfgeek.gb.runtime;
+
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_FIXED32;
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_FIXED64;
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_LENGTH_DELIMITED;
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_VARINT;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Encoding and decoding of one field of a POJO.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Values are read through a {@link MethodHandle} getter and written through a setter. Singular
+ * fields of a primitive java type have accessors typed with that primitive, so they are never
+ * boxed.
+ *
+ * <h3>USAGE</h3>
+ * Built by {@link CodecRegistry}, used by {@link ReflectionCodec}.
+ *
+ */
+abstract class FieldCodec {
+
+	final int						number;
+	final int						wireType;
+	final MethodHandle	getter;
+	final MethodHandle	setter;
+	/** proto3: singular fields holding their default value are not written */
+	final boolean				skipDefault;
+
+	/**
+	 * @param pNumber the field number
+	 * @param pWireType the wire type of the values
+	 * @param pGetter the getter, typed <code>(Object)</code> to the field type
+	 * @param pSetter the setter, typed <code>(Object, field type)void</code>
+	 * @param pSkipDefault <code>true</code> for proto3
+	 */
+	FieldCodec(int pNumber, int pWireType, MethodHandle pGetter, MethodHandle pSetter, boolean pSkipDefault) {
+		this.number = pNumber;
+		this.wireType = pWireType;
+		this.getter = pGetter;
+		this.setter = pSetter;
+		this.skipDefault = pSkipDefault;
+	}
+
+	/**
+	 * @param pWireType the wire type of a record of this field
+	 * @return <code>true</code> if the record can be read, otherwise it is skipped
+	 */
+	boolean accepts(int pWireType) {
+		return pWireType == this.wireType;
+	}
+
+	/**
+	 * @param pMessage the instance
+	 * @param pCache the size cache of the encoding
+	 * @return the size of the field, tags included
+	 * @throws Throwable if the getter fails
+	 */
+	abstract int size(Object pMessage, SizeCache pCache) throws Throwable;
+
+	/**
+	 * @param pMessage the instance
+	 * @param pOut the output
+	 * @param pCache the size cache of the encoding
+	 * @throws Throwable if the getter fails
+	 */
+	abstract void write(Object pMessage, ProtoOutput pOut, SizeCache pCache) throws Throwable;
+
+	/**
+	 * @param pMessage the instance
+	 * @param pIn the input, positioned after the tag
+	 * @param pWireType the wire type of the record, accepted by {@link #accepts(int)}
+	 * @throws Throwable if an accessor fails
+	 */
+	abstract void read(Object pMessage, ProtoInput pIn, int pWireType) throws Throwable;
+
+	/**
+	 * <code>int32</code> from an <code>int</code>, <code>short</code> or <code>byte</code>.
+	 */
+	static final class IntField extends FieldCodec {
+
+		IntField(int pNumber, MethodHandle pGetter, MethodHandle pSetter, boolean pSkipDefault) {
+			super(pNumber, WIRETYPE_VARINT, pGetter, pSetter, pSkipDefault);
+		}
+
+		@Override
+		int size(Object pMessage, SizeCache pCache) throws Throwable {
+			int value = (int) this.getter.invokeExact(pMessage);
+			return this.skipDefault && value == 0 ? 0 : ProtoOutput.tagSize(this.number) + ProtoOutput.varint32Size(value);
+		}
+
+		@Override
+		void write(Object pMessage, ProtoOutput pOut, SizeCache pCache) throws Throwable {
+			int value = (int) this.getter.invokeExact(pMessage);
+			if (!this.skipDefault || value != 0) {
+				pOut.writeTag(this.number, WIRETYPE_VARINT);
+				pOut.writeVarint32(value);
+			}
+		}
+
+		@Override
+		void read(Object pMessage, ProtoInput pIn, int pWireType) throws Throwable {
+			this.setter.invokeExact(pMessage, pIn.readVarint32());
+		}
+	}
+
+	/**
+	 * <code>int64</code> from a <code>long</code>.
+	 */
+	static final class LongField extends FieldCodec {
+
+		LongField(int pNumber, MethodHandle pGetter, MethodHandle pSetter, boolean pSkipDefault) {
+			super(pNumber, WIRETYPE_VARINT, pGetter, pSetter, pSkipDefault);
+		}
+
+		@Override
+		int size(Object pMessage, SizeCache pCache) throws Throwable {
+			long value = (long) this.getter.invokeExact(pMessage);
+			return this.skipDefault && value == 0 ? 0 : ProtoOutput.tagSize(this.number) + ProtoOutput.varint64Size(value);
+		}
+
+		@Override
+		void write(Object pMessage, ProtoOutput pOut, SizeCache pCache) throws Throwable {
+			long value = (long) this.getter.invokeExact(pMessage);
+			if (!this.skipDefault || value != 0) {
+				pOut.writeTag(this.number, WIRETYPE_VARINT);
+				pOut.writeVarint64(value);
+			}
+		}
+
+		@Override
+		void read(Object pMessage, ProtoInput pIn, int pWireType) throws Throwable {
+			this.setter.invokeExact(pMessage, pIn.readVarint64());
+		}
+	}
+
+	/**
+	 * <code>float</code> from a <code>float</code>.
+	 */
+	static final class FloatField extends FieldCodec {
+
+		FloatField(int pNumber, MethodHandle pGetter, MethodHandle pSetter, boolean pSkipDefault) {
+			super(pNumber, WIRETYPE_FIXED32, pGetter, pSetter, pSkipDefault);
+		}
+
+		@Override
+		int size(Object pMessage, SizeCache pCache) throws Throwable {
+			int bits = Float.floatToRawIntBits((float) this.getter.invokeExact(pMessage));
+			return this.skipDefault && bits == 0 ? 0 : ProtoOutput.tagSize(this.number) + 4;
+		}
+
+		@Override
+		void write(Object pMessage, ProtoOutput pOut, SizeCache pCache) throws Throwable {
+			int bits = Float.floatToRawIntBits((float) this.getter.invokeExact(pMessage));
+			if (!this.skipDefault || bits != 0) {
+				pOut.writeTag(this.number, WIRETYPE_FIXED32);
+				pOut.writeFixed32(bits);
+			}
+		}
+
+		@Override
+		void read(Object pMessage, ProtoInput pIn, int pWireType) throws Throwable {
+			this.setter.invokeExact(pMessage, Float.intBitsToFloat(pIn.readFixed32()));
+		}
+	}
+
+	/**
+	 * <code>double</code> from a <code>double</code>.
+	 */
+	static final class DoubleField extends FieldCodec {
+
+		DoubleField(int pNumber, MethodHandle pGetter, MethodHandle pSetter, boolean pSkipDefault) {
+			super(pNumber, WIRETYPE_FIXED64, pGetter, pSetter, pSkipDefault);
+		}
+
+		@Override
+		int size(Object pMessage, SizeCache pCache) throws Throwable {
+			long bits = Double.doubleToRawLongBits((double) this.getter.invokeExact(pMessage));
+			return this.skipDefault && bits == 0 ? 0 : ProtoOutput.tagSize(this.number) + 8;
+		}
+
+		@Override
+		void write(Object pMessage, ProtoOutput pOut, SizeCache pCache) throws Throwable {
+			long bits = Double.doubleToRawLongBits((double) this.getter.invokeExact(pMessage));
+			if (!this.skipDefault || bits != 0) {
+				pOut.writeTag(this.number, WIRETYPE_FIXED64);
+				pOut.writeFixed64(bits);
+			}
+		}
+
+		@Override
+		void read(Object pMessage, ProtoInput pIn, int pWireType) throws Throwable {
+			this.setter.invokeExact(pMessage, Double.longBitsToDouble(pIn.readFixed64()));
+		}
+	}
+
+	/**
+	 * <code>bool</code> from a <code>boolean</code>.
+	 */
+	static final class BoolField extends FieldCodec {
+
+		BoolField(int pNumber, MethodHandle pGetter, MethodHandle pSetter, boolean pSkipDefault) {
+			super(pNumber, WIRETYPE_VARINT, pGetter, pSetter, pSkipDefault);
+		}
+
+		@Override
+		int size(Object pMessage, SizeCache pCache) throws Throwable {
+			boolean value = (boolean) this.getter.invokeExact(pMessage);
+			return this.skipDefault && !value ? 0 : ProtoOutput.tagSize(this.number) + 1;
+		}
+
+		@Override
+		void write(Object pMessage, ProtoOutput pOut, SizeCache pCache) throws Throwable {
+			boolean value = (boolean) this.getter.invokeExact(pMessage);
+			if (!this.skipDefault || value) {
+				pOut.writeTag(this.number, WIRETYPE_VARINT);
+				pOut.writeBool(value);
+			}
+		}
+
+		@Override
+		void read(Object pMessage, ProtoInput pIn, int pWireType) throws Throwable {
+			this.setter.invokeExact(pMessage, pIn.readBool());
+		}
+	}
+
+	/**
+	 * Any singular field holding an object: boxed scalar, string, date, enum or nested message.
+	 * <code>null</code> is never written.
+	 */
+	static final class ObjectField extends FieldCodec {
+
+		private final ValueCodec codec;
+
+		ObjectField(int pNumber, MethodHandle pGetter, MethodHandle pSetter, boolean pSkipDefault, ValueCodec pCodec) {
+			super(pNumber, pCodec.wireType, pGetter, pSetter, pSkipDefault);
+			this.codec = pCodec;
+		}
+
+		@Override
+		int size(Object pMessage, SizeCache pCache) throws Throwable {
+			Object value = this.getter.invokeExact(pMessage);
+			if (value == null || this.skipDefault && this.codec.isDefault(value)) {
+				return 0;
+			}
+			return ProtoOutput.tagSize(this.number) + this.codec.size(value, pCache);
+		}
+
+		@Override
+		void write(Object pMessage, ProtoOutput pOut, SizeCache pCache) throws Throwable {
+			Object value = this.getter.invokeExact(pMessage);
+			if (value == null || this.skipDefault && this.codec.isDefault(value)) {
+				return;
+			}
+			pOut.writeTag(this.number, this.codec.wireType);
+			this.codec.write(value, pOut, pCache);
+		}
+
+		@Override
+		void read(Object pMessage, ProtoInput pIn, int pWireType) throws Throwable {
+			Object value = this.codec.read(pIn);
+			if (value != null) {
+				this.setter.invokeExact(pMessage, value);
+			}
+		}
+	}
+
+	/**
+	 * Collection field, packed in a single length delimited record when asked for and possible.
+	 * <code>null</code> elements are never written. Both packed and unpacked records are read, into
+	 * the collection already held by the instance when there is one.
+	 */
+	static final class RepeatedField extends FieldCodec {
+
+		private final ValueCodec		codec;
+		private final boolean				packed;
+		/** <code>()Object</code>, creates the collection when the instance holds none */
+		private final MethodHandle	factory;
+
+		RepeatedField(int pNumber, MethodHandle pGetter, MethodHandle pSetter, MethodHandle pFactory, ValueCodec pCodec, boolean pPacked) {
+			super(pNumber, pCodec.wireType, pGetter, pSetter, false);
+			this.codec = pCodec;
+			this.packed = pPacked && pCodec.isPackable();
+			this.factory = pFactory;
+		}
+
+		@Override
+		boolean accepts(int pWireType) {
+			return pWireType == this.wireType || pWireType == WIRETYPE_LENGTH_DELIMITED && this.codec.isPackable();
+		}
+
+		@Override
+		int size(Object pMessage, SizeCache pCache) throws Throwable {
+			Object field = this.getter.invokeExact(pMessage);
+			Collection<?> values = (Collection<?>) field;
+			if (values == null || values.isEmpty()) {
+				return 0;
+			}
+			int size = 0;
+			if (this.packed) {
+				int slot = pCache.reserve();
+				for (Object value : values) {
+					if (value != null) {
+						size += this.codec.size(value, pCache);
+					}
+				}
+				pCache.set(slot, size);
+				return ProtoOutput.tagSize(this.number) + ProtoOutput.varint32Size(size) + size;
+			}
+			int tagSize = ProtoOutput.tagSize(this.number);
+			for (Object value : values) {
+				if (value != null) {
+					size += tagSize + this.codec.size(value, pCache);
+				}
+			}
+			return size;
+		}
+
+		@Override
+		void write(Object pMessage, ProtoOutput pOut, SizeCache pCache) throws Throwable {
+			Object field = this.getter.invokeExact(pMessage);
+			Collection<?> values = (Collection<?>) field;
+			if (values == null || values.isEmpty()) {
+				return;
+			}
+			if (this.packed) {
+				pOut.writeTag(this.number, WIRETYPE_LENGTH_DELIMITED);
+				pOut.writeVarint32(pCache.next());
+				for (Object value : values) {
+					if (value != null) {
+						this.codec.write(value, pOut, pCache);
+					}
+				}
+				return;
+			}
+			for (Object value : values) {
+				if (value != null) {
+					pOut.writeTag(this.number, this.codec.wireType);
+					this.codec.write(value, pOut, pCache);
+				}
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		void read(Object pMessage, ProtoInput pIn, int pWireType) throws Throwable {
+			Object field = this.getter.invokeExact(pMessage);
+			if (field == null) {
+				if (this.factory == null) {
+					throw new IllegalStateException("cannot create the collection of field " + this.number);
+				}
+				field = this.factory.invokeExact();
+				this.setter.invokeExact(pMessage, field);
+			}
+			Collection<Object> values = (Collection<Object>) field;
+			if (pWireType == WIRETYPE_LENGTH_DELIMITED && this.codec.isPackable()) {
+				int limit = pIn.pushLimit(pIn.readLength());
+				while (!pIn.isAtEnd()) {
+					add(values, this.codec.read(pIn));
+				}
+				pIn.popLimit(limit);
+			} else {
+				add(values, this.codec.read(pIn));
+			}
+		}
+
+		private static void add(Collection<Object> pValues, Object pValue) {
+			if (pValue != null) {
+				pValues.add(pValue);
+			}
+		}
+	}
+
+	/**
+	 * Map field, one length delimited entry record per entry, holding the key as field 1 and the value
+	 * as field 2, both always written. Entries with a <code>null</code> key or value are never
+	 * written, entries read without a key or a value are dropped.
+	 */
+	static final class MapField extends FieldCodec {
+
+		private static final int		KEY_TAG		= 1 << 3;
+		private static final int		VALUE_TAG	= 2 << 3;
+
+		private final ValueCodec		keyCodec;
+		private final ValueCodec		valueCodec;
+		/** <code>()Object</code>, creates the map when the instance holds none */
+		private final MethodHandle	factory;
+
+		MapField(int pNumber, MethodHandle pGetter, MethodHandle pSetter, MethodHandle pFactory, ValueCodec pKeyCodec, ValueCodec pValueCodec) {
+			super(pNumber, WIRETYPE_LENGTH_DELIMITED, pGetter, pSetter, false);
+			this.keyCodec = pKeyCodec;
+			this.valueCodec = pValueCodec;
+			this.factory = pFactory;
+		}
+
+		@Override
+		int size(Object pMessage, SizeCache pCache) throws Throwable {
+			Object field = this.getter.invokeExact(pMessage);
+			Map<?, ?> entries = (Map<?, ?>) field;
+			if (entries == null || entries.isEmpty()) {
+				return 0;
+			}
+			int tagSize = ProtoOutput.tagSize(this.number);
+			int size = 0;
+			for (Map.Entry<?, ?> entry : entries.entrySet()) {
+				if (entry.getKey() != null && entry.getValue() != null) {
+					int slot = pCache.reserve();
+					// the tags of the key and of the value take a byte each
+					int entrySize = 2 + this.keyCodec.size(entry.getKey(), pCache) + this.valueCodec.size(entry.getValue(), pCache);
+					pCache.set(slot, entrySize);
+					size += tagSize + ProtoOutput.varint32Size(entrySize) + entrySize;
+				}
+			}
+			return size;
+		}
+
+		@Override
+		void write(Object pMessage, ProtoOutput pOut, SizeCache pCache) throws Throwable {
+			Object field = this.getter.invokeExact(pMessage);
+			Map<?, ?> entries = (Map<?, ?>) field;
+			if (entries == null || entries.isEmpty()) {
+				return;
+			}
+			for (Map.Entry<?, ?> entry : entries.entrySet()) {
+				if (entry.getKey() != null && entry.getValue() != null) {
+					pOut.writeTag(this.number, WIRETYPE_LENGTH_DELIMITED);
+					pOut.writeVarint32(pCache.next());
+					pOut.writeTag(1, this.keyCodec.wireType);
+					this.keyCodec.write(entry.getKey(), pOut, pCache);
+					pOut.writeTag(2, this.valueCodec.wireType);
+					this.valueCodec.write(entry.getValue(), pOut, pCache);
+				}
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		void read(Object pMessage, ProtoInput pIn, int pWireType) throws Throwable {
+			Object field = this.getter.invokeExact(pMessage);
+			if (field == null) {
+				if (this.factory == null) {
+					throw new IllegalStateException("cannot create the map of field " + this.number);
+				}
+				field = this.factory.invokeExact();
+				this.setter.invokeExact(pMessage, field);
+			}
+			Object key = null;
+			Object value = null;
+			int limit = pIn.pushLimit(pIn.readLength());
+			while (!pIn.isAtEnd()) {
+				int tag = pIn.readTag();
+				if (tag == (KEY_TAG | this.keyCodec.wireType)) {
+					key = this.keyCodec.read(pIn);
+				} else if (tag == (VALUE_TAG | this.valueCodec.wireType)) {
+					value = this.valueCodec.read(pIn);
+				} else {
+					pIn.skipField(tag);
+				}
+			}
+			pIn.popLimit(limit);
+			if (key != null && value != null) {
+				((Map<Object, Object>) field).put(key, value);
+			}
+		}
+	}
+
+	/**
+	 * Primitive array, always packed, never boxed. A <code>null</code> or empty array is not written.
+	 */
+	static final class ArrayField extends FieldCodec {
+
+		private final Class<?> componentType;
+
+		/**
+		 * @param pGetter the getter, typed <code>(Object)Object</code>
+		 * @param pSetter the setter, typed <code>(Object, Object)void</code>
+		 * @param pComponentType <code>int</code>, <code>short</code>, <code>long</code>,
+		 *          <code>float</code>, <code>double</code> or <code>boolean</code>
+		 */
+		ArrayField(int pNumber, MethodHandle pGetter, MethodHandle pSetter, Class<?> pComponentType) {
+			super(pNumber, elementWireType(pComponentType), pGetter, pSetter, false);
+			this.componentType = pComponentType;
+		}
+
+		private static int elementWireType(Class<?> pComponentType) {
+			if (pComponentType == float.class) {
+				return WIRETYPE_FIXED32;
+			}
+			if (pComponentType == double.class) {
+				return WIRETYPE_FIXED64;
+			}
+			return WIRETYPE_VARINT;
+		}
+
+		private int payloadSize(Object pArray) {
+			Class<?> c = this.componentType;
+			if (c == int.class) {
+				return PackedArrays.size((int[]) pArray);
+			} else if (c == long.class) {
+				return PackedArrays.size((long[]) pArray);
+			} else if (c == double.class) {
+				return PackedArrays.size((double[]) pArray);
+			} else if (c == float.class) {
+				return PackedArrays.size((float[]) pArray);
+			} else if (c == short.class) {
+				return PackedArrays.size((short[]) pArray);
+			}
+			return PackedArrays.size((boolean[]) pArray);
+		}
+
+		@Override
+		boolean accepts(int pWireType) {
+			return pWireType == this.wireType || pWireType == WIRETYPE_LENGTH_DELIMITED;
+		}
+
+		@Override
+		int size(Object pMessage, SizeCache pCache) throws Throwable {
+			Object array = this.getter.invokeExact(pMessage);
+			if (array == null || Array.getLength(array) == 0) {
+				return 0;
+			}
+			int size = payloadSize(array);
+			return ProtoOutput.tagSize(this.number) + ProtoOutput.varint32Size(size) + size;
+		}
+
+		@Override
+		void write(Object pMessage, ProtoOutput pOut, SizeCache pCache) throws Throwable {
+			Object array = this.getter.invokeExact(pMessage);
+			if (array == null || Array.getLength(array) == 0) {
+				return;
+			}
+			pOut.writeTag(this.number, WIRETYPE_LENGTH_DELIMITED);
+			pOut.writeVarint32(payloadSize(array));
+			Class<?> c = this.componentType;
+			if (c == int.class) {
+				PackedArrays.write(pOut, (int[]) array);
+			} else if (c == long.class) {
+				PackedArrays.write(pOut, (long[]) array);
+			} else if (c == double.class) {
+				PackedArrays.write(pOut, (double[]) array);
+			} else if (c == float.class) {
+				PackedArrays.write(pOut, (float[]) array);
+			} else if (c == short.class) {
+				PackedArrays.write(pOut, (short[]) array);
+			} else {
+				PackedArrays.write(pOut, (boolean[]) array);
+			}
+		}
+
+		@Override
+		void read(Object pMessage, ProtoInput pIn, int pWireType) throws Throwable {
+			Object array = this.getter.invokeExact(pMessage);
+			boolean packed = pWireType == WIRETYPE_LENGTH_DELIMITED;
+			int tag = this.number << 3 | pWireType;
+			Class<?> c = this.componentType;
+			if (c == int.class) {
+				array = packed ? PackedArrays.read(pIn, (int[]) array) : PackedArrays.read(pIn, (int[]) array, tag);
+			} else if (c == long.class) {
+				array = packed ? PackedArrays.read(pIn, (long[]) array) : PackedArrays.read(pIn, (long[]) array, tag);
+			} else if (c == double.class) {
+				array = packed ? PackedArrays.read(pIn, (double[]) array) : PackedArrays.read(pIn, (double[]) array, tag);
+			} else if (c == float.class) {
+				array = packed ? PackedArrays.read(pIn, (float[]) array) : PackedArrays.read(pIn, (float[]) array, tag);
+			} else if (c == short.class) {
+				array = packed ? PackedArrays.read(pIn, (short[]) array) : PackedArrays.read(pIn, (short[]) array, tag);
+			} else {
+				array = packed ? PackedArrays.read(pIn, (boolean[]) array) : PackedArrays.read(pIn, (boolean[]) array, tag);
+			}
+			this.setter.invokeExact(pMessage, array);
+		}
+	}
+
+}
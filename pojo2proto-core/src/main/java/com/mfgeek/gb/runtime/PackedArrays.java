@@ -0,0 +1,251 @@
+package com.mfgeek.gb.runtime;
+
+import java.util.Arrays;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Packed encoding of primitive arrays, without boxing any element.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * A packed record holds the values one after the other. Decoding counts the values of the record
+ * first, varints by their last byte, so the array is allocated once at its final size. An unpacked
+ * record is read with the records of the same field which follow it, counted first as well, so a
+ * field written unpacked is copied once rather than once per value. Records add up like repeated
+ * fields do: decoding appends to the array already held by the instance.
+ *
+ * <h3>USAGE</h3>
+ * Used by the reflection codecs and by the generated ones: <code>size</code> gives the payload
+ * size of a record, <code>write</code> writes the payload, <code>read</code> reads a packed record,
+ * or, given its tag, a run of unpacked records.
+ *
+ */
+public final class PackedArrays {
+
+	private PackedArrays() {
+	}
+
+	public static int size(int[] pValues) {
+		int size = 0;
+		for (int value : pValues) {
+			size += ProtoOutput.varint32Size(value);
+		}
+		return size;
+	}
+
+	public static int size(short[] pValues) {
+		int size = 0;
+		for (short value : pValues) {
+			size += ProtoOutput.varint32Size(value);
+		}
+		return size;
+	}
+
+	public static int size(long[] pValues) {
+		int size = 0;
+		for (long value : pValues) {
+			size += ProtoOutput.varint64Size(value);
+		}
+		return size;
+	}
+
+	public static int size(float[] pValues) {
+		return pValues.length * 4;
+	}
+
+	public static int size(double[] pValues) {
+		return pValues.length * 8;
+	}
+
+	public static int size(boolean[] pValues) {
+		return pValues.length;
+	}
+
+	public static void write(ProtoOutput pOut, int[] pValues) {
+		for (int value : pValues) {
+			pOut.writeVarint32(value);
+		}
+	}
+
+	public static void write(ProtoOutput pOut, short[] pValues) {
+		for (short value : pValues) {
+			pOut.writeVarint32(value);
+		}
+	}
+
+	public static void write(ProtoOutput pOut, long[] pValues) {
+		for (long value : pValues) {
+			pOut.writeVarint64(value);
+		}
+	}
+
+	public static void write(ProtoOutput pOut, float[] pValues) {
+		for (float value : pValues) {
+			pOut.writeFixed32(Float.floatToRawIntBits(value));
+		}
+	}
+
+	public static void write(ProtoOutput pOut, double[] pValues) {
+		for (double value : pValues) {
+			pOut.writeFixed64(Double.doubleToRawLongBits(value));
+		}
+	}
+
+	public static void write(ProtoOutput pOut, boolean[] pValues) {
+		for (boolean value : pValues) {
+			pOut.writeBool(value);
+		}
+	}
+
+	/**
+	 * @param pIn the input, positioned on the length of a packed record
+	 * @param pValues the values already decoded, <code>null</code> if none
+	 * @return the values followed by the ones of the record
+	 */
+	public static int[] read(ProtoInput pIn, int[] pValues) {
+		int limit = pIn.pushLimit(pIn.readLength());
+		int offset = pValues == null ? 0 : pValues.length;
+		int[] values = pValues == null ? new int[pIn.countVarints()] : Arrays.copyOf(pValues, offset + pIn.countVarints());
+		for (int i = offset; i < values.length; i++) {
+			values[i] = pIn.readVarint32();
+		}
+		pIn.popLimit(limit);
+		return values;
+	}
+
+	public static short[] read(ProtoInput pIn, short[] pValues) {
+		int limit = pIn.pushLimit(pIn.readLength());
+		int offset = pValues == null ? 0 : pValues.length;
+		short[] values = pValues == null ? new short[pIn.countVarints()] : Arrays.copyOf(pValues, offset + pIn.countVarints());
+		for (int i = offset; i < values.length; i++) {
+			values[i] = (short) pIn.readVarint32();
+		}
+		pIn.popLimit(limit);
+		return values;
+	}
+
+	public static long[] read(ProtoInput pIn, long[] pValues) {
+		int limit = pIn.pushLimit(pIn.readLength());
+		int offset = pValues == null ? 0 : pValues.length;
+		long[] values = pValues == null ? new long[pIn.countVarints()] : Arrays.copyOf(pValues, offset + pIn.countVarints());
+		for (int i = offset; i < values.length; i++) {
+			values[i] = pIn.readVarint64();
+		}
+		pIn.popLimit(limit);
+		return values;
+	}
+
+	public static float[] read(ProtoInput pIn, float[] pValues) {
+		int length = pIn.readLength();
+		int offset = pValues == null ? 0 : pValues.length;
+		float[] values = pValues == null ? new float[length / 4] : Arrays.copyOf(pValues, offset + length / 4);
+		int limit = pIn.pushLimit(length);
+		for (int i = offset; i < values.length; i++) {
+			values[i] = Float.intBitsToFloat(pIn.readFixed32());
+		}
+		pIn.popLimit(limit);
+		return values;
+	}
+
+	public static double[] read(ProtoInput pIn, double[] pValues) {
+		int length = pIn.readLength();
+		int offset = pValues == null ? 0 : pValues.length;
+		double[] values = pValues == null ? new double[length / 8] : Arrays.copyOf(pValues, offset + length / 8);
+		int limit = pIn.pushLimit(length);
+		for (int i = offset; i < values.length; i++) {
+			values[i] = Double.longBitsToDouble(pIn.readFixed64());
+		}
+		pIn.popLimit(limit);
+		return values;
+	}
+
+	public static boolean[] read(ProtoInput pIn, boolean[] pValues) {
+		int limit = pIn.pushLimit(pIn.readLength());
+		int offset = pValues == null ? 0 : pValues.length;
+		boolean[] values = pValues == null ? new boolean[pIn.countVarints()] : Arrays.copyOf(pValues, offset + pIn.countVarints());
+		for (int i = offset; i < values.length; i++) {
+			values[i] = pIn.readBool();
+		}
+		pIn.popLimit(limit);
+		return values;
+	}
+
+	/**
+	 * @param pIn the input, positioned on the value of an unpacked record
+	 * @param pValues the values already decoded, <code>null</code> if none
+	 * @param pTag the tag of the record
+	 * @return the values followed by the one of the record and the ones of the records with the same
+	 *         tag right after it
+	 */
+	public static int[] read(ProtoInput pIn, int[] pValues, int pTag) {
+		int offset = pValues == null ? 0 : pValues.length;
+		int[] values = pValues == null ? new int[pIn.countRun(pTag)] : Arrays.copyOf(pValues, offset + pIn.countRun(pTag));
+		for (int i = offset; i < values.length; i++) {
+			if (i > offset) {
+				pIn.readTag();
+			}
+			values[i] = pIn.readVarint32();
+		}
+		return values;
+	}
+
+	public static short[] read(ProtoInput pIn, short[] pValues, int pTag) {
+		int offset = pValues == null ? 0 : pValues.length;
+		short[] values = pValues == null ? new short[pIn.countRun(pTag)] : Arrays.copyOf(pValues, offset + pIn.countRun(pTag));
+		for (int i = offset; i < values.length; i++) {
+			if (i > offset) {
+				pIn.readTag();
+			}
+			values[i] = (short) pIn.readVarint32();
+		}
+		return values;
+	}
+
+	public static long[] read(ProtoInput pIn, long[] pValues, int pTag) {
+		int offset = pValues == null ? 0 : pValues.length;
+		long[] values = pValues == null ? new long[pIn.countRun(pTag)] : Arrays.copyOf(pValues, offset + pIn.countRun(pTag));
+		for (int i = offset; i < values.length; i++) {
+			if (i > offset) {
+				pIn.readTag();
+			}
+			values[i] = pIn.readVarint64();
+		}
+		return values;
+	}
+
+	public static float[] read(ProtoInput pIn, float[] pValues, int pTag) {
+		int offset = pValues == null ? 0 : pValues.length;
+		float[] values = pValues == null ? new float[pIn.countRun(pTag)] : Arrays.copyOf(pValues, offset + pIn.countRun(pTag));
+		for (int i = offset; i < values.length; i++) {
+			if (i > offset) {
+				pIn.readTag();
+			}
+			values[i] = Float.intBitsToFloat(pIn.readFixed32());
+		}
+		return values;
+	}
+
+	public static double[] read(ProtoInput pIn, double[] pValues, int pTag) {
+		int offset = pValues == null ? 0 : pValues.length;
+		double[] values = pValues == null ? new double[pIn.countRun(pTag)] : Arrays.copyOf(pValues, offset + pIn.countRun(pTag));
+		for (int i = offset; i < values.length; i++) {
+			if (i > offset) {
+				pIn.readTag();
+			}
+			values[i] = Double.longBitsToDouble(pIn.readFixed64());
+		}
+		return values;
+	}
+
+	public static boolean[] read(ProtoInput pIn, boolean[] pValues, int pTag) {
+		int offset = pValues == null ? 0 : pValues.length;
+		boolean[] values = pValues == null ? new boolean[pIn.countRun(pTag)] : Arrays.copyOf(pValues, offset + pIn.countRun(pTag));
+		for (int i = offset; i < values.length; i++) {
+			if (i > offset) {
+				pIn.readTag();
+			}
+			values[i] = pIn.readBool();
+		}
+		return values;
+	}
+
+}
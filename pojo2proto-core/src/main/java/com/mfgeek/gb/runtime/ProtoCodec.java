@@ -0,0 +1,63 @@
+package com.mfgeek.gb.runtime;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Serialize instances of a POJO class to the protobuf wire format of the message generated for
+ * it, and back.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Encoding runs two passes over the instance: the size pass computes the exact size of the message,
+ * and of each nested message, then the write pass fills a single array of that size.
+ *
+ * <h3>USAGE</h3>
+ * Obtained from a {@link CodecRegistry}, thread safe.
+ *
+ * @param <T> the POJO class
+ */
+public interface ProtoCodec<T> {
+
+	/**
+	 * @param pValue an instance
+	 * @return the message bytes
+	 */
+	byte[] encode(T pValue);
+
+	/**
+	 * Size pass.
+	 *
+	 * @param pValue an instance
+	 * @param pCache receive the sizes needed by the write pass
+	 * @return the size of the message, without any tag or length prefix
+	 */
+	int computeSize(T pValue, SizeCache pCache);
+
+	/**
+	 * Write pass.
+	 *
+	 * @param pValue an instance
+	 * @param pOut the output
+	 * @param pCache the sizes computed by the size pass
+	 */
+	void writeTo(T pValue, ProtoOutput pOut, SizeCache pCache);
+
+	/**
+	 * @param pBytes the message bytes
+	 * @return a new instance
+	 */
+	T decode(byte[] pBytes);
+
+	/**
+	 * @return a new instance, built by the no argument constructor
+	 */
+	T newInstance();
+
+	/**
+	 * Read fields until the end of the input, protobuf merge semantics: singular fields are replaced,
+	 * repeated fields are appended to the collection already held by the instance, if any.
+	 *
+	 * @param pValue an instance
+	 * @param pIn the input, limited to the message
+	 */
+	void mergeFrom(T pValue, ProtoInput pIn);
+
+}
@@ -0,0 +1,235 @@
+package com.mfgeek.gb.runtime;
+
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_FIXED32;
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_FIXED64;
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_LENGTH_DELIMITED;
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_VARINT;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Read protobuf wire format from a byte array.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Nested messages are read in place: {@link #pushLimit(int)} narrows the readable range to the
+ * message, {@link #popLimit(int)} restores it, nothing is copied.
+ *
+ * <h3>USAGE</h3>
+ * Created by {@link ProtoCodec#decode(byte[])}.
+ *
+ */
+public final class ProtoInput {
+
+	private static final int	WIRETYPE_START_GROUP	= 3;
+	private static final int	WIRETYPE_END_GROUP		= 4;
+
+	private final byte[]			buffer;
+	private int								position;
+	private int								limit;
+
+	/**
+	 * @param pBuffer the message bytes
+	 */
+	public ProtoInput(byte[] pBuffer) {
+		this(pBuffer, 0, pBuffer.length);
+	}
+
+	/**
+	 * @param pBuffer an array
+	 * @param pOffset the first byte of the message
+	 * @param pLength the size of the message
+	 */
+	public ProtoInput(byte[] pBuffer, int pOffset, int pLength) {
+		this.buffer = pBuffer;
+		this.position = pOffset;
+		this.limit = pOffset + pLength;
+	}
+
+	/**
+	 * @return the next tag, 0 at the end of the message
+	 */
+	public int readTag() {
+		if (this.position == this.limit) {
+			return 0;
+		}
+		int tag = readVarint32();
+		if (tag >>> 3 == 0) {
+			throw new IllegalArgumentException("invalid tag " + tag + " at " + this.position);
+		}
+		return tag;
+	}
+
+	/**
+	 * @return the number of varints from the position to the limit, each ends with a byte below 0x80
+	 */
+	public int countVarints() {
+		int count = 0;
+		for (int i = this.position; i < this.limit; i++) {
+			if (this.buffer[i] >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Count the values of an unpacked repeated field written one after the other, the position does
+	 * not move.
+	 *
+	 * @param pTag the tag just read, of a varint or fixed size field
+	 * @return the number of values from the position: the one of the tag, then the ones which follow
+	 *         it with the same tag
+	 */
+	public int countRun(int pTag) {
+		int start = this.position;
+		int count = 0;
+		while (true) {
+			skipField(pTag);
+			count++;
+			int next = this.position;
+			if (next == this.limit || readVarint32() != pTag) {
+				this.position = start;
+				return count;
+			}
+		}
+	}
+
+	public boolean isAtEnd() {
+		return this.position == this.limit;
+	}
+
+	public int readVarint32() {
+		return (int) readVarint64();
+	}
+
+	public long readVarint64() {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("malformed varint at " + this.position);
+	}
+
+	public int readFixed32() {
+		checkAvailable(4);
+		byte[] b = this.buffer;
+		int p = this.position;
+		this.position = p + 4;
+		return b[p] & 0xFF | (b[p + 1] & 0xFF) << 8 | (b[p + 2] & 0xFF) << 16 | (b[p + 3] & 0xFF) << 24;
+	}
+
+	public long readFixed64() {
+		return readFixed32() & 0xFFFFFFFFL | (long) readFixed32() << 32;
+	}
+
+	public boolean readBool() {
+		return readVarint64() != 0;
+	}
+
+	public byte[] readBytes() {
+		int length = readLength();
+		byte[] value = new byte[length];
+		System.arraycopy(this.buffer, this.position, value, 0, length);
+		this.position += length;
+		return value;
+	}
+
+	public String readString() {
+		int length = readLength();
+		String value = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+		this.position += length;
+		return value;
+	}
+
+	/**
+	 * @return the length prefix of a length delimited record, checked against the readable range
+	 */
+	public int readLength() {
+		int length = readVarint32();
+		if (length < 0) {
+			throw new IllegalArgumentException("negative length at " + this.position);
+		}
+		checkAvailable(length);
+		return length;
+	}
+
+	/**
+	 * Narrow the readable range to the next <code>pLength</code> bytes.
+	 *
+	 * @param pLength the size of a nested record
+	 * @return the previous limit, to give to {@link #popLimit(int)}
+	 */
+	public int pushLimit(int pLength) {
+		int previous = this.limit;
+		this.limit = this.position + pLength;
+		return previous;
+	}
+
+	/**
+	 * @param pLimit the limit returned by {@link #pushLimit(int)}
+	 */
+	public void popLimit(int pLimit) {
+		if (this.position != this.limit) {
+			throw new IllegalArgumentException("nested record not fully read at " + this.position);
+		}
+		this.limit = pLimit;
+	}
+
+	/**
+	 * Skip the value of a field the codec does not know.
+	 *
+	 * @param pTag the tag of the field
+	 */
+	public void skipField(int pTag) {
+		switch (pTag & 7) {
+			case WIRETYPE_VARINT:
+				readVarint64();
+				break;
+			case WIRETYPE_FIXED64:
+				checkAvailable(8);
+				this.position += 8;
+				break;
+			case WIRETYPE_LENGTH_DELIMITED:
+				int length = readLength();
+				this.position += length;
+				break;
+			case WIRETYPE_START_GROUP:
+				int tag;
+				do {
+					tag = readTag();
+					if (tag == 0) {
+						throw new IllegalArgumentException("unterminated group at " + this.position);
+					}
+					if ((tag & 7) != WIRETYPE_END_GROUP) {
+						skipField(tag);
+					}
+				} while ((tag & 7) != WIRETYPE_END_GROUP);
+				break;
+			case WIRETYPE_FIXED32:
+				checkAvailable(4);
+				this.position += 4;
+				break;
+			default:
+				throw new IllegalArgumentException("invalid wire type in tag " + pTag + " at " + this.position);
+		}
+	}
+
+	private byte readByte() {
+		if (this.position >= this.limit) {
+			throw new IllegalArgumentException("truncated message at " + this.position);
+		}
+		return this.buffer[this.position++];
+	}
+
+	private void checkAvailable(int pLength) {
+		if (pLength > this.limit - this.position) {
+			throw new IllegalArgumentException("truncated message at " + this.position);
+		}
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.mfgeek.gb.runtime;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Write protobuf wire format into a byte array sized up front.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * No bound checks beyond the ones of the array: the size pass of the codec computes the exact size
+ * of the message, so the array is never too small. Strings are UTF-8 encoded straight into the
+ * array, unpaired surrogates are written as <code>?</code> like {@link String#getBytes} does.
+ *
+ * <h3>USAGE</h3>
+ * Created by {@link ProtoCodec#encode(Object)}.
+ *
+ */
+public final class ProtoOutput {
+
+	public static final int	WIRETYPE_VARINT						= 0;
+	public static final int	WIRETYPE_FIXED64					= 1;
+	public static final int	WIRETYPE_LENGTH_DELIMITED	= 2;
+	public static final int	WIRETYPE_FIXED32					= 5;
+
+	private final byte[]		buffer;
+	private int							position;
+
+	/**
+	 * @param pBuffer the array to fill
+	 */
+	public ProtoOutput(byte[] pBuffer) {
+		this.buffer = pBuffer;
+	}
+
+	/**
+	 * @return the array, once completely filled
+	 */
+	public byte[] toByteArray() {
+		if (this.position != this.buffer.length) {
+			throw new IllegalStateException("size mismatch: " + this.position + " bytes written, " + this.buffer.length + " expected");
+		}
+		return this.buffer;
+	}
+
+	public void writeTag(int pNumber, int pWireType) {
+		writeVarint32(pNumber << 3 | pWireType);
+	}
+
+	public void writeVarint32(int pValue) {
+		if (pValue < 0) {
+			// negative int32 are sign extended to 10 bytes
+			writeVarint64(pValue);
+			return;
+		}
+		int value = pValue;
+		while ((value & ~0x7F) != 0) {
+			this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		this.buffer[this.position++] = (byte) value;
+	}
+
+	public void writeVarint64(long pValue) {
+		long value = pValue;
+		while ((value & ~0x7FL) != 0) {
+			this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		this.buffer[this.position++] = (byte) value;
+	}
+
+	public void writeFixed32(int pValue) {
+		this.buffer[this.position++] = (byte) pValue;
+		this.buffer[this.position++] = (byte) (pValue >> 8);
+		this.buffer[this.position++] = (byte) (pValue >> 16);
+		this.buffer[this.position++] = (byte) (pValue >> 24);
+	}
+
+	public void writeFixed64(long pValue) {
+		writeFixed32((int) pValue);
+		writeFixed32((int) (pValue >> 32));
+	}
+
+	public void writeBool(boolean pValue) {
+		this.buffer[this.position++] = (byte) (pValue ? 1 : 0);
+	}
+
+	/**
+	 * Write the length then the bytes.
+	 *
+	 * @param pValue the bytes
+	 */
+	public void writeBytes(byte[] pValue) {
+		writeVarint32(pValue.length);
+		System.arraycopy(pValue, 0, this.buffer, this.position, pValue.length);
+		this.position += pValue.length;
+	}
+
+	/**
+	 * Write the length then the UTF-8 bytes of a string.
+	 *
+	 * @param pValue the string
+	 */
+	public void writeString(String pValue) {
+		writeVarint32(utf8Length(pValue));
+		int length = pValue.length();
+		for (int i = 0; i < length; i++) {
+			char c = pValue.charAt(i);
+			if (c < 0x80) {
+				this.buffer[this.position++] = (byte) c;
+			} else if (c < 0x800) {
+				this.buffer[this.position++] = (byte) (0xC0 | c >> 6);
+				this.buffer[this.position++] = (byte) (0x80 | (c & 0x3F));
+			} else if (!Character.isSurrogate(c)) {
+				this.buffer[this.position++] = (byte) (0xE0 | c >> 12);
+				this.buffer[this.position++] = (byte) (0x80 | (c >> 6 & 0x3F));
+				this.buffer[this.position++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(pValue.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, pValue.charAt(++i));
+				this.buffer[this.position++] = (byte) (0xF0 | codePoint >> 18);
+				this.buffer[this.position++] = (byte) (0x80 | (codePoint >> 12 & 0x3F));
+				this.buffer[this.position++] = (byte) (0x80 | (codePoint >> 6 & 0x3F));
+				this.buffer[this.position++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else {
+				this.buffer[this.position++] = '?';
+			}
+		}
+	}
+
+	public static int tagSize(int pNumber) {
+		return varint32Size(pNumber << 3);
+	}
+
+	public static int varint32Size(int pValue) {
+		if (pValue < 0) {
+			return 10;
+		}
+		if ((pValue & (~0 << 7)) == 0) {
+			return 1;
+		}
+		if ((pValue & (~0 << 14)) == 0) {
+			return 2;
+		}
+		if ((pValue & (~0 << 21)) == 0) {
+			return 3;
+		}
+		if ((pValue & (~0 << 28)) == 0) {
+			return 4;
+		}
+		return 5;
+	}
+
+	public static int varint64Size(long pValue) {
+		int size = 1;
+		long value = pValue;
+		while ((value & ~0x7FL) != 0) {
+			size++;
+			value >>>= 7;
+		}
+		return size;
+	}
+
+	/**
+	 * @param pValue bytes
+	 * @return the size of the bytes once written, length included
+	 */
+	public static int bytesSize(byte[] pValue) {
+		return varint32Size(pValue.length) + pValue.length;
+	}
+
+	/**
+	 * @param pValue a string
+	 * @return the size of the string once written, length included
+	 */
+	public static int stringSize(String pValue) {
+		int length = utf8Length(pValue);
+		return varint32Size(length) + length;
+	}
+
+	/**
+	 * @param pValue a string
+	 * @return the number of UTF-8 bytes of the string
+	 */
+	public static int utf8Length(String pValue) {
+		int length = pValue.length();
+		int bytes = length;
+		for (int i = 0; i < length; i++) {
+			char c = pValue.charAt(i);
+			if (c >= 0x800) {
+				if (!Character.isSurrogate(c)) {
+					bytes += 2;
+				} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(pValue.charAt(i + 1))) {
+					bytes += 2; // 4 bytes for 2 chars
+					i++;
+				}
+			} else if (c >= 0x80) {
+				bytes++;
+			}
+		}
+		return bytes;
+	}
+
+}
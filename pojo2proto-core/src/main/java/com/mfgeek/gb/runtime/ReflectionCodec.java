@@ -0,0 +1,105 @@
+package com.mfgeek.gb.runtime;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Generic codec of a POJO class, driven by the proto file generated for it.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * One {@link FieldCodec} per proto field, in field number order. Fields are set once the codec is
+ * registered, so messages can refer to themselves. Decoding dispatches on the field number of each
+ * tag through a table indexed by number, unknown fields are skipped.
+ *
+ * <h3>USAGE</h3>
+ * Built by {@link CodecRegistry}.
+ *
+ * @param <T> the POJO class
+ */
+public final class ReflectionCodec<T> extends AbstractProtoCodec<T> {
+
+	private final Class<T>			type;
+	/** <code>()Object</code>, <code>null</code> if the class has no constructor without argument */
+	private final MethodHandle	constructor;
+	private FieldCodec[]				fields;
+	private FieldCodec[]				byNumber;
+
+	ReflectionCodec(Class<T> pType, MethodHandle pConstructor) {
+		this.type = pType;
+		this.constructor = pConstructor;
+	}
+
+	void init(FieldCodec[] pFields) {
+		int max = 0;
+		for (FieldCodec field : pFields) {
+			max = Math.max(max, field.number);
+		}
+		FieldCodec[] table = new FieldCodec[max + 1];
+		for (FieldCodec field : pFields) {
+			table[field.number] = field;
+		}
+		this.byNumber = table;
+		this.fields = pFields;
+	}
+
+	public Class<T> getType() {
+		return this.type;
+	}
+
+	@Override
+	public int computeSize(T pValue, SizeCache pCache) {
+		int size = 0;
+		try {
+			for (FieldCodec field : this.fields) {
+				size += field.size(pValue, pCache);
+			}
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+		return size;
+	}
+
+	@Override
+	public void writeTo(T pValue, ProtoOutput pOut, SizeCache pCache) {
+		try {
+			for (FieldCodec field : this.fields) {
+				field.write(pValue, pOut, pCache);
+			}
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T newInstance() {
+		if (this.constructor == null) {
+			throw new IllegalStateException(this.type + " has no constructor without argument");
+		}
+		try {
+			Object value = this.constructor.invokeExact();
+			return (T) value;
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	@Override
+	public void mergeFrom(T pValue, ProtoInput pIn) {
+		FieldCodec[] table = this.byNumber;
+		try {
+			for (int tag = pIn.readTag(); tag != 0; tag = pIn.readTag()) {
+				int number = tag >>> 3;
+				FieldCodec field = number < table.length ? table[number] : null;
+				if (field != null && field.accepts(tag & 7)) {
+					field.read(pValue, pIn, tag & 7);
+				} else {
+					pIn.skipField(tag);
+				}
+			}
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+}
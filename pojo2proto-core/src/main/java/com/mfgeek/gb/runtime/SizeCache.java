@@ -0,0 +1,53 @@
+package com.mfgeek.gb.runtime;
+
+import java.util.Arrays;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Sizes computed by the size pass of an encoding and needed again by the write pass: lengths of
+ * nested messages and of packed repeated fields.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Both passes walk the message tree in the same order, so the sizes are a simple queue: the size
+ * pass reserves a slot before walking the children of a node and fills it afterwards, the write
+ * pass reads the slots back in the same order.
+ *
+ * <h3>USAGE</h3>
+ * One instance per encoding, not thread safe.
+ *
+ */
+public final class SizeCache {
+
+	private int[]	sizes	= new int[16];
+	private int		count;
+	private int		cursor;
+
+	/**
+	 * @return the slot reserved for a size
+	 */
+	public int reserve() {
+		if (this.count == this.sizes.length) {
+			this.sizes = Arrays.copyOf(this.sizes, this.count * 2);
+		}
+		return this.count++;
+	}
+
+	public void set(int pSlot, int pSize) {
+		this.sizes[pSlot] = pSize;
+	}
+
+	/**
+	 * Start reading the sizes from the first one.
+	 */
+	public void rewind() {
+		this.cursor = 0;
+	}
+
+	/**
+	 * @return the next size, in reservation order
+	 */
+	public int next() {
+		return this.sizes[this.cursor++];
+	}
+
+}
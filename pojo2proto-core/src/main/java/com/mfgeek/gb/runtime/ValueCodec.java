@@ -0,0 +1,399 @@
+package com.mfgeek.gb.runtime;
+
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_FIXED32;
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_FIXED64;
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_LENGTH_DELIMITED;
+import static com.mfgeek.gb.runtime.ProtoOutput.WIRETYPE_VARINT;
+
+import java.util.Date;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Encoding and decoding of a single value of a proto type, boxed: elements of repeated fields and
+ * singular fields whose java type is not a primitive.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * One shared instance per scalar proto type, with variants for the java types decoding must build
+ * (<code>short</code>, <code>byte</code>, {@link Date}), one instance per enum class and per nested
+ * message class.
+ *
+ * <h3>USAGE</h3>
+ * Used by the {@link FieldCodec} of a {@link ReflectionCodec}.
+ *
+ */
+abstract class ValueCodec {
+
+	static final ValueCodec	INT32	= new Int32Codec();
+
+	static final ValueCodec	SHORT	= new Int32Codec() {
+
+		@Override
+		Object read(ProtoInput pIn) {
+			return (short) pIn.readVarint32();
+		}
+	};
+
+	static final ValueCodec	BYTE	= new Int32Codec() {
+
+		@Override
+		Object read(ProtoInput pIn) {
+			return (byte) pIn.readVarint32();
+		}
+	};
+
+	static final ValueCodec	INT64	= new Int64Codec();
+
+	static final ValueCodec	DATE	= new Int64Codec() {
+
+		@Override
+		Object read(ProtoInput pIn) {
+			return new Date(pIn.readVarint64());
+		}
+	};
+
+	static final ValueCodec	FLOAT	= new ValueCodec(WIRETYPE_FIXED32) {
+
+		@Override
+		int size(Object pValue, SizeCache pCache) {
+			return 4;
+		}
+
+		@Override
+		void write(Object pValue, ProtoOutput pOut, SizeCache pCache) {
+			pOut.writeFixed32(Float.floatToRawIntBits(((Number) pValue).floatValue()));
+		}
+
+		@Override
+		boolean isDefault(Object pValue) {
+			return Float.floatToRawIntBits(((Number) pValue).floatValue()) == 0;
+		}
+
+		@Override
+		Object read(ProtoInput pIn) {
+			return Float.intBitsToFloat(pIn.readFixed32());
+		}
+	};
+
+	static final ValueCodec	DOUBLE	= new ValueCodec(WIRETYPE_FIXED64) {
+
+		@Override
+		int size(Object pValue, SizeCache pCache) {
+			return 8;
+		}
+
+		@Override
+		void write(Object pValue, ProtoOutput pOut, SizeCache pCache) {
+			pOut.writeFixed64(Double.doubleToRawLongBits(((Number) pValue).doubleValue()));
+		}
+
+		@Override
+		boolean isDefault(Object pValue) {
+			return Double.doubleToRawLongBits(((Number) pValue).doubleValue()) == 0;
+		}
+
+		@Override
+		Object read(ProtoInput pIn) {
+			return Double.longBitsToDouble(pIn.readFixed64());
+		}
+	};
+
+	static final ValueCodec	BOOL	= new ValueCodec(WIRETYPE_VARINT) {
+
+		@Override
+		int size(Object pValue, SizeCache pCache) {
+			return 1;
+		}
+
+		@Override
+		void write(Object pValue, ProtoOutput pOut, SizeCache pCache) {
+			pOut.writeBool((Boolean) pValue);
+		}
+
+		@Override
+		boolean isDefault(Object pValue) {
+			return !((Boolean) pValue);
+		}
+
+		@Override
+		Object read(ProtoInput pIn) {
+			return pIn.readBool();
+		}
+	};
+
+	static final ValueCodec	STRING	= new ValueCodec(WIRETYPE_LENGTH_DELIMITED) {
+
+		@Override
+		int size(Object pValue, SizeCache pCache) {
+			return ProtoOutput.stringSize((String) pValue);
+		}
+
+		@Override
+		void write(Object pValue, ProtoOutput pOut, SizeCache pCache) {
+			pOut.writeString((String) pValue);
+		}
+
+		@Override
+		boolean isDefault(Object pValue) {
+			return ((String) pValue).isEmpty();
+		}
+
+		@Override
+		Object read(ProtoInput pIn) {
+			return pIn.readString();
+		}
+	};
+
+	static final ValueCodec	BYTES	= new ValueCodec(WIRETYPE_LENGTH_DELIMITED) {
+
+		@Override
+		int size(Object pValue, SizeCache pCache) {
+			return ProtoOutput.bytesSize((byte[]) pValue);
+		}
+
+		@Override
+		void write(Object pValue, ProtoOutput pOut, SizeCache pCache) {
+			pOut.writeBytes((byte[]) pValue);
+		}
+
+		@Override
+		Object read(ProtoInput pIn) {
+			return pIn.readBytes();
+		}
+
+		@Override
+		boolean isDefault(Object pValue) {
+			return ((byte[]) pValue).length == 0;
+		}
+	};
+
+	final int								wireType;
+
+	ValueCodec(int pWireType) {
+		this.wireType = pWireType;
+	}
+
+	/**
+	 * @param pProtoType a proto scalar type
+	 * @param pJavaType the java type of the values, decoding builds values of this type
+	 * @return its codec, <code>null</code> if the type is not a scalar
+	 */
+	static ValueCodec scalar(String pProtoType, Class<?> pJavaType) {
+		switch (pProtoType) {
+			case "int32":
+				if (pJavaType == Short.class || pJavaType == short.class) {
+					return SHORT;
+				}
+				if (pJavaType == Byte.class || pJavaType == byte.class) {
+					return BYTE;
+				}
+				return INT32;
+			case "int64":
+				return Date.class.isAssignableFrom(pJavaType) ? DATE : INT64;
+			case "float":
+				return FLOAT;
+			case "double":
+				return DOUBLE;
+			case "bool":
+				return BOOL;
+			case "string":
+				return STRING;
+			case "bytes":
+				return BYTES;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @param pValue a value, not <code>null</code>
+	 * @param pCache the size cache of the encoding
+	 * @return the size of the value, length prefix included, tag excluded
+	 */
+	abstract int size(Object pValue, SizeCache pCache);
+
+	/**
+	 * @param pValue a value, not <code>null</code>
+	 * @param pOut the output
+	 * @param pCache the size cache of the encoding
+	 */
+	abstract void write(Object pValue, ProtoOutput pOut, SizeCache pCache);
+
+	/**
+	 * @param pIn the input, positioned on the value
+	 * @return the value, <code>null</code> if it has no java counterpart
+	 */
+	abstract Object read(ProtoInput pIn);
+
+	/**
+	 * @param pValue a value, not <code>null</code>
+	 * @return <code>true</code> if the value is the proto3 default, which is never written
+	 */
+	boolean isDefault(Object pValue) {
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if repeated values of this type can be packed
+	 */
+	boolean isPackable() {
+		return this.wireType != WIRETYPE_LENGTH_DELIMITED;
+	}
+
+	static long longValue(Object pValue) {
+		return pValue instanceof Date ? ((Date) pValue).getTime() : ((Number) pValue).longValue();
+	}
+
+	/**
+	 * <code>int32</code>, decoded as an {@link Integer}.
+	 */
+	static class Int32Codec extends ValueCodec {
+
+		Int32Codec() {
+			super(WIRETYPE_VARINT);
+		}
+
+		@Override
+		int size(Object pValue, SizeCache pCache) {
+			return ProtoOutput.varint32Size(((Number) pValue).intValue());
+		}
+
+		@Override
+		void write(Object pValue, ProtoOutput pOut, SizeCache pCache) {
+			pOut.writeVarint32(((Number) pValue).intValue());
+		}
+
+		@Override
+		Object read(ProtoInput pIn) {
+			return pIn.readVarint32();
+		}
+
+		@Override
+		boolean isDefault(Object pValue) {
+			return ((Number) pValue).intValue() == 0;
+		}
+	}
+
+	/**
+	 * <code>int64</code>, encoded from a {@link Number} or a {@link Date}, decoded as a {@link Long}.
+	 */
+	static class Int64Codec extends ValueCodec {
+
+		Int64Codec() {
+			super(WIRETYPE_VARINT);
+		}
+
+		@Override
+		int size(Object pValue, SizeCache pCache) {
+			return ProtoOutput.varint64Size(longValue(pValue));
+		}
+
+		@Override
+		void write(Object pValue, ProtoOutput pOut, SizeCache pCache) {
+			pOut.writeVarint64(longValue(pValue));
+		}
+
+		@Override
+		Object read(ProtoInput pIn) {
+			return pIn.readVarint64();
+		}
+
+		@Override
+		boolean isDefault(Object pValue) {
+			return longValue(pValue) == 0;
+		}
+	}
+
+	/**
+	 * Enum constants, written as the number of the constant in the generated enum.
+	 */
+	static final class EnumCodec extends ValueCodec {
+
+		/** proto numbers, by ordinal */
+		final int[]			numbers;
+		/** enum constants, by proto number */
+		final Object[]	constants;
+
+		/**
+		 * @param pConstants the enum constants, by ordinal
+		 * @param pNumbers the proto numbers, by ordinal
+		 */
+		EnumCodec(Object[] pConstants, int[] pNumbers) {
+			super(WIRETYPE_VARINT);
+			this.numbers = pNumbers;
+			int max = -1;
+			for (int number : pNumbers) {
+				max = Math.max(max, number);
+			}
+			this.constants = new Object[max + 1];
+			for (int i = 0; i < pNumbers.length; i++) {
+				if (pNumbers[i] >= 0) {
+					this.constants[pNumbers[i]] = pConstants[i];
+				}
+			}
+		}
+
+		int number(Object pValue) {
+			return this.numbers[((Enum<?>) pValue).ordinal()];
+		}
+
+		@Override
+		int size(Object pValue, SizeCache pCache) {
+			return ProtoOutput.varint32Size(number(pValue));
+		}
+
+		@Override
+		void write(Object pValue, ProtoOutput pOut, SizeCache pCache) {
+			pOut.writeVarint32(number(pValue));
+		}
+
+		@Override
+		Object read(ProtoInput pIn) {
+			int number = pIn.readVarint32();
+			// unknown numbers are dropped, like proto2 does
+			return number >= 0 && number < this.constants.length ? this.constants[number] : null;
+		}
+
+		@Override
+		boolean isDefault(Object pValue) {
+			return number(pValue) == 0;
+		}
+	}
+
+	/**
+	 * Nested messages, written with their length first.
+	 */
+	static final class MessageCodec extends ValueCodec {
+
+		private final ProtoCodec<Object> codec;
+
+		@SuppressWarnings("unchecked")
+		MessageCodec(ProtoCodec<?> pCodec) {
+			super(WIRETYPE_LENGTH_DELIMITED);
+			this.codec = (ProtoCodec<Object>) pCodec;
+		}
+
+		@Override
+		int size(Object pValue, SizeCache pCache) {
+			int slot = pCache.reserve();
+			int size = this.codec.computeSize(pValue, pCache);
+			pCache.set(slot, size);
+			return ProtoOutput.varint32Size(size) + size;
+		}
+
+		@Override
+		void write(Object pValue, ProtoOutput pOut, SizeCache pCache) {
+			pOut.writeVarint32(pCache.next());
+			this.codec.writeTo(pValue, pOut, pCache);
+		}
+
+		@Override
+		Object read(ProtoInput pIn) {
+			int limit = pIn.pushLimit(pIn.readLength());
+			Object value = this.codec.newInstance();
+			this.codec.mergeFrom(value, pIn);
+			pIn.popLimit(limit);
+			return value;
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.mfgeek.gb.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Utility class to fingerprint contents.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * SHA-1, every JVM is required to provide it.
+ *
+ * <h3>USAGE</h3>
+ *
+ */
+public final class DigestUtils {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/** Constructor. */
+	private DigestUtils() {
+		super();
+	}
+
+	/**
+	 * @param pValue a string
+	 * @return the hexadecimal SHA-1 of the UTF-8 bytes of the string
+	 */
+	public static String sha1Hex(String pValue) {
+		return sha1Hex(pValue.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param pBytes some bytes
+	 * @return the hexadecimal SHA-1 of the bytes
+	 */
+	public static String sha1Hex(byte[] pBytes) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(pBytes);
+			char[] hex = new char[digest.length * 2];
+			for (int i = 0; i < digest.length; i++) {
+				hex[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+				hex[2 * i + 1] = HEX[digest[i] & 0xF];
+			}
+			return new String(hex);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 not available", e);
+		}
+	}
+
+}
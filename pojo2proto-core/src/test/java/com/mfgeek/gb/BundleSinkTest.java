@@ -0,0 +1,120 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BundleSinkTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testBundlePerPackage() throws IOException {
+		File dir = this.folder.getRoot();
+		assertEquals(2, generate(dir, new ProtoBundling()));
+		assertEquals(2, dir.list().length);
+
+		String sample = read(dir, "com.mfgeek.gb.sample.proto");
+		assertFalse(sample, sample.contains("import "));
+		assertTrue(sample, sample.contains("option java_outer_classname = \"SampleProtos\";"));
+		assertTrue(sample, sample.contains("message Customer {"));
+		assertTrue(sample, sample.contains("optional Address address = 7 ;"));
+		assertTrue(sample, sample.contains("enum Status {"));
+		assertEquals(sample.indexOf("syntax"), sample.lastIndexOf("syntax"));
+
+		String order = read(dir, "com.mfgeek.gb.sample.order.proto");
+		assertTrue(order, order.contains("import \"com.mfgeek.gb.sample.proto\";"));
+		assertTrue(order, order.contains("message OrderLine {"));
+	}
+
+	@Test
+	public void testGroup() throws IOException {
+		File dir = this.folder.getRoot();
+		ProtoBundling bundling = new ProtoBundling();
+		bundling.addGroup("com.mfgeek.gb.sample", "sample");
+		assertEquals(1, generate(dir, bundling));
+
+		String sample = read(dir, "sample.proto");
+		assertFalse(sample, sample.contains("import "));
+		assertTrue(sample, sample.contains("message OrderLine {"));
+		assertTrue(sample, sample.contains("message CustomerKey {"));
+	}
+
+	@Test
+	public void testPackageSplitBetweenInputs() throws IOException {
+		File classes = new File("target/test-classes/com/mfgeek/gb/sample");
+		File first = this.folder.newFolder("first");
+		File second = this.folder.newFolder("second");
+		copy(classes, first, "Address.class", "order/OrderLine.class");
+		copy(classes, second, "Customer.class", "CustomerKey.class", "Status.class");
+		File dir = this.folder.newFolder("out");
+		ProtoBundling bundling = new ProtoBundling();
+		GeneratorConfig config = new GeneratorConfig();
+		config.setPojoPackage("com.mfgeek.gb.sample");
+		config.setProtoPackage("sample");
+		config.setRecursive(true);
+		config.setBundling(bundling);
+		config.setInputs(Arrays.asList(first, second));
+		config.setLoadInputs(false);
+		BundleSink sink = new BundleSink(new ProtoFileWriter(dir.getPath(), 2), bundling, true);
+		try {
+			assertEquals(5, ProtoGenerator.getInstance().generate(config, sink));
+		} finally {
+			sink.close();
+		}
+		assertEquals(2, sink.getBundlesWritten());
+
+		// the classes of both inputs in one bundle
+		String sample = read(dir, "com.mfgeek.gb.sample.proto");
+		assertTrue(sample, sample.contains("message Address {"));
+		assertTrue(sample, sample.contains("message Customer {"));
+		assertTrue(sample, sample.contains("enum Status {"));
+		assertTrue(read(dir, "com.mfgeek.gb.sample.order.proto").contains("message OrderLine {"));
+	}
+
+	private static int generate(File pDir, ProtoBundling pBundling) {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource("src/test/java");
+		config.setPojoPackage("com.mfgeek.gb.sample");
+		config.setProtoPackage("sample");
+		config.setRecursive(true);
+		config.setParallelism(2);
+		config.setBundling(pBundling);
+		BundleSink sink = new BundleSink(new ProtoFileWriter(pDir.getPath(), 2), pBundling);
+		try {
+			assertEquals(5, ProtoGenerator.getInstance().generate(config, sink));
+		} finally {
+			sink.close();
+		}
+		return sink.getBundlesWritten();
+	}
+
+	/**
+	 * @param pFrom directory of the classes of the package com.mfgeek.gb.sample
+	 * @param pTo root of the classes of an input
+	 * @param pNames paths of the class files to copy, relative to the package
+	 */
+	private static void copy(File pFrom, File pTo, String... pNames) throws IOException {
+		for (String name : pNames) {
+			File to = new File(pTo, "com/mfgeek/gb/sample/" + name);
+			to.getParentFile().mkdirs();
+			Files.copy(new File(pFrom, name).toPath(), to.toPath());
+		}
+	}
+
+	private static String read(File pDir, String pName) throws IOException {
+		return new String(Files.readAllBytes(new File(pDir, pName).toPath()), StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class ClassFilePojoReaderTest {
+
+	private final PojoReader	reflection	= new ReflectionPojoReader();
+	private final PojoReader	classFiles	= new ClassFilePojoReader(new File("target/test-classes"));
+
+	@Test
+	public void testSameAsReflection() throws ClassNotFoundException {
+		for (String name : new String[] { "Address", "Customer", "CustomerKey", "Status" }) {
+			String className = "com.mfgeek.gb.sample." + name;
+			assertEquals(this.reflection.read(className), this.classFiles.read(className));
+		}
+	}
+
+	@Test
+	public void testGenerics() throws ClassNotFoundException {
+		PojoClass customer = this.classFiles.read("com.mfgeek.gb.sample.Customer");
+		PojoField previousAddresses = customer.getFields().get(8);
+		assertEquals("previousAddresses", previousAddresses.getName());
+		assertTrue(previousAddresses.isCollection());
+		assertEquals("com.mfgeek.gb.sample.Address", previousAddresses.getTypeArguments().get(0));
+		assertTrue(this.classFiles.read("com.mfgeek.gb.sample.Status").isEnum());
+	}
+
+	@Test(expected = ClassNotFoundException.class)
+	public void testMissingClass() throws ClassNotFoundException {
+		this.classFiles.read("com.mfgeek.gb.sample.Missing");
+	}
+
+}
@@ -0,0 +1,153 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+public class DescriptorSetSinkTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testFilePerClass() throws Exception {
+		DescriptorSetSink sink = generate("proto2", null);
+		Map<String, FileDescriptor> files = build(sink.toByteArray());
+		assertEquals(5, files.size());
+
+		Descriptor customer = files.get("Customer.proto").findMessageTypeByName("Customer");
+		assertEquals("Customer.proto", customer.getFile().getName());
+		assertEquals("CustomerObj", customer.getFile().getOptions().getJavaOuterClassname());
+		assertEquals("com.mfgeek.gb.sample", customer.getFile().getOptions().getJavaPackage());
+		assertEquals(FieldDescriptor.Type.MESSAGE, customer.findFieldByName("address").getType());
+		assertEquals("sample.Address", customer.findFieldByName("address").getMessageType().getFullName());
+		assertTrue(customer.findFieldByName("previousAddresses").isRepeated());
+		assertEquals(FieldDescriptor.Type.ENUM, customer.findFieldByName("status").getType());
+		assertEquals(0, customer.findFieldByName("status").getEnumType().getValues().get(0).getNumber());
+		assertEquals(FieldDescriptor.Type.INT64, customer.findFieldByNumber(10).getType());
+		assertEquals(files.get("Address.proto"), files.get("OrderLine.proto").getDependencies().get(0));
+	}
+
+	@Test
+	public void testPackedProto2() throws Exception {
+		GeneratorConfig config = config("proto2", null);
+		config.setPojoPackage("com.mfgeek.gb.telemetry");
+		config.setRecursive(false);
+		DescriptorSetSink sink = new DescriptorSetSink(null);
+		ProtoGenerator.getInstance().generate(config, sink);
+		Descriptor reading = build(sink.toByteArray()).get("Reading.proto").findMessageTypeByName("Reading");
+		assertTrue(reading.findFieldByName("samples").isPacked());
+		assertEquals(FieldDescriptor.Type.BYTES, reading.findFieldByName("payload").getType());
+		assertFalse(reading.findFieldByName("sensor").isRepeated());
+	}
+
+	@Test
+	public void testMapFields() throws Exception {
+		for (String syntax : new String[] { "proto2", "proto3" }) {
+			GeneratorConfig config = config(syntax, null);
+			config.setPojoPackage("com.mfgeek.gb.ledger");
+			config.setProtoPackage("ledger");
+			config.setRecursive(false);
+			DescriptorSetSink sink = new DescriptorSetSink(null);
+			ProtoGenerator.getInstance().generate(config, sink);
+			Descriptor account = build(sink.toByteArray()).get("Account.proto").findMessageTypeByName("Account");
+			FieldDescriptor ledgers = account.findFieldByName("ledgers");
+			assertTrue(ledgers.isMapField());
+			assertEquals("ledger.Account.LedgersEntry", ledgers.getMessageType().getFullName());
+			assertEquals(FieldDescriptor.Type.INT32, ledgers.getMessageType().findFieldByName("key").getType());
+			assertEquals("ledger.Ledger", ledgers.getMessageType().findFieldByName("value").getMessageType().getFullName());
+			assertTrue(account.findFieldByName("limits").isMapField());
+			assertEquals(FieldDescriptor.Type.INT64, account.findFieldByName("limits").getMessageType().findFieldByNumber(2).getType());
+			assertEquals(FieldDescriptor.Type.STRING, account.findFieldByNumber(6).getType());
+		}
+	}
+
+	@Test
+	public void testBundles() throws Exception {
+		ProtoBundling bundling = new ProtoBundling();
+		DescriptorSetSink sink = generate("proto3", bundling);
+		Map<String, FileDescriptor> files = build(sink.toByteArray());
+		assertEquals(2, files.size());
+		FileDescriptor sample = files.get("com.mfgeek.gb.sample.proto");
+		assertEquals("proto3", sample.toProto().getSyntax());
+		assertEquals(3, sample.getMessageTypes().size());
+		assertEquals(1, sample.getEnumTypes().size());
+		assertEquals("SampleProtos", sample.getOptions().getJavaOuterClassname());
+		FileDescriptor order = files.get("com.mfgeek.gb.sample.order.proto");
+		assertEquals(sample, order.getDependencies().get(0));
+		assertEquals(sample.findMessageTypeByName("Address"), order.findMessageTypeByName("OrderLine").findFieldByName("deliveryAddress").getMessageType());
+
+		File file = new File(this.folder.getRoot(), "out/sample.desc");
+		sink.writeTo(file);
+		assertArrayEquals(sink.toByteArray(), Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void testJsonName() {
+		assertEquals("zipCode", DescriptorSetSink.jsonNameOf("zipCode"));
+		assertEquals("zipCode", DescriptorSetSink.jsonNameOf("zip_code"));
+	}
+
+	private static DescriptorSetSink generate(String pSyntax, ProtoBundling pBundling) {
+		DescriptorSetSink sink = new DescriptorSetSink(pBundling);
+		assertEquals(5, ProtoGenerator.getInstance().generate(config(pSyntax, pBundling), sink));
+		return sink;
+	}
+
+	private static GeneratorConfig config(String pSyntax, ProtoBundling pBundling) {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource("src/test/java");
+		config.setPojoPackage("com.mfgeek.gb.sample");
+		config.setProtoPackage("sample");
+		config.setSyntax(pSyntax);
+		config.setRecursive(true);
+		config.setBundling(pBundling);
+		return config;
+	}
+
+	/**
+	 * Parse a descriptor set and link its files, as a dynamic message service would.
+	 */
+	private static Map<String, FileDescriptor> build(byte[] pSet) throws IOException, DescriptorValidationException {
+		List<FileDescriptorProto> protos = FileDescriptorSet.parseFrom(pSet).getFileList();
+		Map<String, FileDescriptor> files = new HashMap<>();
+		while (files.size() < protos.size()) {
+			int before = files.size();
+			for (FileDescriptorProto proto : protos) {
+				if (files.containsKey(proto.getName())) {
+					continue;
+				}
+				FileDescriptor[] dependencies = new FileDescriptor[proto.getDependencyCount()];
+				for (int i = 0; i < dependencies.length; i++) {
+					dependencies[i] = files.get(proto.getDependency(i));
+				}
+				if (!Arrays.asList(dependencies).contains(null)) {
+					files.put(proto.getName(), FileDescriptor.buildFrom(proto, dependencies));
+				}
+			}
+			assertTrue("unresolved dependencies", files.size() > before);
+		}
+		return files;
+	}
+
+}
@@ -0,0 +1,243 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Generate the proto files of a large synthetic package under a fixed heap and check the peak of
+ * live heap and the elapsed time against budgets. Run by the <code>stress</code> profile only:
+ *
+ * <pre>
+ * mvn -pl pojo2proto-core test -Pstress
+ * mvn -pl pojo2proto-core test -Pstress -Dstress.classes=100000 -Dstress.xmx=768m
+ * </pre>
+ *
+ * The peak of live heap is the largest heap used right after a collection while the run lasts, so
+ * garbage does not count, only what the pipeline holds. The heap retained by the models of the
+ * proto files, when a caller keeps them all, is checked per proto file.
+ */
+public class GenerationStressTest {
+
+	private static final Logger		LOGGER						= LoggerFactory.getLogger(GenerationStressTest.class);
+
+	@ClassRule
+	public static TemporaryFolder	folder						= new TemporaryFolder();
+
+	private static final int			CLASSES						= Integer.getInteger("stress.classes", 50000);
+	private static final long			HEAP_BUDGET				= Long.getLong("stress.heapBudgetMb", 256) * 1024 * 1024;
+	private static final long			TIME_BUDGET				= Long.getLong("stress.timeBudgetSeconds", 60) * 1000;
+	private static final long			METASPACE_BUDGET	= Long.getLong("stress.metaspaceBudgetMb", 16) * 1024 * 1024;
+	private static final long			MODEL_BUDGET			= Long.getLong("stress.modelBudgetBytes", 1200);
+	private static final int			ROUNDS						= 3;
+
+	private static SyntheticModel	model;
+
+	@BeforeClass
+	public static void buildModel() throws Exception {
+		long start = System.nanoTime();
+		model = new SyntheticModel(folder.getRoot(), CLASSES);
+		model.build();
+		LOGGER.info(model.getClassCount() + " classes written and compiled in " + (System.nanoTime() - start) / 1000000 + " ms, max heap "
+				+ Runtime.getRuntime().maxMemory() / (1024 * 1024) + " MB");
+	}
+
+	@Test
+	public void testClassFiles() throws Exception {
+		run("class files", config(new ClassFilePojoReader(model.getClasses()), 4));
+	}
+
+	@Test
+	public void testReflection() throws Exception {
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { model.getClasses().toURI().toURL() })) {
+			run("reflection", config(new ReflectionPojoReader(loader), 4));
+		}
+	}
+
+	/**
+	 * Load the model again and again from isolated inputs: the classes of a round are unloaded before
+	 * the next one, so the metaspace kept after each round stays within its budget.
+	 */
+	@Test
+	public void testIsolatedInputs() throws Exception {
+		long baseline = usedMetaspace();
+		for (int round = 1; round <= ROUNDS; round++) {
+			GeneratorConfig config = config(null, 4);
+			config.setInputs(Collections.singletonList(model.getClasses()));
+			run("isolated inputs, round " + round, config);
+			long kept = usedMetaspace() - baseline;
+			LOGGER.info("isolated inputs, round " + round + ": " + kept / (1024 * 1024) + " MB of metaspace kept");
+			assertTrue("round " + round + " kept " + kept + " bytes of metaspace, budget " + METASPACE_BUDGET, kept <= METASPACE_BUDGET);
+		}
+	}
+
+	/**
+	 * Keep the models of all the proto files, as the descriptor set sink or a caller of
+	 * {@link ProtoGenerator#parse(GeneratorConfig)} does, and check the heap they retain per proto file.
+	 */
+	@Test
+	public void testModelFootprint() throws Exception {
+		// load and initialize the classes of the generator first, their cost is not per proto file
+		ProtoGenerator.getInstance().parse(config(new ClassFilePojoReader(model.getClasses()), 4));
+		System.gc();
+		long baseline = usedHeap();
+		List<ProtoFile> protos = ProtoGenerator.getInstance().parse(config(new ClassFilePojoReader(model.getClasses()), 4));
+		System.gc();
+		long perFile = Math.max(0, usedHeap() - baseline) / protos.size();
+		int fields = 0;
+		for (ProtoFile pf : protos) {
+			fields += pf.getFields().size();
+		}
+		LOGGER.info("models: " + protos.size() + " proto files of " + fields + " fields retain " + perFile + " bytes each");
+		assertEquals(model.getClassCount(), protos.size());
+		assertTrue("a model retains " + perFile + " bytes, budget " + MODEL_BUDGET, perFile <= MODEL_BUDGET);
+	}
+
+	private static GeneratorConfig config(PojoReader pReader, int pParallelism) {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource(model.getSource().getPath());
+		config.setPojoPackage(SyntheticModel.PACKAGE);
+		config.setProtoPackage("stress");
+		config.setParallelism(pParallelism);
+		if (pReader != null) {
+			config.setReader(pReader);
+		}
+		return config;
+	}
+
+	/**
+	 * Generate and write all the proto files, then check the budgets.
+	 */
+	private void run(String pName, GeneratorConfig pConfig) throws Exception {
+		File out = folder.newFolder();
+
+		System.gc();
+		long baseline = usedHeap();
+		LiveHeapMonitor monitor = new LiveHeapMonitor();
+		long start = System.nanoTime();
+		int count;
+		try (IncrementalSink sink = new IncrementalSink(new ProtoFileWriter(out.getPath(), 4), null)) {
+			count = ProtoGenerator.getInstance().generate(pConfig, sink);
+		} finally {
+			monitor.close();
+		}
+		long millis = (System.nanoTime() - start) / 1000000;
+		long peak = Math.max(0, monitor.getPeak() - baseline);
+
+		LOGGER.info(pName + ": " + count + " proto files in " + millis + " ms, peak of live heap " + peak / (1024 * 1024) + " MB over "
+				+ baseline / (1024 * 1024) + " MB, " + monitor.getCollections() + " collections");
+		assertEquals(model.getClassCount(), count);
+		assertEquals(model.getClassCount(), out.list().length);
+		assertTrue(pName + " took " + millis + " ms, budget " + TIME_BUDGET + " ms", millis <= TIME_BUDGET);
+		assertTrue(pName + " held " + peak + " bytes of heap, budget " + HEAP_BUDGET, peak <= HEAP_BUDGET);
+	}
+
+	private static long usedHeap() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * @return the metaspace used after a full collection, which unloads the unreachable classes
+	 */
+	private static long usedMetaspace() {
+		System.gc();
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if ("Metaspace".equals(pool.getName())) {
+				used += pool.getUsage().getUsed();
+			}
+		}
+		return used;
+	}
+
+	/**
+	 * Record the largest heap used after a collection, from the notifications of the collectors.
+	 */
+	private static final class LiveHeapMonitor implements NotificationListener, AutoCloseable {
+
+		private final Set<String>	heapPools		= new HashSet<>();
+		private final AtomicLong	peak				= new AtomicLong();
+		private final AtomicLong	collections	= new AtomicLong();
+
+		LiveHeapMonitor() {
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					this.heapPools.add(pool.getName());
+				}
+			}
+			for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+				((NotificationEmitter) gc).addNotificationListener(this, null, null);
+			}
+		}
+
+		@Override
+		public void handleNotification(Notification pNotification, Object pHandback) {
+			if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(pNotification.getType())) {
+				return;
+			}
+			GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) pNotification.getUserData());
+			long used = 0;
+			for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+				if (this.heapPools.contains(pool.getKey())) {
+					used += pool.getValue().getUsed();
+				}
+			}
+			this.collections.incrementAndGet();
+			long current;
+			while (used > (current = this.peak.get()) && !this.peak.compareAndSet(current, used)) {
+				// retry
+			}
+		}
+
+		/**
+		 * @return the peak, or the heap used now after a collection when none happened
+		 */
+		long getPeak() {
+			if (this.collections.get() == 0) {
+				System.gc();
+				return Math.max(this.peak.get(), usedHeap());
+			}
+			return this.peak.get();
+		}
+
+		long getCollections() {
+			return this.collections.get();
+		}
+
+		@Override
+		public void close() throws Exception {
+			for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+				((NotificationEmitter) gc).removeNotificationListener(this);
+			}
+		}
+	}
+
+}
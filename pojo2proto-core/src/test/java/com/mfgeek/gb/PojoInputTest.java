@@ -0,0 +1,244 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PojoInputTest {
+
+	private static final File	CLASSES	= new File("target/test-classes");
+
+	@Rule
+	public TemporaryFolder		folder	= new TemporaryFolder();
+
+	@Test
+	public void testListJar() throws IOException {
+		try (PojoInput input = PojoInput.open(jar("com/mfgeek/gb/sample/"))) {
+			assertEquals(Arrays.asList("com/"), input.list(""));
+			assertEquals(Arrays.asList("Address.class", "Customer.class", "CustomerExample.class", "CustomerKey.class", "Status.class", "order/"),
+					input.list("com/mfgeek/gb/sample/"));
+			assertEquals(Arrays.asList("OrderLine.class"), input.list("com/mfgeek/gb/sample/order/"));
+			assertTrue(input.list("com/mfgeek/gb/graph/").isEmpty());
+		}
+	}
+
+	@Test
+	public void testListDirectory() throws IOException {
+		try (PojoInput input = PojoInput.open(CLASSES)) {
+			assertEquals(Arrays.asList("OrderLine.class"), input.list("com/mfgeek/gb/sample/order/"));
+			assertTrue(input.list("com/mfgeek/gb/sample/").contains("order/"));
+		}
+	}
+
+	@Test
+	public void testListPrefix() throws IOException {
+		try (PojoInput input = PojoInput.open(jar("com/mfgeek/gb/"), "com/mfgeek/gb/sample/order/")) {
+			assertEquals(Arrays.asList("order/"), input.list("com/mfgeek/gb/sample/"));
+			assertEquals(Arrays.asList("OrderLine.class"), input.list("com/mfgeek/gb/sample/order/"));
+			assertTrue(input.list("com/mfgeek/gb/graph/").isEmpty());
+		}
+	}
+
+	@Test
+	public void testReadClass() throws IOException {
+		File classFile = new File(CLASSES, "com/mfgeek/gb/sample/Customer.class");
+		try (PojoInput input = PojoInput.open(jar("com/mfgeek/gb/sample/"))) {
+			assertArrayEquals(Files.readAllBytes(classFile.toPath()), input.readClass("com.mfgeek.gb.sample.Customer"));
+		}
+		// stored rather than deflated
+		File stored = this.folder.newFile("stored.jar");
+		byte[] content = Files.readAllBytes(classFile.toPath());
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(stored))) {
+			JarEntry entry = new JarEntry("com/mfgeek/gb/sample/Customer.class");
+			CRC32 crc = new CRC32();
+			crc.update(content);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(content.length);
+			entry.setCrc(crc.getValue());
+			out.putNextEntry(entry);
+			out.write(content);
+			out.closeEntry();
+		}
+		try (PojoInput input = PojoInput.open(stored)) {
+			assertArrayEquals(content, input.readClass("com.mfgeek.gb.sample.Customer"));
+		}
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void testReadMissingClass() throws IOException {
+		try (PojoInput input = PojoInput.open(jar("com/mfgeek/gb/sample/"), "com/mfgeek/gb/sample/order/")) {
+			input.readClass("com.mfgeek.gb.sample.Customer");
+		}
+	}
+
+	/**
+	 * Every entry of a real jar reads as with {@link JarFile}.
+	 */
+	@Test
+	public void testMappedJar() throws Exception {
+		File junit = new File(Test.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		MappedJar mapped = MappedJar.open(junit, "");
+		int count = 0;
+		try (JarFile jar = new JarFile(junit)) {
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+				if (!entry.isDirectory()) {
+					try (InputStream in = jar.getInputStream(entry)) {
+						assertArrayEquals(entry.getName(), readAll(in), mapped.read(entry.getName()));
+					}
+					count++;
+				}
+			}
+		}
+		assertEquals(count, mapped.getNames().size());
+	}
+
+	@Test
+	public void testGenerateJarClassFiles() throws IOException {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource("src/test/java");
+		config.setPojoPackage("com.mfgeek.gb.sample");
+		config.setProtoPackage("sample");
+		config.setRecursive(true);
+		List<ProtoFile> expected = ProtoGenerator.getInstance().parse(config);
+
+		config.setSource(null);
+		config.setInputs(Arrays.asList(jar("com/mfgeek/gb/")));
+		config.setLoadInputs(false);
+		List<ProtoFile> actual = ProtoGenerator.getInstance().parse(config);
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), actual.get(i).toString());
+		}
+	}
+
+	@Test
+	public void testGenerateInputs() throws IOException {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource("src/test/java");
+		config.setPojoPackage("com.mfgeek.gb.sample");
+		config.setProtoPackage("sample");
+		config.setRecursive(true);
+		List<ProtoFile> expected = ProtoGenerator.getInstance().parse(config);
+
+		config.setSource(null);
+		config.setInputs(Arrays.asList(jar("com/mfgeek/gb/sample/"), CLASSES, new File("missing.jar")));
+		config.setParallelism(3);
+		RunStats stats = new RunStats();
+		config.setStats(stats);
+		List<ProtoFile> actual = ProtoGenerator.getInstance().parse(config);
+		List<ProtoFile> twice = new ArrayList<>(expected);
+		twice.addAll(expected);
+		assertEquals(twice.size(), actual.size());
+		for (int i = 0; i < twice.size(); i++) {
+			assertEquals(twice.get(i).toString(), actual.get(i).toString());
+		}
+		assertEquals(10, stats.get(RunStats.Counter.CLASSES_PROCESSED));
+	}
+
+	@Test
+	public void testGenerateAcrossInputs() throws IOException {
+		// classes out of the classpath of the tool: Assembly refers to Part, held by the other input
+		File parts = compile("Part", "public class Part { private long id; }", null);
+		File assemblies = compile("Assembly", "public class Assembly { private String name; private Part part; }", parts);
+		GeneratorConfig config = new GeneratorConfig();
+		config.setPojoPackage("com.mfgeek.gb.remote");
+		config.setProtoPackage("remote");
+		config.setInputs(Arrays.asList(assemblies, parts));
+		config.setParallelism(2);
+		for (boolean load : new boolean[] { true, false }) {
+			config.setLoadInputs(load);
+			RunStats stats = new RunStats();
+			config.setStats(stats);
+			List<ProtoFile> protos = ProtoGenerator.getInstance().parse(config);
+			assertEquals(2, protos.size());
+			ProtoFile assembly = protos.get(0);
+			assertEquals("Assembly", assembly.getName());
+			assertEquals(Arrays.asList("Part.proto"), new ArrayList<>(assembly.getImports()));
+			assertTrue(assembly.toString(), assembly.toString().contains("optional Part part = 2"));
+			assertEquals("Part", protos.get(1).getName());
+			assertEquals(0, stats.get(RunStats.Counter.CLASSES_FAILED));
+		}
+	}
+
+	/**
+	 * @param pName simple name of a class of the package com.mfgeek.gb.remote
+	 * @param pBody its declaration
+	 * @param pClassPath the classes it refers to, <code>null</code> for none
+	 * @return a directory of classes holding the class only
+	 */
+	private File compile(String pName, String pBody, File pClassPath) throws IOException {
+		File source = new File(this.folder.newFolder(pName + "-src"), pName + ".java");
+		Files.write(source.toPath(), ("package com.mfgeek.gb.remote; " + pBody).getBytes(StandardCharsets.UTF_8));
+		File dir = this.folder.newFolder(pName);
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		String classPath = pClassPath != null ? pClassPath.getPath() : dir.getPath();
+		assertEquals(0, compiler.run(null, null, null, "-cp", classPath, "-d", dir.getPath(), source.getPath()));
+		return dir;
+	}
+
+	/**
+	 * @param pPrefix path prefix of the class files to put in the jar
+	 * @return a jar of the compiled test classes under the prefix
+	 */
+	private File jar(String pPrefix) throws IOException {
+		File jar = this.folder.newFile("model.jar");
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+			add(out, CLASSES, "", pPrefix);
+		}
+		return jar;
+	}
+
+	private static byte[] readAll(InputStream pIn) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = pIn.read(buf)) >= 0) {
+			out.write(buf, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	private static void add(JarOutputStream pOut, File pDir, String pPath, String pPrefix) throws IOException {
+		String[] names = pDir.list();
+		Arrays.sort(names);
+		for (String name : names) {
+			File file = new File(pDir, name);
+			String path = pPath + name;
+			if (file.isDirectory()) {
+				add(pOut, file, path + "/", pPrefix);
+			} else if (path.startsWith(pPrefix)) {
+				pOut.putNextEntry(new JarEntry(path));
+				pOut.write(Files.readAllBytes(file.toPath()));
+				pOut.closeEntry();
+			}
+		}
+	}
+
+}
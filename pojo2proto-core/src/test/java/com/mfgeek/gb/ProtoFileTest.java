@@ -0,0 +1,98 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import okio.Buffer;
+
+public class ProtoFileTest {
+
+	private static final String EXPECTED = "syntax = \"proto2\";\n\npackage sample;\n\nimport \"Address.proto\";\n\n"
+			+ "option java_package = \"com.mfgeek.gb.sample\";\noption java_outer_classname = \"PersonObj\";\n\nmessage Person {\n\n"
+			+ "\trequired string name = 1 ;\n\n\trepeated Address addresses = 2 ;\n\n\toptional int32 age = 3 [ default = 18 ];\n\n}\n";
+
+	@Test
+	public void testToString() {
+		assertEquals(EXPECTED, person().toString());
+	}
+
+	@Test
+	public void testPackedModel() {
+		ProtoFile pf = person();
+		pf.appendImport("Status.proto");
+		pf.appendImport("Address.proto");
+		pf.appendImport("Account.proto");
+		pf.appendMapField("string", "int64", "limits");
+		assertEquals(Arrays.asList("Account.proto", "Address.proto", "Status.proto"), pf.getImports());
+		assertEquals(4, pf.getFields().size());
+		ProtoFile.ProtoField age = pf.getFields().get(2);
+		assertEquals("age", age.getName());
+		assertEquals("default = 18", age.getDefaultValue());
+		assertEquals(3, age.getIndex());
+		assertEquals("string", pf.getFields().get(3).getKeyType());
+		assertEquals(null, pf.getFields().get(0).getKeyType());
+		assertTrue(pf.getFields().get(0).isRequired());
+		assertEquals(person().getFields(), person().getFields());
+		assertEquals(person().hashCode(), person().hashCode());
+		assertFalse(person().getFields().equals(pf.getFields()));
+		// the List contract holds against any list
+		List<ProtoFile.ProtoField> copy = new ArrayList<>(pf.getFields());
+		assertEquals(copy, pf.getFields());
+		assertEquals(pf.getFields(), copy);
+		assertEquals(copy.hashCode(), pf.getFields().hashCode());
+	}
+
+	@Test
+	public void testAppendFieldNumbers() {
+		ProtoFile pf = person();
+		pf.appendField(new ProtoFile.ProtoField(false, false, "int64", "id", null, 10));
+		pf.appendField(false, false, "string", "email", null);
+		assertEquals(10, pf.getFields().get(3).getIndex());
+		assertEquals(11, pf.getFields().get(4).getIndex());
+	}
+
+	@Test
+	public void testAppendSurrogatePairs() throws IOException {
+		String smiley = new String(Character.toChars(0x1F600));
+		Buffer buffer = new Buffer();
+		ProtoFile.SinkAppendable appendable = new ProtoFile.SinkAppendable(buffer);
+		for (char c : ("a" + smiley + "b").toCharArray()) {
+			appendable.append(c);
+		}
+		appendable.append(smiley.charAt(0)).append("c").append(smiley.charAt(0));
+		appendable.flush();
+		assertEquals("a" + smiley + "b?c?", buffer.readUtf8());
+	}
+
+	@Test
+	public void testWriteToSink() throws IOException {
+		for (ProtoFile pf : ProtoGenerator.getInstance().parse("src/test/java", "com.mfgeek.gb.sample", "sample", null, "proto3")) {
+			Buffer buffer = new Buffer();
+			pf.writeTo(buffer);
+			assertEquals(pf.toString(), buffer.readUtf8());
+		}
+	}
+
+	private static ProtoFile person() {
+		ProtoFile pf = new ProtoFile();
+		pf.setSyntax("proto2");
+		pf.setName("Person");
+		pf.setPackageName("sample");
+		pf.setJavaPackage("com.mfgeek.gb.sample");
+		pf.setJavaOuterClassName("PersonObj");
+		pf.appendImport("Address.proto");
+		pf.appendField(true, false, "string", "name", null);
+		pf.appendField(false, true, "Address", "addresses", null);
+		pf.appendField(false, false, "int32", "age", "default = 18");
+		return pf;
+	}
+
+}
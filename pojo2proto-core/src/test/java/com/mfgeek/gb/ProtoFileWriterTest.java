@@ -0,0 +1,103 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okio.Buffer;
+
+public class ProtoFileWriterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSkipIdentical() throws IOException {
+		List<ProtoFile> protos = ProtoGenerator.getInstance().parse("src/test/java", "com.mfgeek.gb.sample", "sample", null, "proto2");
+		File dir = new File(this.folder.getRoot(), "out");
+
+		ProtoFileWriter writer = write(dir, protos);
+		assertEquals(protos.size(), writer.getFilesWritten());
+		assertEquals(0, writer.getFilesUnchanged());
+		assertEquals(protos.get(1).toString(), new String(Files.readAllBytes(new File(dir, "Customer.proto").toPath()), StandardCharsets.UTF_8));
+		long modified = new File(dir, "Customer.proto").lastModified();
+
+		writer = write(dir, protos);
+		assertEquals(0, writer.getFilesWritten());
+		assertEquals(protos.size(), writer.getFilesUnchanged());
+		assertEquals(0, writer.getBytesWritten());
+		assertEquals(modified, new File(dir, "Customer.proto").lastModified());
+		assertEquals(protos.size(), dir.list().length);
+	}
+
+	@Test
+	public void testReplace() throws IOException {
+		File dir = this.folder.getRoot();
+		ProtoFileWriter writer = new ProtoFileWriter(dir.getPath(), 1);
+		writer.write("A.proto", new Buffer().writeUtf8("first"));
+		writer.close();
+		writer = new ProtoFileWriter(dir.getPath(), 1);
+		writer.write("A.proto", new Buffer().writeUtf8("second"));
+		writer.close();
+		assertEquals(1, writer.getFilesWritten());
+		assertEquals(6, writer.getBytesWritten());
+		assertEquals("second", new String(Files.readAllBytes(new File(dir, "A.proto").toPath()), StandardCharsets.UTF_8));
+		assertEquals(1, dir.list().length);
+	}
+
+	@Test
+	public void testPermissions() throws IOException {
+		File dir = this.folder.getRoot();
+		Assume.assumeTrue(Files.getFileStore(dir.toPath()).supportsFileAttributeView(PosixFileAttributeView.class));
+		ProtoFileWriter writer = new ProtoFileWriter(dir.getPath(), 1);
+		writer.write("A.proto", new Buffer().writeUtf8("first"));
+		writer.close();
+		// the permissions of any new file, as given by the umask
+		Path plain = Files.createFile(new File(dir, "plain").toPath());
+		assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(new File(dir, "A.proto").toPath()));
+	}
+
+	@Test
+	public void testRenderFailure() throws IOException {
+		File dir = this.folder.getRoot();
+		ProtoFile broken = new ProtoFile() {
+
+			@Override
+			public void writeTo(Appendable buf) throws IOException {
+				throw new IllegalArgumentException("broken model");
+			}
+		};
+		broken.setName("Broken");
+		ProtoFileWriter writer = new ProtoFileWriter(dir.getPath(), 1);
+		writer.write(broken);
+		writer.write("A.proto", new Buffer().writeUtf8("first"));
+		writer.close();
+		assertEquals(1, writer.getFailures());
+		assertTrue(writer.isFailed("Broken.proto"));
+		assertEquals(1, writer.getFilesWritten());
+		assertFalse(new File(dir, "Broken.proto").exists());
+	}
+
+	private static ProtoFileWriter write(File dir, List<ProtoFile> protos) {
+		ProtoFileWriter writer = new ProtoFileWriter(dir.getPath(), 3);
+		for (ProtoFile pf : protos) {
+			writer.write(pf);
+		}
+		writer.close();
+		return writer;
+	}
+
+}
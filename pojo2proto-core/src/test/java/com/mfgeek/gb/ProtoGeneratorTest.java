@@ -0,0 +1,172 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ProtoGeneratorTest {
+
+	private static final String	SOURCE	= "src/test/java";
+	private static final String	PACKAGE	= "com.mfgeek.gb.sample";
+
+	@Test
+	public void testGetIgnores() {
+		ProtoGenerator pg = ProtoGenerator.getInstance();
+		List<String> is = pg.getIgnores();
+		assertNotNull(is);
+		assertTrue(is.size() == 2);
+
+	}
+
+	@Test
+	public void testParse() {
+		List<ProtoFile> protos = ProtoGenerator.getInstance().parse(SOURCE, PACKAGE, "sample", null, "proto2");
+		assertEquals(4, protos.size());
+		assertEquals("Address", protos.get(0).getName());
+		assertEquals("Customer", protos.get(1).getName());
+		assertEquals("CustomerKey", protos.get(2).getName());
+		assertEquals("Status", protos.get(3).getName());
+
+		ProtoFile customer = protos.get(1);
+		assertEquals(10, customer.getFields().size());
+		assertEquals(Arrays.asList("Address.proto", "Status.proto"), new ArrayList<>(customer.getImports()));
+		assertTrue(customer.toString().contains("repeated Address previousAddresses = 8"));
+		assertTrue(customer.toString().contains("optional int64 id = 10"));
+		assertTrue(protos.get(3).isEnum());
+	}
+
+	@Test
+	public void testParseSelfReferences() {
+		List<ProtoFile> protos = ProtoGenerator.getInstance().parse(SOURCE, "com.mfgeek.gb.graph", "graph", null, "proto2");
+		ProtoFile edge = protos.get(0);
+		ProtoFile node = protos.get(1);
+		assertEquals(Arrays.asList("Node.proto"), new ArrayList<>(edge.getImports()));
+		assertEquals(Arrays.asList("Edge.proto"), new ArrayList<>(node.getImports()));
+		assertTrue(node.toString(), node.toString().contains("optional Node parent = 2"));
+		assertTrue(node.toString(), node.toString().contains("repeated Node children = 3"));
+		assertTrue(node.toString(), node.toString().contains("repeated Edge edges = 5"));
+	}
+
+	@Test
+	public void testParsePrimitiveArrays() {
+		ProtoFile reading = ProtoGenerator.getInstance().parse(SOURCE, "com.mfgeek.gb.telemetry", "telemetry", null, "proto2").get(0);
+		assertEquals(9, reading.getFields().size());
+		String proto = reading.toString();
+		assertTrue(proto, proto.contains("repeated int32 samples = 2 [ packed = true ]"));
+		assertTrue(proto, proto.contains("repeated int64 timestamps = 3 [ packed = true ]"));
+		assertTrue(proto, proto.contains("repeated int32 codes = 4 [ packed = true ]"));
+		assertTrue(proto, proto.contains("repeated bool flags = 7 [ packed = true ]"));
+		assertTrue(proto, proto.contains("optional bytes payload = 8 ;"));
+		assertTrue(proto, proto.contains("repeated int32 counts = 9 [ packed = true ]"));
+		// packed is the proto3 default
+		ProtoFile reading3 = ProtoGenerator.getInstance().parse(SOURCE, "com.mfgeek.gb.telemetry", "telemetry", null, "proto3").get(0);
+		assertTrue(reading3.toString().contains("repeated double values = 6 ;"));
+	}
+
+	@Test
+	public void testParseInheritedFieldsAndMaps() {
+		List<ProtoFile> protos = ProtoGenerator.getInstance().parse(SOURCE, "com.mfgeek.gb.ledger", "ledger", null, "proto2");
+		assertEquals(4, protos.size());
+		ProtoFile account = protos.get(0);
+		String proto = account.toString();
+		assertTrue(proto, proto.contains("optional string owner = 1 ;"));
+		assertTrue(proto, proto.contains("map<string, int64> limits = 2 ;"));
+		assertTrue(proto, proto.contains("map<int32, Ledger> ledgers = 3 ;"));
+		assertFalse(proto, proto.contains("rates"));
+		// the whole chain, closest superclass first
+		assertTrue(proto, proto.contains("optional int64 version = 4 ;"));
+		assertTrue(proto, proto.contains("optional int64 created = 5 ;"));
+		assertTrue(proto, proto.contains("optional string createdBy = 6 ;"));
+		assertEquals(Arrays.asList("Ledger.proto"), new ArrayList<>(account.getImports()));
+		assertEquals(Arrays.asList("com.mfgeek.gb.ledger.Versioned", "com.mfgeek.gb.ledger.Audited"), account.getSuperclassNames());
+		ProtoFile ledger = protos.get(2);
+		assertEquals("Ledger", ledger.getName());
+		assertEquals(5, ledger.getFields().size());
+		assertEquals(protos, ProtoGenerator.getInstance().parse(SOURCE, "com.mfgeek.gb.ledger", "ledger", null, "proto2", 1,
+				new ClassFilePojoReader(new File("target/test-classes"))));
+	}
+
+	@Test
+	public void testParseParallel() {
+		List<ProtoFile> sequential = ProtoGenerator.getInstance().parse(SOURCE, PACKAGE, "sample", null, "proto3", 1);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(sequential, ProtoGenerator.getInstance().parse(SOURCE, PACKAGE, "sample", null, "proto3", 4));
+		}
+	}
+
+	@Test
+	public void testParseClassFiles() {
+		assertEquals(ProtoGenerator.getInstance().parse(SOURCE, PACKAGE, "sample", null, "proto2"),
+				ProtoGenerator.getInstance().parse(SOURCE, PACKAGE, "sample", null, "proto2", 1, new ClassFilePojoReader(new File("target/test-classes"))));
+	}
+
+	@Test
+	public void testGenerate() {
+		GeneratorConfig config = config();
+		config.setParallelism(4);
+		final List<ProtoFile> streamed = new ArrayList<>();
+		int count = ProtoGenerator.getInstance().generate(config, new ProtoFileSink() {
+
+			@Override
+			public void accept(ProtoFile pProtoFile) {
+				streamed.add(pProtoFile);
+			}
+		});
+		assertEquals(4, count);
+		assertEquals(ProtoGenerator.getInstance().parse(SOURCE, PACKAGE, "sample", null, "proto2"), streamed);
+	}
+
+	@Test
+	public void testParseRecursive() {
+		GeneratorConfig config = config();
+		config.setRecursive(true);
+		List<ProtoFile> protos = ProtoGenerator.getInstance().parse(config);
+		assertEquals(5, protos.size());
+		ProtoFile orderLine = protos.get(4);
+		assertEquals("OrderLine", orderLine.getName());
+		assertEquals("com.mfgeek.gb.sample.order", orderLine.getJavaPackage());
+		assertTrue(orderLine.getImports().contains("Address.proto"));
+		assertTrue(orderLine.toString().contains("optional Address deliveryAddress = 3"));
+	}
+
+	@Test
+	public void testParseRecursiveSameSimpleNames() {
+		GeneratorConfig config = config();
+		config.setPojoPackage("com.mfgeek.gb.clash");
+		config.setRecursive(true);
+		try {
+			ProtoGenerator.getInstance().parse(config);
+			fail("two classes named Item map to the same proto message");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("com.mfgeek.gb.clash.Item"));
+			assertTrue(e.getMessage(), e.getMessage().contains("com.mfgeek.gb.clash.sub.Item"));
+		}
+	}
+
+	@Test
+	public void testReflectionCache() throws ClassNotFoundException {
+		PojoClass customer = new ReflectionPojoReader().read(PACKAGE + ".Customer");
+		assertSame(customer, new ReflectionPojoReader().read(PACKAGE + ".Customer"));
+		assertEquals("address", customer.getFields().get(7).getTypeKey());
+		assertEquals("address", customer.getFields().get(8).getTypeArgumentKey(0));
+	}
+
+	private static GeneratorConfig config() {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource(SOURCE);
+		config.setPojoPackage(PACKAGE);
+		config.setProtoPackage("sample");
+		return config;
+	}
+
+}
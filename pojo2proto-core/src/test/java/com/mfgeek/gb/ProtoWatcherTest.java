@@ -0,0 +1,104 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProtoWatcherTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRegenerateAffected() throws Exception {
+		File source = this.folder.newFolder("src");
+		File classes = this.folder.newFolder("classes");
+		File out = this.folder.newFolder("out");
+		Path sourceDir = copy(new File("src/test/java/com/mfgeek/gb/sample"), new File(source, "com/mfgeek/gb/sample"), ".java");
+		Path classesDir = copy(new File("target/test-classes/com/mfgeek/gb/sample"), new File(classes, "com/mfgeek/gb/sample"), ".class");
+
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource(source.getPath());
+		config.setPojoPackage("com.mfgeek.gb.sample");
+		config.setProtoPackage("sample");
+		try (ProtoWatcher watcher = new ProtoWatcher(config, classes, out.getPath(), 2)) {
+			watcher.setDebounceMillis(50);
+			ProtoWatcher.Regeneration all = watcher.generateAll();
+			assertTrue(all.isFull());
+			assertEquals(new HashSet<>(Arrays.asList("Address", "Customer", "CustomerKey", "Status")), all.getProtoNames());
+			assertEquals(4, all.getFilesChanged());
+
+			// a recompiled class regenerates its proto file and the ones importing it
+			Path address = classesDir.resolve("Address.class");
+			Files.write(address, Files.readAllBytes(address));
+			ProtoWatcher.Regeneration changed = watcher.poll(10000);
+			assertFalse(changed.isFull());
+			assertEquals(new HashSet<>(Arrays.asList("Address", "Customer")), changed.getProtoNames());
+			assertEquals(0, changed.getFilesChanged());
+
+			// a deleted class removes its proto file and the imports of it
+			Files.delete(sourceDir.resolve("Status.java"));
+			changed = watcher.poll(10000);
+			assertTrue(changed.isFull());
+			assertEquals(new HashSet<>(Arrays.asList("Address", "Customer", "CustomerKey")), changed.getProtoNames());
+			assertEquals(2, changed.getFilesChanged());
+			assertFalse(new File(out, "Status.proto").exists());
+			assertFalse(new String(Files.readAllBytes(new File(out, "Customer.proto").toPath()), "UTF-8").contains("Status"));
+		}
+	}
+
+	@Test
+	public void testRegenerateBundled() throws Exception {
+		File source = this.folder.newFolder("src");
+		File classes = this.folder.newFolder("classes");
+		File out = this.folder.newFolder("out");
+		copy(new File("src/test/java/com/mfgeek/gb/sample"), new File(source, "com/mfgeek/gb/sample"), ".java");
+		Path classesDir = copy(new File("target/test-classes/com/mfgeek/gb/sample"), new File(classes, "com/mfgeek/gb/sample"), ".class");
+
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource(source.getPath());
+		config.setPojoPackage("com.mfgeek.gb.sample");
+		config.setProtoPackage("sample");
+		config.setBundling(new ProtoBundling());
+		try (ProtoWatcher watcher = new ProtoWatcher(config, classes, out.getPath(), 2)) {
+			watcher.setDebounceMillis(50);
+			ProtoWatcher.Regeneration all = watcher.generateAll();
+			assertEquals(new HashSet<>(Arrays.asList("com.mfgeek.gb.sample")), all.getProtoNames());
+			assertEquals(1, out.list().length);
+
+			// the bundle holds every class of the package, it is regenerated whole
+			Path address = classesDir.resolve("Address.class");
+			Files.write(address, Files.readAllBytes(address));
+			ProtoWatcher.Regeneration changed = watcher.poll(10000);
+			assertTrue(changed.isFull());
+			assertEquals(new HashSet<>(Arrays.asList("com.mfgeek.gb.sample")), changed.getProtoNames());
+			assertEquals(0, changed.getFilesChanged());
+			String bundle = new String(Files.readAllBytes(new File(out, "com.mfgeek.gb.sample.proto").toPath()), "UTF-8");
+			assertTrue(bundle.contains("message Address {"));
+			assertTrue(bundle.contains("message Customer {"));
+			assertEquals(1, out.list().length);
+		}
+	}
+
+	private static Path copy(File pFrom, File pTo, String pExtension) throws IOException {
+		pTo.mkdirs();
+		for (File file : pFrom.listFiles()) {
+			if (file.getName().endsWith(pExtension)) {
+				Files.copy(file.toPath(), new File(pTo, file.getName()).toPath());
+			}
+		}
+		return pTo.toPath();
+	}
+
+}
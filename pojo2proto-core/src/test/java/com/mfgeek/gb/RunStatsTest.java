@@ -0,0 +1,82 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class RunStatsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testReport() throws IOException {
+		RunStats stats = new RunStats();
+		GeneratorConfig config = config(stats);
+		ProtoFileWriter writer = new ProtoFileWriter(this.folder.getRoot().getPath(), 2, stats);
+		try (IncrementalSink sink = new IncrementalSink(writer, null)) {
+			ProtoGenerator.getInstance().generate(config, sink);
+		}
+		stats.stop();
+
+		assertEquals(4, stats.get(RunStats.Counter.CLASSES_FOUND));
+		assertEquals(4, stats.get(RunStats.Counter.CLASSES_PROCESSED));
+		assertEquals(0, stats.get(RunStats.Counter.CLASSES_FAILED));
+		assertEquals(4, stats.get(RunStats.Counter.FILES_WRITTEN));
+		assertEquals(writer.getBytesWritten(), stats.get(RunStats.Counter.BYTES_WRITTEN));
+		assertTrue(stats.get(RunStats.Counter.FIELDS) >= 15);
+		for (RunStats.Phase phase : RunStats.Phase.values()) {
+			assertTrue(phase.name(), stats.getNanos(phase) > 0);
+		}
+		assertEquals(4, stats.getSlowestClasses().size());
+
+		String json = stats.toJson();
+		assertTrue(json, json.contains("\"classesProcessed\": 4,"));
+		assertTrue(json, json.contains("\"filesWritten\": 4,"));
+		assertTrue(json, json.contains("\"phaseMillis\": {"));
+		assertTrue(json, json.contains("{ \"name\": \"com.mfgeek.gb.sample."));
+	}
+
+	@Test
+	public void testClassProcessedEvents() throws IOException {
+		Path file = this.folder.newFile("run.jfr").toPath();
+		try (Recording recording = new Recording()) {
+			recording.enable("com.mfgeek.gb.ClassProcessed");
+			recording.start();
+			ProtoGenerator.getInstance().parse(config(null));
+			recording.stop();
+			recording.dump(file);
+		}
+		Set<String> classes = new HashSet<>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+			if (event.getEventType().getName().equals("com.mfgeek.gb.ClassProcessed")) {
+				classes.add(event.getString("className"));
+				assertTrue(event.getInt("fields") > 0);
+			}
+		}
+		assertEquals(4, classes.size());
+		assertTrue(classes.contains("com.mfgeek.gb.sample.Customer"));
+	}
+
+	private static GeneratorConfig config(RunStats pStats) {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource("src/test/java");
+		config.setPojoPackage("com.mfgeek.gb.sample");
+		config.setProtoPackage("sample");
+		config.setStats(pStats);
+		return config;
+	}
+
+}
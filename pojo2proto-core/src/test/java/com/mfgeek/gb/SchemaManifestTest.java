@@ -0,0 +1,124 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SchemaManifestTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		File dir = this.folder.getRoot();
+		new File(dir, "Address.proto").createNewFile();
+
+		SchemaManifest manifest = SchemaManifest.load(dir);
+		assertFalse(manifest.isUpToDate("Address.proto", "f1"));
+		manifest.record("Address.proto", "f1", "h1");
+		manifest.record("Customer.proto", "f2", "h2");
+		manifest.save();
+
+		manifest = SchemaManifest.load(dir);
+		assertTrue(manifest.isUpToDate("Address.proto", "f1"));
+		assertFalse(manifest.isUpToDate("Address.proto", "f3"));
+		assertTrue(manifest.isUnchanged("Address.proto", "h1"));
+		// the proto file is gone, it must be generated again
+		assertFalse(manifest.isUpToDate("Customer.proto", "f2"));
+		assertFalse(manifest.isUnchanged("Customer.proto", "h2"));
+		manifest.save();
+
+		// entries not seen by the last run are dropped
+		manifest = SchemaManifest.load(dir);
+		assertTrue(manifest.isUpToDate("Address.proto", "f1"));
+		assertFalse(manifest.isUnchanged("Customer.proto", "h2"));
+	}
+
+	@Test
+	public void testDeleteRemoved() throws IOException {
+		File dir = this.folder.getRoot();
+		SchemaManifest manifest = SchemaManifest.load(dir);
+		for (String name : new String[] { "A.proto", "B.proto", "C.proto" }) {
+			new File(dir, name).createNewFile();
+			manifest.record(name, "f", "h");
+		}
+		manifest.save();
+
+		manifest = SchemaManifest.load(dir);
+		assertTrue(manifest.isUpToDate("A.proto", "f"));
+		// produced but not written: no entry, the file stays
+		manifest.skip("B.proto");
+		assertEquals(1, manifest.deleteRemoved());
+		manifest.save();
+		assertTrue(new File(dir, "B.proto").isFile());
+		assertFalse(new File(dir, "C.proto").exists());
+
+		manifest = SchemaManifest.load(dir);
+		assertTrue(manifest.isUpToDate("A.proto", "f"));
+		assertFalse(manifest.isUpToDate("B.proto", "f"));
+	}
+
+	@Test
+	public void testFailedWriteNotRecorded() throws IOException {
+		List<ProtoFile> protos = ProtoGenerator.getInstance().parse("src/test/java", "com.mfgeek.gb.sample", "sample", null, "proto2");
+		File dir = this.folder.getRoot();
+		// a non empty directory cannot be replaced by the proto file
+		new File(dir, "Customer.proto/blocker").mkdirs();
+		try (IncrementalSink sink = new IncrementalSink(new ProtoFileWriter(dir.getPath(), 2), SchemaManifest.load(dir))) {
+			for (ProtoFile pf : protos) {
+				sink.accept(pf);
+			}
+		}
+		SchemaManifest manifest = SchemaManifest.load(dir);
+		assertFalse(manifest.isUpToDate("Customer.proto", protos.get(1).getSourceFingerprint()));
+		assertTrue(manifest.isUpToDate("Address.proto", protos.get(0).getSourceFingerprint()));
+	}
+
+	@Test
+	public void testFailedClassKeepsRemoved() throws IOException {
+		List<ProtoFile> protos = ProtoGenerator.getInstance().parse("src/test/java", "com.mfgeek.gb.sample", "sample", null, "proto2");
+		File dir = this.folder.getRoot();
+		try (IncrementalSink sink = new IncrementalSink(new ProtoFileWriter(dir.getPath(), 2), SchemaManifest.load(dir))) {
+			for (ProtoFile pf : protos) {
+				sink.accept(pf);
+			}
+		}
+		// Customer could not be read: its proto file and entry stay
+		RunStats stats = new RunStats();
+		stats.increment(RunStats.Counter.CLASSES_FAILED);
+		IncrementalSink sink = new IncrementalSink(new ProtoFileWriter(dir.getPath(), 2, stats), SchemaManifest.load(dir));
+		sink.accept(protos.get(0));
+		sink.close();
+		assertEquals(0, sink.getProtosDeleted());
+		assertTrue(new File(dir, "Customer.proto").isFile());
+		assertTrue(SchemaManifest.load(dir).isUpToDate("Customer.proto", protos.get(1).getSourceFingerprint()));
+
+		// once read again, the classes really gone are deleted
+		sink = new IncrementalSink(new ProtoFileWriter(dir.getPath(), 2, new RunStats()), SchemaManifest.load(dir));
+		sink.accept(protos.get(0));
+		sink.close();
+		assertEquals(protos.size() - 1, sink.getProtosDeleted());
+		assertFalse(new File(dir, "Customer.proto").exists());
+	}
+
+	@Test
+	public void testFingerprint() {
+		List<ProtoFile> proto2 = ProtoGenerator.getInstance().parse("src/test/java", "com.mfgeek.gb.sample", "sample", null, "proto2");
+		List<ProtoFile> proto3 = ProtoGenerator.getInstance().parse("src/test/java", "com.mfgeek.gb.sample", "sample", null, "proto3");
+		assertEquals(proto2.get(0).getSourceFingerprint(),
+				ProtoGenerator.getInstance().parse("src/test/java", "com.mfgeek.gb.sample", "sample", null, "proto2").get(0).getSourceFingerprint());
+		assertNotEquals(proto2.get(0).getSourceFingerprint(), proto2.get(1).getSourceFingerprint());
+		assertNotEquals(proto2.get(0).getSourceFingerprint(), proto3.get(0).getSourceFingerprint());
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.mfgeek.gb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SourcePojoReaderTest {
+
+	private static final String	SOURCE	= "src/test/java";
+
+	@Test
+	public void testSameAsReflection() throws ClassNotFoundException {
+		SourcePojoReader reader = new SourcePojoReader(new File(SOURCE));
+		for (String name : Arrays.asList("com.mfgeek.gb.source.Shipment", "com.mfgeek.gb.source.Priority", "com.mfgeek.gb.sample.Customer",
+				"com.mfgeek.gb.sample.CustomerKey", "com.mfgeek.gb.sample.Status", "com.mfgeek.gb.sample.order.OrderLine", "com.mfgeek.gb.telemetry.Reading",
+				"com.mfgeek.gb.graph.Node", "com.mfgeek.gb.ledger.Account")) {
+			PojoClass expected = new ReflectionPojoReader().read(name);
+			PojoClass actual = reader.read(name);
+			assertEquals(name, expected.getName(), actual.getName());
+			assertEquals(name, expected.getSimpleName(), actual.getSimpleName());
+			assertEquals(name, expected.getPackageName(), actual.getPackageName());
+			assertEquals(name, expected.isEnum(), actual.isEnum());
+			assertEquals(name, expected.getSuperclassName(), actual.getSuperclassName());
+			assertEquals(name, declared(expected.getFields()), actual.getFields());
+		}
+	}
+
+	@Test
+	public void testResolution() throws ClassNotFoundException {
+		PojoClass shipment = new SourcePojoReader(new File(SOURCE)).read("com.mfgeek.gb.source.Shipment");
+		assertEquals("com.mfgeek.gb.source.BaseShipment", shipment.getSuperclassName());
+		assertEquals("java.lang.Number", field(shipment, "weight").getTypeName());
+		assertEquals("com.mfgeek.gb.source.Shipment$Status", field(shipment, "status").getTypeName());
+		assertEquals("com.mfgeek.gb.sample.Status", field(shipment, "sampleStatus").getTypeName());
+		assertEquals("java.util.Map$Entry", field(shipment, "last").getTypeName());
+		assertEquals("int[][]", field(shipment, "matrix").getTypeName());
+		assertEquals(Arrays.asList("com.mfgeek.gb.sample.Address"), field(shipment, "stops").getTypeArguments());
+		assertTrue(field(shipment, "stops").isCollection());
+		assertEquals(Arrays.asList("java.lang.String", null), field(shipment, "byCity").getTypeArguments());
+		assertEquals(17, shipment.getFields().size());
+	}
+
+	@Test
+	public void testGenerate() {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource(SOURCE);
+		config.setPojoPackage("com.mfgeek.gb.sample");
+		config.setProtoPackage("sample");
+		config.setRecursive(true);
+		List<ProtoFile> expected = ProtoGenerator.getInstance().parse(config);
+		config.setReader(new SourcePojoReader(new File(SOURCE)));
+		config.setParallelism(2);
+		List<ProtoFile> actual = ProtoGenerator.getInstance().parse(config);
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), actual.get(i).toString());
+		}
+	}
+
+	/**
+	 * @return the fields declared in the source, without the ones the compiler generates
+	 */
+	private static List<PojoField> declared(List<PojoField> pFields) {
+		List<PojoField> fields = new ArrayList<>();
+		for (PojoField field : pFields) {
+			if (field.getName().indexOf('$') < 0) {
+				fields.add(field);
+			}
+		}
+		return fields;
+	}
+
+	private static PojoField field(PojoClass pClass, String pName) {
+		for (PojoField field : pClass.getFields()) {
+			if (field.getName().equals(pName)) {
+				return field;
+			}
+		}
+		throw new AssertionError(pName);
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.mfgeek.gb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * A package of generated POJO classes, written and compiled in process.
+ * <ul>
+ * <li><code>Entity&lt;i&gt;</code> refers to <code>Entity&lt;i-1&gt;</code>, so the references
+ * chain through the whole package, and holds a list of <code>Entity&lt;i/2&gt;</code>;</li>
+ * <li>one entity in ten extends its <code>Entity&lt;i&gt;Key</code>, whose fields are copied into
+ * its proto file;</li>
+ * <li>fifty entities share a <code>Kind&lt;k&gt;</code> enum.</li>
+ * </ul>
+ * Classes only refer to classes of lower index, so they compile in batches of bounded size.
+ */
+final class SyntheticModel {
+
+	static final String		PACKAGE				= "stress.model";
+
+	private static final int	BATCH_SIZE		= 2000;
+	private static final int	KEY_EVERY			= 10;
+	private static final int	ENUM_EVERY		= 50;
+
+	private final File				source;
+	private final File				classes;
+	private final int					entityCount;
+
+	/**
+	 * @param pRoot directory of the model, receives <code>src</code> and <code>classes</code>
+	 * @param pEntityCount number of entity classes
+	 */
+	SyntheticModel(File pRoot, int pEntityCount) {
+		this.source = new File(pRoot, "src");
+		this.classes = new File(pRoot, "classes");
+		this.entityCount = pEntityCount;
+	}
+
+	/**
+	 * @return number of classes, entities, keys and enums, so of proto files
+	 */
+	int getClassCount() {
+		return this.entityCount + (this.entityCount + KEY_EVERY - 1) / KEY_EVERY + (this.entityCount + ENUM_EVERY - 1) / ENUM_EVERY;
+	}
+
+	File getSource() {
+		return this.source;
+	}
+
+	File getClasses() {
+		return this.classes;
+	}
+
+	/**
+	 * Write the sources and compile them.
+	 *
+	 * @throws IOException if a file cannot be written or a batch does not compile
+	 */
+	void build() throws IOException {
+		File dir = new File(this.source, PACKAGE.replace('.', File.separatorChar));
+		if (!dir.mkdirs() || !this.classes.mkdirs()) {
+			throw new IOException("Unable to create " + dir + " and " + this.classes);
+		}
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		List<File> batch = new ArrayList<>(BATCH_SIZE);
+		for (int k = 0; k * ENUM_EVERY < this.entityCount; k++) {
+			batch.add(write(dir, "Kind" + k, "package " + PACKAGE + ";\n\npublic enum Kind" + k + " {\n\tLOW, MEDIUM, HIGH;\n}\n"));
+		}
+		compile(compiler, batch);
+		for (int i = 0; i < this.entityCount; i++) {
+			if (i % KEY_EVERY == 0) {
+				batch.add(write(dir, "Entity" + i + "Key", key(i)));
+			}
+			batch.add(write(dir, "Entity" + i, entity(i)));
+			if (batch.size() >= BATCH_SIZE) {
+				compile(compiler, batch);
+			}
+		}
+		compile(compiler, batch);
+	}
+
+	private static File write(File pDir, String pName, String pSource) throws IOException {
+		File file = new File(pDir, pName + ".java");
+		try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			out.write(pSource);
+		}
+		return file;
+	}
+
+	private static String key(int i) {
+		return "package " + PACKAGE + ";\n\npublic class Entity" + i + "Key {\n\tprivate long id;\n\tprivate String tenant;\n}\n";
+	}
+
+	private static String entity(int i) {
+		StringBuilder buf = new StringBuilder(512);
+		buf.append("package ").append(PACKAGE).append(";\n\n");
+		buf.append("public class Entity").append(i);
+		if (i % KEY_EVERY == 0) {
+			buf.append(" extends Entity").append(i).append("Key");
+		}
+		buf.append(" {\n");
+		buf.append("\tprivate static final long serialVersionUID = 1L;\n");
+		buf.append("\tprivate String name;\n");
+		buf.append("\tprivate int count;\n");
+		buf.append("\tprivate Long total;\n");
+		buf.append("\tprivate double ratio;\n");
+		buf.append("\tprivate boolean active;\n");
+		buf.append("\tprivate java.util.Date created;\n");
+		buf.append("\tprivate java.util.List<String> tags;\n");
+		buf.append("\tprivate java.util.Set<Integer> codes;\n");
+		buf.append("\tprivate Kind").append(i / ENUM_EVERY).append(" kind;\n");
+		if (i > 0) {
+			buf.append("\tprivate Entity").append(i - 1).append(" parent;\n");
+			buf.append("\tprivate java.util.List<Entity").append(i / 2).append("> related;\n");
+		}
+		return buf.append("}\n").toString();
+	}
+
+	/**
+	 * @param pCompiler the compiler
+	 * @param pBatch the sources to compile, emptied
+	 * @throws IOException if the batch does not compile
+	 */
+	private void compile(JavaCompiler pCompiler, List<File> pBatch) throws IOException {
+		if (pBatch.isEmpty()) {
+			return;
+		}
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		try (StandardJavaFileManager fileManager = pCompiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(pBatch);
+			List<String> options = new ArrayList<>();
+			options.add("-d");
+			options.add(this.classes.getPath());
+			options.add("-classpath");
+			options.add(this.classes.getPath());
+			options.add("-proc:none");
+			options.add("-implicit:none");
+			options.add("-nowarn");
+			if (!pCompiler.getTask(null, fileManager, diagnostics, options, null, units).call()) {
+				throw new IOException("Unable to compile " + pBatch.size() + " files: " + diagnostics.getDiagnostics().get(0));
+			}
+		}
+		pBatch.clear();
+	}
+
+}
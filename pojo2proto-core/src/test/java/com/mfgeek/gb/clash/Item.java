@@ -0,0 +1,11 @@
+package com.mfgeek.gb.clash;
+
+import lombok.Data;
+
+@Data
+public class Item {
+
+	private String												name;
+	private com.mfgeek.gb.clash.sub.Item	part;
+
+}
@@ -0,0 +1,10 @@
+package com.mfgeek.gb.clash.sub;
+
+import lombok.Data;
+
+@Data
+public class Item {
+
+	private int	quantity;
+
+}
@@ -0,0 +1,12 @@
+package com.mfgeek.gb.graph;
+
+import lombok.Data;
+
+@Data
+public class Edge {
+
+	private Node		from;
+	private Node		to;
+	private double	weight;
+
+}
@@ -0,0 +1,16 @@
+package com.mfgeek.gb.graph;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class Node {
+
+	private String			name;
+	private Node				parent;
+	private List<Node>	children;
+	private Edge				first;
+	private List<Edge>	edges;
+
+}
@@ -0,0 +1,21 @@
+package com.mfgeek.gb.ledger;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class Account extends Versioned {
+
+	private String									owner;
+	private Map<String, Long>				limits;
+	private TreeMap<Integer, Ledger>	ledgers;
+	/** no proto map: floating point keys */
+	private Map<Double, String>			rates;
+
+}
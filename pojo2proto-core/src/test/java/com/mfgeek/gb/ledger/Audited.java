@@ -0,0 +1,13 @@
+package com.mfgeek.gb.ledger;
+
+import java.util.Date;
+
+import lombok.Data;
+
+@Data
+public abstract class Audited {
+
+	private Date		created;
+	private String	createdBy;
+
+}
@@ -0,0 +1,15 @@
+package com.mfgeek.gb.ledger;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class Ledger extends Versioned {
+
+	private String	currency;
+	private double	balance;
+
+}
@@ -0,0 +1,14 @@
+package com.mfgeek.gb.ledger;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public abstract class Versioned extends Audited {
+
+	private long version;
+
+}
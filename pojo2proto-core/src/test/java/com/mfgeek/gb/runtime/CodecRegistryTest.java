@@ -0,0 +1,249 @@
+package com.mfgeek.gb.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.mfgeek.gb.ProtoFile;
+import com.mfgeek.gb.ProtoGenerator;
+import com.mfgeek.gb.ledger.Account;
+import com.mfgeek.gb.ledger.Ledger;
+import com.mfgeek.gb.sample.Address;
+import com.mfgeek.gb.sample.Customer;
+import com.mfgeek.gb.sample.Status;
+import com.mfgeek.gb.telemetry.Reading;
+
+public class CodecRegistryTest {
+
+	private static final String	SOURCE	= "src/test/java";
+	private static final String	PACKAGE	= "com.mfgeek.gb.sample";
+
+	private static CodecRegistry registry(String pSyntax) {
+		return new CodecRegistry(ProtoGenerator.getInstance().parse(SOURCE, PACKAGE, "sample", null, pSyntax));
+	}
+
+	private static byte[] bytes(int... pValues) {
+		byte[] bytes = new byte[pValues.length];
+		for (int i = 0; i < pValues.length; i++) {
+			bytes[i] = (byte) pValues[i];
+		}
+		return bytes;
+	}
+
+	private static Address address(String pStreet, String pCity, int pZipCode) {
+		Address address = new Address();
+		address.setStreet(pStreet);
+		address.setCity(pCity);
+		address.setZipCode(pZipCode);
+		return address;
+	}
+
+	@Test
+	public void testEncodeScalars() {
+		assertArrayEquals(bytes(0x0A, 0x01, 'a', 0x12, 0x01, 'b', 0x18, 0x96, 0x01), registry("proto2").codec(Address.class).encode(address("a", "b", 150)));
+	}
+
+	@Test
+	public void testEncodeProto3SkipsDefaults() {
+		Customer customer = new Customer();
+		customer.setId(1);
+		customer.setName("n");
+		customer.setStatus(Status.SUSPENDED);
+		assertArrayEquals(bytes(0x0A, 0x01, 'n', 0x30, 0x01, 0x50, 0x01), registry("proto3").codec(Customer.class).encode(customer));
+	}
+
+	@Test
+	public void testEncodeNestedAndRepeated() {
+		Customer customer = new Customer();
+		customer.setVip(true);
+		customer.setAddress(address("a", "", 0));
+		customer.setPreviousAddresses(Arrays.asList(address("", "b", 0), null));
+		customer.setTags(Arrays.asList("x", "yz"));
+		assertArrayEquals(bytes(0x18, 0x01, // vip
+				0x3A, 0x03, 0x0A, 0x01, 'a', // address
+				0x42, 0x03, 0x12, 0x01, 'b', // previousAddresses, the null element is skipped
+				0x4A, 0x01, 'x', 0x4A, 0x02, 'y', 'z'), // tags
+				registry("proto3").codec(Customer.class).encode(customer));
+	}
+
+	private static Customer customer() {
+		Customer customer = new Customer();
+		customer.setId(-42);
+		customer.setName("h\u00e9llo \ud83d\ude00");
+		customer.setAge(-1);
+		customer.setVip(true);
+		customer.setBalance(12.5);
+		customer.setCreated(new Date(1234567890123L));
+		customer.setStatus(Status.CLOSED);
+		customer.setAddress(address("a", "b", 150));
+		customer.setPreviousAddresses(Arrays.asList(address("c", "d", 1), address("e", "f", 2)));
+		customer.setTags(Arrays.asList("x", "yz"));
+		return customer;
+	}
+
+	@Test
+	public void testDecodeRoundTrip() {
+		Customer customer = customer();
+		for (String syntax : new String[] { "proto2", "proto3" }) {
+			ProtoCodec<Customer> codec = registry(syntax).codec(Customer.class);
+			assertEquals(customer, codec.decode(codec.encode(customer)));
+		}
+	}
+
+	@Test
+	public void testGeneratedCodec() {
+		Customer customer = customer();
+		Customer empty = new Customer();
+		for (String syntax : new String[] { "proto2", "proto3" }) {
+			ProtoCodec<Customer> reflection = registry(syntax).codec(Customer.class);
+			ProtoCodec<Customer> generated = new CodecRegistry(ProtoGenerator.getInstance().parse(SOURCE, PACKAGE, "sample", null, syntax), true).codec(Customer.class);
+			assertTrue(generated.getClass().getName(), generated.getClass().getName().contains("Customer$$ProtoCodec"));
+			assertArrayEquals(reflection.encode(customer), generated.encode(customer));
+			assertArrayEquals(reflection.encode(empty), generated.encode(empty));
+			assertEquals(customer, generated.decode(reflection.encode(customer)));
+			assertEquals(empty, generated.decode(reflection.encode(empty)));
+		}
+	}
+
+	@Test
+	public void testGeneratedCodecOfAnotherClassLoader() throws Exception {
+		try (URLClassLoader loader = new SampleClassLoader()) {
+			Class<?> customerClass = loader.loadClass(Customer.class.getName());
+			assertNotSame(Customer.class, customerClass);
+			@SuppressWarnings("unchecked")
+			ProtoCodec<Object> generated = (ProtoCodec<Object>) new CodecRegistry(ProtoGenerator.getInstance().parse(SOURCE, PACKAGE, "sample", null, "proto2"), true)
+					.codec(customerClass);
+			assertTrue(generated.getClass().getName(), generated.getClass().getName().contains("Customer$$ProtoCodec"));
+			byte[] bytes = registry("proto2").codec(Customer.class).encode(customer());
+			Object decoded = generated.decode(bytes);
+			assertSame(customerClass, decoded.getClass());
+			assertArrayEquals(bytes, generated.encode(decoded));
+		}
+	}
+
+	/**
+	 * Load the classes of the sample package itself, as a class loader of an application would.
+	 */
+	private static final class SampleClassLoader extends URLClassLoader {
+
+		SampleClassLoader() throws IOException {
+			super(new URL[] { new File("target/test-classes").toURI().toURL() }, CodecRegistryTest.class.getClassLoader());
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String pName, boolean pResolve) throws ClassNotFoundException {
+			if (!pName.startsWith(PACKAGE + ".")) {
+				return super.loadClass(pName, pResolve);
+			}
+			Class<?> c = findLoadedClass(pName);
+			return c != null ? c : findClass(pName);
+		}
+	}
+
+	@Test
+	public void testDecodeSkipsUnknownFields() {
+		byte[] bytes = bytes(0x0A, 0x01, 'a', // street
+				0x20, 0x96, 0x01, // unknown varint
+				0x2A, 0x02, 'z', 'z', // unknown length delimited
+				0x35, 0x01, 0x02, 0x03, 0x04, // unknown fixed32
+				0x18, 0x05); // zipCode
+		assertEquals(address("a", null, 5), registry("proto2").codec(Address.class).decode(bytes));
+	}
+
+	@Test
+	public void testMergeReusesCollections() {
+		ProtoCodec<Customer> codec = registry("proto3").codec(Customer.class);
+		Customer source = new Customer();
+		source.setTags(Arrays.asList("b"));
+		List<String> tags = new ArrayList<>(Arrays.asList("a"));
+		Customer target = new Customer();
+		target.setTags(tags);
+		codec.mergeFrom(target, new ProtoInput(codec.encode(source)));
+		assertSame(tags, target.getTags());
+		assertEquals(Arrays.asList("a", "b"), tags);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDecodeTruncated() {
+		registry("proto2").codec(Address.class).decode(bytes(0x0A, 0x05, 'a'));
+	}
+
+	@Test
+	public void testPrimitiveArrays() {
+		List<ProtoFile> protos = ProtoGenerator.getInstance().parse(SOURCE, "com.mfgeek.gb.telemetry", "telemetry", null, "proto2");
+		ProtoCodec<Reading> reflection = new CodecRegistry(protos).codec(Reading.class);
+		ProtoCodec<Reading> generated = new CodecRegistry(protos, true).codec(Reading.class);
+		assertTrue(generated.getClass().getName().contains("Reading$$ProtoCodec"));
+
+		Reading reading = new Reading();
+		reading.setSamples(new int[] { 1, 150 });
+		reading.setPayload(new byte[] { 7 });
+		assertArrayEquals(bytes(0x12, 0x03, 0x01, 0x96, 0x01, 0x42, 0x01, 0x07), reflection.encode(reading));
+		assertArrayEquals(reflection.encode(reading), generated.encode(reading));
+
+		reading.setSensor("s");
+		reading.setTimestamps(new long[] { -1L, Long.MAX_VALUE });
+		reading.setCodes(new short[] { -2, 300 });
+		reading.setWeights(new float[] { 0.5f });
+		reading.setValues(new double[] { 1.5, -0.0 });
+		reading.setFlags(new boolean[] { true, false, true });
+		reading.setCounts(Arrays.asList(3, 4));
+		assertArrayEquals(reflection.encode(reading), generated.encode(reading));
+		for (ProtoCodec<Reading> codec : Arrays.asList(reflection, generated)) {
+			assertEquals(reading, codec.decode(reflection.encode(reading)));
+			// unpacked records are appended in order, a run of them at once
+			assertArrayEquals(new int[] { 1, 150, 5 }, codec.decode(bytes(0x12, 0x03, 0x01, 0x96, 0x01, 0x10, 0x05)).getSamples());
+			assertArrayEquals(new int[] { 1, 2, 3, 4 }, codec.decode(bytes(0x10, 0x01, 0x10, 0x02, 0x12, 0x01, 0x03, 0x10, 0x04)).getSamples());
+			assertArrayEquals(new int[] { 1, 2 }, codec.decode(bytes(0x10, 0x01, 0x42, 0x01, 0x07, 0x10, 0x02)).getSamples());
+		}
+	}
+
+	@Test
+	public void testMapFields() {
+		CodecRegistry registry = new CodecRegistry(ProtoGenerator.getInstance().parse(SOURCE, "com.mfgeek.gb.ledger", "ledger", null, "proto3"), true);
+		ProtoCodec<Account> codec = registry.codec(Account.class);
+		Account account = new Account();
+		account.setLimits(new HashMap<String, Long>());
+		account.getLimits().put("a", 1L);
+		assertArrayEquals(bytes(0x12, 0x05, 0x0A, 0x01, 'a', 0x10, 0x01), codec.encode(account));
+
+		Ledger ledger = new Ledger();
+		ledger.setCurrency("EUR");
+		ledger.setBalance(2.5);
+		account.setLedgers(new TreeMap<Integer, Ledger>());
+		account.getLedgers().put(7, ledger);
+		account.getLedgers().put(8, new Ledger());
+		account.setVersion(3);
+		account.setCreatedBy("me");
+		Account decoded = codec.decode(codec.encode(account));
+		assertEquals(account, decoded);
+		assertEquals(TreeMap.class, decoded.getLedgers().getClass());
+	}
+
+	@Test
+	public void testCodecIsKept() {
+		CodecRegistry registry = registry("proto2");
+		assertSame(registry.codec(Customer.class), registry.codec(Customer.class));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEnumHasNoCodec() {
+		registry("proto2").codec(Status.class);
+	}
+
+}
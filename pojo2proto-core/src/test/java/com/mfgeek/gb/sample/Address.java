@@ -0,0 +1,12 @@
+package com.mfgeek.gb.sample;
+
+import lombok.Data;
+
+@Data
+public class Address {
+
+	private String	street;
+	private String	city;
+	private int			zipCode;
+
+}
@@ -0,0 +1,28 @@
+package com.mfgeek.gb.sample;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class Customer extends CustomerKey implements Serializable {
+
+	private static final long	serialVersionUID	= 1L;
+
+	private String						name;
+	private Integer						age;
+	private boolean						vip;
+	private double						balance;
+	private Date							created;
+	private Status						status;
+	private Address						address;
+	private List<Address>			previousAddresses;
+	private List<String>			tags;
+
+}
@@ -0,0 +1,7 @@
+package com.mfgeek.gb.sample;
+
+public class CustomerExample {
+
+	private String orderByClause;
+
+}
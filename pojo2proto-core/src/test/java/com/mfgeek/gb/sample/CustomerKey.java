@@ -0,0 +1,10 @@
+package com.mfgeek.gb.sample;
+
+import lombok.Data;
+
+@Data
+public class CustomerKey {
+
+	private long id;
+
+}
@@ -0,0 +1,9 @@
+package com.mfgeek.gb.sample;
+
+public enum Status {
+
+	ACTIVE, //
+	SUSPENDED, //
+	CLOSED; //
+
+}
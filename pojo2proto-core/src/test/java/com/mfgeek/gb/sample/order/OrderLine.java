@@ -0,0 +1,14 @@
+package com.mfgeek.gb.sample.order;
+
+import com.mfgeek.gb.sample.Address;
+
+import lombok.Data;
+
+@Data
+public class OrderLine {
+
+	private String	product;
+	private int			quantity;
+	private Address	deliveryAddress;
+
+}
@@ -0,0 +1,21 @@
+package com.mfgeek.gb.source;
+
+public enum Priority {
+
+	@Deprecated
+	LOW(1) {
+
+		@Override
+		public String toString() {
+			return "low";
+		}
+	},
+	HIGH(2);
+
+	private final int value;
+
+	Priority(int pValue) {
+		this.value = pValue;
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.mfgeek.gb.source;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mfgeek.gb.sample.Address;
+
+class BaseShipment {
+
+	protected String carrier;
+
+	String carrier() {
+		return this.carrier + "}";
+	}
+}
+
+/**
+ * A class whose source trips simple parsers: { braces } in comments, strings and initializers.
+ */
+@SuppressWarnings({ "unused", "serial" })
+public class Shipment<T extends Number> extends BaseShipment implements Serializable, Comparable<Shipment<T>> {
+
+	public static final String					PREFIX		= "ship{\"/*";	// not a comment
+	private static final char						QUOTE			= '\'';
+	private long												id				= 1L, version;
+	private int[]												codes, matrix[];
+	private T														weight;
+	private List<Address>								stops			= new ArrayList<Address>();
+	private Map<String, List<Address>>	byCity		= new HashMap<String, List<Address>>();
+	private Set<? extends Number>				measures;
+	private Entry<String, Integer>			last;
+	private Status											status;
+	private Leg													current;
+	private transient AtomicLong				counter		= new AtomicLong(1 < 2 ? 1 : 2);
+	@Deprecated
+	protected java.util.Date						shipped;
+	private com.mfgeek.gb.sample.Status	sampleStatus;
+	private final Runnable							callback	= new Runnable() {
+
+		@Override
+		public void run() {
+			int x = 0;
+		}
+	};
+
+	static {
+		System.getProperty("x");
+	}
+
+	{
+		this.id = 2;
+	}
+
+	public Shipment() {
+	}
+
+	public <E extends Comparable<E>> E max(List<E> pList) {
+		return null;
+	}
+
+	@Override
+	public int compareTo(Shipment<T> o) {
+		return 0;
+	}
+
+	public enum Status {
+		NEW, SHIPPED
+	}
+
+	public static class Leg {
+
+		private String from;
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.mfgeek.gb.telemetry;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class Reading {
+
+	private String				sensor;
+	private int[]					samples;
+	private long[]				timestamps;
+	private short[]				codes;
+	private float[]				weights;
+	private double[]			values;
+	private boolean[]			flags;
+	private byte[]				payload;
+	private List<Integer>	counts;
+
+}
@@ -0,0 +1,215 @@
+package com.mfgeek.gb.maven;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import com.mfgeek.gb.ClassFilePojoReader;
+import com.mfgeek.gb.GeneratorConfig;
+import com.mfgeek.gb.IncrementalSink;
+import com.mfgeek.gb.ProtoFileWriter;
+import com.mfgeek.gb.ProtoGenerator;
+import com.mfgeek.gb.RunStats;
+import com.mfgeek.gb.SchemaManifest;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Generate the proto files of a package of POJO classes inside the build, from the compiled
+ * classes of the project.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * Runs after the compilation: the classes are read from their class files by
+ * {@link ClassFilePojoReader}, nothing is loaded in the build JVM. The run is incremental:
+ * <ul>
+ * <li>when no class file of the package and not the pom changed since the manifest of the output
+ * directory was written, the goal stops before reading anything;</li>
+ * <li>otherwise the classes whose fingerprint is in the manifest are skipped and only the proto
+ * files whose content changed are rewritten, see {@link IncrementalSink}.</li>
+ * </ul>
+ * The output directory is added to the resources of the project for the phases which follow.
+ *
+ * <h3>USAGE</h3>
+ *
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;groupId&gt;com.mfgeek.gb&lt;/groupId&gt;
+ *   &lt;artifactId&gt;pojo2proto-maven-plugin&lt;/artifactId&gt;
+ *   &lt;executions&gt;&lt;execution&gt;&lt;goals&gt;&lt;goal&gt;generate&lt;/goal&gt;&lt;/goals&gt;&lt;/execution&gt;&lt;/executions&gt;
+ *   &lt;configuration&gt;
+ *     &lt;pojoPackage&gt;com.acme.model&lt;/pojoPackage&gt;
+ *     &lt;protoPackage&gt;acme&lt;/protoPackage&gt;
+ *   &lt;/configuration&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ *
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true)
+public class GenerateMojo extends AbstractMojo {
+
+	@Parameter(defaultValue = "${project}", readonly = true, required = true)
+	private MavenProject	project;
+
+	/** root directory of the POJO source code, lists the classes of the package */
+	@Parameter(defaultValue = "${project.build.sourceDirectory}", required = true)
+	private File					sourceDirectory;
+
+	/** root directory of the compiled POJO classes */
+	@Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+	private File					classesDirectory;
+
+	/** generated proto file output directory */
+	@Parameter(defaultValue = "${project.build.directory}/generated-resources/pojo2proto", required = true)
+	private File					outputDirectory;
+
+	/** package of the POJO classes */
+	@Parameter(required = true)
+	private String				pojoPackage;
+
+	/** package of the proto files */
+	@Parameter(required = true)
+	private String				protoPackage;
+
+	/** package of the classes protoc generates */
+	@Parameter
+	private String				javaPackage;
+
+	@Parameter(defaultValue = "proto2")
+	private String				syntax;
+
+	/** process the sub-packages of the package too */
+	@Parameter(defaultValue = "false")
+	private boolean				recursive;
+
+	/** number of classes processed in parallel */
+	@Parameter(defaultValue = "1")
+	private int						threads;
+
+	/** number of proto files written in parallel */
+	@Parameter(defaultValue = "4")
+	private int						writerThreads;
+
+	/** add the output directory to the resources of the project */
+	@Parameter(defaultValue = "true")
+	private boolean				addResource;
+
+	@Parameter(property = "pojo2proto.skip", defaultValue = "false")
+	private boolean				skip;
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (this.skip) {
+			getLog().info("Skipping proto generation");
+			return;
+		}
+		if (!this.sourceDirectory.isDirectory() || !this.classesDirectory.isDirectory()) {
+			getLog().info("No compiled classes, skipping proto generation");
+			return;
+		}
+
+		if (isUpToDate()) {
+			getLog().info("Proto files of " + this.pojoPackage + " are up to date");
+		} else {
+			generate();
+		}
+		if (this.addResource) {
+			Resource resource = new Resource();
+			resource.setDirectory(this.outputDirectory.getPath());
+			resource.addInclude("**/*.proto");
+			this.project.addResource(resource);
+		}
+	}
+
+	private void generate() throws MojoExecutionException {
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource(this.sourceDirectory.getPath());
+		config.setPojoPackage(this.pojoPackage);
+		config.setProtoPackage(this.protoPackage);
+		config.setJavaPackage(this.javaPackage);
+		config.setSyntax(this.syntax);
+		config.setParallelism(this.threads);
+		config.setRecursive(this.recursive);
+		config.setReader(new ClassFilePojoReader(this.classesDirectory));
+		// a class which could not be read keeps the proto files of removed classes and fails the build
+		RunStats stats = new RunStats();
+		config.setStats(stats);
+
+		long start = System.nanoTime();
+		IncrementalSink sink = new IncrementalSink(new ProtoFileWriter(this.outputDirectory.getPath(), this.writerThreads, stats),
+				SchemaManifest.load(this.outputDirectory));
+		int count;
+		try {
+			count = ProtoGenerator.getInstance().generate(config, sink);
+		} catch (RuntimeException e) {
+			// an incomplete run neither saves the manifest nor deletes any proto file
+			sink.getWriter().close();
+			throw new MojoExecutionException("Unable to generate the proto files of " + this.pojoPackage, e);
+		}
+		try {
+			sink.close();
+		} catch (IOException e) {
+			throw new MojoExecutionException("Unable to write the manifest in " + this.outputDirectory, e);
+		}
+		if (stats.get(RunStats.Counter.CLASSES_FAILED) > 0) {
+			throw new MojoExecutionException(stats.get(RunStats.Counter.CLASSES_FAILED) + " classes of " + this.pojoPackage + " could not be read");
+		}
+		if (sink.getWriter().getFailures() > 0) {
+			throw new MojoExecutionException(sink.getWriter().getFailures() + " proto files could not be written in " + this.outputDirectory);
+		}
+		getLog().info(count + " classes, " + sink.getClassesSkipped() + " unchanged classes skipped, " + sink.getWriter().getFilesWritten() + " proto files written in "
+				+ (System.nanoTime() - start) / 1000000 + " ms");
+	}
+
+	/**
+	 * @return <code>true</code> if neither the class files of the package nor the pom are newer than
+	 *         the manifest of the output directory
+	 */
+	private boolean isUpToDate() {
+		File manifest = new File(this.outputDirectory, SchemaManifest.FILE_NAME);
+		if (!manifest.isFile()) {
+			return false;
+		}
+		long generated = manifest.lastModified();
+		File pom = this.project.getFile();
+		if (pom != null && pom.lastModified() > generated) {
+			return false;
+		}
+		File packageDir = new File(this.classesDirectory, this.pojoPackage.replace('.', File.separatorChar));
+		File sourceDir = new File(this.sourceDirectory, this.pojoPackage.replace('.', File.separatorChar));
+		return !isNewer(packageDir, generated, ".class") && !isNewer(sourceDir, generated, ".java");
+	}
+
+	/**
+	 * @param pDir a package directory
+	 * @param pTime a time stamp
+	 * @param pExtension the extension of the files to check
+	 * @return <code>true</code> if a file of the package, or of its sub-packages when recursive, or the
+	 *         directory itself was modified after the time stamp
+	 */
+	private boolean isNewer(File pDir, long pTime, String pExtension) {
+		// a deleted file only changes the time stamp of its directory
+		if (pDir.lastModified() > pTime) {
+			return true;
+		}
+		File[] files = pDir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isDirectory()) {
+					if (this.recursive && isNewer(file, pTime, pExtension)) {
+						return true;
+					}
+				} else if (file.getName().endsWith(pExtension) && file.lastModified() > pTime) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
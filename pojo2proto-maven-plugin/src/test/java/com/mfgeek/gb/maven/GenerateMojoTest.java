@@ -0,0 +1,75 @@
+package com.mfgeek.gb.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mfgeek.gb.SchemaManifest;
+
+public class GenerateMojoTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static void set(Object pTarget, String pName, Object pValue) throws ReflectiveOperationException {
+		Field field = GenerateMojo.class.getDeclaredField(pName);
+		field.setAccessible(true);
+		field.set(pTarget, pValue);
+	}
+
+	private GenerateMojo mojo(MavenProject pProject, File pOutput) throws ReflectiveOperationException {
+		GenerateMojo mojo = new GenerateMojo();
+		set(mojo, "project", pProject);
+		set(mojo, "sourceDirectory", new File("src/test/java"));
+		set(mojo, "classesDirectory", new File("target/test-classes"));
+		set(mojo, "outputDirectory", pOutput);
+		set(mojo, "pojoPackage", "com.mfgeek.gb.maven.sample");
+		set(mojo, "protoPackage", "sample");
+		set(mojo, "syntax", "proto2");
+		set(mojo, "threads", 1);
+		set(mojo, "writerThreads", 2);
+		set(mojo, "addResource", true);
+		return mojo;
+	}
+
+	@Test
+	public void testGenerateIncremental() throws Exception {
+		File output = this.folder.newFolder("protos");
+		MavenProject project = new MavenProject();
+		mojo(project, output).execute();
+
+		File proto = new File(output, "Point.proto");
+		assertTrue(proto.isFile());
+		assertTrue(new String(Files.readAllBytes(proto.toPath()), StandardCharsets.UTF_8).contains("optional int32 x = 1"));
+		assertEquals(1, project.getResources().size());
+		assertEquals(output.getPath(), project.getResources().get(0).getDirectory());
+
+		// nothing changed: the goal stops before reading the classes, the manifest is left untouched
+		File manifest = new File(output, SchemaManifest.FILE_NAME);
+		assertTrue(manifest.setLastModified(System.currentTimeMillis() + 60000));
+		long stamp = manifest.lastModified();
+		mojo(new MavenProject(), output).execute();
+		assertEquals(stamp, manifest.lastModified());
+
+		// a newer class file triggers a run
+		File classFile = new File("target/test-classes/com/mfgeek/gb/maven/sample/Point.class");
+		long previous = classFile.lastModified();
+		try {
+			assertTrue(classFile.setLastModified(stamp + 60000));
+			mojo(new MavenProject(), output).execute();
+			assertTrue(manifest.lastModified() != stamp);
+		} finally {
+			classFile.setLastModified(previous);
+		}
+	}
+
+}
@@ -0,0 +1,9 @@
+package com.mfgeek.gb.maven.sample;
+
+public class Point {
+
+	private int			x;
+	private int			y;
+	private String	label;
+
+}
@@ -0,0 +1,122 @@
+package com.mfgeek.gb.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.mfgeek.gb.PojoClass;
+import com.mfgeek.gb.PojoField;
+import com.mfgeek.gb.PojoReader;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Read POJO classes from the elements of the compiler, while they are being compiled.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The declared fields, enum constants included, are read in declaration order as reflection lists
+ * them; type variables are replaced by their erasure. The classes are looked up by name on each
+ * read, so the reader works across rounds, for the classes being compiled as for the ones of the
+ * class path.
+ *
+ * <h3>USAGE</h3>
+ * Created by {@link ProtoProcessor}; the elements of the compiler are not thread safe, the run must
+ * be sequential.
+ *
+ */
+class ElementPojoReader implements PojoReader {
+
+	private final Elements		elements;
+	private final Types				types;
+	private final TypeMirror	collection;
+	private final TypeMirror	map;
+
+	/**
+	 * @param pElements the element utilities of the compiler
+	 * @param pTypes the type utilities of the compiler
+	 */
+	ElementPojoReader(Elements pElements, Types pTypes) {
+		this.elements = pElements;
+		this.types = pTypes;
+		this.collection = pTypes.erasure(pElements.getTypeElement("java.util.Collection").asType());
+		this.map = pTypes.erasure(pElements.getTypeElement("java.util.Map").asType());
+	}
+
+	@Override
+	public PojoClass read(String pClassName) throws ClassNotFoundException {
+		TypeElement type = this.elements.getTypeElement(pClassName.replace('$', '.'));
+		if (type == null) {
+			throw new ClassNotFoundException(pClassName);
+		}
+		List<PojoField> fields = new ArrayList<>();
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			fields.add(toPojoField(field));
+		}
+		TypeMirror superclass = type.getSuperclass();
+		return new PojoClass(binaryName(type), type.getSimpleName().toString(), this.elements.getPackageOf(type).getQualifiedName().toString(),
+				type.getKind() == ElementKind.ENUM, superclass.getKind() == TypeKind.NONE ? null : typeName(superclass),
+				Collections.unmodifiableList(fields));
+	}
+
+	/**
+	 * @param pField a field or an enum constant
+	 * @return the field
+	 */
+	private PojoField toPojoField(VariableElement pField) {
+		TypeMirror type = pField.asType();
+		String typeName = typeName(type);
+		List<String> typeArguments = null;
+		boolean isCollection = false;
+		boolean isMap = false;
+		if (type.getKind() == TypeKind.DECLARED) {
+			isCollection = this.types.isAssignable(this.types.erasure(type), this.collection);
+			isMap = this.types.isAssignable(this.types.erasure(type), this.map);
+			List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+			if (!arguments.isEmpty()) {
+				typeArguments = new ArrayList<>();
+				for (TypeMirror argument : arguments) {
+					// as reflection: plain classes only
+					boolean plain = argument.getKind() == TypeKind.DECLARED && ((DeclaredType) argument).getTypeArguments().isEmpty();
+					typeArguments.add(plain ? typeName(argument) : null);
+				}
+			}
+		}
+		return new PojoField(pField.getSimpleName().toString(), typeName, PojoField.simpleNameOf(typeName), isCollection, isMap, typeArguments);
+	}
+
+	/**
+	 * @param pType a type
+	 * @return the binary name of its erasure, with a <code>[]</code> suffix per dimension for arrays
+	 */
+	private String typeName(TypeMirror pType) {
+		switch (pType.getKind()) {
+			case ARRAY:
+				return typeName(((ArrayType) pType).getComponentType()) + "[]";
+			case DECLARED:
+				return binaryName((TypeElement) ((DeclaredType) pType).asElement());
+			case TYPEVAR:
+				return typeName(this.types.erasure(pType));
+			default:
+				if (pType.getKind().isPrimitive()) {
+					return pType.getKind().name().toLowerCase();
+				}
+				// unresolved by the compiler, which reports it
+				return pType.toString();
+		}
+	}
+
+	private String binaryName(TypeElement pType) {
+		return this.elements.getBinaryName(pType).toString();
+	}
+
+}
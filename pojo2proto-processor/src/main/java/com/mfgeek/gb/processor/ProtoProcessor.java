@@ -0,0 +1,236 @@
+package com.mfgeek.gb.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.mfgeek.gb.GeneratorConfig;
+import com.mfgeek.gb.ProtoFile;
+import com.mfgeek.gb.ProtoFileSink;
+import com.mfgeek.gb.ProtoGenerator;
+
+/**
+ * <h3>DESCRIPTION</h3>
+ * Generate the proto files of the POJOs of a package while <code>javac</code> compiles them.
+ *
+ * <h3>IMPLEMENTATION</h3>
+ * The top level classes of the package compiled in each round are collected by name; once the last
+ * round is over, {@link ProtoGenerator#generateClasses} builds their proto files with the type
+ * mapping of a normal run, reading the classes through an {@link ElementPojoReader}, and each file is
+ * written through the {@link Filer} with its class as originating element. Custom types resolve to
+ * all the classes of the packages involved, the compiled ones as the ones of the class path, so a
+ * build which only recompiles the changed classes regenerates their proto files alone, with the
+ * same imports. The processor claims no annotation, other processors see them all.
+ * <p>
+ * It is declared to Gradle as an aggregating incremental processor, since custom types resolve
+ * against every class of the package: the compilation stays incremental, but Gradle gives the
+ * processor all the classes again and replaces all its proto files on each compilation, so the
+ * proto files of unchanged classes are rebuilt too. Tools without incremental processing, as
+ * Maven, regenerate the proto files of the compiled classes only.
+ *
+ * <h3>USAGE</h3>
+ * Put the jar on the processor path of the compiler and give the options, as
+ * <code>-Apojo2proto.pojoPackage=com.foo.model -Apojo2proto.protoPackage=model</code>:
+ * <ul>
+ * <li><code>pojo2proto.pojoPackage</code>: package of the POJO classes, the processor does nothing
+ * without it</li>
+ * <li><code>pojo2proto.protoPackage</code>: package of the proto files</li>
+ * <li><code>pojo2proto.javaPackage</code>: package of the generated proto classes, POJO package if
+ * empty</li>
+ * <li><code>pojo2proto.syntax</code>: <code>proto2</code> by default</li>
+ * <li><code>pojo2proto.recursive</code>: <code>true</code> to process the sub-packages too</li>
+ * <li><code>pojo2proto.outputDir</code>: directory of the proto files in the class output, its
+ * root by default</li>
+ * </ul>
+ *
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions({ ProtoProcessor.OPTION_POJO_PACKAGE, ProtoProcessor.OPTION_PROTO_PACKAGE, ProtoProcessor.OPTION_JAVA_PACKAGE,
+		ProtoProcessor.OPTION_SYNTAX, ProtoProcessor.OPTION_RECURSIVE, ProtoProcessor.OPTION_OUTPUT_DIR })
+public class ProtoProcessor extends AbstractProcessor {
+
+	public static final String	OPTION_POJO_PACKAGE		= "pojo2proto.pojoPackage";
+	public static final String	OPTION_PROTO_PACKAGE	= "pojo2proto.protoPackage";
+	public static final String	OPTION_JAVA_PACKAGE		= "pojo2proto.javaPackage";
+	public static final String	OPTION_SYNTAX					= "pojo2proto.syntax";
+	public static final String	OPTION_RECURSIVE			= "pojo2proto.recursive";
+	public static final String	OPTION_OUTPUT_DIR			= "pojo2proto.outputDir";
+
+	/** Classes of a package first, then its sub-packages, as in a listed package. */
+	private static final Comparator<String> BY_PACKAGE = new Comparator<String>() {
+
+		@Override
+		public int compare(String o1, String o2) {
+			return key(o1).compareTo(key(o2));
+		}
+
+		private String key(String pBinaryName) {
+			int dot = pBinaryName.lastIndexOf('.');
+			return pBinaryName.substring(0, dot + 1).replace('.', '/') + '\0' + pBinaryName.substring(dot + 1);
+		}
+	};
+
+	/** <code>null</code> when the processor is disabled */
+	private GeneratorConfig			config;
+	private String							outputDir;
+	/** binary names of the classes compiled in the previous rounds */
+	private final Set<String>		compiled							= new TreeSet<>(BY_PACKAGE);
+
+	@Override
+	public synchronized void init(ProcessingEnvironment pEnv) {
+		super.init(pEnv);
+		String pojoPackage = pEnv.getOptions().get(OPTION_POJO_PACKAGE);
+		if (pojoPackage == null || pojoPackage.isEmpty()) {
+			pEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "pojo2proto: no " + OPTION_POJO_PACKAGE + " option, no proto file generated");
+			return;
+		}
+		String protoPackage = pEnv.getOptions().get(OPTION_PROTO_PACKAGE);
+		if (protoPackage == null || protoPackage.isEmpty()) {
+			pEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "pojo2proto: the " + OPTION_PROTO_PACKAGE + " option is missing");
+			return;
+		}
+		GeneratorConfig config = new GeneratorConfig();
+		config.setPojoPackage(pojoPackage);
+		config.setProtoPackage(protoPackage);
+		config.setJavaPackage(pEnv.getOptions().get(OPTION_JAVA_PACKAGE));
+		String syntax = pEnv.getOptions().get(OPTION_SYNTAX);
+		// anything but proto3 is proto2, as on the command line
+		config.setSyntax("proto3".equals(syntax) ? "proto3" : "proto2");
+		config.setRecursive(Boolean.parseBoolean(pEnv.getOptions().get(OPTION_RECURSIVE)));
+		config.setReader(new ElementPojoReader(pEnv.getElementUtils(), pEnv.getTypeUtils()));
+		this.config = config;
+		String dir = pEnv.getOptions().get(OPTION_OUTPUT_DIR);
+		this.outputDir = dir == null || dir.isEmpty() ? "" : dir.endsWith("/") ? dir : dir + "/";
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> pAnnotations, RoundEnvironment pRoundEnv) {
+		if (this.config == null) {
+			return false;
+		}
+		for (TypeElement type : ElementFilter.typesIn(pRoundEnv.getRootElements())) {
+			if (isInScope(packageOf(type))) {
+				this.compiled.add(this.processingEnv.getElementUtils().getBinaryName(type).toString());
+			}
+		}
+		if (pRoundEnv.processingOver() && !this.compiled.isEmpty()) {
+			generate();
+		}
+		return false;
+	}
+
+	/**
+	 * Build and write the proto files of the compiled classes.
+	 */
+	private void generate() {
+		final Filer filer = this.processingEnv.getFiler();
+		ProtoGenerator.getInstance().generateClasses(this.config, knownClasses(), new ArrayList<>(this.compiled), new ProtoFileSink() {
+
+			@Override
+			public void accept(ProtoFile pf) {
+				Element origin = ProtoProcessor.this.processingEnv.getElementUtils().getTypeElement(pf.getClassName().replace('$', '.'));
+				String name = ProtoProcessor.this.outputDir + pf.getName() + ".proto";
+				try {
+					FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", name, origin);
+					try (Writer out = file.openWriter()) {
+						pf.writeTo(out);
+					}
+				} catch (IOException e) {
+					ProtoProcessor.this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "pojo2proto: unable to write " + name + ": " + e,
+							origin);
+				}
+			}
+		});
+		this.compiled.clear();
+	}
+
+	/**
+	 * @return the top level classes of the packages of the compiled classes and of the types of their
+	 *         fields, compiled or not
+	 */
+	private List<String> knownClasses() {
+		Set<String> packages = new HashSet<>();
+		for (String name : this.compiled) {
+			TypeElement type = this.processingEnv.getElementUtils().getTypeElement(name.replace('$', '.'));
+			if (type == null) {
+				continue;
+			}
+			packages.add(packageOf(type));
+			for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+				addPackages(field.asType(), packages);
+			}
+		}
+		List<String> known = new ArrayList<>();
+		for (String pkg : packages) {
+			PackageElement element = this.processingEnv.getElementUtils().getPackageElement(pkg);
+			if (element != null) {
+				for (TypeElement type : ElementFilter.typesIn(element.getEnclosedElements())) {
+					known.add(this.processingEnv.getElementUtils().getBinaryName(type).toString());
+				}
+			}
+		}
+		Collections.sort(known, BY_PACKAGE);
+		return known;
+	}
+
+	/**
+	 * @param pType the type of a field
+	 * @param pPackages receive the packages in scope of the type and of its type arguments
+	 */
+	private void addPackages(TypeMirror pType, Set<String> pPackages) {
+		if (pType.getKind() != TypeKind.DECLARED) {
+			return;
+		}
+		String pkg = packageOf(((DeclaredType) pType).asElement());
+		if (isInScope(pkg)) {
+			pPackages.add(pkg);
+		}
+		for (TypeMirror argument : ((DeclaredType) pType).getTypeArguments()) {
+			addPackages(argument, pPackages);
+		}
+	}
+
+	private String packageOf(Element pElement) {
+		return this.processingEnv.getElementUtils().getPackageOf(pElement).getQualifiedName().toString();
+	}
+
+	/**
+	 * @param pPackage a package
+	 * @return <code>true</code> if the classes of the package are processed
+	 */
+	private boolean isInScope(String pPackage) {
+		String pojoPackage = this.config.getPojoPackage();
+		return pPackage.equals(pojoPackage) || (this.config.isRecursive() && pPackage.startsWith(pojoPackage + "."));
+	}
+
+}
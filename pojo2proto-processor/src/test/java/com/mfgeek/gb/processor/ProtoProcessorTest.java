@@ -0,0 +1,125 @@
+package com.mfgeek.gb.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mfgeek.gb.GeneratorConfig;
+import com.mfgeek.gb.ProtoFile;
+import com.mfgeek.gb.ProtoGenerator;
+
+public class ProtoProcessorTest {
+
+	private static final String	PACKAGE	= "com.mfgeek.gb.processor.sample";
+	private static final File		SAMPLE	= new File("src/test/java/com/mfgeek/gb/processor/sample");
+
+	@Rule
+	public TemporaryFolder			folder	= new TemporaryFolder();
+
+	/**
+	 * The proto files written during the compilation are the ones of a reflection run.
+	 */
+	@Test
+	public void testSameAsReflection() throws IOException {
+		File out = this.folder.newFolder();
+		compile(out, "protos", "Color.java", "Point.java", "Shape.java");
+
+		GeneratorConfig config = new GeneratorConfig();
+		config.setSource("src/test/java");
+		config.setPojoPackage(PACKAGE);
+		config.setProtoPackage("sample");
+		List<ProtoFile> expected = ProtoGenerator.getInstance().parse(config);
+		assertEquals(3, expected.size());
+		for (ProtoFile pf : expected) {
+			assertEquals(pf.toString(), read(new File(out, "protos/" + pf.getName() + ".proto")));
+		}
+		String shape = read(new File(out, "protos/Shape.proto"));
+		assertTrue(shape, shape.contains("import \"Point.proto\";"));
+		assertTrue(shape, shape.contains("repeated Point points = 2"));
+	}
+
+	/**
+	 * Compiling one class again writes its proto file alone, its custom types still resolve.
+	 */
+	@Test
+	public void testIncremental() throws IOException {
+		File out = this.folder.newFolder();
+		compile(out, "", "Color.java", "Point.java", "Shape.java");
+		File point = new File(out, "Point.proto");
+		assertTrue(point.delete());
+		File shape = new File(out, "Shape.proto");
+		String before = read(shape);
+		assertTrue(shape.delete());
+
+		compile(out, "", "Shape.java");
+		assertEquals(before, read(shape));
+		assertTrue(!point.exists());
+	}
+
+	@Test
+	public void testDisabled() throws IOException {
+		File out = this.folder.newFolder();
+		assertTrue(run(out, Collections.<String> emptyList(), "Point.java").isEmpty());
+		assertEquals(Arrays.asList("com"), Arrays.asList(out.list()));
+	}
+
+	/**
+	 * Compile sample classes with the processor, fail on errors.
+	 */
+	private static void compile(File pOut, String pOutputDir, String... pFiles) throws IOException {
+		List<String> options = Arrays.asList("-A" + ProtoProcessor.OPTION_POJO_PACKAGE + "=" + PACKAGE,
+				"-A" + ProtoProcessor.OPTION_PROTO_PACKAGE + "=sample", "-A" + ProtoProcessor.OPTION_OUTPUT_DIR + "=" + pOutputDir);
+		List<String> errors = run(pOut, options, pFiles);
+		assertTrue(errors.toString(), errors.isEmpty());
+	}
+
+	/**
+	 * @return the errors of the compilation
+	 */
+	private static List<String> run(File pOut, List<String> pOptions, String... pFiles) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		List<File> sources = new ArrayList<>();
+		for (String file : pFiles) {
+			sources.add(new File(SAMPLE, file));
+		}
+		List<String> options = new ArrayList<>(pOptions);
+		options.addAll(Arrays.asList("-d", pOut.getPath(), "-classpath", pOut.getPath() + File.pathSeparator + System.getProperty("java.class.path")));
+		try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+			JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics, options, null, files.getJavaFileObjectsFromFiles(sources));
+			task.setProcessors(Collections.singletonList(new ProtoProcessor()));
+			task.call();
+		}
+		List<String> errors = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+				errors.add(diagnostic.toString());
+			}
+		}
+		return errors;
+	}
+
+	private static String read(File pFile) throws IOException {
+		return new String(Files.readAllBytes(pFile.toPath()), StandardCharsets.UTF_8);
+	}
+
+}
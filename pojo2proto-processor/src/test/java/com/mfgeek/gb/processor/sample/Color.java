@@ -0,0 +1,5 @@
+package com.mfgeek.gb.processor.sample;
+
+public enum Color {
+	RED, GREEN, BLUE
+}
@@ -0,0 +1,16 @@
+package com.mfgeek.gb.processor.sample;
+
+import java.util.List;
+import java.util.Map;
+
+public class Shape<T extends Number> {
+
+	private String							name;
+	private List<Point>					points;
+	private Color								color;
+	private T										area;
+	private long[]							stamps;
+	private Map<String, Point>	anchors;
+	private Shape<T>						parent;
+
+}